@@ -2,6 +2,7 @@ package com.example.phonehub;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,6 +14,7 @@ import java.util.Map;
 import java.util.TimeZone;
 
 @SpringBootApplication
+@EnableScheduling
 @RestController
 @Tag(name = "Home", description = "Home API")
 public class PhonehubApplication {
@@ -65,6 +65,8 @@ public class WebSecurityConfig implements WebMvcConfigurer {
                 .authorizeHttpRequests(auth -> {
                     // Allow OPTIONS requests for CORS preflight
                     auth.requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**").permitAll();
+                    // Async dispatch (StreamingResponseBody) đã được kiểm tra ở lần dispatch đầu, JWT filter không chạy lại
+                    auth.dispatcherTypeMatchers(jakarta.servlet.DispatcherType.ASYNC).permitAll();
                     // Always public endpoints
                     auth.requestMatchers("/api/v1/auth/**").permitAll();
                     auth.requestMatchers("/api/v1/database/**").permitAll();
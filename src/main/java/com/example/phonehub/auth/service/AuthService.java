@@ -8,6 +8,8 @@ import com.example.phonehub.dto.UploadResponse;
 import com.example.phonehub.repository.RoleRepository;
 import com.example.phonehub.repository.UserRepository;
 import com.example.phonehub.service.UploadService;
+import com.example.phonehub.service.redis_cache.CountCacheService;
+import com.example.phonehub.service.redis_cache.UserCacheService;
 import com.example.phonehub.utils.PasswordUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -41,6 +43,12 @@ public class AuthService {
     @Autowired
     private UploadService uploadService;
 
+    @Autowired
+    private UserCacheService userCacheService;
+
+    @Autowired
+    private CountCacheService countCacheService;
+
     /**
      * Đăng nhập user và tạo JWT tokens
      */
@@ -110,6 +118,8 @@ public class AuthService {
 
         // Save user
         User savedUser = userRepository.save(newUser);
+        userCacheService.registerLookupKeys(savedUser.getUsername(), savedUser.getEmail());
+        countCacheService.invalidate(CountCacheService.USERS);
 
         // Return AuthResponse
         return new AuthResponse(
@@ -229,7 +239,10 @@ public class AuthService {
                 } catch (Exception ignored) { u.setAvatar(picture); }
             }
             u.setRole(defaultRole);
-            return userRepository.save(u);
+            User saved = userRepository.save(u);
+            userCacheService.registerLookupKeys(saved.getUsername(), saved.getEmail());
+            countCacheService.invalidate(CountCacheService.USERS);
+            return saved;
         });
 
         // Đồng bộ avatar nếu user cũ chưa có ảnh
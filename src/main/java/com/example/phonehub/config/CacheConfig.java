@@ -0,0 +1,88 @@
+package com.example.phonehub.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình Spring Cache (@Cacheable / @CacheEvict) trên Redis
+ *
+ * Các cache đang dùng:
+ * - orders:list, orders:listByUser, orders:success:list - danh sách đơn hàng (TTL ngắn)
+ * - orders:byId, orders:spent - chi tiết đơn / tổng chi tiêu của user
+ * - orderItems:byOrder, orderItems:byId - item của đơn hàng
+ *
+ * Key trong Redis có dạng "<cacheName>::<key>", ví dụ: "orders:byId::15"
+ * Khi Redis không truy cập được, FallbackCacheManager chuyển sang cache Caffeine trong JVM.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Value("${app.cache.default-ttl-seconds:600}")
+    private long defaultTtlSeconds;
+
+    @Value("${app.cache.fallback.max-size:500}")
+    private long fallbackMaxSize;
+
+    @Value("${app.cache.fallback.ttl-seconds:60}")
+    private long fallbackTtlSeconds;
+
+    @Value("${app.cache.fallback.retry-seconds:30}")
+    private long retrySeconds;
+
+    /**
+     * TTL riêng cho từng cache - danh sách thay đổi thường xuyên nên giữ ngắn hơn chi tiết
+     */
+    private Map<String, Duration> cacheTtls() {
+        Map<String, Duration> ttls = new HashMap<>();
+        ttls.put("orders:list", Duration.ofMinutes(5));
+        ttls.put("orders:listByUser", Duration.ofMinutes(5));
+        ttls.put("orders:success:list", Duration.ofMinutes(5));
+        ttls.put("orders:byId", Duration.ofMinutes(10));
+        ttls.put("orders:spent", Duration.ofMinutes(10));
+        ttls.put("orderItems:byOrder", Duration.ofMinutes(10));
+        ttls.put("orderItems:byId", Duration.ofMinutes(10));
+        return ttls;
+    }
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     RedisSerializer<Object> redisValueSerializer,
+                                     MeterRegistry meterRegistry) {
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofSeconds(defaultTtlSeconds))
+                .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(RedisSerializer.string()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(redisValueSerializer));
+
+        Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+        cacheTtls().forEach((name, ttl) -> perCache.put(name, defaults.entryTtl(ttl)));
+
+        // clear() dùng SCAN thay vì KEYS để không block Redis khi evict allEntries
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, BatchStrategies.scan(1000));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
+                .cacheDefaults(defaults)
+                .withInitialCacheConfigurations(perCache)
+                .build();
+        redisCacheManager.afterPropertiesSet();
+
+        FallbackCacheManager cacheManager = new FallbackCacheManager(redisCacheManager, meterRegistry,
+                fallbackMaxSize, Duration.ofSeconds(fallbackTtlSeconds), Duration.ofSeconds(retrySeconds));
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
+    }
+}
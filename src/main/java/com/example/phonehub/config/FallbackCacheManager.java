@@ -0,0 +1,231 @@
+package com.example.phonehub.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * CacheManager bọc ngoài RedisCacheManager
+ *
+ * - Redis lỗi (mất kết nối, timeout...) thì chuyển sang cache Caffeine trong JVM
+ *   thay vì ném exception làm hỏng request, và tạm ngưng gọi Redis trong retryInterval
+ * - Evict/clear trên Redis thất bại thì đánh dấu cache "dirty", khi Redis sống lại sẽ clear
+ *   toàn bộ cache đó trước khi đọc để không trả dữ liệu cũ
+ * - Đếm hit/miss/fallback theo từng cache name (phonehub.cache.gets, phonehub.cache.fallback)
+ * - Transaction-aware: put/evict trong transaction chỉ chạy sau khi commit
+ */
+public class FallbackCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(FallbackCacheManager.class);
+
+    private final CacheManager redisCacheManager;
+    private final MeterRegistry meterRegistry;
+    private final long fallbackMaxSize;
+    private final Duration fallbackTtl;
+    private final Duration retryInterval;
+
+    // Thời điểm (ms) được phép thử lại Redis sau lần lỗi gần nhất
+    private volatile long redisRetryAt = 0;
+
+    public FallbackCacheManager(CacheManager redisCacheManager, MeterRegistry meterRegistry,
+                                long fallbackMaxSize, Duration fallbackTtl, Duration retryInterval) {
+        this.redisCacheManager = redisCacheManager;
+        this.meterRegistry = meterRegistry;
+        this.fallbackMaxSize = fallbackMaxSize;
+        this.fallbackTtl = fallbackTtl;
+        this.retryInterval = retryInterval;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        List<Cache> caches = new ArrayList<>();
+        for (String name : redisCacheManager.getCacheNames()) {
+            Cache redisCache = redisCacheManager.getCache(name);
+            if (redisCache != null) {
+                caches.add(new FallbackCache(redisCache));
+            }
+        }
+        return caches;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+        return redisCache != null ? new FallbackCache(redisCache) : null;
+    }
+
+    private boolean redisAvailable() {
+        return System.currentTimeMillis() >= redisRetryAt;
+    }
+
+    private void markRedisDown(String cacheName, RuntimeException e) {
+        redisRetryAt = System.currentTimeMillis() + retryInterval.toMillis();
+        logger.warn("Redis cache '{}' unavailable, using in-memory fallback for {}s: {}",
+                cacheName, retryInterval.toSeconds(), e.getMessage());
+    }
+
+    private class FallbackCache implements Cache {
+
+        private final Cache redis;
+        private final CaffeineCache local;
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter fallbacks;
+        private volatile boolean dirty = false;
+
+        FallbackCache(Cache redis) {
+            this.redis = redis;
+            this.local = new CaffeineCache(redis.getName(), Caffeine.newBuilder()
+                    .maximumSize(fallbackMaxSize)
+                    .expireAfterWrite(fallbackTtl)
+                    .build());
+            this.hits = counter("phonehub.cache.gets", "result", "hit");
+            this.misses = counter("phonehub.cache.gets", "result", "miss");
+            this.fallbacks = counter("phonehub.cache.fallback", null, null);
+        }
+
+        private Counter counter(String name, String tagKey, String tagValue) {
+            Counter.Builder builder = Counter.builder(name).tag("cache", redis.getName());
+            if (tagKey != null) {
+                builder.tag(tagKey, tagValue);
+            }
+            return builder.register(meterRegistry);
+        }
+
+        /**
+         * Trả về cache đang dùng được: Redis nếu sống (và đã clear nếu dirty), ngược lại cache local
+         */
+        private Cache active() {
+            if (!redisAvailable()) {
+                fallbacks.increment();
+                return local;
+            }
+            if (dirty) {
+                try {
+                    redis.clear();
+                    dirty = false;
+                } catch (RuntimeException e) {
+                    markRedisDown(getName(), e);
+                    fallbacks.increment();
+                    return local;
+                }
+            }
+            return redis;
+        }
+
+        private ValueWrapper record(ValueWrapper wrapper) {
+            (wrapper != null ? hits : misses).increment();
+            return wrapper;
+        }
+
+        @Override
+        public String getName() {
+            return redis.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return redis.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            Cache cache = active();
+            if (cache == local) {
+                return record(local.get(key));
+            }
+            try {
+                return record(redis.get(key));
+            } catch (RuntimeException e) {
+                markRedisDown(getName(), e);
+                fallbacks.increment();
+                return record(local.get(key));
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Class<T> type) {
+            ValueWrapper wrapper = get(key);
+            Object value = wrapper != null ? wrapper.get() : null;
+            if (value != null && type != null && !type.isInstance(value)) {
+                throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+            }
+            return (T) value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            ValueWrapper wrapper = get(key);
+            if (wrapper != null) {
+                return (T) wrapper.get();
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            put(key, value);
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (active() == local) {
+                local.put(key, value);
+                return;
+            }
+            try {
+                redis.put(key, value);
+            } catch (RuntimeException e) {
+                markRedisDown(getName(), e);
+                local.put(key, value);
+            }
+        }
+
+        @Override
+        public void evict(Object key) {
+            local.evict(key);
+            if (!redisAvailable()) {
+                dirty = true;
+                return;
+            }
+            try {
+                redis.evict(key);
+            } catch (RuntimeException e) {
+                dirty = true;
+                markRedisDown(getName(), e);
+            }
+        }
+
+        @Override
+        public void clear() {
+            local.clear();
+            if (!redisAvailable()) {
+                dirty = true;
+                return;
+            }
+            try {
+                redis.clear();
+                dirty = false;
+            } catch (RuntimeException e) {
+                dirty = true;
+                markRedisDown(getName(), e);
+            }
+        }
+    }
+}
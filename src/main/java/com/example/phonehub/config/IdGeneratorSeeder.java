@@ -0,0 +1,99 @@
+package com.example.phonehub.config;
+
+import com.example.phonehub.entity.IdGenerators;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Đồng bộ bảng id_generators với dữ liệu đang có lúc khởi động
+ *
+ * Các bảng này trước đây dùng AUTO_INCREMENT: next_val phải vượt AUTO_INCREMENT hiện tại (không chỉ MAX(id),
+ * các dòng cuối có thể đã bị xóa) + allocationSize (pooled optimizer cấp id trong khoảng
+ * (next_val - allocationSize, next_val]). Lần seed đầu (chưa có dòng generator) cộng thêm khoảng an toàn
+ * app.id-generator.seed-gap cho các INSERT AUTO_INCREMENT còn chạy sau lúc seed; các lần khởi động sau
+ * không cộng nữa để không đốt id. AUTO_INCREMENT đọc từ information_schema có thể bị cache
+ * (information_schema_stats_expiry) nên lấy max với MAX(id); không đọc được (H2) thì chỉ dùng MAX(id).
+ * Chỉ tăng, không giảm - chạy lại nhiều lần / nhiều instance cùng lúc vẫn an toàn.
+ *
+ * Deploy đầu tiên chuyển IDENTITY -> TABLE generator phải dừng hết instance cũ (stop-the-world), không rolling:
+ * INSERT với id tường minh của instance mới đẩy AUTO_INCREMENT vào block mà instance mới khác đã giữ,
+ * instance cũ INSERT tiếp sẽ trùng khóa. Khoảng an toàn chỉ che các INSERT cũ trước INSERT đầu tiên của
+ * instance mới. Từ deploy thứ 2 mọi instance đều dùng bảng generator, rolling deploy bình thường.
+ */
+@Component
+public class IdGeneratorSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorSeeder.class);
+
+    /** Tên generator (cũng là tên bảng) -> allocationSize */
+    private static final Map<String, Integer> GENERATORS = Map.of(
+            IdGenerators.PRODUCTS, IdGenerators.PRODUCT_ALLOCATION,
+            IdGenerators.PRODUCT_SPECIFICATIONS, IdGenerators.CHILD_ALLOCATION,
+            IdGenerators.PRODUCT_COLORS, IdGenerators.CHILD_ALLOCATION,
+            IdGenerators.PRODUCT_IMAGES, IdGenerators.CHILD_ALLOCATION,
+            IdGenerators.ORDER_ITEMS, IdGenerators.ORDER_ALLOCATION,
+            IdGenerators.STOCK_RESERVATIONS, IdGenerators.ORDER_ALLOCATION);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.id-generator.seed-gap:100000}")
+    private long seedGap;
+
+    // Chờ Hibernate tạo/cập nhật schema (ddl-auto) trước khi seed
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void seed() {
+        GENERATORS.forEach((name, allocation) -> {
+            try {
+                seed(name, allocation);
+            } catch (Exception e) {
+                logger.warn("Id generator seed failed for {}: {}", name, e.getMessage());
+            }
+        });
+    }
+
+    private void seed(String name, int allocation) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + name, Long.class);
+        long current = Math.max(maxId != null ? maxId + 1 : 1, autoIncrement(name));
+        long floor = current + allocation;
+        String update = "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = GREATEST("
+                + IdGenerators.VALUE_COLUMN + ", ?) WHERE " + IdGenerators.PK_COLUMN + " = ?";
+        if (jdbcTemplate.update(update, floor, name) > 0) {
+            return;
+        }
+        try {
+            // Lần seed đầu: AUTO_INCREMENT có thể còn được instance cũ dùng -> thêm khoảng an toàn
+            jdbcTemplate.update("INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.PK_COLUMN + ", "
+                    + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)", name, floor + seedGap);
+        } catch (DuplicateKeyException e) {
+            // Instance khác vừa insert
+            jdbcTemplate.update(update, floor, name);
+        }
+    }
+
+    /**
+     * Giá trị AUTO_INCREMENT kế tiếp của bảng, 0 nếu DB không hỗ trợ
+     */
+    private long autoIncrement(String table) {
+        try {
+            Long value = jdbcTemplate.queryForObject("SELECT AUTO_INCREMENT FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", Long.class, table);
+            return value != null ? value : 0;
+        } catch (Exception e) {
+            logger.debug("AUTO_INCREMENT unavailable for {}: {}", table, e.getMessage());
+            return 0;
+        }
+    }
+}
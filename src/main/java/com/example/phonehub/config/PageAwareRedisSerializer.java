@@ -0,0 +1,92 @@
+package com.example.phonehub.config;
+
+import com.example.phonehub.dto.CountedPage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializer bọc ngoài serializer JSON để lưu được Page vào Redis
+ *
+ * PageImpl không có constructor mặc định nên Jackson không đọc ngược được.
+ * Khi ghi: Page -> CachedPage (content + số trang + size + sort + total + countMode nếu là CountedPage),
+ * CachedPage generic để kiểu phần tử của content đi theo kiểu gốc của value
+ * Khi đọc: CachedPage -> PageImpl (CountedPage nếu có countMode)
+ *
+ * Optional không cần xử lý ở đây: Spring Cache tự unwrap Optional trước khi put.
+ */
+public class PageAwareRedisSerializer implements RedisSerializer<Object> {
+
+    private final RedisSerializer<Object> delegate;
+
+    public PageAwareRedisSerializer(RedisSerializer<Object> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value instanceof Page<?> page) {
+            return delegate.serialize(CachedPage.from(page));
+        }
+        return delegate.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        Object value = delegate.deserialize(bytes);
+        if (value instanceof CachedPage<?> cachedPage) {
+            return cachedPage.toPage();
+        }
+        return value;
+    }
+
+    /**
+     * Dạng lưu trữ của Page trong Redis
+     * sort lưu theo dạng "property,ASC|DESC"
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CachedPage<T> {
+        private List<T> content;
+        private int page;
+        private int size;
+        private long total;
+        private List<String> sort;
+        private String countMode; // null với Page thường / entry cũ
+
+        static <T> CachedPage<T> from(Page<T> page) {
+            List<String> sort = new ArrayList<>();
+            page.getSort().forEach(order -> sort.add(order.getProperty() + "," + order.getDirection().name()));
+            int size = page.getPageable().isPaged() ? page.getSize() : Math.max(page.getNumberOfElements(), 1);
+            String countMode = page instanceof CountedPage<?> counted && counted.getCountMode() != null
+                    ? counted.getCountMode().name() : null;
+            return new CachedPage<>(new ArrayList<>(page.getContent()), page.getNumber(), size, page.getTotalElements(), sort, countMode);
+        }
+
+        Page<T> toPage() {
+            List<Sort.Order> orders = new ArrayList<>();
+            if (sort != null) {
+                for (String s : sort) {
+                    int comma = s.lastIndexOf(',');
+                    orders.add(new Sort.Order(Sort.Direction.valueOf(s.substring(comma + 1)), s.substring(0, comma)));
+                }
+            }
+            List<T> items = content != null ? content : new ArrayList<>();
+            PageRequest pageable = PageRequest.of(page, size, Sort.by(orders));
+            if (countMode != null) {
+                return new CountedPage<>(items, pageable, total, CountedPage.CountMode.from(countMode));
+            }
+            return new PageImpl<>(items, pageable, total);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.phonehub.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Chọn pool theo transaction hiện tại
+ *
+ * - @Transactional(readOnly = true) -> replica, nếu ReplicaLagMonitor báo replica còn theo kịp
+ * - Còn lại (ghi, không có transaction, replica trễ/lỗi) -> primary
+ * - Trong onPrimary(...) -> primary kể cả khi transaction read-only: dùng cho các lần load để ghi cache,
+ *   replica trễ sau 1 lần ghi + evict sẽ đưa bản cũ trở lại cache tới hết TTL
+ *
+ * Phải bọc trong LazyConnectionDataSourceProxy: JpaTransactionManager lấy connection trước khi
+ * đánh dấu transaction read-only, proxy hoãn việc lấy connection thật tới câu SQL đầu tiên.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final MeterRegistry meterRegistry;
+
+    public ReadReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Chạy task, mọi connection lấy trong task đều đi primary
+     *
+     * Chỉ đổi được những connection chưa lấy: transaction read-only đã chạy SQL trên replica trước đó
+     * thì vẫn giữ connection replica tới hết transaction (LazyConnectionDataSourceProxy chọn đích ở câu SQL đầu tiên).
+     */
+    public static <T> T onPrimary(Supplier<T> task) {
+        if (FORCE_PRIMARY.get() != null) {
+            return task.get();
+        }
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return task.get();
+        } finally {
+            FORCE_PRIMARY.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+        if (FORCE_PRIMARY.get() != null) {
+            count("primary_hint");
+            return Route.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            count("fallback");
+            return Route.PRIMARY;
+        }
+        count("replica");
+        return Route.REPLICA;
+    }
+
+    private void count(String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("phonehub.datasource.read.route", "result", result).increment();
+        }
+    }
+}
@@ -1,9 +1,5 @@
 package com.example.phonehub.config;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,7 +7,8 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -50,6 +47,19 @@ public class RedisConfig {
     
     @Value("${spring.data.redis.database:0}")
     private int redisDatabase;
+
+    // Giá trị mặc định gán sẵn để new RedisConfig() ngoài Spring (benchmark) vẫn dùng được
+    @Value("${app.redis.serializer.format:smile}")
+    private String serializerFormat = "smile";
+
+    @Value("${app.redis.serializer.compression:lz4}")
+    private String serializerCompression = "lz4";
+
+    @Value("${app.redis.serializer.compression-threshold:1024}")
+    private int compressionThreshold = 1024;
+
+    @Value("${app.redis.serializer.max-value-bytes:16777216}")
+    private int maxValueBytes = VersionedRedisSerializer.DEFAULT_MAX_VALUE_BYTES;
     
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
@@ -63,6 +73,25 @@ public class RedisConfig {
         return new LettuceConnectionFactory(config);
     }
 
+    /**
+     * Serializer cho value, dùng chung cho RedisTemplate và RedisCacheManager (CacheConfig)
+     * 
+     * - Smile (JSON nhị phân), chỉ value gốc mang kiểu (header) để đọc ngược đúng kiểu, nén LZ4 khi value lớn
+     * - Header phiên bản: entry JSON cũ vẫn đọc được, entry không rõ phiên bản coi như cache miss
+     * - JavaTimeModule (jsr310) cho LocalDateTime trong DTO
+     * - Page -> CachedPage (PageImpl không deserialize trực tiếp được)
+     *
+     * app.redis.serializer.format=json + compression=none để quay về JSON dễ đọc bằng redis-cli khi debug
+     */
+    @Bean
+    public RedisSerializer<Object> redisValueSerializer() {
+        VersionedRedisSerializer.Format format = "json".equalsIgnoreCase(serializerFormat)
+                ? VersionedRedisSerializer.Format.JSON
+                : VersionedRedisSerializer.Format.SMILE;
+        boolean compress = "lz4".equalsIgnoreCase(serializerCompression);
+        return new PageAwareRedisSerializer(new VersionedRedisSerializer(format, compress, compressionThreshold, maxValueBytes));
+    }
+
     /**
      * Cấu hình RedisTemplate - công cụ chính để thao tác với Redis
      * 
@@ -75,15 +104,15 @@ public class RedisConfig {
      * 
      * Serialization:
      * - Key serializer: StringRedisSerializer (key là string để dễ đọc trong Redis)
-     * - Value serializer: GenericJackson2JsonRedisSerializer (convert object -> JSON)
+     * - Value serializer: redisValueSerializer (Smile/JSON có header phiên bản)
      * 
-     * Lý do dùng JSON serializer:
+     * Lý do dùng Jackson (Smile/JSON):
      * - Lưu được object phức tạp (List, Map, custom objects...)
-     * - Dễ debug (có thể đọc được trong Redis CLI)
-     * - Tương thích với nhiều ngôn ngữ khác
+     * - Smile gọn hơn JSON (tên field/class lặp lại chỉ ghi 1 lần), JSON dễ debug trong Redis CLI
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       RedisSerializer<Object> redisValueSerializer) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         
         // Set connection factory
@@ -94,14 +123,9 @@ public class RedisConfig {
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
         
-        // Cấu hình serializer cho value (JSON)
-        // Value sẽ được serialize thành JSON string, ví dụ: {"id": 123, "name": "John"}
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-        GenericJackson2JsonRedisSerializer genericJackson2JsonRedisSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
-        template.setValueSerializer(genericJackson2JsonRedisSerializer);
-        template.setHashValueSerializer(genericJackson2JsonRedisSerializer);
+        // Cấu hình serializer cho value - dùng chung bean với RedisCacheManager
+        template.setValueSerializer(redisValueSerializer);
+        template.setHashValueSerializer(redisValueSerializer);
         
         // Bật transaction support (nếu cần)
         template.setEnableTransactionSupport(false);
@@ -112,6 +136,18 @@ public class RedisConfig {
         return template;
     }
 
-}
-
+    /**
+     * Container lắng nghe Redis Pub/Sub
+     * 
+     * Dùng cho các message invalidation giữa các instance (ví dụ: xóa near cache L1
+     * của sản phẩm khi instance khác cập nhật). Các service tự đăng ký listener qua
+     * addMessageListener(...). Nếu Redis chưa sẵn sàng, container tự retry subscribe.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 
+}
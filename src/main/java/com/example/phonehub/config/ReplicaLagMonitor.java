@@ -0,0 +1,92 @@
+package com.example.phonehub.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Theo dõi độ trễ replication của replica, quyết định read-only transaction có được đọc replica không
+ *
+ * Định kỳ chạy lagQuery trên replica (mặc định SHOW REPLICA STATUS, cột Seconds_Behind_Source).
+ * Replica bị bỏ qua (đọc primary) khi:
+ * - trễ quá maxLagSeconds
+ * - Seconds_Behind_Source = NULL (replication đang dừng) hoặc query không trả dòng nào
+ * - không kết nối được replica
+ * - chưa kiểm tra lần nào (lúc khởi động)
+ *
+ * checkEnabled = false (H2 giả lập replica khi chạy local/test): luôn coi replica dùng được.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String LAG_COLUMN = "Seconds_Behind_Source";
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagSeconds;
+    private final boolean checkEnabled;
+
+    /** -1 khi không xác định được độ trễ */
+    private volatile long lagSeconds = -1;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, long maxLagSeconds, boolean checkEnabled,
+                             MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+        this.checkEnabled = checkEnabled;
+        this.usable = !checkEnabled;
+        if (meterRegistry != null) {
+            Gauge.builder("phonehub.datasource.replica.lag.seconds", this, m -> m.lagSeconds).register(meterRegistry);
+            Gauge.builder("phonehub.datasource.replica.usable", this, m -> m.usable ? 1 : 0).register(meterRegistry);
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-ms:2000}")
+    public void check() {
+        if (!checkEnabled) {
+            return;
+        }
+        long lag = readLag();
+        boolean wasUsable = usable;
+        lagSeconds = lag;
+        usable = lag >= 0 && lag <= maxLagSeconds;
+        if (wasUsable && !usable) {
+            logger.warn("Read replica disabled, lag: {}s (max {}s) - routing reads to primary", lag, maxLagSeconds);
+        } else if (!wasUsable && usable) {
+            logger.info("Read replica enabled, lag: {}s", lag);
+        }
+    }
+
+    private long readLag() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return -1; // Không phải replica / chưa cấu hình replication
+            }
+            Object value = rs.getObject(LAG_COLUMN);
+            return value == null ? -1 : ((Number) value).longValue();
+        } catch (Exception e) {
+            logger.debug("Replica lag check failed: {}", e.getMessage());
+            return -1;
+        }
+    }
+}
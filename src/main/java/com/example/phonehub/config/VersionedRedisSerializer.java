@@ -0,0 +1,302 @@
+package com.example.phonehub.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializer cho value trong Redis có header phiên bản + nén tùy chọn
+ *
+ * Layout: [MAGIC 0xFE][format][flags][độ dài kiểu 2 bytes][kiểu gốc][(độ dài gốc 4 bytes nếu nén LZ4)][payload]
+ * - format 1 = JSON, 2 = Smile (JSON nhị phân, tên property lặp lại được back-reference nên gọn hơn nhiều)
+ * - flags bit 0 = payload nén LZ4 (chỉ nén khi payload >= ngưỡng và nén thực sự nhỏ hơn),
+ *   bit 1 = có kiểu gốc trong header (luôn bật khi ghi)
+ * - Chỉ value gốc mang kiểu (Jackson canonical, ví dụ java.util.List&lt;...UserRankDto&gt;), object con đọc theo
+ *   kiểu khai báo của field nên không còn @class trên từng object. Kiểu gốc chỉ nhận class trong {@link #TRUSTED_PACKAGES}
+ *
+ * Tương thích khi rollout:
+ * - Entry cũ (JSON thuần của GenericJackson2JsonRedisSerializer) không có MAGIC -> vẫn đọc bằng JSON có @class
+ * - Entry có format/flags không biết (ví dụ từ bản deploy mới hơn, hoặc bản trước ghi @class không có kiểu gốc)
+ *   -> trả null, coi như cache miss
+ * - Entry hỏng hoặc độ dài giải nén vượt max-value-bytes -> trả null (không ném exception làm hỏng request
+ *   hay bị coi là Redis down, không cấp phát theo độ dài đọc từ payload)
+ */
+public class VersionedRedisSerializer implements RedisSerializer<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionedRedisSerializer.class);
+
+    // 0xFE không bao giờ là byte đầu của JSON/UTF-8 nên phân biệt được với entry cũ
+    static final byte MAGIC = (byte) 0xFE;
+    static final byte FLAG_LZ4 = 0x01;
+    static final byte FLAG_ROOT_TYPE = 0x02;
+    private static final int HEADER_SIZE = 3;
+    private static final byte[] EMPTY = new byte[0];
+    public static final int DEFAULT_MAX_VALUE_BYTES = 16 * 1024 * 1024;
+
+    // Package được phép làm kiểu gốc (và @class của entry JSON cũ)
+    static final List<String> TRUSTED_PACKAGES = List.of(
+            "com.example.phonehub.", "java.lang.", "java.util.", "java.math.", "java.time.");
+
+    public enum Format {
+        JSON((byte) 1),
+        SMILE((byte) 2);
+
+        private final byte code;
+
+        Format(byte code) {
+            this.code = code;
+        }
+
+        static Format fromCode(byte code) {
+            for (Format format : values()) {
+                if (format.code == code) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper legacyMapper;
+    private final Format writeFormat;
+    private final boolean compress;
+    private final int compressThreshold;
+    private final int maxValueBytes;
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    // Safe decompressor kiểm tra biên theo input thật, không tin độ dài trong header
+    private final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+
+    public VersionedRedisSerializer(Format writeFormat, boolean compress, int compressThreshold) {
+        this(writeFormat, compress, compressThreshold, DEFAULT_MAX_VALUE_BYTES);
+    }
+
+    /**
+     * @param maxValueBytes kích thước tối đa của payload sau giải nén, lớn hơn thì coi như entry hỏng
+     */
+    public VersionedRedisSerializer(Format writeFormat, boolean compress, int compressThreshold, int maxValueBytes) {
+        this.jsonMapper = configure(new ObjectMapper());
+        this.smileMapper = configure(new ObjectMapper(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build()));
+        this.legacyMapper = configure(new ObjectMapper());
+        BasicPolymorphicTypeValidator.Builder trusted = BasicPolymorphicTypeValidator.builder();
+        TRUSTED_PACKAGES.forEach(trusted::allowIfSubType);
+        this.legacyMapper.activateDefaultTyping(trusted.build(), ObjectMapper.DefaultTyping.NON_FINAL);
+        this.writeFormat = writeFormat;
+        this.compress = compress;
+        this.compressThreshold = compressThreshold;
+        this.maxValueBytes = maxValueBytes;
+    }
+
+    /**
+     * Truy cập field trực tiếp, JavaTimeModule; không default typing (kiểu gốc nằm trong header)
+     */
+    static ObjectMapper configure(ObjectMapper mapper) {
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        mapper.findAndRegisterModules();
+        return mapper;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        byte[] type;
+        byte[] body;
+        try {
+            JavaType rootType = rootType(value);
+            type = rootType.toCanonical().getBytes(StandardCharsets.UTF_8);
+            body = mapperFor(writeFormat).writerFor(rootType).writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new SerializationException("Could not serialize value of type " + value.getClass().getName(), e);
+        }
+        if (type.length > Short.MAX_VALUE) {
+            throw new SerializationException("Type name too long for " + value.getClass().getName());
+        }
+
+        byte flags = FLAG_ROOT_TYPE;
+        if (compress && body.length >= compressThreshold) {
+            byte[] compressed = compressor.compress(body);
+            if (compressed.length + Integer.BYTES < body.length) {
+                body = ByteBuffer.allocate(Integer.BYTES + compressed.length)
+                        .putInt(body.length)
+                        .put(compressed)
+                        .array();
+                flags |= FLAG_LZ4;
+            }
+        }
+
+        return ByteBuffer.allocate(HEADER_SIZE + Short.BYTES + type.length + body.length)
+                .put(MAGIC)
+                .put(writeFormat.code)
+                .put(flags)
+                .putShort((short) type.length)
+                .put(type)
+                .put(body)
+                .array();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (bytes[0] != MAGIC) {
+                // Entry cũ: JSON thuần có @class
+                return legacyMapper.readValue(bytes, Object.class);
+            }
+            if (bytes.length < HEADER_SIZE + Short.BYTES) {
+                return null;
+            }
+            Format format = Format.fromCode(bytes[1]);
+            byte flags = bytes[2];
+            if (format == null || (flags & FLAG_ROOT_TYPE) == 0 || (flags & ~(FLAG_LZ4 | FLAG_ROOT_TYPE)) != 0) {
+                logger.debug("Dropping Redis value with unknown format {} / flags {}", bytes[1], flags);
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+            int typeLength = buffer.getShort();
+            if (typeLength <= 0 || typeLength > buffer.remaining()) {
+                return null;
+            }
+            String canonical = new String(bytes, buffer.position(), typeLength, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + typeLength);
+            JavaType type = trustedType(canonical);
+            if (type == null) {
+                logger.warn("Dropping Redis value of untrusted type {}", canonical);
+                return null;
+            }
+
+            if ((flags & FLAG_LZ4) != 0) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    return null;
+                }
+                int originalLength = buffer.getInt();
+                if (originalLength < 0 || originalLength > maxValueBytes) {
+                    logger.warn("Dropping Redis value with decompressed length {} (max {})", originalLength, maxValueBytes);
+                    return null;
+                }
+                byte[] body = new byte[originalLength];
+                int length = decompressor.decompress(bytes, buffer.position(), buffer.remaining(), body, 0);
+                if (length != originalLength) {
+                    return null;
+                }
+                return mapperFor(format).readValue(body, type);
+            }
+            return mapperFor(format).readValue(bytes, buffer.position(), buffer.remaining(), type);
+        } catch (Exception e) {
+            logger.warn("Dropping unreadable Redis value ({} bytes): {}", bytes.length, e.getMessage());
+            return null;
+        }
+    }
+
+    private ObjectMapper mapperFor(Format format) {
+        return format == Format.SMILE ? smileMapper : jsonMapper;
+    }
+
+    /**
+     * Kiểu của value gốc: collection/map và class generic (CursorPageDto&lt;T&gt;, CachedPage&lt;T&gt;) lấy tham số kiểu
+     * từ phần tử đang có, để phần tử đọc lại đúng DTO thay vì Map
+     */
+    private JavaType rootType(Object value) {
+        TypeFactory types = jsonMapper.getTypeFactory();
+        if (value instanceof Collection<?> collection) {
+            Class<? extends Collection> raw = value instanceof Set ? Set.class : List.class;
+            return types.constructCollectionType(raw, elementType(collection));
+        }
+        if (value instanceof Map<?, ?> map) {
+            return types.constructMapType(Map.class, elementType(map.keySet()), elementType(map.values()));
+        }
+        TypeVariable<?>[] parameters = value.getClass().getTypeParameters();
+        if (parameters.length == 0) {
+            return types.constructType(value.getClass());
+        }
+        JavaType[] bindings = new JavaType[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            bindings[i] = types.constructType(Object.class);
+        }
+        for (Class<?> type = value.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Type generic = field.getGenericType();
+                Object fieldValue = generic instanceof Class ? null : fieldValue(field, value);
+                if (fieldValue == null) continue;
+                for (int i = 0; i < parameters.length; i++) {
+                    if (generic.equals(parameters[i])) {
+                        bindings[i] = rootType(fieldValue);
+                    } else if (fieldValue instanceof Collection<?> collection && generic instanceof ParameterizedType parameterized
+                            && parameterized.getActualTypeArguments()[0].equals(parameters[i])) {
+                        bindings[i] = elementType(collection);
+                    }
+                }
+            }
+        }
+        return types.constructParametricType(value.getClass(), bindings);
+    }
+
+    // Kiểu chung của các phần tử (khác class nhau hoặc rỗng thì Object)
+    private JavaType elementType(Collection<?> values) {
+        Iterator<?> iterator = values.iterator();
+        Object first = null;
+        while (iterator.hasNext() && first == null) {
+            first = iterator.next();
+        }
+        if (first == null) {
+            return jsonMapper.getTypeFactory().constructType(Object.class);
+        }
+        Class<?> type = first.getClass();
+        for (Object element : values) {
+            if (element != null && element.getClass() != type) {
+                return jsonMapper.getTypeFactory().constructType(Object.class);
+            }
+        }
+        return rootType(first);
+    }
+
+    private static Object fieldValue(Field field, Object target) {
+        try {
+            field.setAccessible(true);
+            return field.get(target);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Kiểm tra tên class trước khi nạp: mọi class trong kiểu phải thuộc TRUSTED_PACKAGES
+    private JavaType trustedType(String canonical) {
+        for (String name : canonical.split("[<>,\\s]+")) {
+            if (!name.isEmpty() && TRUSTED_PACKAGES.stream().noneMatch(name::startsWith)) {
+                return null;
+            }
+        }
+        return jsonMapper.getTypeFactory().constructFromCanonical(canonical);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.phonehub.controller;
+
+import com.example.phonehub.auth.annotation.RequiresAuth;
+import com.example.phonehub.dto.ApiResponse;
+import com.example.phonehub.service.redis_cache.CacheMemoryReportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/cache")
+@Tag(name = "Cache Management", description = "API theo dõi Redis cache (admin)")
+public class CacheController {
+
+    @Autowired
+    private CacheMemoryReportService memoryReportService;
+
+    @Operation(summary = "📊 Báo cáo bộ nhớ cache", description = "Ước tính số bytes Redis tiết kiệm được theo từng loại entity nhờ alias key (slug/username/email) chỉ lưu con trỏ tới key chính")
+    @GetMapping("/memory-report")
+    @RequiresAuth(roles = {"admin"})
+    public ResponseEntity<ApiResponse<Map<String, Object>>> memoryReport() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Lấy báo cáo bộ nhớ cache thành công", memoryReportService.buildReport()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.phonehub.controller;
+
+import com.example.phonehub.auth.annotation.Public;
+import com.example.phonehub.dto.ApiResponse;
+import com.example.phonehub.dto.CheckoutRequest;
+import com.example.phonehub.dto.OrderDto;
+import com.example.phonehub.service.CheckoutService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/checkout")
+@Public
+@Tag(name = "Checkout", description = "🛒 Đặt cả giỏ hàng trong 1 request: tạo order, items và giữ hàng trong 1 transaction")
+public class CheckoutController {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Operation(
+            summary = "🛒 Checkout giỏ hàng",
+            description = "Tạo order pending kèm toàn bộ items và giữ hàng. Giá và tổng tiền tính ở server theo giá hiện tại và hạng của user. Thiếu hàng 1 sản phẩm thì không tạo gì."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "✅ Tạo order thành công"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "❌ Dữ liệu không hợp lệ"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "❌ Không tìm thấy user/sản phẩm"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "❌ Không đủ hàng")
+    })
+    @PostMapping
+    public ResponseEntity<ApiResponse<OrderDto>> checkout(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Thông tin người mua và giỏ hàng",
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CheckoutRequest.class),
+                            examples = @ExampleObject(value = """
+                            {
+                              "userId": 1,
+                              "buyerName": "Nguyễn Văn A",
+                              "buyerEmail": "nguyenvana@example.com",
+                              "buyerPhone": "0912345678",
+                              "buyerAddress": "123 Đường ABC, Quận XYZ, TP.HCM",
+                              "paymentMethod": "VNPAY",
+                              "items": [
+                                { "productId": 1, "quantity": 1 },
+                                { "productId": 5, "quantity": 2 }
+                              ]
+                            }
+                            """)
+                    )
+            )
+            @Valid @RequestBody CheckoutRequest req) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success("Đặt hàng thành công", checkoutService.checkout(req)));
+        } catch (RuntimeException e) {
+            String msg = e.getMessage() != null ? e.getMessage() : "";
+            if (msg.contains("not found")) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.notFound(msg));
+            if (msg.startsWith("Insufficient stock")) return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.conflict(msg));
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.badRequest(msg));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi khi đặt hàng: " + e.getMessage()));
+        }
+    }
+}
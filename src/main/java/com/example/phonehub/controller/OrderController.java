@@ -3,9 +3,11 @@ package com.example.phonehub.controller;
 import com.example.phonehub.auth.annotation.Public;
 import com.example.phonehub.dto.ApiResponse;
 import com.example.phonehub.dto.CreateOrderRequest;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.OrderDto;
 import com.example.phonehub.dto.UpdateOrderStatusRequest;
 import com.example.phonehub.service.OrderService;
+import com.example.phonehub.service.idempotency.IdempotencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -30,6 +32,8 @@ public class OrderController {
 
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private IdempotencyService idempotencyService;
 
     @Operation(
             summary = "📋 Danh sách orders",
@@ -55,6 +59,30 @@ public class OrderController {
         }
     }
 
+    @Operation(
+            summary = "📄 Danh sách orders theo cursor",
+            description = "Phân trang keyset các order thành công (mới nhất trước), chi phí mỗi trang không phụ thuộc độ sâu. Truyền nextCursor của trang trước, bỏ trống để lấy trang đầu. Tổng số chỉ tính khi includeTotal=true."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "✅ Lấy danh sách thành công"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "❌ Cursor không hợp lệ")
+    })
+    @GetMapping("/cursor")
+    public ResponseEntity<ApiResponse<CursorPageDto<OrderDto>>> listByCursor(
+            @Parameter(description = "Cursor của trang trước (nextCursor)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Số lượng orders mỗi trang", example = "10") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Có đếm tổng số orders hay không", example = "false") @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Success", orderService.getOrdersByCursor(cursor, size, includeTotal)));
+        } catch (RuntimeException e) {
+            if ("Invalid cursor".equals(e.getMessage())) {
+                return ResponseEntity.badRequest().body(ApiResponse.badRequest(e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi khi lấy danh sách orders: " + e.getMessage()));
+        }
+    }
+
     @Operation(
             summary = "🔍 Chi tiết order",
             description = "Lấy chi tiết order theo ID. Bao gồm thông tin buyer, items và dữ liệu review gắn với từng item nếu đã đánh giá."
@@ -84,7 +112,9 @@ public class OrderController {
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "✅ Tạo order thành công"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "❌ Dữ liệu không hợp lệ"),
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "❌ User không tồn tại")
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "❌ User không tồn tại"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "❌ Request cùng Idempotency-Key đang xử lý"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "422", description = "❌ Idempotency-Key đã dùng cho nội dung khác")
     })
     @PostMapping
     public ResponseEntity<ApiResponse<OrderDto>> create(
@@ -107,18 +137,22 @@ public class OrderController {
                             """)
                     )
             )
-            @Valid @RequestBody CreateOrderRequest req) {
-        try {
-            OrderDto created = orderService.createOrder(req);
-            return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(ApiResponse.success("Tạo order thành công", created));
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(ApiResponse.error(e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Lỗi khi tạo order: " + e.getMessage()));
-        }
+            @Valid @RequestBody CreateOrderRequest req,
+            @Parameter(description = "Khóa chống tạo trùng khi retry: gửi lại cùng key thì nhận lại response lần đầu")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("orders:create", idempotencyKey, req, OrderDto.class, () -> {
+            try {
+                OrderDto created = orderService.createOrder(req);
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(ApiResponse.success("Tạo order thành công", created));
+            } catch (RuntimeException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(ApiResponse.error(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(ApiResponse.error("Lỗi khi tạo order: " + e.getMessage()));
+            }
+        });
     }
 
     @Operation(
@@ -7,6 +7,7 @@ import com.example.phonehub.dto.CreateOrderItemRequest;
 import com.example.phonehub.dto.OrderDto;
 import com.example.phonehub.dto.UpdateOrderItemReviewRequest;
 import com.example.phonehub.service.OrderItemService;
+import com.example.phonehub.service.idempotency.IdempotencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -26,8 +27,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import jakarta.validation.Valid;
 
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -38,6 +41,8 @@ public class OrderItemController {
 
     @Autowired
     private OrderItemService orderItemService;
+    @Autowired
+    private IdempotencyService idempotencyService;
 
     @Operation(
             summary = "📋 Danh sách items theo order",
@@ -93,7 +98,9 @@ public class OrderItemController {
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "✅ Thêm item thành công"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "❌ Dữ liệu không hợp lệ hoặc không đủ tồn kho"),
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "❌ Order hoặc Product không tồn tại")
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "❌ Order hoặc Product không tồn tại"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "❌ Request cùng Idempotency-Key đang xử lý"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "422", description = "❌ Idempotency-Key đã dùng cho nội dung khác")
     })
     @PostMapping("/orders/{orderId}/items")
     public ResponseEntity<ApiResponse<OrderDto>> addItem(
@@ -113,18 +120,22 @@ public class OrderItemController {
                             """)
                     )
             )
-            @Valid @RequestBody CreateOrderItemRequest req) {
-        try {
-            OrderDto updated = orderItemService.addItem(orderId, req);
-            return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(ApiResponse.success("Thêm item thành công", updated));
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(ApiResponse.error(e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Lỗi khi thêm item: " + e.getMessage()));
-        }
+            @Valid @RequestBody CreateOrderItemRequest req,
+            @Parameter(description = "Khóa chống thêm trùng khi retry: gửi lại cùng key thì nhận lại response lần đầu")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("orders:items", idempotencyKey, List.of(orderId, req), OrderDto.class, () -> {
+            try {
+                OrderDto updated = orderItemService.addItem(orderId, req);
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(ApiResponse.success("Thêm item thành công", updated));
+            } catch (RuntimeException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(ApiResponse.error(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(ApiResponse.error("Lỗi khi thêm item: " + e.getMessage()));
+            }
+        });
     }
 
     @Operation(
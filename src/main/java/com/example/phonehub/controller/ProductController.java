@@ -2,7 +2,11 @@ package com.example.phonehub.controller;
 
 import com.example.phonehub.auth.annotation.Public;
 import com.example.phonehub.dto.*;
+import com.example.phonehub.dto.CountedPage.CountMode;
+import com.example.phonehub.service.ProductExportService;
+import com.example.phonehub.service.ProductImportService;
 import com.example.phonehub.service.ProductService;
+import com.example.phonehub.service.inventory.StockShardService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,9 +17,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Optional;
 
@@ -24,31 +33,51 @@ import java.util.Optional;
 @Tag(name = "Product Management", description = "API quản lý sản phẩm")
 public class ProductController {
     @Autowired private ProductService productService;
+    @Autowired private ProductImportService productImportService;
+    @Autowired private ProductExportService productExportService;
+    @Autowired private StockShardService stockShardService;
 
     @Operation(summary = "📄 Lấy danh sách sản phẩm có phân trang", description = "Trả về danh sách tất cả sản phẩm với phân trang")
     @GetMapping
     @Public
-    public ResponseEntity<ApiResponse<Page<ProductDto>>> getAll(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size){
-        try { return ResponseEntity.ok(ApiResponse.success("Lấy danh sách sản phẩm thành công", productService.getAll(page,size))); }
+    public ResponseEntity<ApiResponse<Page<ProductDto>>> getAll(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cách tính totalElements: exact | cached | estimated (ước lượng, chỉ danh sách không lọc); cách thực sự dùng trả về ở countMode") @RequestParam(defaultValue = "cached") String countMode){
+        try { return ResponseEntity.ok(ApiResponse.success("Lấy danh sách sản phẩm thành công", productService.getAll(page,size,CountMode.from(countMode)))); }
         catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
     }
 
     @Operation(summary = "📄 Lấy danh sách sản phẩm đã xuất bản", description = "Trả về danh sách sản phẩm đã được xuất bản với phân trang")
     @GetMapping("/published")
     @Public
-    public ResponseEntity<ApiResponse<Page<ProductDto>>> getPublished(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size){
-        try { return ResponseEntity.ok(ApiResponse.success(productService.getPublished(page,size))); }
+    public ResponseEntity<ApiResponse<Page<ProductDto>>> getPublished(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cách tính totalElements: exact | cached | estimated (ước lượng, chỉ danh sách không lọc); cách thực sự dùng trả về ở countMode") @RequestParam(defaultValue = "cached") String countMode){
+        try { return ResponseEntity.ok(ApiResponse.success(productService.getPublished(page,size,CountMode.from(countMode)))); }
         catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
     }
 
+    @Operation(summary = "📄 Lấy danh sách sản phẩm đã xuất bản theo cursor", description = "Phân trang keyset (mới nhất trước): truyền nextCursor của trang trước, bỏ trống để lấy trang đầu. Tổng số chỉ tính khi includeTotal=true")
+    @GetMapping("/published/cursor")
+    @Public
+    public ResponseEntity<ApiResponse<CursorPageDto<ProductDto>>> getPublishedByCursor(
+            @Parameter(description = "Cursor của trang trước (nextCursor)") @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Có đếm tổng số sản phẩm hay không") @RequestParam(defaultValue = "false") boolean includeTotal){
+        try { return ResponseEntity.ok(ApiResponse.success(productService.getPublishedByCursor(cursor, size, includeTotal))); }
+        catch (RuntimeException e){
+            if ("Invalid cursor".equals(e.getMessage())) return ResponseEntity.badRequest().body(ApiResponse.badRequest(e.getMessage()));
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage()));
+        }
+    }
+
     @Operation(summary = "📄 Lấy danh sách sản phẩm theo danh mục", description = "Trả về danh sách sản phẩm đã xuất bản theo danh mục với phân trang")
     @GetMapping("/published/category/{categoryId}")
     @Public
     public ResponseEntity<ApiResponse<Page<ProductDto>>> getByCategory(
             @Parameter(description = "ID của danh mục", required = true, example = "1") @PathVariable Integer categoryId, 
             @RequestParam(defaultValue = "0") int page, 
-            @RequestParam(defaultValue = "10") int size){
-        try { return ResponseEntity.ok(ApiResponse.success(productService.getPublishedByCategory(categoryId,page,size))); }
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cách tính totalElements: exact | cached | estimated (ước lượng, chỉ danh sách không lọc); cách thực sự dùng trả về ở countMode") @RequestParam(defaultValue = "cached") String countMode){
+        try { return ResponseEntity.ok(ApiResponse.success(productService.getPublishedByCategory(categoryId,page,size,CountMode.from(countMode)))); }
         catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
     }
 
@@ -59,13 +88,14 @@ public class ProductController {
             @Parameter(description = "Tên thương hiệu", required = true, example = "Samsung") @RequestParam String brand,
             @Parameter(description = "ID của danh mục (optional, để lọc chính xác hơn)", example = "1") @RequestParam(required = false) Integer categoryId,
             @RequestParam(defaultValue = "0") int page, 
-            @RequestParam(defaultValue = "10") int size){
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cách tính totalElements: exact | cached | estimated (ước lượng, chỉ danh sách không lọc); cách thực sự dùng trả về ở countMode") @RequestParam(defaultValue = "cached") String countMode){
         try {
             Page<ProductDto> products;
             if (categoryId != null) {
-                products = productService.getPublishedByBrandAndCategory(brand, categoryId, page, size);
+                products = productService.getPublishedByBrandAndCategory(brand, categoryId, page, size, CountMode.from(countMode));
             } else {
-                products = productService.getPublishedByBrand(brand, page, size);
+                products = productService.getPublishedByBrand(brand, page, size, CountMode.from(countMode));
             }
             return ResponseEntity.ok(ApiResponse.success(products));
         } catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
@@ -102,6 +132,40 @@ public class ProductController {
         } catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
     }
 
+    @Operation(summary = "🧮 Lọc sản phẩm theo facet", description = "Danh sách sản phẩm đã xuất bản lọc theo danh mục, thương hiệu, khoảng giá, mức giảm giá, còn hàng, RAM, bộ nhớ; kèm số lượng sản phẩm của từng giá trị facet (tính với các filter còn lại). Phục vụ từ bitmap index trong bộ nhớ")
+    @Public
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<ProductFacetResultDto>> filter(
+            @Parameter(description = "ID của danh mục", example = "1") @RequestParam(required = false) Integer categoryId,
+            @Parameter(description = "Thương hiệu (nhiều giá trị = OR)", example = "Samsung") @RequestParam(required = false) java.util.List<String> brand,
+            @Parameter(description = "Giá tối thiểu (VND)", example = "5000000") @RequestParam(required = false) Long minPrice,
+            @Parameter(description = "Giá tối đa (VND)", example = "20000000") @RequestParam(required = false) Long maxPrice,
+            @Parameter(description = "% giảm giá tối thiểu", example = "10") @RequestParam(required = false) Integer minDiscount,
+            @Parameter(description = "Chỉ lấy sản phẩm còn hàng", example = "true") @RequestParam(required = false) Boolean inStock,
+            @Parameter(description = "RAM (nhiều giá trị = OR)", example = "8GB") @RequestParam(required = false) java.util.List<String> ram,
+            @Parameter(description = "Bộ nhớ trong (nhiều giá trị = OR)", example = "256GB") @RequestParam(required = false) java.util.List<String> storage,
+            @Parameter(description = "Sắp xếp: newest | price_asc | price_desc", example = "newest") @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size){
+        try {
+            ProductFacetFilter filter = new ProductFacetFilter(categoryId, brand, minPrice, maxPrice, minDiscount, inStock, ram, storage, sort);
+            return ResponseEntity.ok(ApiResponse.success(productService.filter(filter, page, size)));
+        } catch (RuntimeException e){
+            if (e.getMessage() != null && e.getMessage().contains("not ready")) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage(), 503));
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "💡 Gợi ý khi gõ", description = "Gợi ý tên sản phẩm / thương hiệu theo tiền tố (không dấu, khớp cả đầu từ giữa tên), xếp theo độ phổ biến. Phục vụ từ bộ nhớ, không truy vấn DB")
+    @Public
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<java.util.List<ProductSuggestionDto>>> suggest(
+            @Parameter(description = "Chuỗi đang gõ", required = true, example = "galax") @RequestParam String q,
+            @Parameter(description = "Số gợi ý tối đa (1-10)", example = "8") @RequestParam(defaultValue = "8") int limit){
+        try { return ResponseEntity.ok(ApiResponse.success(productService.suggest(q, limit))); }
+        catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
+    }
+
     @Operation(summary = "🏷️ Lấy danh sách thương hiệu theo danh mục", description = "Trả về danh sách tất cả thương hiệu (brand) của sản phẩm đã xuất bản trong một danh mục cụ thể")
     @GetMapping("/brands/category/{categoryId}")
     @Public
@@ -151,6 +215,78 @@ public class ProductController {
         } catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
     }
 
+    @Operation(summary = "📦 Import sản phẩm hàng loạt", description = "Tạo nhiều sản phẩm kèm thông số, màu, ảnh trong 1 request. Kiểm tra toàn bộ (slug trùng, danh mục) trước khi ghi; ghi theo từng chunk, mỗi chunk 1 transaction dùng JDBC batch")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "✅ Import thành công"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "❌ Dữ liệu không hợp lệ"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "❌ Slug sản phẩm đã tồn tại")
+    })
+    @PostMapping("/import")
+    public ResponseEntity<ApiResponse<ProductImportResultDto>> importProducts(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                description = "Danh sách sản phẩm cần import",
+                required = true,
+                content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = ProductImportRequest.class),
+                    examples = @ExampleObject(value = """
+                        {
+                          "products": [
+                            {
+                              "name": "iPhone 15 Pro Max",
+                              "brand": "Apple",
+                              "categoryId": 1,
+                              "price": 29990000,
+                              "quantity": 50,
+                              "isPublished": true,
+                              "specifications": [
+                                { "groupName": "Màn hình", "label": "Kích thước", "value": "6.7 inch", "type": "text" }
+                              ],
+                              "colors": [ { "name": "Titan Đen", "hexColor": "#1C1C1C" } ],
+                              "images": [ "https://example.com/iphone-15-pro-max-1.jpg" ]
+                            }
+                          ]
+                        }
+                        """)
+                )
+            )
+            @Valid @RequestBody ProductImportRequest req){
+        try { return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success("Import sản phẩm thành công", productImportService.importProducts(req.getProducts()))); }
+        catch (RuntimeException e){
+            if (e.getMessage().contains("already exists")) return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.conflict(e.getMessage()));
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.badRequest(e.getMessage()));
+        } catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
+    }
+
+    @Operation(summary = "📦 Import sản phẩm từ file JSON", description = "Như /import nhưng đọc từ file JSON cùng định dạng ({\"products\": [...]})")
+    @PostMapping(value = "/import/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<ProductImportResultDto>> importProductsFile(
+            @Parameter(description = "File JSON", required = true) @RequestParam("file") MultipartFile file){
+        try { return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success("Import sản phẩm thành công", productImportService.importFile(file))); }
+        catch (RuntimeException e){
+            if (e.getMessage().contains("already exists")) return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.conflict(e.getMessage()));
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.badRequest(e.getMessage()));
+        } catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
+    }
+
+    @Operation(summary = "📤 Export toàn bộ catalog", description = "Stream toàn bộ sản phẩm (dạng summary, theo id tăng dần) ra NDJSON (mỗi dòng 1 JSON) hoặc CSV. "
+            + "Đọc bằng cursor và ghi dần theo chunk nên bộ nhớ không tăng theo số sản phẩm; hỗ trợ gzip (Accept-Encoding: gzip)")
+    @GetMapping("/export")
+    public ResponseEntity<?> export(
+            @Parameter(description = "ndjson | csv") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Chỉ xuất sản phẩm đã xuất bản") @RequestParam(defaultValue = "false") boolean published){
+        ProductExportService.Format exportFormat;
+        try { exportFormat = ProductExportService.Format.from(format); }
+        catch (RuntimeException e){ return ResponseEntity.badRequest().body(ApiResponse.badRequest(e.getMessage())); }
+        // Transaction mở bên trong body (thread async), đóng ngay khi stream xong
+        StreamingResponseBody body = out -> productExportService.export(out, exportFormat, published);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
     @Operation(summary = "✏️ Cập nhật sản phẩm", description = "Cập nhật thông tin sản phẩm theo ID")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "✅ Cập nhật sản phẩm thành công"),
@@ -192,6 +328,29 @@ public class ProductController {
         } catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
     }
 
+    @Operation(summary = "📦 Xem chia shard tồn kho", description = "Số shard và tồn kho từng shard của sản phẩm (shards null: không chia shard)")
+    @GetMapping("/{id}/stock-shards")
+    public ResponseEntity<ApiResponse<StockShardsDto>> getStockShards(
+            @Parameter(description = "ID của sản phẩm", required = true, example = "1") @PathVariable Integer id){
+        try { return ResponseEntity.ok(ApiResponse.success("Lấy chia shard tồn kho thành công", stockShardService.get(id))); }
+        catch (RuntimeException e){
+            if (e.getMessage().contains("not found")) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.notFound(e.getMessage()));
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "📦 Chia shard tồn kho (flash sale)", description = "Chia tồn kho sản phẩm bán chạy thành N shard để các checkout song song không cùng chờ khóa 1 dòng. shards = 0 hoặc 1: gom tồn kho về lại sản phẩm")
+    @PutMapping("/{id}/stock-shards")
+    public ResponseEntity<ApiResponse<StockShardsDto>> updateStockShards(
+            @Parameter(description = "ID của sản phẩm", required = true, example = "1") @PathVariable Integer id,
+            @Valid @RequestBody UpdateStockShardsRequest req){
+        try { return ResponseEntity.ok(ApiResponse.success("Cập nhật chia shard tồn kho thành công", stockShardService.configure(id, req.getShards()))); }
+        catch (RuntimeException e){
+            if (e.getMessage().contains("not found")) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.notFound(e.getMessage()));
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.badRequest(e.getMessage()));
+        } catch (Exception e){ return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: "+e.getMessage())); }
+    }
+
     @Operation(summary = "🗑️ Xóa sản phẩm", description = "Xóa sản phẩm theo ID")
     @DeleteMapping("/{id}")
     public ResponseEntity<ApiResponse<Void>> delete(
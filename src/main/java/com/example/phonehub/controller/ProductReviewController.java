@@ -4,7 +4,9 @@ import com.example.phonehub.auth.annotation.Public;
 import com.example.phonehub.auth.annotation.RequiresAuth;
 import com.example.phonehub.dto.ApiResponse;
 import com.example.phonehub.dto.CreateProductReviewRequest;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.ProductReviewDto;
+import com.example.phonehub.dto.ProductReviewStatsDto;
 import com.example.phonehub.service.ProductReviewService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -45,6 +47,24 @@ public class ProductReviewController {
         }
     }
     
+    @Operation(summary = "📄 Lấy danh sách đánh giá theo Product ID (cursor)", description = "Phân trang keyset (mới nhất trước): truyền nextCursor của trang trước, bỏ trống để lấy trang đầu. Tổng số chỉ tính khi includeTotal=true")
+    @GetMapping("/product/{productId}/cursor")
+    @Public
+    public ResponseEntity<ApiResponse<CursorPageDto<ProductReviewDto>>> getByProductIdCursor(
+            @Parameter(description = "ID của sản phẩm", required = true, example = "1") @PathVariable Integer productId,
+            @Parameter(description = "Cursor của trang trước (nextCursor)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Số lượng đánh giá mỗi trang", example = "10") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Có đếm tổng số đánh giá hay không", example = "false") @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đánh giá thành công", reviewService.getByProductIdCursor(productId, cursor, size, includeTotal)));
+        } catch (RuntimeException e) {
+            if ("Invalid cursor".equals(e.getMessage())) {
+                return ResponseEntity.badRequest().body(ApiResponse.badRequest(e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+    
     @Operation(summary = "📄 Lấy danh sách đánh giá theo User ID", description = "Lấy tất cả đánh giá của người dùng với phân trang")
     @GetMapping("/user/{userId}")
     @RequiresAuth
@@ -73,6 +93,21 @@ public class ProductReviewController {
         }
     }
     
+    @Operation(summary = "📊 Thống kê đánh giá của sản phẩm", description = "Số đánh giá, điểm trung bình và phân bố 5 -> 1 sao trong 1 lần gọi, đọc từ bảng tổng hợp (cache Redis)")
+    @GetMapping("/product/{productId}/review-stats")
+    @Public
+    public ResponseEntity<ApiResponse<ProductReviewStatsDto>> getReviewStats(
+            @Parameter(description = "ID của sản phẩm", required = true, example = "1") @PathVariable Integer productId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Lấy thống kê đánh giá thành công", reviewService.getStats(productId)));
+        } catch (RuntimeException e) {
+            if ("Product not found".equals(e.getMessage())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.notFound(e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Lỗi: " + e.getMessage()));
+        }
+    }
+    
     @Operation(summary = "⭐ Lấy điểm đánh giá trung bình", description = "Lấy điểm đánh giá trung bình (1-5 sao) của sản phẩm")
     @GetMapping("/product/{productId}/average-rating")
     @Public
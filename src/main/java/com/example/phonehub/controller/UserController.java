@@ -2,7 +2,9 @@ package com.example.phonehub.controller;
 
 import com.example.phonehub.auth.annotation.Public;
 import com.example.phonehub.dto.ApiResponse;
+import com.example.phonehub.dto.CountedPage.CountMode;
 import com.example.phonehub.dto.CreateUserRequest;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.UserDto;
 import com.example.phonehub.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -38,9 +40,10 @@ public class UserController {
     @Public
     public ResponseEntity<ApiResponse<Page<UserDto>>> getAllUsers(
             @Parameter(description = "Số trang (bắt đầu từ 0)", example = "0") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Số lượng người dùng mỗi trang", example = "10") @RequestParam(defaultValue = "10") int size) {
+            @Parameter(description = "Số lượng người dùng mỗi trang", example = "10") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cách tính totalElements: exact | cached | estimated (ước lượng từ thống kê bảng); cách thực sự dùng trả về ở countMode", example = "cached") @RequestParam(defaultValue = "cached") String countMode) {
         try {
-            Page<UserDto> users = userService.getAllUsers(page, size);
+            Page<UserDto> users = userService.getAllUsers(page, size, CountMode.from(countMode));
             ApiResponse<Page<UserDto>> response = ApiResponse.success("Lấy danh sách người dùng thành công", users);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -50,6 +53,29 @@ public class UserController {
         }
     }
 
+    @Operation(summary = "📄 Lấy danh sách người dùng theo cursor", description = "Phân trang keyset theo id tăng dần, chi phí mỗi trang không phụ thuộc độ sâu (phù hợp export). Tổng số chỉ tính khi includeTotal=true")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "✅ Lấy danh sách thành công"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "❌ Cursor không hợp lệ")
+    })
+    @GetMapping("/cursor")
+    @Public
+    public ResponseEntity<ApiResponse<CursorPageDto<UserDto>>> getAllUsersByCursor(
+            @Parameter(description = "Cursor của trang trước (nextCursor)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Số lượng người dùng mỗi trang", example = "10") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Có đếm tổng số người dùng hay không", example = "false") @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            CursorPageDto<UserDto> users = userService.getAllUsersByCursor(cursor, size, includeTotal);
+            return ResponseEntity.ok(ApiResponse.success("Lấy danh sách người dùng thành công", users));
+        } catch (RuntimeException e) {
+            if ("Invalid cursor".equals(e.getMessage())) {
+                return ResponseEntity.badRequest().body(ApiResponse.badRequest(e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi khi lấy danh sách người dùng: " + e.getMessage()));
+        }
+    }
+
     @Operation(summary = "🔍 Lấy người dùng theo ID", description = "Trả về thông tin chi tiết của một người dùng")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "✅ Tìm thấy người dùng"),
@@ -0,0 +1,40 @@
+package com.example.phonehub.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    private Integer userId;
+
+    @NotBlank
+    @Size(max = 100)
+    private String buyerName;
+
+    @Size(max = 100)
+    private String buyerEmail;
+
+    @Size(max = 20)
+    private String buyerPhone;
+
+    @Size(max = 255)
+    private String buyerAddress;
+
+    @Size(max = 50)
+    private String paymentMethod = "VNPAY";
+
+    // Cả giỏ hàng; giá và tổng tiền tính ở server theo giá hiện tại của sản phẩm
+    @NotEmpty
+    @Size(max = 100)
+    @Valid
+    private List<CheckoutItemRequest> items;
+}
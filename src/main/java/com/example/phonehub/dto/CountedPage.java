@@ -0,0 +1,44 @@
+package com.example.phonehub.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Page kèm cách tính totalElements (xuất ra JSON dưới trường "countMode")
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    public enum CountMode {
+        /** COUNT(*) vừa chạy, hoặc suy ra từ trang cuối */
+        EXACT,
+        /** Lấy từ count cache (có thể lệch tối đa TTL của cache) */
+        CACHED,
+        /** Ước lượng từ thống kê bảng của MySQL, chỉ cho danh sách không lọc */
+        ESTIMATED;
+
+        /** Tham số countMode từ request: exact | cached | estimated, mặc định cached */
+        public static CountMode from(String value) {
+            if (value == null || value.isBlank()) {
+                return CACHED;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return CACHED;
+            }
+        }
+    }
+
+    private final CountMode countMode;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountMode countMode) {
+        super(content, pageable, total);
+        this.countMode = countMode;
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+}
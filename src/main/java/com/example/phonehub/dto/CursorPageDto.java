@@ -0,0 +1,18 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDto<T> {
+    private List<T> content;
+    private String nextCursor; // null nếu là trang cuối
+    private boolean hasNext;
+    private int size;
+    private Long totalElements; // chỉ có khi includeTotal=true
+}
@@ -0,0 +1,14 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDto {
+    private String value; // giá trị truyền lại vào filter
+    private String label; // tên hiển thị
+    private long count;
+}
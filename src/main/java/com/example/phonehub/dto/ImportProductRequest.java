@@ -0,0 +1,52 @@
+package com.example.phonehub.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 1 sản phẩm trong import hàng loạt: các field như CreateProductRequest kèm thông số, màu, ảnh
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportProductRequest {
+    @NotBlank @Size(max = 255) private String name;
+    @Size(max = 255) private String slug;
+    @NotBlank @Size(max = 100) private String brand;
+    @NotNull private Integer categoryId;
+    private BigDecimal price;
+    private BigDecimal priceOld;
+    private String discount;
+    private String thumbnailImage;
+    private Integer quantity;
+    private Boolean isPublished;
+    @Valid private List<Specification> specifications;
+    @Valid private List<Color> colors;
+    private List<@NotBlank @Size(max = 500) String> images;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Specification {
+        @NotBlank @Size(max = 100) private String groupName;
+        @NotBlank @Size(max = 255) private String label;
+        private String value;
+        @NotBlank @Size(max = 20) private String type;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Color {
+        @NotBlank @Size(max = 50) private String name;
+        @Size(max = 10) private String hexColor;
+    }
+}
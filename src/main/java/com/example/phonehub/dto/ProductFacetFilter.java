@@ -0,0 +1,22 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetFilter {
+    private Integer categoryId;
+    private List<String> brands; // OR trong cùng facet
+    private Long minPrice;
+    private Long maxPrice;
+    private Integer minDiscount; // % giảm tối thiểu
+    private Boolean inStock;
+    private List<String> ram; // ví dụ "8GB", "12GB"
+    private List<String> storage; // ví dụ "256GB", "1TB"
+    private String sort; // newest | price_asc | price_desc
+}
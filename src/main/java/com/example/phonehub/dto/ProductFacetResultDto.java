@@ -0,0 +1,17 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetResultDto {
+    private Page<ProductDto> products;
+    private Map<String, List<FacetCountDto>> facets; // facet -> các giá trị kèm số sản phẩm
+}
@@ -0,0 +1,16 @@
+package com.example.phonehub.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportRequest {
+    @NotEmpty @Valid private List<ImportProductRequest> products;
+}
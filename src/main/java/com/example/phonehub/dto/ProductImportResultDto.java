@@ -0,0 +1,16 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDto {
+    private int products;
+    private long specifications;
+    private long colors;
+    private long images;
+    private long durationMs;
+}
@@ -0,0 +1,18 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductReviewStatsDto {
+    private Integer productId;
+    private Long reviewCount;
+    private Double averageRating;
+    // Mức sao (5 -> 1) -> số đánh giá, đủ 5 mức kể cả 0
+    private Map<Integer, Long> distribution;
+}
@@ -0,0 +1,15 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionDto {
+    private String type; // product | brand
+    private String text;
+    private String slug; // null với brand
+    private Integer productId; // null với brand
+}
@@ -0,0 +1,20 @@
+package com.example.phonehub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockShardsDto {
+    private Integer productId;
+    // null: không chia shard
+    private Integer shards;
+    // Tổng tồn kho thực (tổng các shard nếu đang chia shard)
+    private Integer quantity;
+    // Tồn kho từng shard theo shard_no, rỗng nếu không chia shard
+    private List<Integer> shardQuantities;
+}
@@ -0,0 +1,19 @@
+package com.example.phonehub.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UpdateStockShardsRequest {
+    // 0 hoặc 1: tắt chia shard, gom tồn kho về products.quantity
+    @NotNull
+    @Min(0)
+    @Max(64)
+    private Integer shards;
+}
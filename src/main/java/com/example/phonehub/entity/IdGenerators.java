@@ -0,0 +1,37 @@
+package com.example.phonehub.entity;
+
+/**
+ * Sinh id theo block từ bảng {@value #TABLE} (TABLE generator + pooled optimizer) cho các bảng catalog
+ * và các bảng ghi nhiều dòng mỗi checkout (order_items, stock_reservations)
+ *
+ * IDENTITY bắt Hibernate INSERT ngay từng dòng để lấy id nên không batch được JDBC. Với generator này
+ * mỗi instance lấy trước ALLOCATION id bằng 1 lần UPDATE, các INSERT được gom batch (hibernate.jdbc.batch_size).
+ * Cột id vẫn giữ AUTO_INCREMENT trên MySQL; IdGeneratorSeeder đẩy next_val vượt AUTO_INCREMENT + khoảng an toàn
+ * lúc khởi động. Deploy đầu tiên chuyển sang generator này không được rolling, xem IdGeneratorSeeder.
+ *
+ * Lấy block mới chạy trên 1 connection riêng (isolated) từ cùng pool, trong lúc đó các thread khác cần id của
+ * bảng đó chờ lock của optimizer mà vẫn giữ connection. Nếu cả pool đang là các thread như vậy thì thread lấy block
+ * phải chờ tới connection-timeout: pool (spring.datasource.hikari.maximum-pool-size) phải lớn hơn số checkout
+ * đồng thời tối đa. Block lớn (ORDER_ALLOCATION) giúp việc lấy block hiếm khi xảy ra.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String PK_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_SPECIFICATIONS = "product_specifications";
+    public static final String PRODUCT_COLORS = "product_colors";
+    public static final String PRODUCT_IMAGES = "product_images";
+    public static final String ORDER_ITEMS = "order_items";
+    public static final String STOCK_RESERVATIONS = "stock_reservations";
+
+    public static final int PRODUCT_ALLOCATION = 50;
+    /** Mỗi sản phẩm có hàng chục thông số -> block lớn hơn */
+    public static final int CHILD_ALLOCATION = 500;
+    public static final int ORDER_ALLOCATION = 100;
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.phonehub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả request ghi (POST) theo header Idempotency-Key, nguồn đúng cho việc phát lại response khi client retry
+ *
+ * IN_PROGRESS: request đầu đang chạy (owner_token là của request đó); COMPLETED: đã commit cùng transaction
+ * với dữ liệu của request, response lưu để trả lại nguyên văn. Request thất bại thì dòng bị xóa để retry chạy lại.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        // Job dọn key hết hạn
+        @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public enum Status { IN_PROGRESS, COMPLETED }
+
+    // <scope>:<Idempotency-Key>
+    @Id
+    @Column(name = "idempotency_key", length = 191)
+    private String id;
+
+    // SHA-256 của tham số request: cùng key nhưng khác nội dung thì từ chối
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private Status status;
+
+    @Column(name = "owner_token", length = 36, nullable = false)
+    private String ownerToken;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_body", columnDefinition = "MEDIUMTEXT")
+    private String responseBody;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
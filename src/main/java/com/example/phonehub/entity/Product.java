@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -14,14 +15,30 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Keyset pagination danh sách đã xuất bản (mới nhất trước)
+        @Index(name = "idx_products_published_created", columnList = "is_published, created_at, id")
+})
+@NamedEntityGraph(name = Product.GRAPH_SUMMARY, attributeNodes = @NamedAttributeNode("category"))
+@NamedEntityGraph(name = Product.GRAPH_DETAIL, attributeNodes = {
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("createdBy")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
+
+    /** Danh sách: chỉ join category */
+    public static final String GRAPH_SUMMARY = "Product.summary";
+    /** Chi tiết: join category + createdBy, các collection load riêng bằng batch IN (xem @BatchSize) */
+    public static final String GRAPH_DETAIL = "Product.detail";
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.PRODUCTS)
+    @TableGenerator(name = IdGenerators.PRODUCTS, table = IdGenerators.TABLE, pkColumnName = IdGenerators.PK_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = IdGenerators.PRODUCTS,
+            allocationSize = IdGenerators.PRODUCT_ALLOCATION)
     private Integer id;
     
     @Column(name = "name", nullable = false, length = 255)
@@ -60,6 +77,11 @@ public class Product {
     @Column(name = "quantity", nullable = false)
     private Integer quantity = 0;
     
+    // Số shard tồn kho (product_stock_shards) cho sản phẩm bán chạy; null = giữ hàng trực tiếp trên quantity.
+    // Khi chia shard, quantity chỉ là tổng được đồng bộ định kỳ để hiển thị/tìm kiếm
+    @Column(name = "stock_shards")
+    private Integer stockShards;
+    
     @Column(name = "is_published", nullable = false)
     private Boolean isPublished = false;
     
@@ -79,12 +101,16 @@ public class Product {
     private LocalDateTime updatedAt;
     
     // Relationships
+    // Không fetch join cùng lúc (specs × colors × images rows), mỗi collection 1 query IN theo tối đa 50 product
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     private List<ProductSpecification> specifications;
     
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     private List<ProductColor> colors;
     
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     private List<ProductImage> images;
 }
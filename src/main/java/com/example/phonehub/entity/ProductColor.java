@@ -19,7 +19,10 @@ import java.time.LocalDateTime;
 public class ProductColor {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.PRODUCT_COLORS)
+    @TableGenerator(name = IdGenerators.PRODUCT_COLORS, table = IdGenerators.TABLE, pkColumnName = IdGenerators.PK_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = IdGenerators.PRODUCT_COLORS,
+            allocationSize = IdGenerators.CHILD_ALLOCATION)
     private Integer id;
     
     @ManyToOne(fetch = FetchType.LAZY)
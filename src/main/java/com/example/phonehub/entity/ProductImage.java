@@ -19,7 +19,10 @@ import java.time.LocalDateTime;
 public class ProductImage {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.PRODUCT_IMAGES)
+    @TableGenerator(name = IdGenerators.PRODUCT_IMAGES, table = IdGenerators.TABLE, pkColumnName = IdGenerators.PK_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = IdGenerators.PRODUCT_IMAGES,
+            allocationSize = IdGenerators.CHILD_ALLOCATION)
     private Integer id;
     
     @ManyToOne(fetch = FetchType.LAZY)
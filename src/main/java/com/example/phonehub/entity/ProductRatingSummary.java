@@ -0,0 +1,77 @@
+package com.example.phonehub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tổng hợp đánh giá theo sản phẩm (số lượng, tổng điểm, số đánh giá mỗi mức sao)
+ *
+ * Cập nhật cộng dồn trong cùng transaction với tạo/sửa/xóa review (ProductReviewService),
+ * đọc bằng khóa chính thay cho AVG/COUNT/GROUP BY trên product_reviews
+ */
+@Entity
+@Table(name = "product_rating_summaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingSummary {
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount = 0L;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "star1", nullable = false)
+    private Long star1 = 0L;
+
+    @Column(name = "star2", nullable = false)
+    private Long star2 = 0L;
+
+    @Column(name = "star3", nullable = false)
+    private Long star3 = 0L;
+
+    @Column(name = "star4", nullable = false)
+    private Long star4 = 0L;
+
+    @Column(name = "star5", nullable = false)
+    private Long star5 = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public ProductRatingSummary(Integer productId) {
+        this.productId = productId;
+    }
+
+    /** Số đánh giá theo mức sao 1..5 */
+    public long getStars(int rating) {
+        return switch (rating) {
+            case 1 -> star1;
+            case 2 -> star2;
+            case 3 -> star3;
+            case 4 -> star4;
+            case 5 -> star5;
+            default -> 0L;
+        };
+    }
+
+    public void setStars(int rating, long count) {
+        switch (rating) {
+            case 1 -> star1 = count;
+            case 2 -> star2 = count;
+            case 3 -> star3 = count;
+            case 4 -> star4 = count;
+            case 5 -> star5 = count;
+            default -> { }
+        }
+    }
+}
@@ -13,7 +13,10 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "product_reviews")
+@Table(name = "product_reviews", indexes = {
+        // Keyset pagination đánh giá theo sản phẩm (mới nhất trước)
+        @Index(name = "idx_reviews_product_created", columnList = "product_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
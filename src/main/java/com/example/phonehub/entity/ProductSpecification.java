@@ -19,7 +19,10 @@ import java.time.LocalDateTime;
 public class ProductSpecification {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.PRODUCT_SPECIFICATIONS)
+    @TableGenerator(name = IdGenerators.PRODUCT_SPECIFICATIONS, table = IdGenerators.TABLE, pkColumnName = IdGenerators.PK_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = IdGenerators.PRODUCT_SPECIFICATIONS,
+            allocationSize = IdGenerators.CHILD_ALLOCATION)
     private Integer id;
     
     @ManyToOne(fetch = FetchType.LAZY)
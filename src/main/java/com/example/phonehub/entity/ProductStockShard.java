@@ -0,0 +1,42 @@
+package com.example.phonehub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 1 phần tồn kho của sản phẩm đang chia shard (Product.stockShards)
+ *
+ * Giữ hàng trừ trên 1 shard chọn ngẫu nhiên thay vì trên products.quantity, các checkout song song
+ * của cùng sản phẩm khóa các dòng khác nhau
+ */
+@Entity
+@Table(name = "product_stock_shards")
+@IdClass(ProductStockShard.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockShard {
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Id
+    @Column(name = "shard_no")
+    private Integer shardNo;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer productId;
+        private Integer shardNo;
+    }
+}
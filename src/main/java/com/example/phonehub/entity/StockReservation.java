@@ -0,0 +1,67 @@
+package com.example.phonehub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số lượng đã trừ khỏi products.quantity cho 1 dòng của order, giữ tới khi thanh toán xong
+ *
+ * RESERVED -> COMMITTED (order success) hoặc RELEASED (order failed / hết hạn, đã cộng trả tồn kho).
+ * Chuyển trạng thái bằng UPDATE có điều kiện status = RESERVED nên mỗi reservation chỉ được trả kho 1 lần.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        // Job dọn reservation hết hạn
+        @Index(name = "idx_stock_reservations_status_expires", columnList = "status, expires_at"),
+        @Index(name = "idx_stock_reservations_order", columnList = "order_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    public enum Status { RESERVED, COMMITTED, RELEASED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.STOCK_RESERVATIONS)
+    @TableGenerator(name = IdGenerators.STOCK_RESERVATIONS, table = IdGenerators.TABLE, pkColumnName = IdGenerators.PK_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = IdGenerators.STOCK_RESERVATIONS,
+            allocationSize = IdGenerators.ORDER_ALLOCATION)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    // Shard đã trừ (sản phẩm chia shard tồn kho), null = trừ trên products.quantity
+    @Column(name = "shard_no")
+    private Integer shardNo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private Status status = Status.RESERVED;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -2,7 +2,13 @@ package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,6 +16,28 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
     List<CartItem> findByUser_Id(Integer userId);
     Optional<CartItem> findByUser_IdAndProduct_Id(Integer userId, Integer productId);
     void deleteByUser_Id(Integer userId);
+
+    // Ghi giỏ từ Redis xuống: các dòng hiện có của 1 batch user (product/user để LAZY, chỉ cần id)
+    List<CartItem> findByUser_IdIn(Collection<Integer> userIds);
+
+    // id, productId, quantity, priceAtAdd: nạp giỏ vào Redis không cần entity sản phẩm
+    @Query("SELECT ci.id, ci.product.id, ci.quantity, ci.priceAtAdd FROM CartItem ci WHERE ci.user.id = :userId ORDER BY ci.id")
+    List<Object[]> findLinesByUserId(@Param("userId") Integer userId);
+
+    // userId, productId, priceAtAdd của 1 dòng (endpoint theo cartItemId)
+    @Query("SELECT ci.user.id, ci.product.id, ci.priceAtAdd FROM CartItem ci WHERE ci.id = :id")
+    List<Object[]> findLineById(@Param("id") Integer id);
+
+    // Dòng mới của giỏ trong Redis: INSERT ngay để có id, đã có dòng (uk_cart_user_product) thì bỏ qua
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO cart_items (user_id, product_id, quantity, price_at_add, created_at, updated_at) "
+            + "VALUES (:userId, :productId, :quantity, :price, :now, :now)", nativeQuery = true)
+    int insertLineIfAbsent(@Param("userId") Integer userId, @Param("productId") Integer productId,
+                           @Param("quantity") Integer quantity, @Param("price") BigDecimal price,
+                           @Param("now") LocalDateTime now);
+
+    @Query("SELECT ci.id FROM CartItem ci WHERE ci.user.id = :userId AND ci.product.id = :productId")
+    Optional<Integer> findIdByUserIdAndProductId(@Param("userId") Integer userId, @Param("productId") Integer productId);
 }
 
 
@@ -2,8 +2,10 @@ package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +14,7 @@ public interface CategoryRepository extends JpaRepository<Category, Integer> {
     Optional<Category> findBySlug(String slug);
     boolean existsByName(String name);
     boolean existsBySlug(String slug);
+
+    @Query("SELECT c.slug FROM Category c")
+    List<String> findAllSlugs();
 }
@@ -0,0 +1,44 @@
+package com.example.phonehub.repository;
+
+import com.example.phonehub.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // INSERT thẳng (không merge), key đã tồn tại thì bỏ qua: trả 1 nếu nhận được key, 0 nếu trùng.
+    // Không dùng ON DUPLICATE KEY UPDATE: Connector/J mặc định trả found rows (1) cả khi trùng mà không đổi gì
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO idempotency_keys (idempotency_key, request_hash, status, owner_token, locked_at, expires_at, created_at) "
+            + "VALUES (:id, :requestHash, 'IN_PROGRESS', :owner, :now, :expiresAt, :now)", nativeQuery = true)
+    int claim(@Param("id") String id, @Param("requestHash") String requestHash, @Param("owner") String owner,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Nhận lại key IN_PROGRESS bị bỏ dở (request đầu chết giữa chừng)
+    @Modifying
+    @Query("UPDATE IdempotencyRecord k SET k.ownerToken = :owner, k.lockedAt = :now WHERE k.id = :id "
+            + "AND k.status = :status AND k.lockedAt < :staleBefore")
+    int takeOver(@Param("id") String id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                 @Param("staleBefore") LocalDateTime staleBefore, @Param("status") IdempotencyRecord.Status status);
+
+    // Trả 0 nếu key đã bị request khác nhận lại: transaction của request này phải rollback
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE IdempotencyRecord k SET k.status = :status, k.responseStatus = :responseStatus, "
+            + "k.responseBody = :responseBody WHERE k.id = :id AND k.ownerToken = :owner")
+    int complete(@Param("id") String id, @Param("owner") String owner, @Param("status") IdempotencyRecord.Status status,
+                 @Param("responseStatus") Integer responseStatus, @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord k WHERE k.id = :id AND k.ownerToken = :owner AND k.status = :status")
+    int release(@Param("id") String id, @Param("owner") String owner, @Param("status") IdempotencyRecord.Status status);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
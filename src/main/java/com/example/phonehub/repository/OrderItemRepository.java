@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
@@ -29,6 +30,10 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     void updateReviewState(@Param("orderItemId") Integer orderItemId,
                            @Param("isReviewed") Boolean isReviewed,
                            @Param("reviewId") Integer reviewId);
+
+    // Độ phổ biến cho gợi ý tìm kiếm: productId, số đơn có sản phẩm
+    @Query("SELECT oi.product.id, COUNT(oi) FROM OrderItem oi GROUP BY oi.product.id")
+    List<Object[]> countOrdersByProduct();
 }
 
 
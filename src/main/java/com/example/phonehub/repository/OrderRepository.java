@@ -1,19 +1,37 @@
 package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.Order;
+import com.example.phonehub.repository.projection.OrderSummaryRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Integer> {
     Page<Order> findByUser_Id(Integer userId, Pageable pageable);
-    Page<Order> findByStatus(String status, Pageable pageable);
+    Slice<Order> findByStatus(String status, Pageable pageable); // tổng số: countByStatus qua CountCacheService
     Page<Order> findByUser_IdAndStatus(Integer userId, String status, Pageable pageable);
 
+    // Danh sách không items: projection OrderSummaryRow, không tạo entity Order/User
+    @Query(OrderSummaryRow.SELECT + "where o.status = :status")
+    Slice<OrderSummaryRow> findSummariesByStatus(@Param("status") String status, Pageable pageable);
+
+    // Keyset: order mới nhất trước, (createdAt, id) giảm dần
+    @Query("select o from Order o where o.status = :status order by o.createdAt desc, o.id desc")
+    List<Order> findByStatusFirst(@Param("status") String status, Limit limit);
+
+    @Query("select o from Order o where o.status = :status and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id)) order by o.createdAt desc, o.id desc")
+    List<Order> findByStatusAfter(@Param("status") String status, @Param("createdAt") LocalDateTime createdAt, @Param("id") Integer id, Limit limit);
+
+    long countByStatus(String status);
+
     @Query("select coalesce(sum(o.totalPrice), 0) from Order o where o.user.id = :userId and o.status = 'success'")
     BigDecimal sumTotalSpentByUser(@Param("userId") Integer userId);
 }
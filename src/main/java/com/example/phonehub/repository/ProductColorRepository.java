@@ -2,11 +2,21 @@ package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.ProductColor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductColorRepository extends JpaRepository<ProductColor, Integer> {
     List<ProductColor> findByProductId(Integer productId);
+
+    // Dữ liệu cho index tìm kiếm: productId, name
+    @Query("SELECT c.product.id, c.name FROM ProductColor c")
+    List<Object[]> findSearchValues();
+
+    @Query("SELECT c.product.id, c.name FROM ProductColor c WHERE c.product.id IN :productIds")
+    List<Object[]> findSearchValuesByProductIdIn(@Param("productIds") Collection<Integer> productIds);
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -25,5 +26,9 @@ public interface ProductFavoriteRepository extends JpaRepository<ProductFavorite
     
     @Query("SELECT COUNT(pf) FROM ProductFavorite pf WHERE pf.product.id = :productId")
     long countByProductId(@Param("productId") Integer productId);
+
+    // Độ phổ biến cho gợi ý tìm kiếm: productId, số lượt yêu thích
+    @Query("SELECT pf.product.id, COUNT(pf) FROM ProductFavorite pf GROUP BY pf.product.id")
+    List<Object[]> countFavoritesByProduct();
 }
 
@@ -0,0 +1,39 @@
+package com.example.phonehub.repository;
+
+import com.example.phonehub.entity.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Integer> {
+
+    // Cộng dồn nguyên tử trên dòng đã có (row lock), trả 0 nếu sản phẩm chưa có dòng tổng hợp
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductRatingSummary s SET s.reviewCount = s.reviewCount + :count, s.ratingSum = s.ratingSum + :sum, "
+            + "s.star1 = s.star1 + :star1, s.star2 = s.star2 + :star2, s.star3 = s.star3 + :star3, "
+            + "s.star4 = s.star4 + :star4, s.star5 = s.star5 + :star5, s.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE s.productId = :productId")
+    int applyDelta(@Param("productId") Integer productId, @Param("count") long count, @Param("sum") long sum,
+                   @Param("star1") long star1, @Param("star2") long star2, @Param("star3") long star3,
+                   @Param("star4") long star4, @Param("star5") long star5);
+
+    // Tạo (hoặc tính lại) dòng tổng hợp từ product_reviews - dùng lần đầu sản phẩm có thay đổi review
+    // (dữ liệu cũ chưa có dòng nào), đã gồm thay đổi của transaction hiện tại
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO product_rating_summaries "
+            + "(product_id, review_count, rating_sum, star1, star2, star3, star4, star5, updated_at) "
+            + "SELECT :productId, COUNT(*), COALESCE(SUM(r.rating), 0), "
+            + "COALESCE(SUM(CASE WHEN r.rating = 1 THEN 1 ELSE 0 END), 0), "
+            + "COALESCE(SUM(CASE WHEN r.rating = 2 THEN 1 ELSE 0 END), 0), "
+            + "COALESCE(SUM(CASE WHEN r.rating = 3 THEN 1 ELSE 0 END), 0), "
+            + "COALESCE(SUM(CASE WHEN r.rating = 4 THEN 1 ELSE 0 END), 0), "
+            + "COALESCE(SUM(CASE WHEN r.rating = 5 THEN 1 ELSE 0 END), 0), CURRENT_TIMESTAMP "
+            + "FROM product_reviews r WHERE r.product_id = :productId "
+            + "ON DUPLICATE KEY UPDATE review_count = VALUES(review_count), rating_sum = VALUES(rating_sum), "
+            + "star1 = VALUES(star1), star2 = VALUES(star2), star3 = VALUES(star3), star4 = VALUES(star4), "
+            + "star5 = VALUES(star5), updated_at = VALUES(updated_at)", nativeQuery = true)
+    int rebuild(@Param("productId") Integer productId);
+}
@@ -1,55 +1,163 @@
 package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.Product;
+import com.example.phonehub.repository.projection.ProductStockRow;
+import com.example.phonehub.repository.projection.ProductSummaryRow;
+import org.hibernate.Hibernate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.jpa.repository.EntityGraph;
 
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
-    @EntityGraph(attributePaths = {"category","createdBy","specifications","colors","images"})
+    @EntityGraph(Product.GRAPH_DETAIL)
     Optional<Product> findBySlug(String slug);
     boolean existsBySlug(String slug);
-    @Override
-    @EntityGraph(attributePaths = {"category","createdBy","specifications","colors","images"})
-    Optional<Product> findById(Integer id);
-    @EntityGraph(attributePaths = {"category"})
+    @Query("SELECT p.slug FROM Product p")
+    java.util.List<String> findAllSlugs();
+    @Query("SELECT p.slug FROM Product p WHERE p.slug IN :slugs")
+    java.util.List<String> findExistingSlugs(@Param("slugs") java.util.Collection<String> slugs);
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    java.util.List<Integer> findExistingIds(@Param("ids") java.util.Collection<Integer> ids);
+
+    @EntityGraph(Product.GRAPH_DETAIL)
+    Optional<Product> findDetailRootById(Integer id);
+
+    /**
+     * Chi tiết sản phẩm: 1 query product + category + createdBy, rồi mỗi collection
+     * (specifications, colors, images) 1 query IN riêng - không nhân chéo số dòng.
+     * Collection được load xong trong transaction nên dùng được cả ở thread nền (refresh cache).
+     */
+    @Transactional(readOnly = true)
+    default Optional<Product> findDetailById(Integer id) {
+        return findDetailRootById(id).map(ProductRepository::initializeDetail);
+    }
+
+    @Transactional(readOnly = true)
+    default Optional<Product> findDetailBySlug(String slug) {
+        return findBySlug(slug).map(ProductRepository::initializeDetail);
+    }
+
+    private static Product initializeDetail(Product product) {
+        Hibernate.initialize(product.getSpecifications());
+        Hibernate.initialize(product.getColors());
+        Hibernate.initialize(product.getImages());
+        return product;
+    }
+
+    @EntityGraph(Product.GRAPH_SUMMARY)
     @Override
     org.springframework.data.domain.Page<Product> findAll(org.springframework.data.domain.Pageable pageable);
+
+    // Các danh sách: projection ProductSummaryRow (không tạo entity), trả Slice (không COUNT),
+    // tổng số do CountCacheService tính/cache riêng
+    @Query(ProductSummaryRow.SELECT)
+    Slice<ProductSummaryRow> findAllSummaries(Pageable pageable);
     
-    @EntityGraph(attributePaths = {"category"})
-    @Query("SELECT p FROM Product p WHERE p.isPublished = true")
-    Page<Product> findPublishedProducts(Pageable pageable);
+    @Query(ProductSummaryRow.SELECT + "WHERE p.isPublished = true")
+    Slice<ProductSummaryRow> findPublishedProducts(Pageable pageable);
+
+    // Keyset: sản phẩm đã xuất bản mới nhất trước, (createdAt, id) giảm dần
+    @Query(ProductSummaryRow.SELECT + "WHERE p.isPublished = true ORDER BY p.createdAt DESC, p.id DESC")
+    java.util.List<ProductSummaryRow> findPublishedFirst(org.springframework.data.domain.Limit limit);
+
+    @Query(ProductSummaryRow.SELECT + "WHERE p.isPublished = true AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    java.util.List<ProductSummaryRow> findPublishedAfter(@Param("createdAt") java.time.LocalDateTime createdAt, @Param("id") Integer id, org.springframework.data.domain.Limit limit);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.isPublished = true")
+    long countPublished();
     
-    @EntityGraph(attributePaths = {"category"})
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.isPublished = true")
-    Page<Product> findPublishedProductsByCategory(@Param("categoryId") Integer categoryId, Pageable pageable);
+    @Query(ProductSummaryRow.SELECT + "WHERE c.id = :categoryId AND p.isPublished = true")
+    Slice<ProductSummaryRow> findPublishedProductsByCategory(@Param("categoryId") Integer categoryId, Pageable pageable);
     
-    @EntityGraph(attributePaths = {"category"})
-    @Query("SELECT p FROM Product p WHERE p.brand = :brand AND p.isPublished = true")
-    Page<Product> findPublishedProductsByBrand(@Param("brand") String brand, Pageable pageable);
+    @Query(ProductSummaryRow.SELECT + "WHERE p.brand = :brand AND p.isPublished = true")
+    Slice<ProductSummaryRow> findPublishedProductsByBrand(@Param("brand") String brand, Pageable pageable);
+    
+    @Query(ProductSummaryRow.SELECT + "WHERE p.brand = :brand AND c.id = :categoryId AND p.isPublished = true")
+    Slice<ProductSummaryRow> findPublishedProductsByBrandAndCategory(@Param("brand") String brand, @Param("categoryId") Integer categoryId, Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId AND p.isPublished = true")
+    long countPublishedByCategory(@Param("categoryId") Integer categoryId);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.brand = :brand AND p.isPublished = true")
+    long countPublishedByBrand(@Param("brand") String brand);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.brand = :brand AND p.category.id = :categoryId AND p.isPublished = true")
+    long countPublishedByBrandAndCategory(@Param("brand") String brand, @Param("categoryId") Integer categoryId);
     
-    @EntityGraph(attributePaths = {"category"})
-    @Query("SELECT p FROM Product p WHERE p.brand = :brand AND p.category.id = :categoryId AND p.isPublished = true")
-    Page<Product> findPublishedProductsByBrandAndCategory(@Param("brand") String brand, @Param("categoryId") Integer categoryId, Pageable pageable);
+    @Query(value = ProductSummaryRow.SELECT + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.isPublished = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.isPublished = true")
+    Page<ProductSummaryRow> findPublishedProductsByName(@Param("name") String name, Pageable pageable);
     
-    @EntityGraph(attributePaths = {"category"})
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.isPublished = true")
-    Page<Product> findPublishedProductsByName(@Param("name") String name, Pageable pageable);
+    @Query(value = ProductSummaryRow.SELECT + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND c.id = :categoryId AND p.isPublished = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.category.id = :categoryId AND p.isPublished = true")
+    Page<ProductSummaryRow> findPublishedProductsByNameAndCategory(@Param("name") String name, @Param("categoryId") Integer categoryId, Pageable pageable);
     
-    @EntityGraph(attributePaths = {"category"})
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.category.id = :categoryId AND p.isPublished = true")
-    Page<Product> findPublishedProductsByNameAndCategory(@Param("name") String name, @Param("categoryId") Integer categoryId, Pageable pageable);
+    @Query(ProductSummaryRow.SELECT + "WHERE p.id IN :ids")
+    java.util.List<ProductSummaryRow> findSummariesByIdIn(@Param("ids") java.util.Collection<Integer> ids);
+
+    // Dữ liệu cho index tìm kiếm: id, name, brand, categoryId, categoryName, isPublished
+    @Query("SELECT p.id, p.name, p.brand, c.id, c.name, p.isPublished FROM Product p JOIN p.category c")
+    java.util.List<Object[]> findSearchRows();
+
+    @Query("SELECT p.id, p.name, p.brand, c.id, c.name, p.isPublished FROM Product p JOIN p.category c WHERE p.id IN :ids")
+    java.util.List<Object[]> findSearchRowsByIdIn(@Param("ids") java.util.Collection<Integer> ids);
+
+    // Dữ liệu cho gợi ý tìm kiếm: id, name, slug, brand của sản phẩm đã xuất bản
+    @Query("SELECT p.id, p.name, p.slug, p.brand FROM Product p WHERE p.isPublished = true")
+    java.util.List<Object[]> findSuggestRows();
+
+    // Dữ liệu cho facet index: id, categoryId, categoryName, brand, price, discount, quantity của sản phẩm đã xuất bản
+    @Query("SELECT p.id, c.id, c.name, p.brand, p.price, p.discount, p.quantity FROM Product p JOIN p.category c WHERE p.isPublished = true")
+    java.util.List<Object[]> findFacetRows();
+
+    @Query("SELECT p.id, c.id, c.name, p.brand, p.price, p.discount, p.quantity FROM Product p JOIN p.category c WHERE p.isPublished = true AND p.id IN :ids")
+    java.util.List<Object[]> findFacetRowsByIdIn(@Param("ids") java.util.Collection<Integer> ids);
+
+    @Query("SELECT p.id FROM Product p WHERE p.category.id = :categoryId")
+    java.util.List<Integer> findIdsByCategoryId(@Param("categoryId") Integer categoryId);
     
     @Query("SELECT DISTINCT p.brand FROM Product p WHERE p.isPublished = true ORDER BY p.brand")
     java.util.List<String> findAllPublishedBrands();
     
     @Query("SELECT DISTINCT p.brand FROM Product p WHERE p.category.id = :categoryId AND p.isPublished = true ORDER BY p.brand")
     java.util.List<String> findAllPublishedBrandsByCategoryId(@Param("categoryId") Integer categoryId);
+
+    // Trừ tồn kho nguyên tử: chỉ trừ khi còn đủ (row lock của UPDATE), trả 0 nếu không đủ hàng / không có sản phẩm
+    // hoặc sản phẩm vừa chuyển sang chia shard tồn kho
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity "
+            + "WHERE p.id = :id AND p.quantity >= :quantity AND p.stockShards IS NULL")
+    int decrementStock(@Param("id") Integer id, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :quantity WHERE p.id = :id AND p.stockShards IS NULL")
+    int incrementStock(@Param("id") Integer id, @Param("quantity") int quantity);
+
+    @Query("SELECT p.quantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") Integer id);
+
+    @Query("SELECT new com.example.phonehub.repository.projection.ProductStockRow(p.quantity, p.stockShards, p.slug) FROM Product p WHERE p.id = :id")
+    Optional<ProductStockRow> findStockById(@Param("id") Integer id);
+
+    // Khóa dòng sản phẩm khi đổi chế độ tồn kho (chặn các UPDATE tồn kho trên dòng này tới khi xong)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Integer id);
+
+    // Đồng bộ tổng tồn kho các shard vào products.quantity, trả 0 nếu không đổi
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = :quantity WHERE p.id = :id AND p.stockShards IS NOT NULL AND p.quantity <> :quantity")
+    int syncShardedQuantity(@Param("id") Integer id, @Param("quantity") int quantity);
 }
@@ -1,6 +1,7 @@
 package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.ProductReview;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
@@ -9,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +19,15 @@ public interface ProductReviewRepository extends JpaRepository<ProductReview, In
     
     @EntityGraph(attributePaths = {"product", "user"})
     Page<ProductReview> findByProductId(Integer productId, Pageable pageable);
+
+    // Keyset: đánh giá mới nhất trước, (createdAt, id) giảm dần
+    @EntityGraph(attributePaths = {"product", "user"})
+    @Query("SELECT pr FROM ProductReview pr WHERE pr.product.id = :productId ORDER BY pr.createdAt DESC, pr.id DESC")
+    List<ProductReview> findByProductIdFirst(@Param("productId") Integer productId, Limit limit);
+
+    @EntityGraph(attributePaths = {"product", "user"})
+    @Query("SELECT pr FROM ProductReview pr WHERE pr.product.id = :productId AND (pr.createdAt < :createdAt OR (pr.createdAt = :createdAt AND pr.id < :id)) ORDER BY pr.createdAt DESC, pr.id DESC")
+    List<ProductReview> findByProductIdAfter(@Param("productId") Integer productId, @Param("createdAt") LocalDateTime createdAt, @Param("id") Integer id, Limit limit);
     
     @EntityGraph(attributePaths = {"product", "user"})
     Page<ProductReview> findByUserId(Integer userId, Pageable pageable);
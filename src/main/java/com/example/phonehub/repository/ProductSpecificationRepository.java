@@ -2,12 +2,29 @@ package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.ProductSpecification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductSpecificationRepository extends JpaRepository<ProductSpecification, Integer> {
     List<ProductSpecification> findByProductId(Integer productId);
     List<ProductSpecification> findByProductIdAndGroupName(Integer productId, String groupName);
+
+    // Dữ liệu cho index tìm kiếm: productId, value
+    @Query("SELECT s.product.id, s.value FROM ProductSpecification s")
+    List<Object[]> findSearchValues();
+
+    @Query("SELECT s.product.id, s.value FROM ProductSpecification s WHERE s.product.id IN :productIds")
+    List<Object[]> findSearchValuesByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    // Dữ liệu cho facet index: productId, label, value của các thông số có label trong danh sách
+    @Query("SELECT s.product.id, s.label, s.value FROM ProductSpecification s WHERE s.label IN :labels")
+    List<Object[]> findFacetValues(@Param("labels") Collection<String> labels);
+
+    @Query("SELECT s.product.id, s.label, s.value FROM ProductSpecification s WHERE s.label IN :labels AND s.product.id IN :productIds")
+    List<Object[]> findFacetValuesByProductIdIn(@Param("labels") Collection<String> labels, @Param("productIds") Collection<Integer> productIds);
 }
@@ -0,0 +1,56 @@
+package com.example.phonehub.repository;
+
+import com.example.phonehub.entity.ProductStockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, ProductStockShard.Key> {
+
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId ORDER BY s.shardNo")
+    List<ProductStockShard> findByProductId(@Param("productId") Integer productId);
+
+    // Khóa mọi shard theo thứ tự shard_no (cùng thứ tự ở mọi transaction để không deadlock)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId ORDER BY s.shardNo")
+    List<ProductStockShard> findForUpdateByProductId(@Param("productId") Integer productId);
+
+    // Khóa 1 shard còn đủ hàng mà transaction khác không giữ (SKIP LOCKED: không chờ), duyệt từ shard offset.
+    // Native vì Hibernate bỏ qua SKIP LOCKED với H2Dialect (MySQL 8 và H2 2.x đều hỗ trợ)
+    @Query(value = "SELECT shard_no FROM product_stock_shards WHERE product_id = :productId AND quantity >= :quantity "
+            + "ORDER BY MOD(shard_no + :offset, :shards) LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<Integer> lockFreeShard(@Param("productId") Integer productId, @Param("quantity") int quantity,
+                                    @Param("offset") int offset, @Param("shards") int shards);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId AND s.shardNo = :shardNo")
+    Optional<ProductStockShard> findForUpdate(@Param("productId") Integer productId, @Param("shardNo") int shardNo);
+
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.productId = :productId")
+    long sumByProductId(@Param("productId") Integer productId);
+
+    // productId, tổng tồn kho các shard
+    @Query("SELECT s.productId, SUM(s.quantity) FROM ProductStockShard s GROUP BY s.productId")
+    List<Object[]> sumByProduct();
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity - :quantity "
+            + "WHERE s.productId = :productId AND s.shardNo = :shardNo AND s.quantity >= :quantity")
+    int decrement(@Param("productId") Integer productId, @Param("shardNo") int shardNo, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity + :quantity WHERE s.productId = :productId AND s.shardNo = :shardNo")
+    int increment(@Param("productId") Integer productId, @Param("shardNo") int shardNo, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM ProductStockShard s WHERE s.productId = :productId")
+    int deleteByProductId(@Param("productId") Integer productId);
+}
@@ -0,0 +1,28 @@
+package com.example.phonehub.repository;
+
+import com.example.phonehub.entity.StockReservation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // id, productId, quantity, shardNo, slug sản phẩm của các reservation theo trạng thái
+    @Query("SELECT r.id, r.product.id, r.quantity, r.shardNo, r.product.slug FROM StockReservation r WHERE r.order.id = :orderId AND r.status = :status")
+    List<Object[]> findLinesByOrderIdAndStatus(@Param("orderId") Integer orderId, @Param("status") StockReservation.Status status);
+
+    @Query("SELECT r.id, r.product.id, r.quantity, r.shardNo, r.product.slug FROM StockReservation r WHERE r.status = :status AND r.expiresAt < :now ORDER BY r.expiresAt")
+    List<Object[]> findLinesByStatusExpiredBefore(@Param("status") StockReservation.Status status, @Param("now") LocalDateTime now, Limit limit);
+
+    // Chuyển trạng thái có điều kiện: trả 0 nếu reservation đã được chuyển (job khác / request khác)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StockReservation r SET r.status = :to, r.updatedAt = CURRENT_TIMESTAMP WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") Long id, @Param("from") StockReservation.Status from, @Param("to") StockReservation.Status to);
+}
@@ -0,0 +1,28 @@
+package com.example.phonehub.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Số dòng ước lượng của bảng từ information_schema (InnoDB lấy mẫu, có thể lệch vài chục %
+ * và được MySQL cache theo information_schema_stats_expiry) - đổi lại không phải quét index như COUNT(*)
+ *
+ * Dùng JdbcTemplate thay vì native query của JPA: query lỗi (DB không phải MySQL) không làm
+ * transaction hiện tại bị đánh dấu rollback-only.
+ */
+@Repository
+public class TableStatisticsRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return null nếu không có thống kê
+     */
+    public Long estimateRows(String table) {
+        return jdbcTemplate.queryForObject(
+                "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                Long.class, table);
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.phonehub.repository;
 
 import com.example.phonehub.entity.User;
+import com.example.phonehub.repository.projection.UserSummaryRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,6 +23,12 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
     
+    @Query("SELECT u.username FROM User u")
+    List<String> findAllUsernames();
+    
+    @Query("SELECT u.email FROM User u WHERE u.email IS NOT NULL")
+    List<String> findAllEmails();
+    
     @EntityGraph(attributePaths = {"role", "rank"})
     @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(u.email) LIKE LOWER(CONCAT('%', :keyword, '%')) ORDER BY u.id ASC")
     Page<User> searchByUsernameOrEmail(@Param("keyword") String keyword, Pageable pageable);
@@ -39,7 +52,20 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     @Override
     Page<User> findAll(Pageable pageable);
     
-    // Lấy tất cả users không load role và rank (chỉ thông tin cơ bản)
-    @Query("SELECT u FROM User u ORDER BY u.id ASC")
-    Page<User> findAllBasic(Pageable pageable);
+    // Lấy tất cả users dạng projection (chỉ thông tin cơ bản, không tạo entity), không COUNT - tổng số qua CountCacheService
+    @Query(UserSummaryRow.SELECT + "ORDER BY u.id ASC")
+    Slice<UserSummaryRow> findAllBasic(Pageable pageable);
+
+    // Keyset theo id tăng dần
+    @Query(UserSummaryRow.SELECT + "ORDER BY u.id ASC")
+    List<UserSummaryRow> findAllBasicFirst(Limit limit);
+
+    @Query(UserSummaryRow.SELECT + "WHERE u.id > :id ORDER BY u.id ASC")
+    List<UserSummaryRow> findAllBasicAfter(@Param("id") Integer id, Limit limit);
+
+    // Gán rank cho user chưa có rank trong transaction ghi riêng (luôn chạy trên primary, kể cả khi gọi từ transaction đọc)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE User u SET u.rank.id = :rankId WHERE u.id = :id AND u.rank IS NULL")
+    int assignRankIfMissing(@Param("id") Integer id, @Param("rankId") Integer rankId);
 }
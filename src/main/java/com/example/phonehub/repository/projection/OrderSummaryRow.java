@@ -0,0 +1,16 @@
+package com.example.phonehub.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng danh sách order không có items (JPQL constructor expression, user lấy qua LEFT JOIN)
+ */
+public record OrderSummaryRow(Integer id, Integer userId, String username, String buyerName, String buyerEmail,
+                              String buyerPhone, String buyerAddress, BigDecimal totalPrice, String paymentMethod,
+                              String status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static final String SELECT = "SELECT new com.example.phonehub.repository.projection.OrderSummaryRow("
+            + "o.id, u.id, u.username, o.buyerName, o.buyerEmail, o.buyerPhone, o.buyerAddress, o.totalPrice, "
+            + "o.paymentMethod, o.status, o.createdAt, o.updatedAt) FROM Order o LEFT JOIN o.user u ";
+}
@@ -0,0 +1,7 @@
+package com.example.phonehub.repository.projection;
+
+/**
+ * Tồn kho và chế độ giữ hàng của sản phẩm (stockShards null = trừ trực tiếp trên quantity), slug để xóa cache sản phẩm
+ */
+public record ProductStockRow(Integer quantity, Integer stockShards, String slug) {
+}
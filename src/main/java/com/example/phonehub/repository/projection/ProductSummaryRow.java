@@ -0,0 +1,22 @@
+package com.example.phonehub.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng danh sách sản phẩm (JPQL constructor expression): đủ cột cho ProductDto dạng summary,
+ * không tạo entity nên không có proxy, không nằm trong persistence context, không dirty-check khi flush
+ */
+public record ProductSummaryRow(Integer id, String name, String slug, String brand,
+                                Integer categoryId, String categoryName, String categorySlug,
+                                LocalDateTime categoryCreatedAt, LocalDateTime categoryUpdatedAt,
+                                BigDecimal price, BigDecimal priceOld, String discount, String thumbnailImage,
+                                Integer quantity, Boolean isPublished, LocalDateTime publishedAt,
+                                LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    /** SELECT dùng chung cho các query danh sách, nối thêm WHERE/ORDER BY */
+    public static final String SELECT = "SELECT new com.example.phonehub.repository.projection.ProductSummaryRow("
+            + "p.id, p.name, p.slug, p.brand, c.id, c.name, c.slug, c.createdAt, c.updatedAt, "
+            + "p.price, p.priceOld, p.discount, p.thumbnailImage, p.quantity, p.isPublished, p.publishedAt, "
+            + "p.createdAt, p.updatedAt) FROM Product p LEFT JOIN p.category c ";
+}
@@ -0,0 +1,17 @@
+package com.example.phonehub.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng danh sách user (JPQL constructor expression): chỉ roleId/rankId, không load role, rank
+ * và không đọc password / refresh token
+ */
+public record UserSummaryRow(Integer id, String username, String email, String phone, String address, String avatar,
+                             LocalDate birthday, Integer points, Integer roleId, Integer rankId,
+                             LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static final String SELECT = "SELECT new com.example.phonehub.repository.projection.UserSummaryRow("
+            + "u.id, u.username, u.email, u.phone, u.address, u.avatar, u.birthday, u.points, u.roleId, u.rankId, "
+            + "u.createdAt, u.updatedAt) FROM User u ";
+}
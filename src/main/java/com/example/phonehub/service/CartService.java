@@ -2,6 +2,7 @@ package com.example.phonehub.service;
 
 import com.example.phonehub.dto.CartItemDto;
 import com.example.phonehub.dto.CreateCartItemRequest;
+import com.example.phonehub.dto.ProductDto;
 import com.example.phonehub.dto.UpdateCartItemRequest;
 import com.example.phonehub.entity.CartItem;
 import com.example.phonehub.entity.Product;
@@ -9,28 +10,387 @@ import com.example.phonehub.entity.User;
 import com.example.phonehub.repository.CartItemRepository;
 import com.example.phonehub.repository.ProductRepository;
 import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
 import com.example.phonehub.utils.CartUtils;
-import jakarta.transaction.Transactional;
+import com.example.phonehub.utils.ProductUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
 
+/**
+ * Giỏ hàng giữ trong Redis hash cart:{userId}, ghi xuống cart_items theo kiểu write-behind
+ *
+ * - Field q:{productId} = số lượng (HINCRBY), p:{productId} = giá lúc thêm, i:{productId} = id dòng cart_items;
+ *   field "_" đánh dấu giỏ đã nạp (giỏ rỗng vẫn còn hash)
+ * - Cộng thêm sản phẩm đã có trong giỏ không query MySQL: sản phẩm đọc từ cache summary, user kiểm tra 1 lần lúc
+ *   nạp giỏ. Sản phẩm mới thì INSERT ngay 1 dòng cart_items để có id cho PUT/DELETE theo cartItemId, số lượng
+ *   về sau vẫn ghi theo write-behind.
+ *   Đọc giỏ ghép với cache summary sản phẩm (L1 / Redis MGET), chỉ sản phẩm thiếu cache mới query IN
+ * - Mỗi thay đổi cộng điểm user trong sorted set cart:dirty (ZINCRBY); {@link #flush()} định kỳ đọc 1 batch user
+ *   và ghi trạng thái hash xuống cart_items trong 1 transaction, commit xong mới xóa user khỏi cart:dirty.
+ *   Giỏ chưa có trong Redis (cold start / hết TTL) được nạp lại từ cart_items
+ * - Redis lỗi thì đọc/ghi thẳng MySQL như trước. Mất dữ liệu Redis thì mất tối đa các thay đổi chưa flush
+ */
 @Service
 @Transactional
 public class CartService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CartService.class);
+
+    private static final String CART_PREFIX = "cart:";
+    private static final String DIRTY_KEY = "cart:dirty";
+    private static final String LOADED_FIELD = "_";
+    private static final String QUANTITY = "q:";
+    private static final String PRICE = "p:";
+    private static final String ROW_ID = "i:";
+
     @Autowired private CartItemRepository cartItemRepository;
     @Autowired private UserRepository userRepository;
     @Autowired private ProductRepository productRepository;
+    @Autowired private RedisService redisService;
+    @Autowired private ProductCacheService productCacheService;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Value("${app.cart.ttl-days:7}")
+    private long ttlDays;
 
+    @Value("${app.cart.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    @Transactional(readOnly = true)
     public List<CartItemDto> getUserCart(Integer userId) {
-        List<CartItem> items = cartItemRepository.findByUser_Id(userId);
-        return CartUtils.toDtoList(items);
+        Map<String, String> cart = loadCart(userId, false);
+        if (cart == null) {
+            List<CartItem> items = cartItemRepository.findByUser_Id(userId);
+            return CartUtils.toDtoList(items);
+        }
+
+        List<Integer> productIds = productIds(cart);
+        Map<Integer, ProductDto> products = productSummaries(productIds);
+        List<CartItemDto> items = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            ProductDto product = products.get(productId);
+            // Sản phẩm đã bị xóa
+            if (product == null) continue;
+            items.add(CartUtils.toDto(parseId(cart.get(ROW_ID + productId)), product,
+                    Integer.valueOf(cart.get(QUANTITY + productId)), parsePrice(cart.get(PRICE + productId))));
+        }
+        // Dòng đã ghi xuống MySQL theo id, dòng chưa flush ở cuối
+        items.sort(Comparator.comparing(CartItemDto::getId, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(CartItemDto::getProductId));
+        return items;
     }
 
     public CartItemDto addOrUpdate(CreateCartItemRequest req) {
+        Integer userId = req.getUserId();
+        Integer productId = req.getProductId();
+        ProductDto product = productSummaries(List.of(productId)).get(productId);
+        if (product == null) {
+            throw new RuntimeException("Product not found: " + productId);
+        }
+
+        String key = cartKey(userId);
+        // Giá tại thời điểm thêm (chỉ ghi khi sản phẩm chưa có trong giỏ)
+        BigDecimal price = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+        Map<String, String> defaults = Map.of(PRICE + productId, price.toPlainString());
+        Long quantity = redisService.hashIncrementIfExists(key, QUANTITY + productId, req.getQuantity(), defaults, ttl());
+        if (quantity == null) {
+            // Giỏ chưa nạp vào Redis (hoặc Redis lỗi)
+            if (loadCart(userId, true) == null) {
+                return addOrUpdateInDatabase(req);
+            }
+            quantity = redisService.hashIncrementIfExists(key, QUANTITY + productId, req.getQuantity(), defaults, ttl());
+            if (quantity == null) {
+                throw new RuntimeException("Cart is temporarily unavailable");
+            }
+        }
+        if (quantity <= 0) {
+            redisService.hashPutAllIfExists(key, Map.of(QUANTITY + productId, "1"), ttl());
+            quantity = 1L;
+        }
+        markDirty(userId);
+
+        List<String> line = redisService.hashMultiGet(key, ROW_ID + productId, PRICE + productId);
+        BigDecimal priceAtAdd = line != null && line.get(1) != null ? parsePrice(line.get(1)) : price;
+        Integer id = line != null ? parseId(line.get(0)) : null;
+        if (id == null) {
+            id = assignRowId(userId, productId, quantity.intValue(), priceAtAdd);
+        }
+        return CartUtils.toDto(id, product, quantity.intValue(), priceAtAdd);
+    }
+
+    public CartItemDto updateQuantity(Integer cartItemId, UpdateCartItemRequest req) {
+        Object[] row = findLine(cartItemId);
+        Integer userId = (Integer) row[0];
+        Integer productId = (Integer) row[1];
+        if (loadCart(userId, true) == null) {
+            return updateQuantityInDatabase(cartItemId, req);
+        }
+
+        // Đặt số lượng tuyệt đối bằng HINCRBY: đọc số hiện tại (delta 0) rồi cộng phần chênh lệch.
+        // Dòng đã bị xóa khỏi giỏ (chưa flush) thì được thêm lại với giá và id của dòng trong MySQL
+        String key = cartKey(userId);
+        Map<String, String> defaults = Map.of(PRICE + productId, ((BigDecimal) row[2]).toPlainString(),
+                ROW_ID + productId, cartItemId.toString());
+        Long current = redisService.hashIncrementIfExists(key, QUANTITY + productId, 0, defaults, ttl());
+        Long quantity = current != null
+                ? redisService.hashIncrementIfExists(key, QUANTITY + productId, req.getQuantity() - current, Map.of(), ttl())
+                : null;
+        if (quantity == null) {
+            throw new RuntimeException("Cart is temporarily unavailable");
+        }
+        markDirty(userId);
+
+        ProductDto product = productSummaries(List.of(productId)).get(productId);
+        if (product == null) {
+            throw new RuntimeException("Product not found: " + productId);
+        }
+        List<String> line = redisService.hashMultiGet(key, PRICE + productId);
+        return CartUtils.toDto(cartItemId, product, quantity.intValue(),
+                line != null && line.get(0) != null ? parsePrice(line.get(0)) : (BigDecimal) row[2]);
+    }
+
+    public void removeItem(Integer cartItemId) {
+        Object[] row = findLine(cartItemId);
+        Integer userId = (Integer) row[0];
+        Integer productId = (Integer) row[1];
+        if (loadCart(userId, true) == null
+                || redisService.hashDelete(cartKey(userId), QUANTITY + productId, PRICE + productId, ROW_ID + productId) == null) {
+            cartItemRepository.deleteById(cartItemId);
+            return;
+        }
+        markDirty(userId);
+    }
+
+    public void clearUserCart(Integer userId) {
+        // Giữ lại hash rỗng (đã nạp) để lần đọc sau không nạp lại các dòng chưa kịp xóa trong MySQL
+        if (redisService.hashReplace(cartKey(userId), Map.of(LOADED_FIELD, "1"), ttl()) == null) {
+            cartItemRepository.deleteByUser_Id(userId);
+            return;
+        }
+        markDirty(userId);
+    }
+
+    /**
+     * Ghi các giỏ đã thay đổi xuống cart_items: mỗi lượt lấy tối đa flush-batch-size user, 1 transaction,
+     * 1 query đọc các dòng hiện có; UPDATE theo dirty-check, INSERT dòng mới, DELETE dòng đã bỏ khỏi giỏ
+     *
+     * User chỉ bị xóa khỏi cart:dirty sau khi commit và khi điểm không đổi: giỏ bị sửa trong lúc flush, transaction
+     * rollback, ghi lỗi hay instance chết giữa chừng thì user vẫn còn trong cart:dirty và được ghi lại ở lượt sau
+     */
+    @Scheduled(initialDelayString = "${app.cart.flush-interval-ms:2000}",
+            fixedDelayString = "${app.cart.flush-interval-ms:2000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flush() {
+        // user -> điểm lúc đọc
+        Map<String, Double> members = redisService.sortedSetRandomMembers(DIRTY_KEY, flushBatchSize);
+        if (members.isEmpty()) {
+            return;
+        }
+        Map<Integer, Map<String, String>> carts = new LinkedHashMap<>();
+        Map<String, Double> done = new HashMap<>();
+        for (Map.Entry<String, Double> member : members.entrySet()) {
+            Integer userId = Integer.valueOf(member.getKey());
+            Map<String, String> cart = redisService.hashGetAll(cartKey(userId));
+            if (cart == null) {
+                // Redis lỗi giữa chừng: còn trong cart:dirty, để lượt sau
+                continue;
+            }
+            if (cart.containsKey(LOADED_FIELD)) {
+                carts.put(userId, cart);
+            } else {
+                // Hash đã hết hạn: không có trạng thái để ghi, giữ nguyên MySQL
+                done.put(member.getKey(), member.getValue());
+            }
+        }
+
+        List<Integer> failed = new ArrayList<>();
+        if (!carts.isEmpty()) {
+            try {
+                writeBehind(carts);
+            } catch (RuntimeException e) {
+                // Ghi lại từng giỏ để 1 giỏ lỗi (user đã bị xóa...) không chặn cả batch
+                logger.warn("Cart flush of {} users failed, retrying one by one: {}", carts.size(), e.getMessage());
+                for (Map.Entry<Integer, Map<String, String>> cart : carts.entrySet()) {
+                    try {
+                        writeBehind(Map.of(cart.getKey(), cart.getValue()));
+                    } catch (RuntimeException ex) {
+                        failed.add(cart.getKey());
+                    }
+                }
+            }
+        }
+        if (!failed.isEmpty()) {
+            logger.warn("Cart write-behind failed for users {}, kept in {} for retry", failed, DIRTY_KEY);
+        }
+        carts.keySet().stream().filter(userId -> !failed.contains(userId))
+                .forEach(userId -> done.put(userId.toString(), members.get(userId.toString())));
+        redisService.sortedSetRemoveIfScore(DIRTY_KEY, done);
+    }
+
+    private void writeBehind(Map<Integer, Map<String, String>> carts) {
+        Map<Integer, List<CartItem>> created = transactionTemplate.execute(status -> {
+            Map<Integer, Map<Integer, CartItem>> existing = new HashMap<>();
+            for (CartItem row : cartItemRepository.findByUser_IdIn(carts.keySet())) {
+                existing.computeIfAbsent(row.getUser().getId(), id -> new HashMap<>()).put(row.getProduct().getId(), row);
+            }
+            Set<Integer> newProductIds = new HashSet<>();
+            carts.forEach((userId, cart) -> productIds(cart).stream()
+                    .filter(productId -> !existing.getOrDefault(userId, Map.of()).containsKey(productId))
+                    .forEach(newProductIds::add));
+            // Sản phẩm bị xóa sau khi thêm vào giỏ thì bỏ qua thay vì lỗi khóa ngoại cả batch
+            Set<Integer> validProductIds = newProductIds.isEmpty() ? Set.of()
+                    : new HashSet<>(productRepository.findExistingIds(newProductIds));
+
+            Map<Integer, List<CartItem>> inserts = new HashMap<>();
+            List<CartItem> removed = new ArrayList<>();
+            for (Map.Entry<Integer, Map<String, String>> entry : carts.entrySet()) {
+                Integer userId = entry.getKey();
+                Map<String, String> cart = entry.getValue();
+                Map<Integer, CartItem> rows = existing.getOrDefault(userId, Map.of());
+                // Hash không giữ thứ tự thêm: dòng mới INSERT theo productId
+                for (Integer productId : productIds(cart)) {
+                    Integer quantity = Integer.valueOf(cart.get(QUANTITY + productId));
+                    CartItem row = rows.get(productId);
+                    if (row != null) {
+                        if (!row.getQuantity().equals(quantity)) row.setQuantity(quantity);
+                    } else if (validProductIds.contains(productId)) {
+                        CartItem item = new CartItem();
+                        item.setUser(userRepository.getReferenceById(userId));
+                        item.setProduct(productRepository.getReferenceById(productId));
+                        item.setQuantity(quantity);
+                        BigDecimal price = parsePrice(cart.get(PRICE + productId));
+                        item.setPriceAtAdd(price != null ? price : BigDecimal.ZERO);
+                        inserts.computeIfAbsent(userId, id -> new ArrayList<>()).add(item);
+                    }
+                }
+                for (Map.Entry<Integer, CartItem> row : rows.entrySet()) {
+                    if (!cart.containsKey(QUANTITY + row.getKey())) removed.add(row.getValue());
+                }
+            }
+            inserts.values().forEach(cartItemRepository::saveAll);
+            if (!removed.isEmpty()) {
+                cartItemRepository.deleteAllInBatch(removed);
+            }
+            return inserts;
+        });
+
+        // Ghi id dòng mới vào giỏ (chỉ khi giỏ còn trong Redis) để endpoint theo cartItemId dùng được
+        created.forEach((userId, items) -> {
+            Map<String, String> ids = new HashMap<>(items.size() * 2);
+            items.forEach(item -> ids.put(ROW_ID + item.getProduct().getId(), item.getId().toString()));
+            redisService.hashPutAllIfExists(cartKey(userId), ids, ttl());
+        });
+    }
+
+    /**
+     * Dòng mới chỉ có trong hash: INSERT dòng cart_items (bỏ qua nếu đã có) rồi ghi id vào i:{productId}
+     *
+     * @return id dòng, null nếu không INSERT được (user / sản phẩm vừa bị xóa) - flush xử lý như cũ
+     */
+    private Integer assignRowId(Integer userId, Integer productId, int quantity, BigDecimal price) {
+        cartItemRepository.insertLineIfAbsent(userId, productId, quantity, price, LocalDateTime.now());
+        Integer id = cartItemRepository.findIdByUserIdAndProductId(userId, productId).orElse(null);
+        if (id != null) {
+            redisService.hashPutAllIfExists(cartKey(userId), Map.of(ROW_ID + productId, id.toString()), ttl());
+        }
+        return id;
+    }
+
+    /**
+     * Giỏ trong Redis, chưa có thì nạp từ cart_items (HSET chỉ khi hash chưa có, không đè thay đổi vừa ghi)
+     *
+     * @param forWrite giỏ rỗng: kiểm tra user tồn tại và tạo hash; đọc thì không tạo hash cho giỏ rỗng
+     * @return field -> value, null nếu Redis lỗi
+     */
+    private Map<String, String> loadCart(Integer userId, boolean forWrite) {
+        String key = cartKey(userId);
+        Map<String, String> cart = redisService.hashGetAll(key);
+        if (cart == null || !cart.isEmpty()) {
+            return cart;
+        }
+        Map<String, String> fields = new HashMap<>();
+        fields.put(LOADED_FIELD, "1");
+        for (Object[] row : cartItemRepository.findLinesByUserId(userId)) {
+            Integer productId = (Integer) row[1];
+            fields.put(ROW_ID + productId, row[0].toString());
+            fields.put(QUANTITY + productId, row[2].toString());
+            fields.put(PRICE + productId, ((BigDecimal) row[3]).toPlainString());
+        }
+        if (fields.size() == 1) {
+            if (!forWrite) {
+                return fields;
+            }
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("User not found: " + userId);
+            }
+        }
+        Boolean written = redisService.hashPutAllIfAbsent(key, fields, ttl());
+        if (written == null) {
+            return null;
+        }
+        return written ? fields : redisService.hashGetAll(key);
+    }
+
+    // Các sản phẩm trong giỏ (field q:{productId}), tăng dần
+    private static List<Integer> productIds(Map<String, String> cart) {
+        return cart.keySet().stream()
+                .filter(field -> field.startsWith(QUANTITY))
+                .map(field -> Integer.valueOf(field.substring(QUANTITY.length())))
+                .sorted()
+                .toList();
+    }
+
+    private Map<Integer, ProductDto> productSummaries(Collection<Integer> productIds) {
+        return productCacheService.getProductSummaries(productIds, missing ->
+                productRepository.findSummariesByIdIn(missing).stream().map(ProductUtils::toDtoSummary).toList());
+    }
+
+    // userId, productId, priceAtAdd
+    private Object[] findLine(Integer cartItemId) {
+        List<Object[]> rows = cartItemRepository.findLineById(cartItemId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Cart item not found: " + cartItemId);
+        }
+        return rows.get(0);
+    }
+
+    private void markDirty(Integer userId) {
+        if (!redisService.sortedSetIncrement(DIRTY_KEY, userId.toString(), 1)) {
+            logger.warn("Cart of user {} changed but could not be queued for write-behind", userId);
+        }
+    }
+
+    private String cartKey(Integer userId) {
+        return CART_PREFIX + userId;
+    }
+
+    private Duration ttl() {
+        return Duration.ofDays(ttlDays);
+    }
+
+    private static Integer parseId(String value) {
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    private static BigDecimal parsePrice(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+
+    // Ghi thẳng MySQL khi Redis không dùng được
+
+    private CartItemDto addOrUpdateInDatabase(CreateCartItemRequest req) {
         User user = userRepository.findById(req.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found: " + req.getUserId()));
         Product product = productRepository.findById(req.getProductId())
@@ -55,23 +415,12 @@ public class CartService {
         return CartUtils.toDto(saved);
     }
 
-    public CartItemDto updateQuantity(Integer cartItemId, UpdateCartItemRequest req) {
+    private CartItemDto updateQuantityInDatabase(Integer cartItemId, UpdateCartItemRequest req) {
         CartItem item = cartItemRepository.findById(cartItemId)
                 .orElseThrow(() -> new RuntimeException("Cart item not found: " + cartItemId));
         item.setQuantity(req.getQuantity());
         return CartUtils.toDto(cartItemRepository.save(item));
     }
-
-    public void removeItem(Integer cartItemId) {
-        if (!cartItemRepository.existsById(cartItemId)) {
-            throw new RuntimeException("Cart item not found: " + cartItemId);
-        }
-        cartItemRepository.deleteById(cartItemId);
-    }
-
-    public void clearUserCart(Integer userId) {
-        cartItemRepository.deleteByUser_Id(userId);
-    }
 }
 
 
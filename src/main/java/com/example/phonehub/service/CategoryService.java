@@ -7,6 +7,7 @@ import com.example.phonehub.entity.User;
 import com.example.phonehub.repository.CategoryRepository;
 import com.example.phonehub.repository.UserRepository;
 import com.example.phonehub.service.redis_cache.CategoryCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
 import com.example.phonehub.utils.CategoryUtils;
 import com.example.phonehub.utils.SlugUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,28 +32,33 @@ public class CategoryService {
     @Autowired
     private CategoryCacheService categoryCacheService;
 
+    @Autowired
+    private CatalogIndexer catalogIndexer;
+
+    @Transactional(readOnly = true)
     public Page<CategoryDto> getAllCategories(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Category> categoryPage = categoryRepository.findAll(pageable);
         return CategoryUtils.toDtoPage(categoryPage);
     }
 
+    @Transactional(readOnly = true)
     public Optional<CategoryDto> getCategoryById(Integer id) {
         if (id == null) return Optional.empty();
         
-        CategoryDto cachedCategory = categoryCacheService.getCategoryFromCacheById(id);
         return categoryCacheService.getCategoryWithCacheStrategy(
-            cachedCategory,
+            categoryCacheService.buildCacheKeyById(id),
+            () -> categoryCacheService.getCategoryFromCacheById(id),
             () -> categoryRepository.findById(id)
         );
     }
     
+    @Transactional(readOnly = true)
     public Optional<CategoryDto> getCategoryBySlug(String slug) {
         if (slug == null || slug.trim().isEmpty()) return Optional.empty();
         
-        CategoryDto cachedCategory = categoryCacheService.getCategoryFromCacheBySlug(slug);
-        return categoryCacheService.getCategoryWithCacheStrategy(
-            cachedCategory,
+        return categoryCacheService.getCategoryBySlugWithCacheStrategy(
+            slug,
             () -> categoryRepository.findBySlug(slug)
         );
     }
@@ -80,6 +86,7 @@ public class CategoryService {
         
         Category savedCategory = categoryRepository.save(category);
         CategoryDto savedDto = CategoryUtils.toDto(savedCategory);
+        categoryCacheService.registerSlug(slug);
         categoryCacheService.saveCategoryToCache(savedDto);
         
         return savedDto;
@@ -90,6 +97,7 @@ public class CategoryService {
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
 
         String oldSlug = category.getSlug();
+        String oldName = category.getName();
 
         if (!category.getName().equals(request.getName()) && 
             categoryRepository.existsByName(request.getName())) {
@@ -112,7 +120,13 @@ public class CategoryService {
         CategoryDto updatedDto = CategoryUtils.toDto(updatedCategory);
         
         categoryCacheService.removeCategoryFromCache(id, oldSlug);
+        if (!slug.equals(oldSlug)) {
+            categoryCacheService.registerSlug(slug);
+        }
         categoryCacheService.saveCategoryToCache(updatedDto);
+        if (!request.getName().equals(oldName)) {
+            catalogIndexer.reindexCategory(id);
+        }
         
         return updatedDto;
     }
@@ -130,10 +144,12 @@ public class CategoryService {
         categoryCacheService.removeCategoryFromCache(id, slug);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsByName(String name) {
         return categoryRepository.existsByName(name);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsBySlug(String slug) {
         return categoryRepository.existsBySlug(slug);
     }
@@ -0,0 +1,115 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.dto.CheckoutItemRequest;
+import com.example.phonehub.dto.CheckoutRequest;
+import com.example.phonehub.dto.OrderDto;
+import com.example.phonehub.entity.Order;
+import com.example.phonehub.entity.OrderItem;
+import com.example.phonehub.entity.Product;
+import com.example.phonehub.entity.User;
+import com.example.phonehub.repository.OrderRepository;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.helper.OrderHelper;
+import com.example.phonehub.service.helper.UserHelper;
+import com.example.phonehub.service.inventory.StockReservationService;
+import com.example.phonehub.service.redis_cache.OrderCacheService;
+import com.example.phonehub.utils.OrderUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checkout cả giỏ trong 1 request / 1 transaction thay cho POST /orders + N lần POST /orders/{id}/items
+ *
+ * - Sản phẩm nạp bằng 1 query IN; order items và reservation INSERT theo batch (id lấy theo block, xem IdGenerators);
+ *   tồn kho trừ bằng 1 batch UPDATE có điều kiện ({@link StockReservationService#reserveAll})
+ * - Tổng tiền tính ở server: giá hiện tại của sản phẩm, giảm theo hạng của user
+ * - Thiếu hàng / sản phẩm không bán thì rollback cả order
+ */
+@Service
+@Transactional
+public class CheckoutService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderHelper orderHelper;
+    @Autowired
+    private UserHelper userHelper;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private OrderCacheService orderCacheService;
+
+    public OrderDto checkout(CheckoutRequest req) {
+        // Gộp các dòng trùng sản phẩm, giữ thứ tự trong giỏ
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (CheckoutItemRequest line : req.getItems()) {
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+
+        Order order = new Order();
+        BigDecimal rankDiscount = BigDecimal.ZERO;
+        if (req.getUserId() != null) {
+            User user = userRepository.findById(req.getUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found: " + req.getUserId()));
+            userHelper.ensureUserHasRank(user);
+            if (user.getRank() != null && user.getRank().getDiscount() != null) {
+                rankDiscount = user.getRank().getDiscount();
+            }
+            order.setUser(user);
+        }
+
+        Map<Integer, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<OrderItem> items = new ArrayList<>(quantities.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + line.getKey());
+            }
+            if (!Boolean.TRUE.equals(product.getIsPublished())) {
+                throw new RuntimeException("Product not available: " + line.getKey());
+            }
+            BigDecimal unitPrice = orderHelper.getUnitPrice(product).setScale(2, RoundingMode.HALF_UP);
+            total = total.add(orderHelper.calcSubtotal(unitPrice, line.getValue(), rankDiscount));
+
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(product);
+            item.setQuantity(line.getValue());
+            item.setUnitPrice(unitPrice);
+            items.add(item);
+        }
+
+        order.setBuyerName(req.getBuyerName());
+        order.setBuyerEmail(req.getBuyerEmail());
+        order.setBuyerPhone(req.getBuyerPhone());
+        order.setBuyerAddress(req.getBuyerAddress());
+        order.setPaymentMethod(req.getPaymentMethod() != null ? req.getPaymentMethod() : "VNPAY");
+        order.setStatus("pending");
+        order.setTotalPrice(total);
+        order.setItems(items);
+        // Items lưu theo cascade của Order
+        Order saved = orderRepository.save(order);
+        stockReservationService.reserveAll(saved, items);
+
+        orderCacheService.evictOrderItems(saved.getId(), saved.getUser() != null ? saved.getUser().getId() : null);
+        return OrderUtils.toDto(saved);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.phonehub.entity.EmailVerificationToken;
 import com.example.phonehub.entity.User;
 import com.example.phonehub.repository.EmailVerificationTokenRepository;
 import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.redis_cache.UserCacheService;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -27,6 +28,9 @@ public class EmailVerificationService {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private UserCacheService userCacheService;
+
   @Autowired(required = false)
   private JavaMailSender mailSender;
 
@@ -84,8 +88,11 @@ public class EmailVerificationService {
     User user = userRepository.findById(record.getUserId())
         .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
+    String oldEmail = user.getEmail();
     user.setEmail(record.getNewEmail());
     userRepository.save(user);
+    userCacheService.removeUserFromCache(user.getId(), null, oldEmail);
+    userCacheService.registerLookupKeys(null, record.getNewEmail());
 
     record.setUsed(true);
     tokenRepository.save(record);
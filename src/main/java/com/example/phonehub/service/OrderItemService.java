@@ -12,7 +12,7 @@ import com.example.phonehub.repository.OrderRepository;
 import com.example.phonehub.repository.ProductRepository;
 import com.example.phonehub.repository.ProductReviewRepository;
 import com.example.phonehub.utils.OrderUtils;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
@@ -39,6 +39,8 @@ public class OrderItemService {
     private com.example.phonehub.service.redis_cache.OrderItemCacheService orderItemCacheService;
     @Autowired
     private com.example.phonehub.service.redis_cache.OrderCacheService orderCacheService;
+    @Autowired
+    private com.example.phonehub.service.inventory.StockReservationService stockReservationService;
 
     /**
      * Cập nhật trạng thái review cho order item.
@@ -66,23 +68,31 @@ public class OrderItemService {
         }
 
         OrderItem saved = orderItemRepository.save(item);
-        orderItemCacheService.evictAll();
-        orderCacheService.evictAll();
+        Order order = item.getOrder();
+        orderItemCacheService.evictItem(saved.getId(), order.getId());
+        orderCacheService.evictOrderItems(order.getId(), order.getUser() != null ? order.getUser().getId() : null);
         return OrderUtils.toItemDto(saved);
     }
 
+    @Transactional(readOnly = true)
     public Page<OrderItemDto> listByOrder(Integer orderId, int page, int size) {
         return orderItemCacheService.listByOrder(orderId, page, size);
     }
 
+    @Transactional(readOnly = true)
     public Optional<OrderItemDto> getById(Integer id) {
         return orderItemCacheService.byId(id);
     }
 
+    @Transactional(readOnly = true)
     public BigDecimal totalSpentByUser(Integer userId) {
         return orderCacheService.totalSpentByUser(userId);
     }
 
+    /**
+     * Thêm item và giữ hàng (trừ tồn kho có điều kiện, hết hạn nếu order không thanh toán xong)
+     */
+    @Transactional
     public OrderDto addItem(Integer orderId, CreateOrderItemRequest req) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
@@ -90,14 +100,6 @@ public class OrderItemService {
         Product product = productRepository.findById(req.getProductId())
                 .orElseThrow(() -> new RuntimeException("Product not found: " + req.getProductId()));
 
-        // Kiểm tra và trừ tồn kho
-        int remain = product.getQuantity() != null ? product.getQuantity() : 0;
-        if (req.getQuantity() > remain) {
-            throw new RuntimeException("Insufficient stock for product " + product.getId() + ": remain=" + remain);
-        }
-        product.setQuantity(remain - req.getQuantity());
-        productRepository.save(product);
-
         BigDecimal unitPrice = req.getUnitPrice().setScale(2, RoundingMode.HALF_UP);
         // Giữ unitPrice theo thời điểm mua; không dùng subtotal để cập nhật tổng
 
@@ -111,8 +113,10 @@ public class OrderItemService {
 
         // Không cập nhật totalPrice tại đây; tổng tiền lấy theo amount khi tạo order
         Order saved = orderRepository.save(order);
-        orderItemCacheService.evictAll();
-        orderCacheService.evictAll();
+        // Giữ hàng sau cùng: khóa dòng sản phẩm chỉ giữ từ đây tới commit
+        stockReservationService.reserve(order, product.getId(), req.getQuantity());
+        orderItemCacheService.evictItem(null, orderId);
+        orderCacheService.evictOrderItems(orderId, saved.getUser() != null ? saved.getUser().getId() : null);
         return OrderUtils.toDto(saved);
     }
 
@@ -122,6 +126,7 @@ public class OrderItemService {
      * @param orderItemId ID của order item
      * @return true nếu user đã mua order item này, false nếu không
      */
+    @Transactional(readOnly = true)
     public boolean checkUserPurchasedItem(Integer userId, Integer orderItemId) {
         if (userId == null || orderItemId == null) {
             return false;
@@ -1,11 +1,13 @@
 package com.example.phonehub.service;
 
 import com.example.phonehub.dto.CreateOrderRequest;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.OrderDto;
 import com.example.phonehub.entity.*;
 import com.example.phonehub.repository.*;
+import com.example.phonehub.service.inventory.StockReservationService;
 import com.example.phonehub.utils.OrderUtils;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
@@ -25,11 +27,20 @@ public class OrderService {
 
     @Autowired
     private com.example.phonehub.service.redis_cache.OrderCacheService orderCacheService;
+    @Autowired
+    private StockReservationService stockReservationService;
 
+    @Transactional(readOnly = true)
     public Page<OrderDto> getOrders(int page, int size) {
         return orderCacheService.list(page, size);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageDto<OrderDto> getOrdersByCursor(String cursor, int size, boolean includeTotal) {
+        return orderCacheService.listByCursor(cursor, size, includeTotal);
+    }
+
+    @Transactional(readOnly = true)
     public Page<OrderDto> getOrdersByUser(Integer userId, int page, int size) {
         return orderCacheService.listByUser(userId, page, size);
     }
@@ -38,6 +49,7 @@ public class OrderService {
      * Lấy danh sách orders có trạng thái "success" (đã đặt hàng thành công)
      * Không bao gồm items để tối ưu performance cho admin
      */
+    @Transactional(readOnly = true)
     public Page<OrderDto> getSuccessOrders(int page, int size) {
         return orderCacheService.listSuccessWithoutItems(page, size);
     }
@@ -45,10 +57,12 @@ public class OrderService {
     /**
      * Lấy danh sách orders có trạng thái "success" của một user cụ thể
      */
+    @Transactional(readOnly = true)
     public Page<OrderDto> getSuccessOrdersByUser(Integer userId, int page, int size) {
         return orderCacheService.listByUser(userId, page, size);
     }
 
+    @Transactional(readOnly = true)
     public Optional<OrderDto> getById(Integer id) {
         return orderCacheService.byId(id);
     }
@@ -73,7 +87,7 @@ public class OrderService {
         order.setItems(new ArrayList<>());
 
         Order saved = orderRepository.save(order);
-        orderCacheService.evictAll();
+        orderCacheService.evictOrderDetail(saved.getId());
         return OrderUtils.toDto(saved);
     }
 
@@ -82,7 +96,13 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
         order.setStatus(status);
         Order saved = orderRepository.save(order);
-        orderCacheService.evictAll();
+        // Thanh toán xong thì giữ hẳn hàng, thất bại thì trả kho ngay (không chờ reservation hết hạn)
+        if ("success".equalsIgnoreCase(status)) {
+            stockReservationService.commit(orderId);
+        } else if ("failed".equalsIgnoreCase(status)) {
+            stockReservationService.release(orderId);
+        }
+        orderCacheService.evictOrder(orderId, saved.getUser() != null ? saved.getUser().getId() : null);
         return OrderUtils.toDto(saved);
     }
 }
@@ -9,6 +9,7 @@ import com.example.phonehub.repository.ProductColorRepository;
 import com.example.phonehub.repository.ProductRepository;
 import com.example.phonehub.repository.UserRepository;
 import com.example.phonehub.service.redis_cache.ProductColorCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
 import com.example.phonehub.utils.ProductUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -23,7 +24,9 @@ public class ProductColorService {
     @Autowired private ProductRepository productRepository;
     @Autowired private UserRepository userRepository;
     @Autowired private ProductColorCacheService colorCacheService;
+    @Autowired private CatalogIndexer catalogIndexer;
 
+    @Transactional(readOnly = true)
     public List<ProductColorDto> getByProduct(Integer productId) {
         if (productId == null) return List.of();
         
@@ -47,6 +50,7 @@ public class ProductColorService {
         c.setCreatedBy(admin);
         ProductColorDto savedDto = ProductUtils.toDto(colorRepository.save(c));
         colorCacheService.invalidateProductColorsCache(req.getProductId());
+        catalogIndexer.reindex(req.getProductId());
         return savedDto;
     }
 
@@ -60,6 +64,7 @@ public class ProductColorService {
         c.setHexColor(req.getHexColor());
         ProductColorDto updatedDto = ProductUtils.toDto(colorRepository.save(c));
         colorCacheService.invalidateProductColorsCache(req.getProductId());
+        catalogIndexer.reindex(req.getProductId());
         return updatedDto;
     }
 
@@ -69,6 +74,7 @@ public class ProductColorService {
         Integer productId = color.getProduct().getId();
         colorRepository.deleteById(id);
         colorCacheService.invalidateProductColorsCache(productId);
+        catalogIndexer.reindex(productId);
     }    
 }
 
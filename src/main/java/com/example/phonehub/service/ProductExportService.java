@@ -0,0 +1,147 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.repository.projection.ProductSummaryRow;
+import com.example.phonehub.utils.ProductUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export toàn bộ catalog (NDJSON hoặc CSV) với bộ nhớ không đổi theo số sản phẩm
+ *
+ * - Đọc tuần tự (forward-only, projection không vào persistence context), mỗi dòng ghi ra rồi bỏ, không giữ list.
+ *   Fetch size app.export.fetch-size chỉ áp cho query này: mặc định Integer.MIN_VALUE để MySQL Connector/J
+ *   stream từng dòng thay vì tải hết kết quả, URL JDBC chung giữ nguyên (không useCursorFetch).
+ *   Trong lúc stream connection không chạy được câu SQL khác - export chỉ có 1 query
+ * - Ghi qua buffer, flush xuống response mỗi {@link #FLUSH_EVERY} dòng (chunked, gzip flush theo)
+ * - Gọi bên trong StreamingResponseBody: transaction (và connection) mở khi bắt đầu ghi, đóng ngay khi ghi xong
+ *   hoặc client ngắt kết nối
+ */
+@Service
+public class ProductExportService {
+
+    public static final int FLUSH_EVERY = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    static final String[] CSV_HEADER = {"id", "name", "slug", "brand", "categoryId", "categoryName", "price", "priceOld",
+            "discount", "thumbnailImage", "quantity", "isPublished", "publishedAt", "createdAt", "updatedAt"};
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+
+        public String getExtension() { return extension; }
+
+        public static Format from(String value) {
+            if (value == null || value.isBlank()) return NDJSON;
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value.trim())) return format;
+            }
+            throw new RuntimeException("Invalid export format: " + value);
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // DB không hỗ trợ fetch size âm (H2...) thì đặt số dương
+    @Value("${app.export.fetch-size:" + Integer.MIN_VALUE + "}")
+    private int fetchSize;
+
+    /** @return số sản phẩm đã ghi */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out, Format format, boolean publishedOnly) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try (Stream<ProductSummaryRow> rows = stream(publishedOnly)) {
+            long count = format == Format.CSV ? writeCsv(rows.iterator(), writer) : writeNdjson(rows.iterator(), writer);
+            writer.flush();
+            return count;
+        }
+    }
+
+    private Stream<ProductSummaryRow> stream(boolean publishedOnly) {
+        String jpql = ProductSummaryRow.SELECT + (publishedOnly ? "WHERE p.isPublished = true " : "") + "ORDER BY p.id";
+        return entityManager.createQuery(jpql, ProductSummaryRow.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHEABLE, false)
+                .getResultStream();
+    }
+
+    private long writeNdjson(Iterator<ProductSummaryRow> rows, Writer writer) throws IOException {
+        // Flush do mình quyết định theo chunk, không flush sau mỗi dòng
+        ObjectWriter json = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        long count = 0;
+        while (rows.hasNext()) {
+            json.writeValue(generator, ProductUtils.toDtoSummary(rows.next()));
+            if (++count % FLUSH_EVERY == 0) generator.flush();
+        }
+        if (count > 0) generator.writeRaw('\n');
+        generator.flush();
+        return count;
+    }
+
+    private long writeCsv(Iterator<ProductSummaryRow> rows, Writer writer) throws IOException {
+        writeCsvLine(writer, (Object[]) CSV_HEADER);
+        long count = 0;
+        while (rows.hasNext()) {
+            ProductSummaryRow r = rows.next();
+            writeCsvLine(writer, r.id(), r.name(), r.slug(), r.brand(), r.categoryId(), r.categoryName(), r.price(),
+                    r.priceOld(), r.discount(), r.thumbnailImage(), r.quantity(), r.isPublished(), r.publishedAt(),
+                    r.createdAt(), r.updatedAt());
+            if (++count % FLUSH_EVERY == 0) writer.flush();
+        }
+        return count;
+    }
+
+    private static void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            if (values[i] != null) writer.write(csvField(values[i].toString()));
+        }
+        writer.write("\r\n");
+    }
+
+    /** RFC 4180: bọc trong "" khi có dấu phẩy, ngoặc kép hoặc xuống dòng, ngoặc kép nhân đôi */
+    static String csvField(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
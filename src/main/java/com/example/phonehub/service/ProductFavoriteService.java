@@ -50,15 +50,18 @@ public class ProductFavoriteService {
         favoriteCacheService.invalidateProductFavoriteCache(productId);
     }
 
+    @Transactional(readOnly = true)
     public Page<ProductFavoriteDto> getUserFavorites(Integer userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         return ProductUtils.toFavoriteDtoPage(favoriteRepository.findByUserId(userId, pageable));
     }
 
+    @Transactional(readOnly = true)
     public boolean isFavorite(Integer userId, Integer productId) {
         return favoriteRepository.existsByUserIdAndProductId(userId, productId);
     }
 
+    @Transactional(readOnly = true)
     public long getFavoriteCount(Integer productId) {
         return favoriteRepository.countByProductId(productId);
     }
@@ -24,6 +24,7 @@ public class ProductImageService {
     @Autowired private UserRepository userRepository;
     @Autowired private ProductImageCacheService imageCacheService;
 
+    @Transactional(readOnly = true)
     public List<ProductImageDto> getByProduct(Integer productId) {
         if (productId == null) return List.of();
         
@@ -0,0 +1,247 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.dto.ImportProductRequest;
+import com.example.phonehub.dto.ProductImportRequest;
+import com.example.phonehub.dto.ProductImportResultDto;
+import com.example.phonehub.entity.Category;
+import com.example.phonehub.entity.Product;
+import com.example.phonehub.entity.ProductColor;
+import com.example.phonehub.entity.ProductImage;
+import com.example.phonehub.entity.ProductSpecification;
+import com.example.phonehub.entity.User;
+import com.example.phonehub.repository.CategoryRepository;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.redis_cache.CountCacheService;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
+import com.example.phonehub.service.search.ProductSuggestIndex;
+import com.example.phonehub.utils.SlugUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Import sản phẩm hàng loạt (kèm thông số, màu, ảnh)
+ *
+ * - Kiểm tra toàn bộ trước khi ghi: slug trùng (trong file hoặc đã có), danh mục không tồn tại -> không ghi gì
+ * - Ghi theo từng chunk {@code app.catalog.import.chunk-size} sản phẩm, mỗi chunk 1 transaction:
+ *   id lấy theo block (IdGenerators) nên Hibernate gom INSERT thành batch JDBC
+ *   (hibernate.jdbc.batch_size + order_inserts, MySQL rewriteBatchedStatements gộp thành INSERT nhiều dòng),
+ *   flush rồi clear persistence context sau mỗi chunk để bộ nhớ không tăng theo số sản phẩm
+ * - Lỗi giữa chừng: các chunk trước đã commit vẫn giữ
+ * - Sau commit mỗi chunk: đăng ký slug (Bloom filter, negative cache), reindex tìm kiếm/facet,
+ *   gợi ý và count cache như khi tạo từng sản phẩm nhưng gom theo chunk
+ */
+@Service
+public class ProductImportService {
+
+    private static final int SLUG_QUERY_CHUNK = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductCacheService productCacheService;
+    @Autowired
+    private CatalogIndexer catalogIndexer;
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    @Autowired
+    private CountCacheService countCacheService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.catalog.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.catalog.import.max-products:100000}")
+    private int maxProducts;
+
+    /**
+     * Import từ file JSON cùng định dạng với body của /products/import ({"products": [...]})
+     */
+    public ProductImportResultDto importFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("Import file is empty");
+        }
+        ProductImportRequest request;
+        try (InputStream in = file.getInputStream()) {
+            request = objectMapper.readValue(in, ProductImportRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid import file: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read import file: " + e.getMessage());
+        }
+        Set<ConstraintViolation<ProductImportRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<ProductImportRequest> first = violations.iterator().next();
+            throw new RuntimeException("Invalid import file: " + first.getPropertyPath() + " " + first.getMessage());
+        }
+        return importProducts(request.getProducts());
+    }
+
+    public ProductImportResultDto importProducts(List<ImportProductRequest> requests) {
+        long start = System.currentTimeMillis();
+        List<String> slugs = validate(requests);
+
+        long[] counts = new long[3];
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            int to = Math.min(requests.size(), from + chunkSize);
+            List<ImportProductRequest> chunk = requests.subList(from, to);
+            List<String> chunkSlugs = slugs.subList(from, to);
+            transactionTemplate.executeWithoutResult(status -> importChunk(chunk, chunkSlugs, counts));
+        }
+        return new ProductImportResultDto(requests.size(), counts[0], counts[1], counts[2],
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return slug của từng sản phẩm (sinh từ tên nếu bỏ trống), cùng thứ tự với requests
+     */
+    private List<String> validate(List<ImportProductRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("No products to import");
+        }
+        if (requests.size() > maxProducts) {
+            throw new RuntimeException("Too many products to import: " + requests.size() + " (max " + maxProducts + ")");
+        }
+        if (!userRepository.existsById(1)) {
+            throw new RuntimeException("Admin user with ID 1 not found");
+        }
+
+        List<String> slugs = new ArrayList<>(requests.size());
+        Set<String> seen = new HashSet<>();
+        Set<Integer> categoryIds = new LinkedHashSet<>();
+        for (ImportProductRequest req : requests) {
+            String slug = (req.getSlug() == null || req.getSlug().isEmpty()) ? SlugUtils.generateSlug(req.getName())
+                    : req.getSlug();
+            if (!seen.add(slug.toLowerCase())) {
+                throw new RuntimeException("Duplicate slug '" + slug + "' in import");
+            }
+            slugs.add(slug);
+            categoryIds.add(req.getCategoryId());
+        }
+
+        for (int from = 0; from < slugs.size(); from += SLUG_QUERY_CHUNK) {
+            List<String> existing = productRepository.findExistingSlugs(
+                    slugs.subList(from, Math.min(slugs.size(), from + SLUG_QUERY_CHUNK)));
+            if (!existing.isEmpty()) {
+                throw new RuntimeException("Product with slug '" + existing.get(0) + "' already exists");
+            }
+        }
+
+        Set<Integer> found = new HashSet<>();
+        categoryRepository.findAllById(categoryIds).forEach(c -> found.add(c.getId()));
+        for (Integer categoryId : categoryIds) {
+            if (!found.contains(categoryId)) {
+                throw new RuntimeException("Category not found: " + categoryId);
+            }
+        }
+        return slugs;
+    }
+
+    private void importChunk(List<ImportProductRequest> chunk, List<String> slugs, long[] counts) {
+        User admin = entityManager.getReference(User.class, 1);
+        List<Product> products = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ImportProductRequest req = chunk.get(i);
+            Product p = toEntity(req, slugs.get(i), entityManager.getReference(Category.class, req.getCategoryId()), admin);
+            entityManager.persist(p);
+            products.add(p);
+            counts[0] += p.getSpecifications().size();
+            counts[1] += p.getColors().size();
+            counts[2] += p.getImages().size();
+        }
+        entityManager.flush();
+
+        List<Integer> ids = products.stream().map(Product::getId).toList();
+        productCacheService.registerSlugs(slugs);
+        catalogIndexer.reindex(ids);
+        productSuggestIndex.requestRebuild();
+        countCacheService.invalidate(CountCacheService.PRODUCTS);
+        entityManager.clear();
+    }
+
+    private static Product toEntity(ImportProductRequest req, String slug, Category category, User admin) {
+        Product p = new Product();
+        p.setName(req.getName());
+        p.setSlug(slug);
+        p.setBrand(req.getBrand());
+        p.setCategory(category);
+        p.setPrice(req.getPrice());
+        p.setPriceOld(req.getPriceOld());
+        p.setDiscount(req.getDiscount());
+        p.setThumbnailImage(req.getThumbnailImage());
+        p.setQuantity(req.getQuantity() != null ? req.getQuantity() : 0);
+        p.setIsPublished(req.getIsPublished() != null ? req.getIsPublished() : false);
+        p.setPublishedAt(Boolean.TRUE.equals(p.getIsPublished()) ? LocalDateTime.now() : null);
+        p.setCreatedBy(admin);
+
+        List<ProductSpecification> specifications = new ArrayList<>();
+        if (req.getSpecifications() != null) {
+            for (ImportProductRequest.Specification s : req.getSpecifications()) {
+                ProductSpecification spec = new ProductSpecification();
+                spec.setProduct(p);
+                spec.setCreatedBy(admin);
+                spec.setGroupName(s.getGroupName());
+                spec.setLabel(s.getLabel());
+                spec.setValue(s.getValue());
+                spec.setType(s.getType());
+                specifications.add(spec);
+            }
+        }
+        List<ProductColor> colors = new ArrayList<>();
+        if (req.getColors() != null) {
+            for (ImportProductRequest.Color c : req.getColors()) {
+                ProductColor color = new ProductColor();
+                color.setProduct(p);
+                color.setCreatedBy(admin);
+                color.setName(c.getName());
+                color.setHexColor(c.getHexColor());
+                colors.add(color);
+            }
+        }
+        List<ProductImage> images = new ArrayList<>();
+        if (req.getImages() != null) {
+            for (String url : req.getImages()) {
+                ProductImage image = new ProductImage();
+                image.setProduct(p);
+                image.setCreatedBy(admin);
+                image.setUrl(url);
+                images.add(image);
+            }
+        }
+        p.setSpecifications(specifications);
+        p.setColors(colors);
+        p.setImages(images);
+        return p;
+    }
+}
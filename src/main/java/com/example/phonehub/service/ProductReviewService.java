@@ -1,31 +1,36 @@
 package com.example.phonehub.service;
 
 import com.example.phonehub.dto.CreateProductReviewRequest;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.ProductReviewDto;
+import com.example.phonehub.dto.ProductReviewStatsDto;
 import com.example.phonehub.entity.Order;
 import com.example.phonehub.entity.OrderItem;
 import com.example.phonehub.entity.Product;
+import com.example.phonehub.entity.ProductRatingSummary;
 import com.example.phonehub.entity.ProductReview;
 import com.example.phonehub.entity.User;
 import com.example.phonehub.repository.OrderItemRepository;
 import com.example.phonehub.repository.OrderRepository;
+import com.example.phonehub.repository.ProductRatingSummaryRepository;
 import com.example.phonehub.repository.ProductRepository;
 import com.example.phonehub.repository.ProductReviewRepository;
 import com.example.phonehub.repository.UserRepository;
 import com.example.phonehub.service.redis_cache.OrderCacheService;
 import com.example.phonehub.service.redis_cache.OrderItemCacheService;
 import com.example.phonehub.service.redis_cache.ProductReviewCacheService;
+import com.example.phonehub.utils.CursorUtils;
 import com.example.phonehub.utils.ProductUtils;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -55,6 +60,10 @@ public class ProductReviewService {
     @Autowired
     private OrderCacheService orderCacheService;
     
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+    
+    @Transactional(readOnly = true)
     public Page<ProductReviewDto> getByProductId(Integer productId, int page, int size) {
         if (!productRepository.existsById(productId)) {
             throw new RuntimeException("Product not found");
@@ -62,6 +71,24 @@ public class ProductReviewService {
         return ProductUtils.toReviewDtoPage(reviewRepository.findByProductId(productId, PageRequest.of(page, size)));
     }
     
+    /**
+     * Keyset pagination đánh giá của sản phẩm (mới nhất trước)
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductReviewDto> getByProductIdCursor(Integer productId, String cursor, int size, boolean includeTotal) {
+        if (!productRepository.existsById(productId)) {
+            throw new RuntimeException("Product not found");
+        }
+        CursorUtils.Cursor after = CursorUtils.decode(cursor);
+        List<ProductReview> rows = after == null
+                ? reviewRepository.findByProductIdFirst(productId, CursorUtils.limit(size))
+                : reviewRepository.findByProductIdAfter(productId, after.createdAt(), after.id(), CursorUtils.limit(size));
+        return CursorUtils.toPage(rows, size, ProductUtils::toDto,
+                r -> CursorUtils.encode(r.getCreatedAt(), r.getId()),
+                includeTotal ? reviewRepository.countByProductId(productId) : null);
+    }
+    
+    @Transactional(readOnly = true)
     public Page<ProductReviewDto> getByUserId(Integer userId, int page, int size) {
         if (!userRepository.existsById(userId)) {
             throw new RuntimeException("User not found");
@@ -69,10 +96,12 @@ public class ProductReviewService {
         return ProductUtils.toReviewDtoPage(reviewRepository.findByUserId(userId, PageRequest.of(page, size)));
     }
     
+    @Transactional(readOnly = true)
     public Optional<ProductReviewDto> getById(Integer id) {
         return reviewRepository.findById(id).map(ProductUtils::toDto);
     }
     
+    @Transactional(readOnly = true)
     public boolean hasUserReviewedProduct(Integer productId, Integer userId) {
         return reviewRepository.findByProductIdAndUserId(productId, userId).isPresent();
     }
@@ -110,10 +139,10 @@ public class ProductReviewService {
         orderItem.setIsReviewed(true);
         orderItemRepository.save(orderItem);
         
-        reviewCacheService.invalidateProductReviewCache(req.getProductId());
+        applyRatingChange(product.getId(), null, saved.getRating());
         reviewCacheService.invalidateUserReviewCache(req.getUserId());
-        orderItemCacheService.evictAll();
-        orderCacheService.evictAll();
+        orderItemCacheService.evictItem(orderItem.getId(), order.getId());
+        orderCacheService.evictOrderItems(order.getId(), order.getUser() != null ? order.getUser().getId() : null);
         
         return ProductUtils.toDto(saved);
     }
@@ -126,14 +155,14 @@ public class ProductReviewService {
             throw new RuntimeException("You can only update your own review");
         }
         
+        Integer oldRating = review.getRating();
         if (req.getRating() != null) review.setRating(req.getRating());
         if (req.getComment() != null) review.setComment(req.getComment());
         
         ProductReviewDto updatedDto = ProductUtils.toDto(reviewRepository.save(review));
-        reviewCacheService.invalidateProductReviewCache(review.getProduct().getId());
+        applyRatingChange(review.getProduct().getId(), oldRating, review.getRating());
         reviewCacheService.invalidateUserReviewCache(review.getUser().getId());
-        orderItemCacheService.evictAll();
-        orderCacheService.evictAll();
+        evictOrderCaches(review);
         return updatedDto;
     }
 
@@ -142,43 +171,102 @@ public class ProductReviewService {
                 .orElseThrow(() -> new RuntimeException("Review not found"));
         Integer productId = review.getProduct().getId();
         Integer userId = review.getUser().getId();
+        Integer rating = review.getRating();
+        evictOrderCaches(review);
         orderItemRepository.findByReview_Id(id).ifPresent(item -> {
             item.setIsReviewed(false);
             item.setReview(null);
             orderItemRepository.save(item);
         });
         reviewRepository.deleteById(id);
-        reviewCacheService.invalidateProductReviewCache(productId);
+        applyRatingChange(productId, rating, null);
         reviewCacheService.invalidateUserReviewCache(userId);
-        orderItemCacheService.evictAll();
-        orderCacheService.evictAll();
+    }
+
+    /**
+     * Cộng dồn thay đổi điểm vào product_rating_summaries (cùng transaction với review) rồi vào cache sau commit
+     *
+     * @param oldRating điểm trước thay đổi, null khi tạo mới
+     * @param newRating điểm sau thay đổi, null khi xóa
+     */
+    private void applyRatingChange(Integer productId, Integer oldRating, Integer newRating) {
+        long count = 0, sum = 0;
+        long[] stars = new long[6];
+        if (oldRating != null) { count--; sum -= oldRating; stars[oldRating]--; }
+        if (newRating != null) { count++; sum += newRating; stars[newRating]++; }
+        if (count == 0 && sum == 0) return;
+        if (ratingSummaryRepository.applyDelta(productId, count, sum, stars[1], stars[2], stars[3], stars[4], stars[5]) > 0) {
+            reviewCacheService.applyStatsDelta(productId, count, sum, stars);
+        } else {
+            // Sản phẩm chưa có dòng tổng hợp (review từ trước khi có bảng): tính 1 lần từ product_reviews
+            ratingSummaryRepository.rebuild(productId);
+            reviewCacheService.invalidateProductReviewCache(productId);
+        }
+    }
+
+    /**
+     * Review thay đổi thì item (isReviewed, rating, comment) của order tương ứng thay đổi theo
+     */
+    private void evictOrderCaches(ProductReview review) {
+        Order order = review.getOrder();
+        if (order == null) return;
+        Integer itemId = orderItemRepository.findByReview_Id(review.getId()).map(OrderItem::getId).orElse(null);
+        orderItemCacheService.evictItem(itemId, order.getId());
+        orderCacheService.evictOrderItems(order.getId(), order.getUser() != null ? order.getUser().getId() : null);
     }
     
-    public Double getAverageRating(Integer productId) {
+    /**
+     * Số đánh giá, điểm trung bình và phân bố sao trong 1 lần đọc:
+     * Redis hash -> product_rating_summaries (khóa chính) -> tính từ product_reviews nếu sản phẩm chưa có dòng tổng hợp
+     */
+    @Transactional(readOnly = true)
+    public ProductReviewStatsDto getStats(Integer productId) {
+        ProductRatingSummary summary = reviewCacheService.getStats(productId);
+        if (summary == null) {
+            summary = ratingSummaryRepository.findById(productId).orElseGet(() -> summarizeReviews(productId));
+            reviewCacheService.putStats(summary);
+        }
+        Map<Integer, Long> distribution = new LinkedHashMap<>();
+        for (int rating = 5; rating >= 1; rating--) {
+            distribution.put(rating, summary.getStars(rating));
+        }
+        double average = summary.getReviewCount() > 0 ? (double) summary.getRatingSum() / summary.getReviewCount() : 0.0;
+        return new ProductReviewStatsDto(productId, summary.getReviewCount(), average, distribution);
+    }
+
+    private ProductRatingSummary summarizeReviews(Integer productId) {
         if (!productRepository.existsById(productId)) {
             throw new RuntimeException("Product not found");
         }
-        Double avgRating = reviewRepository.getAverageRatingByProductId(productId);
-        return avgRating != null ? avgRating : 0.0;
+        ProductRatingSummary summary = new ProductRatingSummary(productId);
+        for (Object[] row : reviewRepository.getRatingDistributionByProductId(productId)) {
+            int rating = ((Number) row[0]).intValue();
+            long count = ((Number) row[1]).longValue();
+            summary.setStars(rating, count);
+            summary.setReviewCount(summary.getReviewCount() + count);
+            summary.setRatingSum(summary.getRatingSum() + rating * count);
+        }
+        return summary;
+    }
+    
+    @Transactional(readOnly = true)
+    public Double getAverageRating(Integer productId) {
+        return getStats(productId).getAverageRating();
     }
     
+    @Transactional(readOnly = true)
     public Long getReviewCount(Integer productId) {
-        if (!productRepository.existsById(productId)) {
-            throw new RuntimeException("Product not found");
-        }
-        return reviewRepository.countByProductId(productId);
+        return getStats(productId).getReviewCount();
     }
     
+    /**
+     * Chỉ gồm các mức sao có đánh giá (như trước), đầy đủ 5 mức xem getStats
+     */
+    @Transactional(readOnly = true)
     public Map<Integer, Long> getRatingDistribution(Integer productId) {
-        if (!productRepository.existsById(productId)) {
-            throw new RuntimeException("Product not found");
-        }
-        List<Object[]> distribution = reviewRepository.getRatingDistributionByProductId(productId);
-        return distribution.stream()
-                .collect(Collectors.toMap(
-                        obj -> ((Number) obj[0]).intValue(),
-                        obj -> ((Number) obj[1]).longValue()
-                ));
+        Map<Integer, Long> distribution = new LinkedHashMap<>(getStats(productId).getDistribution());
+        distribution.values().removeIf(count -> count == 0);
+        return distribution;
     }
 }
 
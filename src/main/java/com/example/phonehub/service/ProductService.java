@@ -1,25 +1,48 @@
 package com.example.phonehub.service;
 
+import com.example.phonehub.dto.CountedPage.CountMode;
 import com.example.phonehub.dto.CreateProductRequest;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.ProductDto;
+import com.example.phonehub.dto.ProductFacetFilter;
+import com.example.phonehub.dto.ProductFacetResultDto;
+import com.example.phonehub.dto.ProductSuggestionDto;
 import com.example.phonehub.entity.Category;
 import com.example.phonehub.entity.Product;
 import com.example.phonehub.entity.User;
 import com.example.phonehub.repository.CategoryRepository;
+import com.example.phonehub.repository.ProductRatingSummaryRepository;
 import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.TableStatisticsRepository;
+import com.example.phonehub.repository.projection.ProductSummaryRow;
 import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.redis_cache.CountCacheService;
 import com.example.phonehub.service.redis_cache.ProductCacheService;
+import com.example.phonehub.service.redis_cache.ProductReviewCacheService;
+import com.example.phonehub.service.inventory.StockShardService;
+import com.example.phonehub.service.search.CatalogIndexer;
+import com.example.phonehub.service.search.ProductFacetIndex;
+import com.example.phonehub.service.search.ProductSearchIndex;
+import com.example.phonehub.service.search.ProductSuggestIndex;
+import com.example.phonehub.utils.CursorUtils;
 import com.example.phonehub.utils.ProductUtils;
 import com.example.phonehub.utils.SlugUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -32,63 +55,154 @@ public class ProductService {
     private UserRepository userRepository;
     @Autowired
     private ProductCacheService productCacheService;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    @Autowired
+    private CatalogIndexer catalogIndexer;
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    @Autowired
+    private CountCacheService countCacheService;
+    @Autowired
+    private TableStatisticsRepository tableStatisticsRepository;
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+    @Autowired
+    private ProductReviewCacheService reviewCacheService;
+    @Autowired
+    private StockShardService stockShardService;
 
-    public Page<ProductDto> getAll(int page, int size) {
+    @Transactional(readOnly = true)
+    public Page<ProductDto> getAll(int page, int size, CountMode countMode) {
         Pageable p = PageRequest.of(page, size);
-        return ProductUtils.toDtoPageSummary(productRepository.findAll(p));
+        return countCacheService.page(productRepository.findAllSummaries(p), ProductUtils::toDtoSummary,
+                CountCacheService.PRODUCTS, "all", countMode, productRepository::count,
+                () -> tableStatisticsRepository.estimateRows("products"));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductDto> getPublished(int page, int size, CountMode countMode) {
+        return countCacheService.page(productRepository.findPublishedProducts(PageRequest.of(page, size)),
+                ProductUtils::toDtoSummary, CountCacheService.PRODUCTS, "published", countMode,
+                productRepository::countPublished, null);
     }
 
-    public Page<ProductDto> getPublished(int page, int size) {
-        return ProductUtils.toDtoPageSummary(productRepository.findPublishedProducts(PageRequest.of(page, size)));
+    /**
+     * Keyset pagination cho danh sách đã xuất bản (mới nhất trước): không OFFSET, không COUNT(*)
+     * trừ khi includeTotal
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getPublishedByCursor(String cursor, int size, boolean includeTotal) {
+        CursorUtils.Cursor after = CursorUtils.decode(cursor);
+        List<ProductSummaryRow> rows = after == null
+                ? productRepository.findPublishedFirst(CursorUtils.limit(size))
+                : productRepository.findPublishedAfter(after.createdAt(), after.id(), CursorUtils.limit(size));
+        return CursorUtils.toPage(rows, size, ProductUtils::toDtoSummary,
+                p -> CursorUtils.encode(p.createdAt(), p.id()),
+                includeTotal ? productRepository.countPublished() : null);
     }
 
-    public Page<ProductDto> getPublishedByCategory(Integer categoryId, int page, int size) {
-        return ProductUtils.toDtoPageSummary(
-                productRepository.findPublishedProductsByCategory(categoryId, PageRequest.of(page, size)));
+    @Transactional(readOnly = true)
+    public Page<ProductDto> getPublishedByCategory(Integer categoryId, int page, int size, CountMode countMode) {
+        return countCacheService.page(
+                productRepository.findPublishedProductsByCategory(categoryId, PageRequest.of(page, size)),
+                ProductUtils::toDtoSummary, CountCacheService.PRODUCTS, "published:category:" + categoryId, countMode,
+                () -> productRepository.countPublishedByCategory(categoryId), null);
     }
 
-    public Page<ProductDto> getPublishedByBrand(String brand, int page, int size) {
-        return ProductUtils
-                .toDtoPageSummary(productRepository.findPublishedProductsByBrand(brand, PageRequest.of(page, size)));
+    @Transactional(readOnly = true)
+    public Page<ProductDto> getPublishedByBrand(String brand, int page, int size, CountMode countMode) {
+        return countCacheService.page(
+                productRepository.findPublishedProductsByBrand(brand, PageRequest.of(page, size)),
+                ProductUtils::toDtoSummary, CountCacheService.PRODUCTS, "published:brand:" + brand.toLowerCase(), countMode,
+                () -> productRepository.countPublishedByBrand(brand), null);
     }
 
-    public Page<ProductDto> getPublishedByBrandAndCategory(String brand, Integer categoryId, int page, int size) {
-        return ProductUtils.toDtoPageSummary(productRepository.findPublishedProductsByBrandAndCategory(brand,
-                categoryId, PageRequest.of(page, size)));
+    @Transactional(readOnly = true)
+    public Page<ProductDto> getPublishedByBrandAndCategory(String brand, Integer categoryId, int page, int size,
+                                                           CountMode countMode) {
+        return countCacheService.page(
+                productRepository.findPublishedProductsByBrandAndCategory(brand, categoryId, PageRequest.of(page, size)),
+                ProductUtils::toDtoSummary, CountCacheService.PRODUCTS,
+                "published:brand:" + brand.toLowerCase() + ":category:" + categoryId, countMode,
+                () -> productRepository.countPublishedByBrandAndCategory(brand, categoryId), null);
     }
 
+    @Transactional(readOnly = true)
     public Page<ProductDto> searchByName(String name, int page, int size) {
-        return ProductUtils
-                .toDtoPageSummary(productRepository.findPublishedProductsByName(name, PageRequest.of(page, size)));
+        return productSearchIndex.search(name, null)
+                .map(ids -> toRankedPage(ids, PageRequest.of(page, size)))
+                .orElseGet(() -> productRepository.findPublishedProductsByName(name, PageRequest.of(page, size))
+                        .map(ProductUtils::toDtoSummary));
     }
 
+    @Transactional(readOnly = true)
     public Page<ProductDto> searchByNameAndCategory(String name, Integer categoryId, int page, int size) {
-        return ProductUtils.toDtoPageSummary(
-                productRepository.findPublishedProductsByNameAndCategory(name, categoryId, PageRequest.of(page, size)));
+        return productSearchIndex.search(name, categoryId)
+                .map(ids -> toRankedPage(ids, PageRequest.of(page, size)))
+                .orElseGet(() -> productRepository
+                        .findPublishedProductsByNameAndCategory(name, categoryId, PageRequest.of(page, size))
+                        .map(ProductUtils::toDtoSummary));
     }
 
+    /** Cắt trang từ danh sách id đã xếp hạng, load đúng các sản phẩm của trang và giữ thứ tự */
+    private Page<ProductDto> toRankedPage(List<Integer> rankedIds, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.size());
+        List<Integer> pageIds = rankedIds.subList(from, Math.min(from + pageable.getPageSize(), rankedIds.size()));
+        if (pageIds.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, rankedIds.size());
+        }
+        Map<Integer, ProductSummaryRow> products = productRepository.findSummariesByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(ProductSummaryRow::id, Function.identity()));
+        List<ProductDto> content = pageIds.stream().map(products::get).filter(Objects::nonNull)
+                .map(ProductUtils::toDtoSummary).toList();
+        return new PageImpl<>(content, pageable, rankedIds.size());
+    }
+
+    /**
+     * Danh sách sản phẩm đã xuất bản theo nhiều filter + số lượng từng giá trị facet (từ bitmap index)
+     */
+    @Transactional(readOnly = true)
+    public ProductFacetResultDto filter(ProductFacetFilter filter, int page, int size) {
+        return productFacetIndex.search(filter)
+                .map(result -> new ProductFacetResultDto(toRankedPage(result.ids(), PageRequest.of(page, size)),
+                        result.facets()))
+                .orElseThrow(() -> new RuntimeException("Product facet index is not ready"));
+    }
+
+    // Chỉ tra trie trong bộ nhớ: không mở transaction / lấy connection DB cho mỗi lần gõ phím
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ProductSuggestionDto> suggest(String query, int limit) {
+        return productSuggestIndex.suggest(query, limit);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<ProductDto> getById(Integer id) {
         if (id == null) return Optional.empty();
         
-        ProductDto cachedProduct = productCacheService.getProductFromCacheById(id);
         return productCacheService.getProductWithCacheStrategy(
-            cachedProduct,
-            () -> productRepository.findById(id)
+            productCacheService.buildCacheKeyById(id),
+            () -> productCacheService.getProductFromCacheById(id),
+            () -> productRepository.findDetailById(id)
         );
     }
 
+    @Transactional(readOnly = true)
     public Optional<ProductDto> getBySlug(String slug) {
         if (slug == null || slug.trim().isEmpty()) return Optional.empty();
         
-        ProductDto cachedProduct = productCacheService.getProductFromCacheBySlug(slug);
-        return productCacheService.getProductWithCacheStrategy(
-            cachedProduct,
-            () -> productRepository.findBySlug(slug)
+        return productCacheService.getProductBySlugWithCacheStrategy(
+            slug,
+            () -> productRepository.findDetailBySlug(slug)
         );
     }
 
+    @Transactional(readOnly = true)
     public java.util.List<String> getBrandsByCategory(Integer categoryId) {
-        return productRepository.findAllPublishedBrandsByCategoryId(categoryId);
+        return productFacetIndex.brands(categoryId)
+                .orElseGet(() -> productRepository.findAllPublishedBrandsByCategoryId(categoryId));
     }
 
     public ProductDto create(CreateProductRequest req) {
@@ -114,7 +228,11 @@ public class ProductService {
         p.setPublishedAt(Boolean.TRUE.equals(p.getIsPublished()) ? LocalDateTime.now() : null);
         p.setCreatedBy(admin);
         ProductDto savedDto = ProductUtils.toDto(productRepository.save(p));
+        productCacheService.registerSlug(slug);
         productCacheService.saveProductToCache(savedDto);
+        catalogIndexer.reindex(savedDto.getId());
+        productSuggestIndex.requestRebuild();
+        countCacheService.invalidate(CountCacheService.PRODUCTS);
         return savedDto;
     }
 
@@ -136,8 +254,14 @@ public class ProductService {
         p.setPriceOld(req.getPriceOld());
         p.setDiscount(req.getDiscount());
         p.setThumbnailImage(req.getThumbnailImage());
-        if (req.getQuantity() != null)
-            p.setQuantity(req.getQuantity());
+        if (req.getQuantity() != null) {
+            if (p.getStockShards() != null) {
+                // Đang chia shard: chia lại tổng mới cho các shard
+                stockShardService.configure(id, p.getStockShards(), req.getQuantity());
+            } else {
+                p.setQuantity(req.getQuantity());
+            }
+        }
         Boolean publish = req.getIsPublished();
         if (publish != null) {
             p.setIsPublished(publish);
@@ -145,7 +269,14 @@ public class ProductService {
         }
         ProductDto updatedDto = ProductUtils.toDto(productRepository.save(p));
         productCacheService.removeProductFromCache(id, oldSlug);
+        if (!slug.equals(oldSlug)) {
+            productCacheService.registerSlug(slug);
+        }
         productCacheService.saveProductToCache(updatedDto);
+        productCacheService.publishInvalidation(id, oldSlug, updatedDto.getSlug());
+        catalogIndexer.reindex(id);
+        productSuggestIndex.requestRebuild();
+        countCacheService.invalidate(CountCacheService.PRODUCTS);
         return updatedDto;
     }
 
@@ -159,6 +290,15 @@ public class ProductService {
         String slug = product.getSlug();
         
         productRepository.deleteById(id);
+        ratingSummaryRepository.findById(id).ifPresent(ratingSummaryRepository::delete);
+        if (product.getStockShards() != null) {
+            stockShardService.deleteShards(id);
+        }
+        reviewCacheService.invalidateProductReviewCache(id);
         productCacheService.removeProductFromCache(id, slug);
+        productCacheService.publishInvalidation(id, slug);
+        catalogIndexer.reindex(id);
+        productSuggestIndex.requestRebuild();
+        countCacheService.invalidate(CountCacheService.PRODUCTS);
     }
 }
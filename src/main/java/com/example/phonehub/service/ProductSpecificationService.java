@@ -9,6 +9,7 @@ import com.example.phonehub.repository.ProductRepository;
 import com.example.phonehub.repository.ProductSpecificationRepository;
 import com.example.phonehub.repository.UserRepository;
 import com.example.phonehub.service.redis_cache.ProductSpecificationCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
 import com.example.phonehub.utils.ProductUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -27,7 +28,10 @@ public class ProductSpecificationService {
     private UserRepository userRepository;
     @Autowired
     private ProductSpecificationCacheService specCacheService;
+    @Autowired
+    private CatalogIndexer catalogIndexer;
 
+    @Transactional(readOnly = true)
     public List<ProductSpecificationDto> getByProduct(Integer productId) {
         if (productId == null) return List.of();
         
@@ -39,6 +43,7 @@ public class ProductSpecificationService {
         return specs;
     }
 
+    @Transactional(readOnly = true)
     public List<ProductSpecificationDto> getByProductAndGroup(Integer productId, String group) {
         if (productId == null || group == null) return List.of();
         
@@ -64,6 +69,7 @@ public class ProductSpecificationService {
         s.setCreatedBy(admin);
         ProductSpecificationDto savedDto = ProductUtils.toDto(specRepository.save(s));
         specCacheService.invalidateProductSpecsCache(req.getProductId());
+        catalogIndexer.reindex(req.getProductId());
         return savedDto;
     }
 
@@ -79,6 +85,7 @@ public class ProductSpecificationService {
         s.setType(req.getType());
         ProductSpecificationDto updatedDto = ProductUtils.toDto(specRepository.save(s));
         specCacheService.invalidateProductSpecsCache(req.getProductId());
+        catalogIndexer.reindex(req.getProductId());
         return updatedDto;
     }
 
@@ -88,5 +95,6 @@ public class ProductSpecificationService {
         Integer productId = spec.getProduct().getId();
         specRepository.deleteById(id);
         specCacheService.invalidateProductSpecsCache(productId);
+        catalogIndexer.reindex(productId);
     }
 }
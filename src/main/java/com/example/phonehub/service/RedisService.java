@@ -3,13 +3,33 @@ package com.example.phonehub.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Service tiện ích để thao tác với Redis
@@ -27,9 +47,94 @@ public class RedisService {
 
     private static final Logger logger = LoggerFactory.getLogger(RedisService.class);
 
+    private static final String TAG_PREFIX = "tag:";
+    private static final int DEFAULT_SCAN_BATCH = 500;
+
+    /**
+     * Giá trị đánh dấu "không tồn tại" (negative cache) - ghi thẳng vào key tra cứu với TTL ngắn
+     */
+    public static final String NOT_FOUND = "__phonehub:not_found__";
+
+    /**
+     * Resolve alias trong 1 round-trip: GET alias -> primary key -> GET primary
+     * Alias đang giữ NOT_FOUND (ARGV[1], đã serialize) thì trả luôn giá trị đó
+     * (Lưu ý: primary key không khai báo trong KEYS, chỉ an toàn với Redis standalone, không dùng cho Cluster)
+     */
+    private static final RedisScript<Object> RESOLVE_ALIAS_SCRIPT = new DefaultRedisScript<>(
+            "local p = redis.call('GET', KEYS[1]) " +
+            "if not p then return false end " +
+            "if p == ARGV[1] then return p end " +
+            "return redis.call('GET', p)", Object.class);
+
+    /**
+     * MEMORY USAGE của alias và của primary key mà alias trỏ tới, trả về mảng phẳng [alias1, primary1, alias2, ...]
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ALIAS_MEMORY_SCRIPT = new DefaultRedisScript<>(
+            "local out = {} " +
+            "for _, k in ipairs(KEYS) do " +
+            "  local p = redis.call('GET', k) " +
+            "  out[#out + 1] = redis.call('MEMORY', 'USAGE', k) or 0 " +
+            "  if p then out[#out + 1] = redis.call('MEMORY', 'USAGE', p) or 0 else out[#out + 1] = 0 end " +
+            "end " +
+            "return out", List.class);
+
+    /**
+     * Chỉ xóa lease nếu token còn là của mình (lease có thể đã hết hạn và bị node khác lấy)
+     */
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    /**
+     * HINCRBY nhiều field, chỉ khi hash đã tồn tại (không tạo hash thiếu field khi cache chưa được nạp)
+     * ARGV: field1, delta1, field2, delta2, ...
+     */
+    private static final RedisScript<Long> HASH_INCREMENT_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "for i = 1, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "return 1", Long.class);
+
+    /**
+     * HINCRBY 1 field chỉ khi hash đã tồn tại, trước đó HSETNX các field mặc định, gia hạn TTL
+     * ARGV: field, delta, ttl (ms), default1, value1, ...
+     */
+    private static final RedisScript<Long> HASH_INCREMENT_FIELD_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return false end " +
+            "for i = 4, #ARGV, 2 do redis.call('HSETNX', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "local v = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return v", Long.class);
+
+    /**
+     * Ghi hash (HSET nhiều field) kèm TTL. ARGV: mode, ttl (ms), field1, value1, ...
+     * mode = absent: chỉ ghi khi hash chưa có; exists: chỉ ghi khi hash đã có; replace: xóa hash cũ rồi ghi
+     */
+    private static final RedisScript<Long> HASH_PUT_CONDITIONAL_SCRIPT = new DefaultRedisScript<>(
+            "local exists = redis.call('EXISTS', KEYS[1]) " +
+            "if (ARGV[1] == 'absent' and exists == 1) or (ARGV[1] == 'exists' and exists == 0) then return 0 end " +
+            "if ARGV[1] == 'replace' then redis.call('DEL', KEYS[1]) end " +
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    /**
+     * ZREM các phần tử có điểm chưa đổi. ARGV: member1, score1, member2, score2, ...
+     */
+    private static final RedisScript<Long> ZSET_REMOVE_IF_SCORE_SCRIPT = new DefaultRedisScript<>(
+            "local removed = 0 " +
+            "for i = 1, #ARGV, 2 do " +
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[i]) " +
+            "if score and tonumber(score) == tonumber(ARGV[i + 1]) then " +
+            "removed = removed + redis.call('ZREM', KEYS[1], ARGV[i]) end end " +
+            "return removed", Long.class);
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
     /**
      * Lưu giá trị vào Redis (không có thời gian hết hạn)
      * 
@@ -165,6 +270,457 @@ public class RedisService {
         }
     }
 
+    /**
+     * Lấy nhiều key trong 1 round-trip (MGET)
+     * 
+     * @param keys Danh sách key cần lấy
+     * @return Map key -> giá trị, chỉ chứa các key có trong Redis (rỗng nếu Redis lỗi)
+     * 
+     * Ví dụ:
+     * Map<String, Object> values = redisService.multiGet(List.of("product:1", "product:2"));
+     */
+    public Map<String, Object> multiGet(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            List<String> keyList = new ArrayList<>(keys);
+            List<Object> values = redisTemplate.opsForValue().multiGet(keyList);
+            Map<String, Object> result = new HashMap<>();
+            if (values != null) {
+                for (int i = 0; i < keyList.size() && i < values.size(); i++) {
+                    if (values.get(i) != null) {
+                        result.put(keyList.get(i), values.get(i));
+                    }
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            logger.warn("Redis multiGet failed for {} keys, error: {}", keys.size(), e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Lưu nhiều key cùng TTL trong 1 round-trip (pipeline các lệnh SET ... EX)
+     * 
+     * Redis không có MSET kèm TTL, nên gửi pipelined: các lệnh đi liền một lượt,
+     * chỉ chờ phản hồi một lần thay vì mỗi key một lần.
+     * 
+     * @param entries  Map key -> giá trị
+     * @param duration Thời gian hết hạn chung
+     * 
+     * Ví dụ:
+     * redisService.multiSetWithTtl(Map.of("user:1", dto, "user:username:john", dto), Duration.ofHours(1));
+     */
+    public void multiSetWithTtl(Map<String, Object> entries, Duration duration) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    entries.forEach((key, value) -> operations.opsForValue().set(key, value, duration));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Redis multiSetWithTtl failed for {} keys, error: {}", entries.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa nhiều key trong 1 lệnh DEL (1 round-trip)
+     * 
+     * @param keys Danh sách key cần xóa (bỏ qua null)
+     * @return Số lượng key đã xóa
+     * 
+     * Ví dụ:
+     * redisService.deleteAll(List.of("category:1", "category:slug:dien-thoai"));
+     */
+    public long deleteAll(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return 0;
+        }
+        try {
+            Long deleted = redisTemplate.delete(keys);
+            return deleted != null ? deleted : 0;
+        } catch (Exception e) {
+            logger.warn("Redis deleteAll failed for {} keys, error: {}", keys.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Lưu giá trị dưới primary key, các alias key chỉ lưu tên primary key (con trỏ)
+     * 
+     * Thay vì serialize DTO nhiều lần (id, slug, username, email...), chỉ có 1 bản DTO,
+     * alias là string ngắn. Tất cả lệnh SET gửi pipelined trong 1 round-trip.
+     * 
+     * @param primaryKey Key chính (ví dụ: "product:1")
+     * @param value      Giá trị cần lưu
+     * @param aliasKeys  Các key phụ trỏ về primaryKey (ví dụ: "product:slug:iphone-15")
+     * @param duration   Thời gian hết hạn chung cho primary và alias
+     * 
+     * Ví dụ:
+     * redisService.setWithAliases("user:1", userDto, List.of("user:username:john"), Duration.ofHours(1));
+     * UserDto dto = (UserDto) redisService.getByAlias("user:username:john");
+     */
+    @SuppressWarnings("unchecked")
+    public void setWithAliases(String primaryKey, Object value, Collection<String> aliasKeys, Duration duration) {
+        try {
+            RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+            byte[] primary = primaryKey.getBytes(StandardCharsets.UTF_8);
+            byte[] payload = valueSerializer.serialize(value);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().setEx(primary, duration.toSeconds(), payload);
+                for (String alias : aliasKeys) {
+                    connection.stringCommands().setEx(alias.getBytes(StandardCharsets.UTF_8), duration.toSeconds(), primary);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Redis setWithAliases failed for key: {}, error: {}", primaryKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi negative cache: key tra cứu giữ NOT_FOUND trong thời gian ngắn
+     * (dùng được cho cả primary key lẫn alias key - getByAlias nhận ra giá trị này)
+     * 
+     * @param key      Key tra cứu (ví dụ: "product:slug:khong-ton-tai")
+     * @param duration TTL ngắn để dữ liệu mới tạo không bị che lâu
+     */
+    public void setNotFound(String key, Duration duration) {
+        set(key, NOT_FOUND, duration);
+    }
+
+    /**
+     * Kiểm tra giá trị đọc từ cache có phải NOT_FOUND không
+     */
+    public static boolean isNotFound(Object value) {
+        return NOT_FOUND.equals(value);
+    }
+
+    /**
+     * Lấy giá trị qua alias key (alias -> primary key -> value) bằng Lua script, 1 round-trip
+     * 
+     * @param aliasKey Alias key (ví dụ: "product:slug:iphone-15")
+     * @return Giá trị của primary key, null nếu alias/primary không tồn tại
+     */
+    public Object getByAlias(String aliasKey) {
+        try {
+            return redisTemplate.execute(RESOLVE_ALIAS_SCRIPT, List.of(aliasKey), NOT_FOUND);
+        } catch (Exception e) {
+            logger.warn("Redis getByAlias failed for key: {}, error: {}", aliasKey, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Đo bộ nhớ (MEMORY USAGE, bytes) của từng alias key và primary key nó trỏ tới
+     * 
+     * @param aliasKeys Danh sách alias key cần đo
+     * @return Mỗi phần tử là {bytes của alias, bytes của primary}, rỗng nếu Redis lỗi
+     */
+    public List<long[]> aliasMemoryUsage(List<String> aliasKeys) {
+        if (aliasKeys == null || aliasKeys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<?> raw = stringRedisTemplate.execute(ALIAS_MEMORY_SCRIPT, aliasKeys);
+            List<long[]> result = new ArrayList<>();
+            if (raw != null) {
+                for (int i = 0; i + 1 < raw.size(); i += 2) {
+                    result.add(new long[] { ((Number) raw.get(i)).longValue(), ((Number) raw.get(i + 1)).longValue() });
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            logger.warn("Redis aliasMemoryUsage failed for {} keys, error: {}", aliasKeys.size(), e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Đọc toàn bộ hash (HGETALL), field/value dạng text
+     * 
+     * @param key Key của hash
+     * @return Map field -> value, rỗng nếu key không tồn tại, null nếu Redis lỗi
+     */
+    public Map<String, String> hashGetAll(String key) {
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+            Map<String, String> result = new HashMap<>(entries.size() * 2);
+            entries.forEach((field, value) -> result.put(field.toString(), value.toString()));
+            return result;
+        } catch (Exception e) {
+            logger.warn("Redis hashGetAll failed for key: {}, error: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ghi hash (HSET nhiều field) kèm TTL trong 1 round-trip (pipeline)
+     * 
+     * @param key      Key của hash
+     * @param fields   Field -> value dạng text (số lưu dạng text để HINCRBY được)
+     * @param duration Thời gian hết hạn của cả hash
+     */
+    public void hashPutAll(String key, Map<String, String> fields, Duration duration) {
+        if (fields == null || fields.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    operations.opsForHash().putAll(key, fields);
+                    operations.expire(key, duration);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Redis hashPutAll failed for key: {}, error: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Cộng dồn nhiều field của hash nếu hash đang có trong cache (Lua, nguyên tử)
+     * 
+     * @param key    Key của hash
+     * @param deltas Field -> lượng tăng (âm để giảm), field có delta 0 bị bỏ qua
+     * @return true nếu đã cộng, false nếu hash không tồn tại hoặc Redis lỗi
+     */
+    public boolean hashIncrementIfExists(String key, Map<String, Long> deltas) {
+        List<String> args = new ArrayList<>(deltas.size() * 2);
+        deltas.forEach((field, delta) -> {
+            if (delta != null && delta != 0) {
+                args.add(field);
+                args.add(Long.toString(delta));
+            }
+        });
+        try {
+            Long updated = stringRedisTemplate.execute(HASH_INCREMENT_IF_EXISTS_SCRIPT, List.of(key), args.toArray());
+            return updated != null && updated == 1;
+        } catch (Exception e) {
+            logger.warn("Redis hashIncrementIfExists failed for key: {}, error: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * HINCRBY 1 field nếu hash đang có (Lua, nguyên tử): hash chưa được nạp thì không tạo hash thiếu field
+     *
+     * @param key      Key của hash
+     * @param field    Field cộng dồn
+     * @param delta    Lượng tăng (âm để giảm)
+     * @param defaults Field -> giá trị ghi kèm nếu field chưa có (HSETNX), có thể rỗng
+     * @param duration TTL mới của cả hash
+     * @return giá trị sau khi cộng, null nếu hash không tồn tại hoặc Redis lỗi
+     */
+    public Long hashIncrementIfExists(String key, String field, long delta, Map<String, String> defaults, Duration duration) {
+        List<String> args = new ArrayList<>(3 + defaults.size() * 2);
+        args.add(field);
+        args.add(Long.toString(delta));
+        args.add(Long.toString(duration.toMillis()));
+        defaults.forEach((name, value) -> {
+            args.add(name);
+            args.add(value);
+        });
+        try {
+            return stringRedisTemplate.execute(HASH_INCREMENT_FIELD_IF_EXISTS_SCRIPT, List.of(key), args.toArray());
+        } catch (Exception e) {
+            logger.warn("Redis hashIncrementIfExists failed for key: {}, error: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ghi hash kèm TTL chỉ khi hash chưa tồn tại (nạp cache lần đầu, không đè thay đổi của request khác)
+     *
+     * @return TRUE nếu đã ghi, FALSE nếu hash đã có, null nếu Redis lỗi
+     */
+    public Boolean hashPutAllIfAbsent(String key, Map<String, String> fields, Duration duration) {
+        return hashPutConditional("absent", key, fields, duration);
+    }
+
+    /**
+     * Ghi thêm/đè field của hash chỉ khi hash đang tồn tại, gia hạn TTL
+     *
+     * @return TRUE nếu đã ghi, FALSE nếu hash không tồn tại, null nếu Redis lỗi
+     */
+    public Boolean hashPutAllIfExists(String key, Map<String, String> fields, Duration duration) {
+        return hashPutConditional("exists", key, fields, duration);
+    }
+
+    /**
+     * Thay toàn bộ hash bằng các field mới (DEL + HSET + PEXPIRE nguyên tử)
+     *
+     * @return TRUE nếu đã ghi, null nếu Redis lỗi
+     */
+    public Boolean hashReplace(String key, Map<String, String> fields, Duration duration) {
+        return hashPutConditional("replace", key, fields, duration);
+    }
+
+    private Boolean hashPutConditional(String mode, String key, Map<String, String> fields, Duration duration) {
+        List<String> args = new ArrayList<>(2 + fields.size() * 2);
+        args.add(mode);
+        args.add(Long.toString(duration.toMillis()));
+        fields.forEach((name, value) -> {
+            args.add(name);
+            args.add(value);
+        });
+        try {
+            Long written = stringRedisTemplate.execute(HASH_PUT_CONDITIONAL_SCRIPT, List.of(key), args.toArray());
+            return written != null && written == 1;
+        } catch (Exception e) {
+            logger.warn("Redis hashPut ({}) failed for key: {}, error: {}", mode, key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Đọc nhiều field của hash trong 1 lệnh (HMGET)
+     *
+     * @return giá trị theo thứ tự field (null nếu field không có), null nếu Redis lỗi
+     */
+    public List<String> hashMultiGet(String key, String... fields) {
+        try {
+            HashOperations<String, String, String> hash = stringRedisTemplate.opsForHash();
+            return hash.multiGet(key, List.of(fields));
+        } catch (Exception e) {
+            logger.warn("Redis hashMultiGet failed for key: {}, error: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Xóa field của hash (HDEL)
+     *
+     * @return số field đã xóa, null nếu Redis lỗi
+     */
+    public Long hashDelete(String key, String... fields) {
+        try {
+            return stringRedisTemplate.opsForHash().delete(key, (Object[]) fields);
+        } catch (Exception e) {
+            logger.warn("Redis hashDelete failed for key: {}, error: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cộng điểm phần tử của sorted set (ZINCRBY), phần tử chưa có thì thêm với điểm = delta
+     *
+     * @return true nếu thành công, false nếu Redis lỗi
+     */
+    public boolean sortedSetIncrement(String key, String member, double delta) {
+        try {
+            stringRedisTemplate.opsForZSet().incrementScore(key, member, delta);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Redis sortedSetIncrement failed for key: {}, error: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Thêm/ghi đè điểm nhiều phần tử của sorted set trong 1 lệnh (ZADD)
+     *
+     * @return true nếu thành công, false nếu Redis lỗi
+     */
+    public boolean sortedSetAdd(String key, Map<String, Double> members) {
+        if (members.isEmpty()) {
+            return true;
+        }
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(members.size() * 2);
+        members.forEach((member, score) -> tuples.add(ZSetOperations.TypedTuple.of(member, score)));
+        try {
+            stringRedisTemplate.opsForZSet().add(key, tuples);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Redis sortedSetAdd failed for key: {}, error: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Kiểm tra phần tử có trong sorted set không (ZSCORE)
+     *
+     * @return null nếu Redis lỗi (người gọi tự quyết định coi là có hay không)
+     */
+    public Boolean sortedSetContains(String key, String member) {
+        try {
+            return stringRedisTemplate.opsForZSet().score(key, member) != null;
+        } catch (Exception e) {
+            logger.warn("Redis sortedSetContains failed for key: {}, error: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Xóa các phần tử có điểm trong [min, max] (ZREMRANGEBYSCORE)
+     *
+     * @return số phần tử đã xóa, -1 nếu Redis lỗi
+     */
+    public long sortedSetRemoveRangeByScore(String key, double min, double max) {
+        try {
+            Long removed = stringRedisTemplate.opsForZSet().removeRangeByScore(key, min, max);
+            return removed != null ? removed : 0;
+        } catch (Exception e) {
+            logger.warn("Redis sortedSetRemoveRangeByScore failed for key: {}, error: {}", key, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Đọc tối đa count phần tử ngẫu nhiên (không trùng) của sorted set kèm điểm, không xóa (ZRANDMEMBER ... WITHSCORES)
+     *
+     * @return phần tử -> điểm, rỗng nếu set rỗng hoặc Redis lỗi
+     */
+    public Map<String, Double> sortedSetRandomMembers(String key, long count) {
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples =
+                    stringRedisTemplate.opsForZSet().distinctRandomMembersWithScore(key, count);
+            if (tuples == null || tuples.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<String, Double> members = new HashMap<>(tuples.size() * 2);
+            tuples.forEach(tuple -> members.put(tuple.getValue(), tuple.getScore()));
+            return members;
+        } catch (Exception e) {
+            logger.warn("Redis sortedSetRandomMembers failed for key: {}, error: {}", key, e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Xóa phần tử khỏi sorted set chỉ khi điểm còn bằng giá trị đã đọc (phần tử được cộng điểm sau đó thì giữ lại)
+     *
+     * @param members phần tử -> điểm đã đọc
+     * @return số phần tử đã xóa, -1 nếu Redis lỗi
+     */
+    public long sortedSetRemoveIfScore(String key, Map<String, Double> members) {
+        if (members.isEmpty()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>(members.size() * 2);
+        members.forEach((member, score) -> {
+            args.add(member);
+            args.add(Double.toString(score));
+        });
+        try {
+            Long removed = stringRedisTemplate.execute(ZSET_REMOVE_IF_SCORE_SCRIPT, List.of(key), args.toArray());
+            return removed != null ? removed : 0;
+        } catch (Exception e) {
+            logger.warn("Redis sortedSetRemoveIfScore failed for key: {}, error: {}", key, e.getMessage());
+            return -1;
+        }
+    }
+
     /**
      * Kiểm tra key có tồn tại trong Redis không
      * 
@@ -252,15 +808,161 @@ public class RedisService {
      * Set<String> userKeys = redisService.keys("user:*");
      * // Trả về: ["user:1", "user:2", "user:3"]
      * 
-     * Lưu ý: Hàm này có thể chậm với database lớn, nên dùng cẩn thận
+     * Lưu ý: Dùng SCAN (không dùng KEYS) nên không block Redis, nhưng vẫn gom toàn bộ
+     * kết quả vào bộ nhớ - với tập lớn nên dùng scan(pattern, batchSize, consumer)
      */
     public Set<String> keys(String pattern) {
+        Set<String> result = new HashSet<>();
+        scan(pattern, DEFAULT_SCAN_BATCH, result::addAll);
+        return result;
+    }
+
+    /**
+     * Duyệt keys theo pattern bằng SCAN (cursor), trả về từng batch cho consumer
+     * 
+     * Khác với KEYS, SCAN chia nhỏ công việc theo cursor nên không block event loop của Redis.
+     * Một key có thể xuất hiện nhiều lần (đặc tính của SCAN), consumer cần xử lý idempotent.
+     * 
+     * @param pattern   Pattern để tìm (ví dụ: "role:page:*")
+     * @param batchSize Số key mỗi batch (cũng là COUNT hint cho SCAN)
+     * @param consumer  Xử lý mỗi batch key
+     * @return Tổng số key đã duyệt
+     * 
+     * Ví dụ:
+     * redisService.scan("product:*", 500, batch -> redisService.unlink(batch));
+     */
+    public long scan(String pattern, int batchSize, Consumer<List<String>> consumer) {
+        long total = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    total += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+                total += batch.size();
+            }
+        } catch (Exception e) {
+            logger.warn("Redis scan failed for pattern: {}, error: {}", pattern, e.getMessage());
+        }
+        return total;
+    }
+
+    /**
+     * Xóa nhiều key bằng UNLINK (Redis giải phóng bộ nhớ ở background thread),
+     * chia batch và gửi pipelined trong 1 round-trip
+     * 
+     * @param keys Danh sách key cần xóa
+     * 
+     * Ví dụ:
+     * redisService.unlink(List.of("role:page:0:10", "role:page:1:10"));
+     */
+    public void unlink(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int from = 0; from < keys.size(); from += DEFAULT_SCAN_BATCH) {
+                    List<String> batch = keys.subList(from, Math.min(from + DEFAULT_SCAN_BATCH, keys.size()));
+                    byte[][] raw = new byte[batch.size()][];
+                    for (int i = 0; i < batch.size(); i++) {
+                        raw[i] = batch.get(i).getBytes(StandardCharsets.UTF_8);
+                    }
+                    connection.keyCommands().unlink(raw);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Redis unlink failed for {} keys, error: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Lưu giá trị có TTL và đăng ký key vào các tag (Redis set "tag:<tag>")
+     * 
+     * Tag cho phép xóa cả nhóm key (ví dụ mọi trang phân trang role) mà không cần SCAN/KEYS.
+     * TTL của tag set được gia hạn bằng TTL của key mới nhất, nên tag tự biến mất khi các key hết hạn.
+     * 
+     * @param key      Key để lưu
+     * @param value    Giá trị cần lưu
+     * @param duration Thời gian hết hạn
+     * @param tags     Các tag của key (ví dụ: "role:pages")
+     * 
+     * Ví dụ:
+     * redisService.setWithTags("role:page:0:10", page, Duration.ofHours(3), "role:pages");
+     */
+    public void setWithTags(String key, Object value, Duration duration, String... tags) {
+        set(key, value, duration);
+        if (tags.length == 0) {
+            return;
+        }
+        try {
+            byte[] member = key.getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String tag : tags) {
+                    byte[] tagKey = (TAG_PREFIX + tag).getBytes(StandardCharsets.UTF_8);
+                    connection.setCommands().sAdd(tagKey, member);
+                    connection.keyCommands().expire(tagKey, duration.toSeconds());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Redis tag registration failed for key: {}, error: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa tất cả key thuộc một tag
+     * 
+     * Tag set được RENAME sang key tạm trước (atomic) để key đăng ký mới trong lúc xóa
+     * không bị mất, sau đó SSCAN từng batch và UNLINK pipelined.
+     * 
+     * @param tag Tên tag (ví dụ: "role:pages")
+     * @return Số key đã gửi lệnh xóa
+     * 
+     * Ví dụ:
+     * redisService.invalidateTag("role:pages");
+     */
+    public long invalidateTag(String tag) {
+        String tagKey = TAG_PREFIX + tag;
+        String purgeKey = tagKey + ":purge:" + UUID.randomUUID();
         try {
-            return redisTemplate.keys(pattern);
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(tagKey))) {
+                return 0;
+            }
+            stringRedisTemplate.rename(tagKey, purgeKey);
         } catch (Exception e) {
-            logger.warn("Redis keys failed for pattern: {}, error: {}", pattern, e.getMessage());
-            return Collections.emptySet();
+            // Tag vừa hết hạn / bị xóa giữa hasKey và rename, hoặc Redis lỗi
+            logger.warn("Redis invalidateTag failed for tag: {}, error: {}", tag, e.getMessage());
+            return 0;
         }
+
+        long total = 0;
+        ScanOptions options = ScanOptions.scanOptions().count(DEFAULT_SCAN_BATCH).build();
+        try (Cursor<String> cursor = stringRedisTemplate.opsForSet().scan(purgeKey, options)) {
+            List<String> batch = new ArrayList<>(DEFAULT_SCAN_BATCH);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= DEFAULT_SCAN_BATCH) {
+                    unlink(batch);
+                    total += batch.size();
+                    batch = new ArrayList<>(DEFAULT_SCAN_BATCH);
+                }
+            }
+            unlink(batch);
+            total += batch.size();
+        } catch (Exception e) {
+            logger.warn("Redis sscan failed for tag: {}, error: {}", tag, e.getMessage());
+        }
+        unlink(List.of(purgeKey));
+        return total;
     }
 
     /**
@@ -337,6 +1039,52 @@ public class RedisService {
             return 0;
         }
     }
-}
 
+    /**
+     * Lấy lease (khóa có thời hạn) bằng SET NX PX
+     * 
+     * @param key      Key của lease (ví dụ: "lease:product:1")
+     * @param token    Giá trị riêng của người giữ, dùng khi trả lease
+     * @param duration Thời hạn lease - tự hết hạn nếu node giữ lease bị chết
+     * @return TRUE nếu lấy được, FALSE nếu node khác đang giữ, null nếu Redis lỗi
+     */
+    public Boolean tryAcquireLease(String key, String token, Duration duration) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, token, duration));
+        } catch (Exception e) {
+            logger.warn("Redis tryAcquireLease failed for key: {}, error: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Trả lease nếu vẫn đang giữ (so token bằng Lua để không xóa nhầm lease của node khác)
+     * 
+     * @param key   Key của lease
+     * @param token Token đã dùng khi tryAcquireLease
+     */
+    public void releaseLease(String key, String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(key), token);
+        } catch (Exception e) {
+            logger.warn("Redis releaseLease failed for key: {}, error: {}", key, e.getMessage());
+        }
+    }
 
+    /**
+     * Publish message dạng text lên channel Pub/Sub
+     * 
+     * @param channel Tên channel (ví dụ: "product:invalidate")
+     * @param message Nội dung message (plain text, không qua JSON serializer)
+     * 
+     * Ví dụ:
+     * redisService.publish("product:invalidate", "product:1,product:slug:iphone-15");
+     */
+    public void publish(String channel, String message) {
+        try {
+            stringRedisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            logger.warn("Redis publish failed for channel: {}, error: {}", channel, e.getMessage());
+        }
+    }
+}
@@ -34,12 +34,18 @@ public class RoleService {
      * @param size Số lượng mỗi trang
      * @return Page<RoleDto>
      */
+    @Transactional(readOnly = true)
     public Page<RoleDto> getAllRoles(int page, int size) {
-        // Lưu ý: Cache phân trang có thể phức tạp, nên để đơn giản không cache phân trang
-        // Hoặc có thể cache từng trang riêng biệt nếu cần
+        // Mỗi trang cache riêng, xóa cả nhóm qua tag khi role thay đổi
+        Page<RoleDto> cachedPage = roleCacheService.getRolePageFromCache(page, size);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
         Pageable pageable = PageRequest.of(page, size);
         Page<Role> rolePage = roleRepository.findAll(pageable);
-        return RoleUtils.toDtoPage(rolePage);
+        Page<RoleDto> rolePageDto = RoleUtils.toDtoPage(rolePage);
+        roleCacheService.saveRolePageToCache(page, size, rolePageDto);
+        return rolePageDto;
     }
 
     /**
@@ -50,14 +56,15 @@ public class RoleService {
      * @param id ID của role
      * @return Optional<RoleDto> - Empty nếu không tìm thấy
      */
+    @Transactional(readOnly = true)
     public Optional<RoleDto> getRoleById(Integer id) {
         if (id == null) {
             return Optional.empty();
         }
         
-        RoleDto cachedRole = roleCacheService.getRoleFromCacheById(id);
         return roleCacheService.getRoleWithCacheStrategy(
-            cachedRole,
+            roleCacheService.buildCacheKeyById(id),
+            () -> roleCacheService.getRoleFromCacheById(id),
             () -> roleRepository.findById(id)
         );
     }
@@ -70,14 +77,15 @@ public class RoleService {
      * @param name Tên của role
      * @return Optional<RoleDto> - Empty nếu không tìm thấy
      */
+    @Transactional(readOnly = true)
     public Optional<RoleDto> getRoleByName(String name) {
         if (name == null || name.trim().isEmpty()) {
             return Optional.empty();
         }
         
-        RoleDto cachedRole = roleCacheService.getRoleFromCacheByName(name);
         return roleCacheService.getRoleWithCacheStrategy(
-            cachedRole,
+            roleCacheService.buildCacheKeyByName(name),
+            () -> roleCacheService.getRoleFromCacheByName(name),
             () -> roleRepository.findByName(name)
         );
     }
@@ -175,6 +183,7 @@ public class RoleService {
      * @param name Tên của role
      * @return true nếu tồn tại, false nếu không
      */
+    @Transactional(readOnly = true)
     public boolean existsByName(String name) {
         return roleRepository.existsByName(name);
     }
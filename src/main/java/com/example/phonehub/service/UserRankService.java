@@ -7,7 +7,7 @@ import com.example.phonehub.entity.UserRank;
 import com.example.phonehub.repository.UserRankRepository;
 import com.example.phonehub.service.redis_cache.UserRankCacheService;
 import com.example.phonehub.utils.UserRankUtils;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -25,6 +25,7 @@ public class UserRankService {
     @Autowired
     private UserRankCacheService rankCacheService;
     
+    @Transactional(readOnly = true)
     public List<UserRankDto> getAllRanks() {
         List<UserRankDto> cachedRanks = rankCacheService.getAllRanksFromCache();
         if (cachedRanks != null && !cachedRanks.isEmpty()) {
@@ -36,26 +37,29 @@ public class UserRankService {
         return ranks;
     }
     
+    @Transactional(readOnly = true)
     public Optional<UserRankDto> getById(Integer id) {
         if (id == null) return Optional.empty();
         
-        UserRankDto cachedRank = rankCacheService.getRankFromCacheById(id);
         return rankCacheService.getRankWithCacheStrategy(
-            cachedRank,
+            rankCacheService.buildCacheKeyById(id),
+            () -> rankCacheService.getRankFromCacheById(id),
             () -> rankRepository.findById(id)
         );
     }
     
+    @Transactional(readOnly = true)
     public Optional<UserRankDto> getByName(String name) {
         if (name == null || name.trim().isEmpty()) return Optional.empty();
         
-        UserRankDto cachedRank = rankCacheService.getRankFromCacheByName(name);
         return rankCacheService.getRankWithCacheStrategy(
-            cachedRank,
+            rankCacheService.buildCacheKeyByName(name),
+            () -> rankCacheService.getRankFromCacheByName(name),
             () -> rankRepository.findByName(name)
         );
     }
     
+    @Transactional(readOnly = true)
     public Optional<UserRankDto> getRankByPoints(Integer points) {
         Integer validPoints = points != null ? points : 0;
         
@@ -75,6 +79,7 @@ public class UserRankService {
         return rankDto;
     }
     
+    @Transactional(readOnly = true)
     public Optional<UserRank> getRankEntityByPoints(Integer points) {
         return rankRepository.findRankByPoints(points != null ? points : 0);
     }
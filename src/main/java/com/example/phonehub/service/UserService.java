@@ -1,13 +1,19 @@
 package com.example.phonehub.service;
 
+import com.example.phonehub.dto.CountedPage.CountMode;
 import com.example.phonehub.dto.CreateUserRequest;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.UserDto;
 import com.example.phonehub.entity.Role;
 import com.example.phonehub.entity.User;
 import com.example.phonehub.repository.RoleRepository;
+import com.example.phonehub.repository.TableStatisticsRepository;
+import com.example.phonehub.repository.projection.UserSummaryRow;
 import com.example.phonehub.repository.UserRepository;
 import com.example.phonehub.service.helper.UserHelper;
+import com.example.phonehub.service.redis_cache.CountCacheService;
 import com.example.phonehub.service.redis_cache.UserCacheService;
+import com.example.phonehub.utils.CursorUtils;
 import com.example.phonehub.utils.UserUtils;
 import com.example.phonehub.utils.PasswordUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +24,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -35,52 +42,73 @@ public class UserService {
     
     @Autowired
     private UserHelper userHelper;
+
+    @Autowired
+    private CountCacheService countCacheService;
+
+    @Autowired
+    private TableStatisticsRepository tableStatisticsRepository;
     
 
     // Lấy users với phân trang (chỉ roleId và rankId)
-    public Page<UserDto> getAllUsers(int page, int size) {
+    @Transactional(readOnly = true)
+    public Page<UserDto> getAllUsers(int page, int size, CountMode countMode) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "id"));
-        Page<User> userPage = userRepository.findAllBasic(pageable);
-        return UserUtils.toDtoPageBasic(userPage);
+        return countCacheService.page(userRepository.findAllBasic(pageable), UserUtils::toDtoBasic,
+                CountCacheService.USERS, "all", countMode, userRepository::count,
+                () -> tableStatisticsRepository.estimateRows("users"));
+    }
+
+    // Keyset pagination theo id tăng dần (chỉ roleId và rankId), không COUNT(*) trừ khi includeTotal
+    @Transactional(readOnly = true)
+    public CursorPageDto<UserDto> getAllUsersByCursor(String cursor, int size, boolean includeTotal) {
+        CursorUtils.Cursor after = CursorUtils.decode(cursor);
+        List<UserSummaryRow> rows = after == null
+                ? userRepository.findAllBasicFirst(CursorUtils.limit(size))
+                : userRepository.findAllBasicAfter(after.id(), CursorUtils.limit(size));
+        return CursorUtils.toPage(rows, size, UserUtils::toDtoBasic, u -> CursorUtils.encode(u.id()),
+                includeTotal ? userRepository.count() : null);
     }
 
     // Lấy user theo ID - với Redis cache
+    @Transactional(readOnly = true)
     public Optional<UserDto> getUserById(Integer id) {
         if (id == null) return Optional.empty();
         
-        UserDto cachedUser = userCacheService.getUserFromCacheById(id);
         return userCacheService.getUserWithCacheStrategy(
-            cachedUser,
+            userCacheService.buildCacheKeyById(id),
+            () -> userCacheService.getUserFromCacheById(id),
             () -> userRepository.findById(id),
             userHelper::toDtoWithRank
         );
     }
 
     // Lấy user theo username - với Redis cache
+    @Transactional(readOnly = true)
     public Optional<UserDto> getUserByUsername(String username) {
         if (username == null || username.trim().isEmpty()) return Optional.empty();
         
-        UserDto cachedUser = userCacheService.getUserFromCacheByUsername(username);
-        return userCacheService.getUserWithCacheStrategy(
-            cachedUser,
+        return userCacheService.getUserByUsernameWithCacheStrategy(
+            username,
             () -> userRepository.findByUsername(username),
             userHelper::toDtoWithRank
         );
     }
 
     // Lấy user theo email - với Redis cache
+    @Transactional(readOnly = true)
     public Optional<UserDto> getUserByEmail(String email) {
         if (email == null || email.trim().isEmpty()) return Optional.empty();
         
-        UserDto cachedUser = userCacheService.getUserFromCacheByEmail(email);
-        return userCacheService.getUserWithCacheStrategy(
-            cachedUser,
+        return userCacheService.getUserByEmailWithCacheStrategy(
+            email,
             () -> userRepository.findByEmail(email),
             userHelper::toDtoWithRank
         );
     }
 
     // Tìm kiếm user theo keyword (username/email) với phân trang
+    @Transactional(readOnly = true)
     public Page<UserDto> searchByKeyword(String keyword, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<User> userPage = userRepository.searchByUsernameOrEmail(keyword, pageable);
@@ -122,7 +150,9 @@ public class UserService {
         
         User savedUser = userRepository.save(user);
         UserDto savedDto = userHelper.toDtoWithRank(savedUser);
+        userCacheService.registerLookupKeys(savedUser.getUsername(), savedUser.getEmail());
         userCacheService.saveUserToCache(savedDto);
+        countCacheService.invalidate(CountCacheService.USERS);
         
         return savedDto;
     }
@@ -188,6 +218,7 @@ public class UserService {
         UserDto updatedDto = userHelper.toDtoWithRank(updatedUser);
         
         userCacheService.removeUserFromCache(user.getId(), oldUsername, oldEmail);
+        userCacheService.registerLookupKeys(updatedUser.getUsername(), updatedUser.getEmail());
         userCacheService.saveUserToCache(updatedDto);
         
         return updatedDto;
@@ -203,17 +234,21 @@ public class UserService {
         User user = userOpt.get();
         userRepository.deleteById(id);
         userCacheService.removeUserFromCache(user.getId(), user.getUsername(), user.getEmail());
+        countCacheService.invalidate(CountCacheService.USERS);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsByUsername(String username) {
         return userRepository.existsByUsername(username);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsByEmail(String email) {
         return userRepository.existsByEmail(email);
     }
 
     // Verify password
+    @Transactional(readOnly = true)
     public boolean verifyUserPassword(String username, String password) {
         Optional<User> user = userRepository.findByUsername(username);
         if (user.isPresent()) {
@@ -7,6 +7,7 @@ import com.example.phonehub.service.UserRankService;
 import com.example.phonehub.utils.UserUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * 🛠️ Helper class chứa các utility methods cho User
@@ -45,7 +46,8 @@ public class UserHelper {
      * Logic:
      * - Nếu user chưa có rank hoặc rank bị null
      * - Tự động cập nhật rank dựa trên điểm số
-     * - Nếu user đã có ID (đã persist), lưu lại vào DB
+     * - Nếu user đã có ID (đã persist), lưu lại vào DB. Trong transaction đọc (replica, không flush)
+     *   thì ghi bằng transaction riêng trên primary
      * 
      * @param user User cần đảm bảo có rank
      */
@@ -56,8 +58,12 @@ public class UserHelper {
         if (user.getRank() == null) {
             updateUserRank(user);
             // Nếu user đã có ID (đã persist), lưu lại để persist rank vào DB
-            if (user.getId() != null) {
-                userRepository.save(user);
+            if (user.getId() != null && user.getRank() != null) {
+                if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    userRepository.assignRankIfMissing(user.getId(), user.getRank().getId());
+                } else {
+                    userRepository.save(user);
+                }
             }
         }
     }
@@ -0,0 +1,318 @@
+package com.example.phonehub.service.idempotency;
+
+import com.example.phonehub.dto.ApiResponse;
+import com.example.phonehub.entity.IdempotencyRecord;
+import com.example.phonehub.repository.IdempotencyRecordRepository;
+import com.example.phonehub.service.RedisService;
+import com.example.phonehub.service.UserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Idempotency-Key cho các request ghi mà client có thể gửi lại (mobile retry khi timeout)
+ *
+ * - Request đầu INSERT dòng IN_PROGRESS (commit riêng) rồi mới chạy; response 2xx ghi COMPLETED trong cùng transaction
+ *   với dữ liệu của request nên có order thì chắc chắn có response để phát lại và ngược lại
+ * - Request trùng key: phát lại response đã lưu (Redis trước, MySQL là nguồn đúng), trùng lúc request đầu còn chạy thì
+ *   chờ kết quả thay vì chạy lần 2; cùng key khác nội dung thì 422
+ * - Response lỗi không lưu: transaction rollback, key bị xóa để retry chạy lại (lỗi tồn kho / deadlock có thể hết khi thử lại)
+ * - Key lưu theo scope + người gọi ("{scope}:u{userId}:{key}"): user khác dùng lại / đoán được key không nhận được
+ *   response của người khác. Khách chưa đăng nhập dùng chung phạm vi "anonymous", chỉ phát lại khi cùng nội dung request
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String CACHE_PREFIX = "idempotency:";
+    private static final String ANONYMOUS = "anonymous";
+    private static final Pattern KEY_PATTERN = Pattern.compile("[\\x21-\\x7E]{1,100}");
+    private static final long MAX_POLL_MS = 500;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+    @Autowired
+    private RedisService redisService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserService userService;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // Thời gian request trùng chờ request đầu chạy xong
+    @Value("${app.idempotency.wait-ms:10000}")
+    private long waitMs;
+
+    // IN_PROGRESS lâu hơn mức này coi như request đầu đã chết, request sau được nhận lại key
+    @Value("${app.idempotency.in-progress-timeout-ms:60000}")
+    private long inProgressTimeoutMs;
+
+    /**
+     * Chạy action của controller đúng 1 lần cho mỗi key
+     *
+     * @param scope    tên endpoint, key của các endpoint khác nhau không đụng nhau
+     * @param key      header Idempotency-Key, null thì chạy action như bình thường
+     * @param request  tham số request (path variable + body) dùng để so nội dung giữa các lần gửi
+     * @param dataType kiểu data trong ApiResponse để đọc lại response đã lưu
+     */
+    public <T> ResponseEntity<ApiResponse<T>> execute(String scope, String key, Object request, Class<T> dataType,
+                                                      Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            return ResponseEntity.badRequest().body(ApiResponse.badRequest("Invalid " + HEADER));
+        }
+        Outcome outcome;
+        try {
+            outcome = run(scope + ":" + caller() + ":" + key, hash(request), () -> {
+                ResponseEntity<ApiResponse<T>> response = action.get();
+                return new Outcome(response.getStatusCode().value(), toJson(response.getBody()), null, false);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Idempotent request {}:{} failed: {}", scope, key, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Lỗi khi xử lý request: " + e.getMessage()));
+        }
+        if (outcome.error() != null) {
+            return ResponseEntity.status(outcome.status()).body(ApiResponse.error(outcome.error(), outcome.status()));
+        }
+        JavaType type = objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, dataType);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(outcome.status());
+        if (outcome.replayed()) {
+            builder.header(REPLAYED_HEADER, "true");
+        }
+        return builder.body(fromJson(outcome.body(), type));
+    }
+
+    /**
+     * User id của người gọi đã xác thực (principal chỉ có username, tra qua cache user), ANONYMOUS nếu chưa đăng nhập
+     */
+    private String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        return userService.getUserByUsername(authentication.getName())
+                .map(user -> "u" + user.getId())
+                .orElse(ANONYMOUS);
+    }
+
+    private Outcome run(String id, String requestHash, Supplier<Outcome> action) {
+        Outcome cached = cached(id, requestHash);
+        if (cached != null) {
+            return cached;
+        }
+        String owner = UUID.randomUUID().toString();
+        if (!claim(id, requestHash, owner)) {
+            Outcome previous = await(id, requestHash, owner);
+            if (previous != null) {
+                return previous;
+            }
+        }
+
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                Outcome result = action.get();
+                // Lỗi hoặc service bên trong đã đánh dấu rollback: không lưu, rollback (local, không ném UnexpectedRollback)
+                if (result.status() < 200 || result.status() >= 300 || status.isRollbackOnly()) {
+                    status.setRollbackOnly();
+                    return result;
+                }
+                if (repository.complete(id, owner, IdempotencyRecord.Status.COMPLETED, result.status(), result.body()) != 1) {
+                    // Request này chạy quá in-progress-timeout, key đã bị request khác nhận lại
+                    status.setRollbackOnly();
+                    return new Outcome(HttpStatus.CONFLICT.value(), null, "Request with this " + HEADER + " was taken over", false);
+                }
+                return new Outcome(result.status(), result.body(), null, false);
+            });
+        } catch (RuntimeException e) {
+            release(id, owner);
+            throw e;
+        }
+        if (outcome.error() == null && outcome.status() >= 200 && outcome.status() < 300) {
+            cache(id, requestHash, outcome);
+        } else if (outcome.error() == null) {
+            release(id, owner);
+        }
+        return outcome;
+    }
+
+    /**
+     * Key đang có request khác giữ: chờ (Redis rồi MySQL, giãn dần) tới khi có kết quả
+     *
+     * @return response để phát lại / từ chối; null nếu request này đã nhận được key và phải tự chạy
+     */
+    private Outcome await(String id, String requestHash, String owner) {
+        long deadline = System.currentTimeMillis() + waitMs;
+        long pause = 20;
+        while (true) {
+            Outcome cached = cached(id, requestHash);
+            if (cached != null) {
+                return cached;
+            }
+            // Không readOnly: đọc primary, replica có thể chưa thấy kết quả vừa commit
+            IdempotencyRecord record = transactionTemplate.execute(status -> repository.findById(id).orElse(null));
+            if (record == null) {
+                // Request đầu thất bại và đã xóa key
+                if (claim(id, requestHash, owner)) {
+                    return null;
+                }
+                continue;
+            }
+            if (!record.getRequestHash().equals(requestHash)) {
+                return mismatch();
+            }
+            if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                Outcome stored = new Outcome(record.getResponseStatus(), record.getResponseBody(), null, true);
+                cache(id, requestHash, stored);
+                return stored;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (record.getLockedAt().isBefore(now.minusNanos(inProgressTimeoutMs * 1_000_000))
+                    && takeOver(id, owner, now)) {
+                logger.warn("Took over stale idempotency key {}", id);
+                return null;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return new Outcome(HttpStatus.CONFLICT.value(), null,
+                        "A request with this " + HEADER + " is still in progress", false);
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Outcome(HttpStatus.CONFLICT.value(), null,
+                        "A request with this " + HEADER + " is still in progress", false);
+            }
+            pause = Math.min(pause * 2, MAX_POLL_MS);
+        }
+    }
+
+    private Outcome cached(String id, String requestHash) {
+        Map<String, String> entry = redisService.hashGetAll(CACHE_PREFIX + id);
+        if (entry == null || entry.isEmpty()) {
+            return null;
+        }
+        if (!requestHash.equals(entry.get("hash"))) {
+            return mismatch();
+        }
+        return new Outcome(Integer.parseInt(entry.get("status")), entry.get("body"), null, true);
+    }
+
+    private void cache(String id, String requestHash, Outcome outcome) {
+        redisService.hashPutAll(CACHE_PREFIX + id, Map.of(
+                "hash", requestHash,
+                "status", Integer.toString(outcome.status()),
+                "body", outcome.body() != null ? outcome.body() : "null"), Duration.ofHours(ttlHours));
+    }
+
+    private boolean claim(String id, String requestHash, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer inserted = transactionTemplate.execute(status ->
+                repository.claim(id, requestHash, owner, now, now.plusHours(ttlHours)));
+        return inserted != null && inserted == 1;
+    }
+
+    private boolean takeOver(String id, String owner, LocalDateTime now) {
+        LocalDateTime staleBefore = now.minusNanos(inProgressTimeoutMs * 1_000_000);
+        Integer updated = transactionTemplate.execute(status ->
+                repository.takeOver(id, owner, now, staleBefore, IdempotencyRecord.Status.IN_PROGRESS));
+        return updated != null && updated == 1;
+    }
+
+    private void release(String id, String owner) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    repository.release(id, owner, IdempotencyRecord.Status.IN_PROGRESS));
+        } catch (RuntimeException e) {
+            // Không xóa được thì key hết hạn IN_PROGRESS sau in-progress-timeout, retry sẽ nhận lại
+            logger.warn("Releasing idempotency key {} failed: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa key hết hạn (quá ttl-hours), client gửi lại key cũ sau đó sẽ được xử lý như request mới
+     */
+    @Scheduled(initialDelayString = "${app.idempotency.purge-interval-ms:3600000}",
+            fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            Integer deleted = transactionTemplate.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+            if (deleted != null && deleted > 0) {
+                logger.info("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (Exception e) {
+            logger.warn("Purging idempotency keys failed: {}", e.getMessage());
+        }
+    }
+
+    private static Outcome mismatch() {
+        return new Outcome(HttpStatus.UNPROCESSABLE_ENTITY.value(), null,
+                HEADER + " was already used with a different request", false);
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot serialize idempotent response: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T fromJson(String json, JavaType type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot read stored idempotent response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Kết quả 1 lần chạy hoặc phát lại: error khác null là từ chối (409/422), không có body
+     */
+    private record Outcome(int status, String body, String error, boolean replayed) {
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.phonehub.service.inventory;
+
+import com.example.phonehub.entity.Order;
+import com.example.phonehub.entity.OrderItem;
+import com.example.phonehub.entity.Product;
+import com.example.phonehub.entity.StockReservation;
+import com.example.phonehub.entity.StockReservation.Status;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.StockReservationRepository;
+import com.example.phonehub.repository.projection.ProductStockRow;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Giữ hàng cho order chờ thanh toán
+ *
+ * - reserve: trừ products.quantity bằng 1 câu UPDATE ... WHERE quantity >= ? (không đọc-kiểm tra-ghi trong Java),
+ *   MySQL khóa dòng trong lúc UPDATE nên các request song song trên cùng sản phẩm không bán quá tồn kho.
+ *   Khóa dòng giữ tới commit nên UPDATE chạy cuối transaction; hết hàng thì từ chối bằng đọc không khóa,
+ *   không xếp hàng chờ khóa dòng sản phẩm đang hot. Sản phẩm flash sale chia shard thì trừ trên shard
+ * - Reservation có hạn {@code app.inventory.reservation-ttl-minutes} (bằng hạn link VNPay): order không thanh toán
+ *   xong thì job {@link #releaseExpired()} cộng trả tồn kho
+ * - Mỗi lần đổi products.quantity thì xóa ProductDto đã cache (L1, product:{id}, slug, summary) sau commit
+ * - Order success -> commit (giữ hẳn), failed -> release ngay
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    // Như ProductRepository.decrementStock, chạy theo batch JDBC (JPQL UPDATE không gom batch được)
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET quantity = quantity - ? WHERE id = ? AND quantity >= ? AND stock_shards IS NULL";
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockReservationRepository reservationRepository;
+    @Autowired
+    private StockShardService stockShardService;
+    @Autowired
+    private CatalogIndexer catalogIndexer;
+    @Autowired
+    private ProductCacheService productCacheService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.inventory.reservation-ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${app.inventory.release-batch-size:200}")
+    private int releaseBatchSize;
+
+    /**
+     * Trừ tồn kho và ghi reservation, chạy trong transaction của người gọi (rollback thì trả lại cả hai)
+     *
+     * Sản phẩm chia shard tồn kho ({@link StockShardService}) trừ trên shard, số lượng gom từ nhiều shard thì
+     * mỗi shard 1 reservation. Checkout chạy đúng lúc admin đổi chế độ có thể bị từ chối, không bán quá tồn kho
+     *
+     * @throws RuntimeException "Insufficient stock ..." nếu không đủ hàng, "Product not found ..." nếu không có sản phẩm
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<StockReservation> reserve(Order order, Integer productId, int quantity) {
+        if (quantity <= 0) {
+            throw new RuntimeException("Quantity must be positive");
+        }
+        ProductStockRow stock = productRepository.findStockById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
+        List<StockReservation> reservations = stock.stockShards() == null
+                ? reserveSingleRow(order, productId, stock.slug(), quantity, stock.quantity())
+                : reserveSharded(order, productId, quantity, stock.stockShards());
+        count("reserved");
+        return reservations;
+    }
+
+    /**
+     * Giữ hàng cho cả giỏ trong 1 lần (checkout): reservation ghi theo batch INSERT, tồn kho các sản phẩm thường
+     * trừ bằng 1 batch UPDATE ... WHERE quantity >= ? chạy cuối cùng. Khóa dòng sản phẩm theo thứ tự id tăng dần
+     * nên 2 checkout chung sản phẩm không deadlock. Sản phẩm chia shard trừ trên shard như {@link #reserve}
+     *
+     * @param items các dòng order, mỗi sản phẩm 1 dòng, product đã nạp trong transaction của người gọi
+     * @throws RuntimeException "Insufficient stock ..." nếu 1 sản phẩm không đủ hàng (rollback cả giỏ)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<StockReservation> reserveAll(Order order, List<OrderItem> items) {
+        List<OrderItem> lines = items.stream()
+                .sorted(Comparator.comparing((OrderItem item) -> item.getProduct().getId()))
+                .toList();
+        List<StockReservation> reservations = new ArrayList<>(lines.size());
+        List<StockReservation> singleRow = new ArrayList<>(lines.size());
+        List<Object[]> decrements = new ArrayList<>(lines.size());
+        for (OrderItem line : lines) {
+            Product product = line.getProduct();
+            int quantity = line.getQuantity();
+            if (quantity <= 0) {
+                throw new RuntimeException("Quantity must be positive");
+            }
+            if (product.getStockShards() != null) {
+                reservations.addAll(reserveSharded(order, product.getId(), quantity, product.getStockShards()));
+                continue;
+            }
+            if (product.getQuantity() < quantity) {
+                throw insufficient(product.getId(), product.getQuantity());
+            }
+            singleRow.add(newReservation(order, product.getId(), null, quantity));
+            decrements.add(new Object[]{quantity, product.getId(), quantity});
+        }
+        reservations.addAll(reservationRepository.saveAll(singleRow));
+        if (!decrements.isEmpty()) {
+            // Đẩy các INSERT đang chờ trước, khóa dòng sản phẩm chỉ giữ từ đây tới commit
+            reservationRepository.flush();
+            int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, decrements);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    Integer productId = (Integer) decrements.get(i)[1];
+                    throw insufficient(productId, productRepository.findQuantityById(productId).orElse(0));
+                }
+            }
+            catalogIndexer.reindex(decrements.stream().map(args -> (Integer) args[1]).toList());
+            lines.stream().map(OrderItem::getProduct).filter(product -> product.getStockShards() == null)
+                    .forEach(product -> evictCache(product.getId(), product.getSlug()));
+        }
+        count("reserved", lines.size());
+        return reservations;
+    }
+
+    private List<StockReservation> reserveSingleRow(Order order, Integer productId, String slug, int quantity, int remain) {
+        if (remain < quantity) {
+            throw insufficient(productId, remain);
+        }
+        StockReservation reservation = reservationRepository.save(newReservation(order, productId, null, quantity));
+        // Không đủ hàng thì exception rollback luôn reservation vừa ghi
+        if (productRepository.decrementStock(productId, quantity) == 0) {
+            throw insufficient(productId, productRepository.findQuantityById(productId).orElse(0));
+        }
+        catalogIndexer.reindex(productId);
+        evictCache(productId, slug);
+        return List.of(reservation);
+    }
+
+    private List<StockReservation> reserveSharded(Order order, Integer productId, int quantity, int shards) {
+        List<int[]> portions = stockShardService.take(productId, shards, quantity);
+        if (portions.isEmpty()) {
+            throw insufficient(productId, (int) stockShardService.available(productId));
+        }
+        List<StockReservation> reservations = new ArrayList<>(portions.size());
+        for (int[] portion : portions) {
+            reservations.add(newReservation(order, productId, portion[0], portion[1]));
+        }
+        // products.quantity và index do StockShardService.reconcile cập nhật
+        return reservationRepository.saveAll(reservations);
+    }
+
+    /**
+     * Order đã thanh toán: giữ hẳn số đã trừ
+     *
+     * Reservation đã hết hạn và trả kho trước khi thanh toán về thì trừ lại nếu còn hàng
+     *
+     * @return số reservation đã commit
+     */
+    @Transactional
+    public int commit(Integer orderId) {
+        int committed = 0;
+        for (Object[] line : reservationRepository.findLinesByOrderIdAndStatus(orderId, Status.RESERVED)) {
+            committed += reservationRepository.transition((Long) line[0], Status.RESERVED, Status.COMMITTED);
+        }
+        for (Object[] line : reservationRepository.findLinesByOrderIdAndStatus(orderId, Status.RELEASED)) {
+            if (reservationRepository.transition((Long) line[0], Status.RELEASED, Status.COMMITTED) == 0) continue;
+            Integer productId = (Integer) line[1];
+            int quantity = (Integer) line[2];
+            if (!reacquire(productId, quantity)) {
+                count("shortage");
+                logger.warn("Order {} paid after its reservation expired, product {} short of {}", orderId, productId, quantity);
+            }
+            committed++;
+        }
+        count("committed", committed);
+        return committed;
+    }
+
+    /**
+     * Order thất bại / hủy: trả tồn kho các reservation còn giữ
+     *
+     * @return số reservation đã trả
+     */
+    @Transactional
+    public int release(Integer orderId) {
+        int released = 0;
+        for (Object[] line : reservationRepository.findLinesByOrderIdAndStatus(orderId, Status.RESERVED)) {
+            if (releaseLine(line)) released++;
+        }
+        count("released", released);
+        return released;
+    }
+
+    /**
+     * Trả tồn kho các reservation quá hạn (order không thanh toán xong), mỗi batch 1 transaction
+     * Nhiều instance cùng chạy vẫn an toàn: reservation nào cũng chỉ chuyển RESERVED -> RELEASED được 1 lần
+     */
+    @Scheduled(initialDelayString = "${app.inventory.release-interval-ms:60000}",
+            fixedDelayString = "${app.inventory.release-interval-ms:60000}")
+    public void releaseExpired() {
+        try {
+            int total = 0;
+            int[] batch;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                // {số dòng quá hạn đọc được, số dòng đã trả kho}
+                batch = transactionTemplate.execute(status -> {
+                    List<Object[]> lines = reservationRepository.findLinesByStatusExpiredBefore(Status.RESERVED, now, Limit.of(releaseBatchSize));
+                    int released = 0;
+                    for (Object[] line : lines) {
+                        if (releaseLine(line)) released++;
+                    }
+                    return new int[]{lines.size(), released};
+                });
+                total += batch[1];
+            } while (batch[0] == releaseBatchSize);
+            if (total > 0) {
+                count("expired", total);
+                logger.info("Released {} expired stock reservations", total);
+            }
+        } catch (Exception e) {
+            logger.warn("Releasing expired stock reservations failed: {}", e.getMessage());
+        }
+    }
+
+    private RuntimeException insufficient(Integer productId, int remain) {
+        count("rejected");
+        return new RuntimeException("Insufficient stock for product " + productId + ": remain=" + remain);
+    }
+
+    private StockReservation newReservation(Order order, Integer productId, Integer shardNo, int quantity) {
+        StockReservation reservation = new StockReservation();
+        reservation.setOrder(order);
+        reservation.setProduct(productRepository.getReferenceById(productId));
+        reservation.setQuantity(quantity);
+        reservation.setShardNo(shardNo);
+        reservation.setStatus(Status.RESERVED);
+        reservation.setExpiresAt(LocalDateTime.now().plusMinutes(ttlMinutes));
+        return reservation;
+    }
+
+    // Trừ lại reservation đã trả kho theo chế độ tồn kho hiện tại của sản phẩm
+    private boolean reacquire(Integer productId, int quantity) {
+        ProductStockRow stock = productRepository.findStockById(productId).orElse(null);
+        if (stock == null) {
+            return false;
+        }
+        if (stock.stockShards() != null) {
+            return !stockShardService.take(productId, stock.stockShards(), quantity).isEmpty();
+        }
+        if (productRepository.decrementStock(productId, quantity) == 0) {
+            return false;
+        }
+        catalogIndexer.reindex(productId);
+        evictCache(productId, stock.slug());
+        return true;
+    }
+
+    private boolean releaseLine(Object[] line) {
+        if (reservationRepository.transition((Long) line[0], Status.RESERVED, Status.RELEASED) == 0) {
+            return false;
+        }
+        Integer productId = (Integer) line[1];
+        int quantity = (Integer) line[2];
+        Integer shardNo = (Integer) line[3];
+        // Trả về nơi đã trừ; admin vừa bật/tắt chia shard thì UPDATE đó trúng 0 dòng, trả sang chế độ còn lại
+        if (shardNo != null && stockShardService.give(productId, shardNo, quantity)) {
+            return true;
+        }
+        if (productRepository.incrementStock(productId, quantity) == 1) {
+            catalogIndexer.reindex(productId);
+            evictCache(productId, (String) line[4]);
+        } else if (shardNo != null || !stockShardService.give(productId, null, quantity)) {
+            logger.warn("Product {} not found when releasing {} reserved units", productId, quantity);
+        }
+        return true;
+    }
+
+    // Như ProductService.update: xóa L2 + L1 instance này sau commit (xóa trước thì request khác nạp lại số cũ), báo instance khác xóa L1
+    private void evictCache(Integer productId, String slug) {
+        productCacheService.publishInvalidation(productId, slug);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    productCacheService.removeProductFromCache(productId, slug);
+                }
+            });
+        } else {
+            productCacheService.removeProductFromCache(productId, slug);
+        }
+    }
+
+    private void count(String result) {
+        count(result, 1);
+    }
+
+    private void count(String result, int amount) {
+        if (meterRegistry != null && amount > 0) {
+            meterRegistry.counter("phonehub.inventory.reservations", "result", result).increment(amount);
+        }
+    }
+}
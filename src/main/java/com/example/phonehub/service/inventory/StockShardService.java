@@ -0,0 +1,204 @@
+package com.example.phonehub.service.inventory;
+
+import com.example.phonehub.dto.StockShardsDto;
+import com.example.phonehub.entity.Product;
+import com.example.phonehub.entity.ProductStockShard;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.ProductStockShardRepository;
+import com.example.phonehub.service.search.CatalogIndexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chia tồn kho sản phẩm bán chạy (flash sale) thành nhiều shard (product_stock_shards)
+ *
+ * - Mọi checkout cùng trừ products.quantity thì xếp hàng chờ khóa 1 dòng; chia N shard thì mỗi lần giữ hàng
+ *   trừ 1 shard chọn ngẫu nhiên (đầy thì thử shard kế tiếp), N checkout có thể chạy song song
+ * - products.quantity của sản phẩm chia shard chỉ là tổng được {@link #reconcile()} đồng bộ định kỳ
+ *   cho trang sản phẩm / tìm kiếm; nguồn đúng là tổng các shard
+ * - Bật/tắt, đổi số shard khóa dòng sản phẩm rồi chia lại/gom tồn kho trong cùng transaction
+ */
+@Service
+public class StockShardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockShardService.class);
+
+    public static final int MAX_SHARDS = 64;
+
+    @Autowired
+    private ProductStockShardRepository shardRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CatalogIndexer catalogIndexer;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Transactional(readOnly = true)
+    public StockShardsDto get(Integer productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        if (product.getStockShards() == null) {
+            return new StockShardsDto(productId, null, product.getQuantity(), List.of());
+        }
+        List<Integer> quantities = shardRepository.findByProductId(productId).stream()
+                .map(ProductStockShard::getQuantity).toList();
+        return new StockShardsDto(productId, product.getStockShards(),
+                quantities.stream().mapToInt(Integer::intValue).sum(), quantities);
+    }
+
+    /**
+     * Đổi số shard, giữ nguyên tổng tồn kho
+     *
+     * @param shards 0 hoặc 1: tắt chia shard, tồn kho gom về products.quantity
+     */
+    @Transactional
+    public StockShardsDto configure(Integer productId, int shards) {
+        return configure(productId, shards, null);
+    }
+
+    /**
+     * Đổi số shard và/hoặc đặt lại tổng tồn kho (quantity null = giữ nguyên tổng hiện tại)
+     */
+    @Transactional
+    public StockShardsDto configure(Integer productId, int shards, Integer quantity) {
+        if (shards < 0 || shards > MAX_SHARDS) {
+            throw new RuntimeException("Stock shards must be between 0 and " + MAX_SHARDS);
+        }
+        if (quantity != null && quantity < 0) {
+            throw new RuntimeException("Quantity must not be negative");
+        }
+        // Khóa sản phẩm trước rồi mới khóa shard: giữ hàng chế độ thường chờ ở dòng sản phẩm,
+        // giữ hàng chế độ shard chờ ở các shard, không transaction nào giữ theo thứ tự ngược lại
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        List<ProductStockShard> existing = product.getStockShards() != null
+                ? shardRepository.findForUpdateByProductId(productId) : List.of();
+        int total = quantity != null ? quantity
+                : product.getStockShards() != null ? existing.stream().mapToInt(ProductStockShard::getQuantity).sum()
+                : product.getQuantity();
+
+        // Sửa tại chỗ các shard còn dùng (shard_no liên tục từ 0), xóa shard thừa, thêm shard mới
+        int count = shards > 1 ? shards : 0;
+        List<Integer> quantities = count > 0 ? split(total, count) : List.of();
+        for (ProductStockShard shard : existing) {
+            if (shard.getShardNo() < count) {
+                shard.setQuantity(quantities.get(shard.getShardNo()));
+            } else {
+                shardRepository.delete(shard);
+            }
+        }
+        for (int i = existing.size(); i < count; i++) {
+            shardRepository.save(new ProductStockShard(productId, i, quantities.get(i)));
+        }
+        product.setStockShards(shards > 1 ? shards : null);
+        product.setQuantity(total);
+        productRepository.save(product);
+        catalogIndexer.reindex(productId);
+        logger.info("Product {} stock shards set to {} (total {})", productId, shards > 1 ? shards : 0, total);
+        return new StockShardsDto(productId, product.getStockShards(), total, quantities);
+    }
+
+    /**
+     * Trừ quantity từ các shard
+     *
+     * Lượt đầu lấy 1 shard còn đủ hàng mà không transaction nào đang khóa (SKIP LOCKED, bắt đầu từ shard ngẫu nhiên),
+     * không phải chờ ai. Mọi shard đều bận hoặc không shard nào đủ một mình (gần hết hàng) thì khóa lần lượt
+     * từ shard 0 trở lên tới khi gom đủ: chỉ chờ khóa theo thứ tự shard_no tăng dần nên không deadlock
+     *
+     * @return các phần đã trừ {shardNo, số lượng}; rỗng nếu không đủ hàng hoặc sản phẩm không còn chia shard
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<int[]> take(Integer productId, int shards, int quantity) {
+        int offset = ThreadLocalRandom.current().nextInt(shards);
+        Integer free = shardRepository.lockFreeShard(productId, quantity, offset, shards).orElse(null);
+        if (free != null) {
+            shardRepository.decrement(productId, free, quantity);
+            return Collections.singletonList(new int[]{free, quantity});
+        }
+        // Hết hàng thì từ chối bằng đọc không khóa, không xếp hàng chờ khóa shard
+        if (shardRepository.sumByProductId(productId) < quantity) {
+            return List.of();
+        }
+        List<int[]> portions = new ArrayList<>();
+        int remaining = quantity;
+        for (int shardNo = 0; shardNo < shards && remaining > 0; shardNo++) {
+            ProductStockShard shard = shardRepository.findForUpdate(productId, shardNo).orElse(null);
+            if (shard == null || shard.getQuantity() == 0) continue;
+            int part = Math.min(remaining, shard.getQuantity());
+            portions.add(new int[]{shardNo, part});
+            remaining -= part;
+        }
+        if (remaining > 0) {
+            return List.of();
+        }
+        for (int[] portion : portions) {
+            shardRepository.decrement(productId, portion[0], portion[1]);
+        }
+        return portions;
+    }
+
+    /**
+     * Cộng trả vào shard đã trừ (shardNo null hoặc shard không còn sau khi giảm số shard thì vào shard 0)
+     *
+     * @return false nếu sản phẩm không còn chia shard
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean give(Integer productId, Integer shardNo, int quantity) {
+        if (shardNo != null && shardNo != 0 && shardRepository.increment(productId, shardNo, quantity) == 1) {
+            return true;
+        }
+        return shardRepository.increment(productId, 0, quantity) == 1;
+    }
+
+    // Tổng tồn kho các shard, đọc không khóa
+    public long available(Integer productId) {
+        return shardRepository.sumByProductId(productId);
+    }
+
+    /**
+     * Đồng bộ tổng các shard vào products.quantity, chỉ reindex sản phẩm có tổng thay đổi
+     */
+    @Scheduled(initialDelayString = "${app.inventory.shard-reconcile-ms:5000}",
+            fixedDelayString = "${app.inventory.shard-reconcile-ms:5000}")
+    public void reconcile() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Object[] row : shardRepository.sumByProduct()) {
+                    Integer productId = (Integer) row[0];
+                    int total = ((Number) row[1]).intValue();
+                    if (productRepository.syncShardedQuantity(productId, total) == 1) {
+                        catalogIndexer.reindex(productId);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Reconciling sharded stock failed: {}", e.getMessage());
+        }
+    }
+
+    @Transactional
+    public void deleteShards(Integer productId) {
+        shardRepository.deleteByProductId(productId);
+    }
+
+    // Chia đều, phần dư dồn vào các shard đầu
+    private static List<Integer> split(int total, int shards) {
+        List<Integer> quantities = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            quantities.add(total / shards + (i < total % shards ? 1 : 0));
+        }
+        return quantities;
+    }
+}
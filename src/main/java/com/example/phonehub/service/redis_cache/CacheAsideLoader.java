@@ -0,0 +1,312 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.config.ReadReplicaRoutingDataSource;
+import com.example.phonehub.service.RedisService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Cache-aside dùng chung cho các *CacheService, chống cache stampede khi key nóng hết hạn
+ *
+ * 1. Single-flight trong JVM: mỗi key chỉ 1 thread chạy loader, các thread khác cùng miss chờ kết quả đó
+ * 2. Lease trên Redis ("lease:{key}", SET NX PX): chỉ 1 node reload từ DB, node khác poll cache
+ *    tới khi node giữ lease ghi xong (hoặc lease được trả/hết hạn thì tự load)
+ * 3. Refresh sớm kiểu XFetch: khi hit, nếu now - delta * beta * ln(rand) >= expiry thì reload nền,
+ *    delta là thời gian load lần trước. Key càng nóng / load càng chậm thì càng được refresh sớm
+ *    nên gần như không bao giờ hết hạn thật. Expiry/delta được ghi nhận khi node này load key,
+ *    node chưa từng load key thì không refresh sớm (vẫn có 1 và 2 bảo vệ)
+ *
+ * Negative cache (tùy chọn): DB không có thì ghi RedisService.NOT_FOUND vào key với TTL ngắn,
+ * cacheLookup trả về marker của service khi đọc được giá trị đó -> trả Optional.empty() luôn.
+ *
+ * Redis lỗi: bỏ qua lease, vẫn single-flight trong JVM rồi load DB như cũ.
+ *
+ * dbLoader luôn đọc primary (ReadReplicaRoutingDataSource.onPrimary): giá trị này được cache tới hết TTL,
+ * đọc từ replica đang trễ ngay sau khi writer evict sẽ ghi lại bản cũ vào cache.
+ */
+@Service
+public class CacheAsideLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheAsideLoader.class);
+
+    private static final String LEASE_PREFIX = "lease:";
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.loader.lease-ms:5000}")
+    private long leaseMillis;
+
+    @Value("${app.cache.loader.wait-ms:2000}")
+    private long waitMillis;
+
+    @Value("${app.cache.loader.poll-ms:50}")
+    private long pollMillis;
+
+    @Value("${app.cache.loader.xfetch-beta:1.0}")
+    private double beta;
+
+    @Value("${app.cache.loader.meta-max-size:10000}")
+    private long metaMaxSize;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<?>>> inFlight = new ConcurrentHashMap<>();
+
+    /** key -> thời điểm hết hạn + thời gian load lần trước (cho XFetch) */
+    private Cache<String, RefreshMeta> refreshMeta;
+    private ExecutorService refresher;
+
+    private record RefreshMeta(long expiresAtMillis, long deltaMillis) {
+    }
+
+    /** Cấu hình negative cache: marker mà cacheLookup trả về khi key đang giữ NOT_FOUND */
+    private record NotFound<T>(T marker, Duration ttl) {
+    }
+
+    @PostConstruct
+    void init() {
+        refreshMeta = Caffeine.newBuilder()
+                .maximumSize(metaMaxSize)
+                .expireAfter(Expiry.<String, RefreshMeta>writing((key, meta) ->
+                        Duration.ofMillis(Math.max(0, meta.expiresAtMillis() - System.currentTimeMillis()))))
+                .build();
+        refresher = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Lấy giá trị theo cache-aside
+     *
+     * @param key         Key tra cứu (ví dụ: "product:slug:iphone-15") - đơn vị gộp request và lease
+     * @param ttl         TTL mà cacheWriter ghi (để tính thời điểm hết hạn cho XFetch)
+     * @param cacheLookup Đọc cache, null nếu miss
+     * @param dbLoader    Load từ DB (đã convert sang DTO)
+     * @param cacheWriter Ghi kết quả vào cache
+     */
+    public <T> Optional<T> load(String key, Duration ttl, Supplier<T> cacheLookup,
+                                Supplier<Optional<T>> dbLoader, Consumer<T> cacheWriter) {
+        return load(key, ttl, null, cacheLookup, dbLoader, cacheWriter);
+    }
+
+    /**
+     * Như load(...) nhưng cache cả kết quả "không tồn tại"
+     *
+     * @param notFoundMarker Instance mà cacheLookup trả về khi key đang giữ RedisService.NOT_FOUND (so sánh ==)
+     * @param notFoundTtl    TTL của negative cache (nên ngắn)
+     */
+    public <T> Optional<T> load(String key, Duration ttl, T notFoundMarker, Duration notFoundTtl,
+                                Supplier<T> cacheLookup, Supplier<Optional<T>> dbLoader, Consumer<T> cacheWriter) {
+        return load(key, ttl, new NotFound<>(notFoundMarker, notFoundTtl), cacheLookup, dbLoader, cacheWriter);
+    }
+
+    private <T> Optional<T> load(String key, Duration ttl, NotFound<T> notFound, Supplier<T> cacheLookup,
+                                 Supplier<Optional<T>> dbLoader, Consumer<T> cacheWriter) {
+        Optional<T> cached = resolve(cacheLookup.get(), notFound);
+        if (cached != null) {
+            if (cached.isPresent() && shouldRefreshEarly(key)) {
+                refreshInBackground(key, ttl, dbLoader, cacheWriter);
+            }
+            return cached;
+        }
+        return singleFlight(key, () -> loadWithLease(key, ttl, notFound, cacheLookup, dbLoader, cacheWriter));
+    }
+
+    /**
+     * Xóa negative cache của key khi dữ liệu vừa được tạo (tạo mới / đổi slug, username, email)
+     *
+     * Chạy sau commit: request đọc DB trước commit có thể vừa ghi NOT_FOUND. Nếu key lúc đó đã
+     * giữ bản ghi thật thì chỉ mất 1 lần hit.
+     */
+    public void clearNotFound(String key) {
+        afterCommit(() -> redisService.delete(key));
+    }
+
+    /**
+     * Như clearNotFound(key) cho nhiều key, xóa trong 1 lệnh DEL
+     */
+    public void clearNotFound(Collection<String> keys) {
+        if (!keys.isEmpty()) {
+            afterCommit(() -> redisService.deleteAll(keys));
+        }
+    }
+
+    private void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * @return null nếu miss, Optional.empty() nếu negative cache hit, Optional.of(value) nếu hit
+     */
+    private <T> Optional<T> resolve(T cached, NotFound<T> notFound) {
+        if (cached == null) {
+            return null;
+        }
+        if (notFound != null && cached == notFound.marker()) {
+            count("negative_hit");
+            return Optional.empty();
+        }
+        return Optional.of(cached);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Optional<T> singleFlight(String key, Supplier<Optional<T>> task) {
+        CompletableFuture<Optional<?>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<?>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            count("coalesced");
+            try {
+                return (Optional<T>) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+        try {
+            Optional<T> result = task.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private <T> Optional<T> loadWithLease(String key, Duration ttl, NotFound<T> notFound, Supplier<T> cacheLookup,
+                                          Supplier<Optional<T>> dbLoader, Consumer<T> cacheWriter) {
+        String leaseKey = LEASE_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisService.tryAcquireLease(leaseKey, token, Duration.ofMillis(leaseMillis));
+
+        if (acquired == null) {
+            // Redis lỗi - không có lease, load thẳng
+            return loadAndStore(key, ttl, notFound, dbLoader, cacheWriter);
+        }
+        if (acquired) {
+            try {
+                // Node khác có thể vừa ghi xong trước khi mình lấy được lease
+                Optional<T> cached = resolve(cacheLookup.get(), notFound);
+                return cached != null ? cached : loadAndStore(key, ttl, notFound, dbLoader, cacheWriter);
+            } finally {
+                redisService.releaseLease(leaseKey, token);
+            }
+        }
+
+        // Node khác đang load - chờ nó ghi cache
+        count("lease_wait");
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Optional<T> cached = resolve(cacheLookup.get(), notFound);
+            if (cached != null) {
+                return cached;
+            }
+            if (!redisService.exists(leaseKey)) {
+                break; // Đã trả lease mà không ghi cache (không tìm thấy / lỗi) -> tự load
+            }
+        }
+        return loadAndStore(key, ttl, notFound, dbLoader, cacheWriter);
+    }
+
+    private <T> Optional<T> loadAndStore(String key, Duration ttl, NotFound<T> notFound,
+                                         Supplier<Optional<T>> dbLoader, Consumer<T> cacheWriter) {
+        count("load");
+        long start = System.currentTimeMillis();
+        Optional<T> loaded = ReadReplicaRoutingDataSource.onPrimary(dbLoader);
+        long now = System.currentTimeMillis();
+        if (loaded.isPresent()) {
+            cacheWriter.accept(loaded.get());
+            refreshMeta.put(key, new RefreshMeta(now + ttl.toMillis(), now - start));
+        } else if (notFound != null) {
+            redisService.setNotFound(key, notFound.ttl());
+        }
+        return loaded;
+    }
+
+    /** XFetch: now - delta * beta * ln(rand) >= expiry (ln(rand) < 0) */
+    private boolean shouldRefreshEarly(String key) {
+        RefreshMeta meta = refreshMeta.getIfPresent(key);
+        if (meta == null) {
+            return false;
+        }
+        double rand = ThreadLocalRandom.current().nextDouble();
+        double gap = -meta.deltaMillis() * beta * Math.log(rand);
+        return System.currentTimeMillis() + gap >= meta.expiresAtMillis();
+    }
+
+    private <T> void refreshInBackground(String key, Duration ttl, Supplier<Optional<T>> dbLoader, Consumer<T> cacheWriter) {
+        if (inFlight.containsKey(key)) {
+            return; // Đang có thread load key này
+        }
+        String leaseKey = LEASE_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        if (Boolean.FALSE.equals(redisService.tryAcquireLease(leaseKey, token, Duration.ofMillis(leaseMillis)))) {
+            return; // Node khác đang refresh
+        }
+        CompletableFuture<Optional<?>> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, mine) != null) {
+            redisService.releaseLease(leaseKey, token);
+            return;
+        }
+        count("early_refresh");
+        refresher.execute(() -> {
+            try {
+                mine.complete(loadAndStore(key, ttl, null, dbLoader, cacheWriter));
+            } catch (RuntimeException e) {
+                logger.warn("Early refresh failed for key: {}, error: {}", key, e.getMessage());
+                mine.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, mine);
+                redisService.releaseLease(leaseKey, token);
+            }
+        });
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("phonehub.cache.loader", "result", result).increment();
+    }
+}
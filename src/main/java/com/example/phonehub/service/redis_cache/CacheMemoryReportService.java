@@ -0,0 +1,77 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.service.RedisService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Báo cáo bộ nhớ Redis tiết kiệm được nhờ lưu alias key dạng con trỏ
+ *
+ * Với mỗi loại entity: đếm alias key bằng SCAN, lấy mẫu MEMORY USAGE của alias và
+ * của primary key nó trỏ tới. Nếu alias lưu bản copy DTO như trước thì mỗi alias tốn
+ * xấp xỉ bằng primary, nên phần tiết kiệm ≈ số alias × (primary - alias).
+ */
+@Service
+public class CacheMemoryReportService {
+
+    private static final int SAMPLE_SIZE = 200;
+
+    @Autowired
+    private RedisService redisService;
+
+    /** entity -> các pattern alias key */
+    private static final Map<String, List<String>> ALIAS_PATTERNS = Map.of(
+            "product", List.of("product:slug:*"),
+            "user", List.of("user:username:*", "user:email:*"),
+            "category", List.of("category:slug:*")
+    );
+
+    public Map<String, Object> buildReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        long totalSaved = 0;
+        for (Map.Entry<String, List<String>> entry : ALIAS_PATTERNS.entrySet()) {
+            Map<String, Object> stats = entityStats(entry.getValue());
+            totalSaved += (long) stats.get("estimatedBytesSaved");
+            report.put(entry.getKey(), stats);
+        }
+        report.put("totalEstimatedBytesSaved", totalSaved);
+        return report;
+    }
+
+    private Map<String, Object> entityStats(List<String> patterns) {
+        List<String> sample = new ArrayList<>();
+        long aliasCount = 0;
+        for (String pattern : patterns) {
+            aliasCount += redisService.scan(pattern, 500, batch -> {
+                int room = SAMPLE_SIZE - sample.size();
+                if (room > 0) {
+                    sample.addAll(batch.subList(0, Math.min(room, batch.size())));
+                }
+            });
+        }
+
+        long aliasBytes = 0;
+        long primaryBytes = 0;
+        List<long[]> usage = redisService.aliasMemoryUsage(sample);
+        for (long[] pair : usage) {
+            aliasBytes += pair[0];
+            primaryBytes += pair[1];
+        }
+        int sampled = usage.size();
+        long avgAlias = sampled > 0 ? aliasBytes / sampled : 0;
+        long avgPrimary = sampled > 0 ? primaryBytes / sampled : 0;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("aliasKeys", aliasCount);
+        stats.put("sampled", sampled);
+        stats.put("avgAliasBytes", avgAlias);
+        stats.put("avgPrimaryBytes", avgPrimary);
+        stats.put("estimatedBytesSaved", Math.max(0, aliasCount * (avgPrimary - avgAlias)));
+        return stats;
+    }
+}
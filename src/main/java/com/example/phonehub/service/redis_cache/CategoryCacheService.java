@@ -5,8 +5,12 @@ import com.example.phonehub.entity.Category;
 import com.example.phonehub.service.RedisService;
 import com.example.phonehub.utils.CategoryUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -16,10 +20,22 @@ public class CategoryCacheService {
     @Autowired
     private RedisService redisService;
     
+    @Autowired
+    private CacheAsideLoader cacheAsideLoader;
+    
+    @Autowired
+    private LookupBloomFilter lookupBloomFilter;
+    
+    @Value("${app.cache.negative-ttl-seconds:60}")
+    private long negativeTtlSeconds;
+    
     private static final String CACHE_PREFIX_CATEGORY = "category:";
     private static final String CACHE_PREFIX_CATEGORY_SLUG = "category:slug:";
     private static final long CACHE_TTL_HOURS = 2;
     
+    // Marker cho CacheAsideLoader khi slug đang được negative cache
+    private static final CategoryDto NOT_FOUND = new CategoryDto();
+    
     public String buildCacheKeyById(Integer categoryId) {
         return CACHE_PREFIX_CATEGORY + categoryId;
     }
@@ -33,15 +49,13 @@ public class CategoryCacheService {
             return;
         }
         
-        long cacheExpireSeconds = CACHE_TTL_HOURS * 3600;
-        
-        String cacheKeyById = buildCacheKeyById(categoryDto.getId());
-        redisService.set(cacheKeyById, categoryDto, cacheExpireSeconds);
-        
+        List<String> aliases = new ArrayList<>();
         if (categoryDto.getSlug() != null && !categoryDto.getSlug().trim().isEmpty()) {
-            String cacheKeyBySlug = buildCacheKeyBySlug(categoryDto.getSlug());
-            redisService.set(cacheKeyBySlug, categoryDto, cacheExpireSeconds);
+            aliases.add(buildCacheKeyBySlug(categoryDto.getSlug()));
         }
+        
+        // Slug chỉ lưu con trỏ "category:{id}"
+        redisService.setWithAliases(buildCacheKeyById(categoryDto.getId()), categoryDto, aliases, Duration.ofHours(CACHE_TTL_HOURS));
     }
     
     public CategoryDto getCategoryFromCacheById(Integer categoryId) {
@@ -51,33 +65,61 @@ public class CategoryCacheService {
     
     public CategoryDto getCategoryFromCacheBySlug(String slug) {
         if (slug == null || slug.trim().isEmpty()) return null;
-        return redisService.get(buildCacheKeyBySlug(slug), CategoryDto.class);
+        Object cached = redisService.getByAlias(buildCacheKeyBySlug(slug));
+        return cached instanceof CategoryDto dto ? dto : null;
+    }
+    
+    /**
+     * Đăng ký slug mới (tạo/đổi slug): thêm vào Bloom filter và xóa negative cache của slug
+     */
+    public void registerSlug(String slug) {
+        if (slug == null || slug.trim().isEmpty()) return;
+        lookupBloomFilter.add(LookupBloomFilter.CATEGORY_SLUG, slug);
+        cacheAsideLoader.clearNotFound(buildCacheKeyBySlug(slug));
     }
     
     public void removeCategoryFromCache(Integer categoryId, String slug) {
+        List<String> keys = new ArrayList<>();
         if (categoryId != null) {
-            redisService.delete(buildCacheKeyById(categoryId));
+            keys.add(buildCacheKeyById(categoryId));
         }
         
         if (slug != null && !slug.trim().isEmpty()) {
-            redisService.delete(buildCacheKeyBySlug(slug));
+            keys.add(buildCacheKeyBySlug(slug));
         }
+        redisService.deleteAll(keys);
     }
     
     public Optional<CategoryDto> getCategoryWithCacheStrategy(
-            CategoryDto cacheValue,
+            String cacheKey,
+            Supplier<CategoryDto> cacheLookup,
             Supplier<Optional<Category>> dbQuery) {
         
-        if (cacheValue != null) {
-            return Optional.of(cacheValue);
-        }
-        
-        Optional<Category> categoryFromDb = dbQuery.get();
-        Optional<CategoryDto> categoryDto = categoryFromDb.map(CategoryUtils::toDto);
-        
-        categoryDto.ifPresent(this::saveCategoryToCache);
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS), cacheLookup,
+                () -> dbQuery.get().map(CategoryUtils::toDto),
+                this::saveCategoryToCache);
+    }
+    
+    /**
+     * Tra cứu theo slug: Bloom filter loại slug chắc chắn không tồn tại, còn lại negative cache nếu DB không có
+     */
+    public Optional<CategoryDto> getCategoryBySlugWithCacheStrategy(
+            String slug,
+            Supplier<Optional<Category>> dbQuery) {
         
-        return categoryDto;
+        if (!lookupBloomFilter.mightExist(LookupBloomFilter.CATEGORY_SLUG, slug)) {
+            return Optional.empty();
+        }
+        String cacheKey = buildCacheKeyBySlug(slug);
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS),
+                NOT_FOUND, Duration.ofSeconds(negativeTtlSeconds),
+                () -> {
+                    Object cached = redisService.getByAlias(cacheKey);
+                    if (RedisService.isNotFound(cached)) return NOT_FOUND;
+                    return cached instanceof CategoryDto dto ? dto : null;
+                },
+                () -> dbQuery.get().map(CategoryUtils::toDto),
+                this::saveCategoryToCache);
     }
 }
 
@@ -0,0 +1,136 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.dto.CountedPage;
+import com.example.phonehub.dto.CountedPage.CountMode;
+import com.example.phonehub.service.RedisService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tổng số phần tử cho các Page danh sách mà không phải chạy COUNT(*) mỗi request
+ *
+ * Repository trả Slice (lấy dư 1 dòng để biết còn trang sau, không COUNT), tổng số được tính theo:
+ * - Trang cuối: offset + số phần tử, không cần query
+ * - CACHED (mặc định): đọc "count:{entity}:{query}" trên Redis, miss thì COUNT rồi ghi lại với TTL ngắn.
+ *   Key gắn tag "count:{entity}", mọi thay đổi entity gọi invalidate(entity) sau commit để xóa cả nhóm
+ * - ESTIMATED: danh sách không lọc lấy số dòng ước lượng từ thống kê bảng (cũng được cache),
+ *   không có ước lượng thì quay về CACHED
+ * - EXACT: luôn COUNT và ghi đè cache
+ */
+@Service
+public class CountCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CountCacheService.class);
+
+    public static final String PRODUCTS = "products";
+    public static final String ORDERS = "orders";
+    public static final String USERS = "users";
+
+    private static final String KEY_PREFIX = "count:";
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.count.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.cache.count.estimate-ttl-seconds:300}")
+    private long estimateTtlSeconds;
+
+    /**
+     * @param slice     Kết quả query dạng Slice (chưa đếm)
+     * @param mapper    Entity -> DTO
+     * @param entity    Nhóm invalidation (PRODUCTS, ORDERS, USERS)
+     * @param query     Tên query + tham số lọc, ví dụ "published:category:3"
+     * @param requested Chế độ client yêu cầu
+     * @param exact     COUNT(*) tương ứng với query
+     * @param estimate  Ước lượng cho danh sách không lọc, null nếu không hỗ trợ
+     */
+    public <E, D> CountedPage<D> page(Slice<E> slice, Function<E, D> mapper, String entity, String query,
+                                      CountMode requested, Supplier<Long> exact, Supplier<Long> estimate) {
+        List<D> content = slice.getContent().stream().map(mapper).toList();
+        Pageable pageable = slice.getPageable();
+        if (!slice.hasNext()) {
+            long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+            if (!content.isEmpty() || offset == 0) {
+                return counted(content, pageable, offset + content.size(), CountMode.EXACT);
+            }
+        }
+        String key = KEY_PREFIX + entity + ":" + query;
+        if (requested == CountMode.ESTIMATED && estimate != null) {
+            Long estimated = cachedEstimate(entity, key + ":est", estimate);
+            if (estimated != null) {
+                return counted(content, pageable, estimated, CountMode.ESTIMATED);
+            }
+        }
+        if (requested != CountMode.EXACT) {
+            Object cached = redisService.get(key);
+            if (cached instanceof Number number) {
+                return counted(content, pageable, number.longValue(), CountMode.CACHED);
+            }
+        }
+        long total = exact.get();
+        redisService.setWithTags(key, total, Duration.ofSeconds(ttlSeconds), KEY_PREFIX + entity);
+        return counted(content, pageable, total, CountMode.EXACT);
+    }
+
+    /**
+     * Xóa mọi count đã cache của entity, chạy sau commit để request khác không kịp
+     * cache lại số cũ đọc từ DB trước commit
+     */
+    public void invalidate(String entity) {
+        Runnable task = () -> redisService.invalidateTag(KEY_PREFIX + entity);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    private Long cachedEstimate(String entity, String key, Supplier<Long> estimate) {
+        Object cached = redisService.get(key);
+        if (cached instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            Long estimated = estimate.get();
+            if (estimated != null) {
+                // Không gắn tag: ước lượng vốn đã lệch, chỉ làm mới theo TTL
+                redisService.set(key, estimated, Duration.ofSeconds(estimateTtlSeconds));
+            }
+            return estimated;
+        } catch (RuntimeException e) {
+            logger.warn("Row estimate failed for {}, falling back to count cache: {}", entity, e.getMessage());
+            return null;
+        }
+    }
+
+    private <D> CountedPage<D> counted(List<D> content, Pageable pageable, long total, CountMode mode) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("phonehub.cache.count", "mode", mode.name().toLowerCase()).increment();
+        }
+        // PageImpl tự chỉnh total khi số cache/ước lượng nhỏ hơn vị trí trang hiện tại
+        return new CountedPage<>(content, pageable, total, mode);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.repository.CategoryRepository;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.RedisService;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bloom filter trong JVM cho các khóa tra cứu công khai (slug sản phẩm/danh mục, username, email)
+ *
+ * mightExist(...) = false nghĩa là chắc chắn không tồn tại -> trả 404 mà không chạm MySQL
+ * (chặn crawler, link hỏng). true thì đi tiếp cache -> DB như bình thường.
+ *
+ * - Build lại toàn bộ từ DB lúc khởi động và định kỳ (Bloom filter không xóa được phần tử,
+ *   rebuild để bỏ các giá trị đã xóa/đổi tên)
+ * - Giá trị mới (tạo/đổi slug, username, email) được add ngay, ghi vào sorted set {@value #RECENT_PREFIX}{filter}
+ *   (điểm = thời điểm thêm) và publish lên {@value #ADD_CHANNEL} cho các instance khác
+ * - Pub/sub không đảm bảo tới nơi (Redis reconnect...), nên filter trả "không có" thì còn hỏi lại sorted set
+ *   (1 ZSCORE) trước khi tin; Redis lỗi thì coi như có thể tồn tại. Sorted set giữ giá trị mới trong
+ *   recent-retention-ms, filter build cũ hơn khoảng đó (rebuild lỗi liên tục) thì không dùng kết quả âm
+ * - Chưa build xong (hoặc build lỗi) thì coi như mọi giá trị đều có thể tồn tại
+ */
+@Service
+public class LookupBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupBloomFilter.class);
+
+    public static final String PRODUCT_SLUG = "product:slug";
+    public static final String CATEGORY_SLUG = "category:slug";
+    public static final String USERNAME = "user:username";
+    public static final String EMAIL = "user:email";
+
+    public static final String ADD_CHANNEL = "bloom:add";
+    public static final String RECENT_PREFIX = "bloom:recent:";
+
+    // Lệch đồng hồ tối đa giữa các instance khi so điểm trong sorted set với thời điểm build
+    private static final long CLOCK_SKEW_MS = 300_000;
+
+    private static final int PUBLISH_CHUNK = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private RedisMessageListenerContainer redisListenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.bloom.fpp:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.cache.bloom.recent-retention-ms:7200000}")
+    private long recentRetentionMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /** Chỉ có giá trị sau lần build đầu tiên thành công */
+    private final Map<String, BloomFilter<String>> filters = new ConcurrentHashMap<>();
+
+    /** Các giá trị add trong lúc đang rebuild - replay vào filter mới trước khi thay */
+    private List<String[]> pendingAdds;
+
+    /** Thời điểm bắt đầu lần build thành công gần nhất (DB đọc sau thời điểm này) */
+    private volatile long builtAt;
+
+    @PostConstruct
+    void init() {
+        redisListenerContainer.addMessageListener(this::onAddMessage, new ChannelTopic(ADD_CHANNEL));
+    }
+
+    /**
+     * @return false nếu chắc chắn không tồn tại
+     */
+    public boolean mightExist(String filter, String value) {
+        BloomFilter<String> bloom = filters.get(filter);
+        if (bloom == null || value == null) {
+            return true;
+        }
+        String normalized = normalize(value);
+        if (bloom.mightContain(normalized)) {
+            return true;
+        }
+        // Giá trị thêm sau lần build cũ hơn khoảng giữ của sorted set có thể đã bị dọn: không kết luận được
+        if (System.currentTimeMillis() - builtAt >= recentRetentionMs - CLOCK_SKEW_MS) {
+            return true;
+        }
+        // Message bloom:add bị mất thì giá trị mới vẫn có trong sorted set
+        Boolean recent = redisService.sortedSetContains(RECENT_PREFIX + filter, normalized);
+        if (recent == null || recent) {
+            if (recent != null) {
+                addLocal(filter, normalized);
+            }
+            return true;
+        }
+        meterRegistry.counter("phonehub.cache.bloom.rejected", "filter", filter).increment();
+        return false;
+    }
+
+    /**
+     * Thêm giá trị mới vào filter của instance này và publish cho các instance khác
+     */
+    public void add(String filter, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+        addAll(filter, List.of(value));
+    }
+
+    /**
+     * Như add(...) cho nhiều giá trị (import hàng loạt): mỗi message chứa tối đa
+     * {@value #PUBLISH_CHUNK} giá trị, phân tách bằng xuống dòng
+     */
+    public void addAll(String filter, Collection<String> values) {
+        List<String> normalized = values.stream()
+                .filter(v -> v != null && !v.trim().isEmpty())
+                .map(LookupBloomFilter::normalize)
+                .toList();
+        for (String value : normalized) {
+            addLocal(filter, value);
+        }
+        double now = System.currentTimeMillis();
+        for (int from = 0; from < normalized.size(); from += PUBLISH_CHUNK) {
+            List<String> chunk = normalized.subList(from, Math.min(normalized.size(), from + PUBLISH_CHUNK));
+            Map<String, Double> recent = new HashMap<>(chunk.size() * 2);
+            chunk.forEach(value -> recent.put(value, now));
+            if (!redisService.sortedSetAdd(RECENT_PREFIX + filter, recent)) {
+                logger.warn("Could not record {} new {} values for other instances", chunk.size(), filter);
+            }
+            redisService.publish(ADD_CHANNEL, nodeId + ";" + filter + ";" + String.join("\n", chunk));
+        }
+    }
+
+    private synchronized void addLocal(String filter, String value) {
+        BloomFilter<String> bloom = filters.get(filter);
+        if (bloom != null) {
+            bloom.put(value);
+        }
+        if (pendingAdds != null) {
+            pendingAdds.add(new String[]{filter, value});
+        }
+    }
+
+    /**
+     * Build lại toàn bộ filter từ DB (lúc khởi động và định kỳ)
+     */
+    @Scheduled(initialDelayString = "${app.cache.bloom.initial-delay-ms:0}",
+            fixedDelayString = "${app.cache.bloom.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        synchronized (this) {
+            pendingAdds = new ArrayList<>();
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            Map<String, BloomFilter<String>> rebuilt = new HashMap<>();
+            rebuilt.put(PRODUCT_SLUG, build(productRepository::findAllSlugs));
+            rebuilt.put(CATEGORY_SLUG, build(categoryRepository::findAllSlugs));
+            rebuilt.put(USERNAME, build(userRepository::findAllUsernames));
+            rebuilt.put(EMAIL, build(userRepository::findAllEmails));
+            synchronized (this) {
+                for (String[] add : pendingAdds) {
+                    rebuilt.get(add[0]).put(add[1]);
+                }
+                filters.putAll(rebuilt);
+                builtAt = startedAt;
+            }
+            // Giá trị đã nằm trong DB từ lâu thì mọi filter còn dùng được đều đã có
+            for (String filter : rebuilt.keySet()) {
+                redisService.sortedSetRemoveRangeByScore(RECENT_PREFIX + filter, 0, startedAt - recentRetentionMs);
+            }
+            logger.info("Lookup Bloom filters rebuilt");
+        } catch (Exception e) {
+            logger.warn("Lookup Bloom filter rebuild failed, keeping previous filters: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                pendingAdds = null;
+            }
+        }
+    }
+
+    private BloomFilter<String> build(Supplier<List<String>> source) {
+        List<String> values = source.get();
+        // Dư chỗ gấp đôi cho giá trị thêm mới giữa 2 lần rebuild mà vẫn giữ tỉ lệ false positive
+        BloomFilter<String> bloom = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(1000, values.size() * 2L), falsePositiveRate);
+        for (String value : values) {
+            if (value != null) {
+                bloom.put(normalize(value));
+            }
+        }
+        return bloom;
+    }
+
+    private void onAddMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(";", 3);
+        if (parts.length == 3 && !nodeId.equals(parts[0])) {
+            for (String value : parts[2].split("\n")) {
+                addLocal(parts[1], value);
+            }
+        }
+    }
+
+    // Cache key và collation MySQL đều không phân biệt hoa thường
+    private static String normalize(String value) {
+        return value.trim().toLowerCase();
+    }
+}
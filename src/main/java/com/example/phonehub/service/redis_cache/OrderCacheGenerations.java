@@ -0,0 +1,103 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.service.RedisService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Generation (version) cho các nhóm trang cache của order
+ *
+ * Key của các cache danh sách được ghép thêm số generation, ví dụ:
+ *   orders:list::g12:success:p:0:s:10
+ * Muốn bỏ toàn bộ trang của một nhóm chỉ cần INCR generation (O(1), không SCAN Redis),
+ * các entry cũ không còn được đọc và tự hết hạn theo TTL của cache.
+ *
+ * Generation được lưu trong Redis để mọi instance dùng chung.
+ */
+@Component("orderCacheGenerations")
+public class OrderCacheGenerations {
+
+    private static final String GEN_PREFIX = "orders:gen:";
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /** Trang orders:list (admin, có items) */
+    public long list() {
+        return read(GEN_PREFIX + "list");
+    }
+
+    /** Trang orders:success:list (admin, không có items) */
+    public long summary() {
+        return read(GEN_PREFIX + "summary");
+    }
+
+    /** Trang orders:listByUser của một user */
+    public long user(Integer userId) {
+        return read(GEN_PREFIX + "user:" + userId);
+    }
+
+    /** Trang orderItems:byOrder của một order */
+    public long order(Integer orderId) {
+        return read(GEN_PREFIX + "order:" + orderId);
+    }
+
+    public void bumpList() {
+        bump(GEN_PREFIX + "list", "orders:list");
+    }
+
+    public void bumpSummary() {
+        bump(GEN_PREFIX + "summary", "orders:success:list");
+    }
+
+    public void bumpUser(Integer userId) {
+        if (userId != null) {
+            bump(GEN_PREFIX + "user:" + userId, "orders:listByUser");
+        }
+    }
+
+    public void bumpOrder(Integer orderId) {
+        if (orderId != null) {
+            bump(GEN_PREFIX + "order:" + orderId, "orderItems:byOrder");
+        }
+    }
+
+    private long read(String key) {
+        Object value = redisService.get(key);
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    /**
+     * Tăng generation sau khi transaction commit (tránh request khác đọc dữ liệu cũ từ DB
+     * rồi cache lại dưới generation mới). Nếu Redis lỗi (increment trả 0) thì clear cả cache
+     * để không trả trang cũ từ cache dự phòng.
+     */
+    private void bump(String key, String cacheName) {
+        Runnable task = () -> {
+            if (redisService.increment(key) == 0) {
+                Cache cache = cacheManager.getCache(cacheName);
+                if (cache != null) {
+                    // invalidate() chạy ngay, kể cả khi đang ở afterCommit (clear() sẽ bị hoãn theo transaction)
+                    cache.invalidate();
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+}
@@ -1,39 +1,81 @@
 package com.example.phonehub.service.redis_cache;
 
+import com.example.phonehub.config.ReadReplicaRoutingDataSource;
+import com.example.phonehub.dto.CountedPage.CountMode;
+import com.example.phonehub.dto.CursorPageDto;
 import com.example.phonehub.dto.OrderDto;
+import com.example.phonehub.entity.Order;
 import com.example.phonehub.repository.OrderRepository;
+import com.example.phonehub.utils.CursorUtils;
 import com.example.phonehub.utils.OrderUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * Các method @Cacheable chỉ chạy khi miss và kết quả được cache, nên đọc primary (onPrimary) thay vì replica
+ */
 @Service
 public class OrderCacheService {
 
     @Autowired
     private OrderRepository orderRepository;
 
-    @Cacheable(cacheNames = "orders:list", key = "'success:p:' + #page + ':s:' + #size")
+    @Autowired
+    private OrderCacheGenerations generations;
+
+    @Autowired
+    private CountCacheService countCacheService;
+
+    @Cacheable(cacheNames = "orders:list", key = "'g' + @orderCacheGenerations.list() + ':success:p:' + #page + ':s:' + #size")
+    @Transactional(readOnly = true)
     public Page<OrderDto> list(int page, int size) {
         Pageable p = PageRequest.of(page, size);
-        return OrderUtils.toDtoPage(orderRepository.findByStatus("success", p));
+        return ReadReplicaRoutingDataSource.onPrimary(() -> countCacheService.page(
+                orderRepository.findByStatus("success", p), OrderUtils::toDto,
+                CountCacheService.ORDERS, "status:success", CountMode.CACHED,
+                () -> orderRepository.countByStatus("success"), null));
     }
 
-    @Cacheable(cacheNames = "orders:listByUser", key = "'u:' + #userId + ':success:p:' + #page + ':s:' + #size")
+    /**
+     * Keyset pagination cho danh sách order "success" (mới nhất trước).
+     * Dùng chung cache "orders:list" nên bị xóa theo generation như list(...)
+     */
+    @Cacheable(cacheNames = "orders:list", key = "'g' + @orderCacheGenerations.list() + ':success:c:' + #cursor + ':s:' + #size + ':t:' + #includeTotal")
+    @Transactional(readOnly = true)
+    public CursorPageDto<OrderDto> listByCursor(String cursor, int size, boolean includeTotal) {
+        CursorUtils.Cursor after = CursorUtils.decode(cursor);
+        return ReadReplicaRoutingDataSource.onPrimary(() -> {
+            List<Order> rows = after == null
+                    ? orderRepository.findByStatusFirst("success", CursorUtils.limit(size))
+                    : orderRepository.findByStatusAfter("success", after.createdAt(), after.id(), CursorUtils.limit(size));
+            return CursorUtils.toPage(rows, size, OrderUtils::toDto,
+                    o -> CursorUtils.encode(o.getCreatedAt(), o.getId()),
+                    includeTotal ? orderRepository.countByStatus("success") : null);
+        });
+    }
+
+    @Cacheable(cacheNames = "orders:listByUser", key = "'u:' + #userId + ':g' + @orderCacheGenerations.user(#userId) + ':success:p:' + #page + ':s:' + #size")
+    @Transactional(readOnly = true)
     public Page<OrderDto> listByUser(Integer userId, int page, int size) {
         Pageable p = PageRequest.of(page, size);
-        return OrderUtils.toDtoPage(orderRepository.findByUser_IdAndStatus(userId, "success", p));
+        return ReadReplicaRoutingDataSource.onPrimary(
+                () -> OrderUtils.toDtoPage(orderRepository.findByUser_IdAndStatus(userId, "success", p)));
     }
 
     @Cacheable(cacheNames = "orders:byId", key = "#id")
+    @Transactional(readOnly = true)
     public Optional<OrderDto> byId(Integer id) {
-        return orderRepository.findById(id).map(OrderUtils::toDto);
+        return ReadReplicaRoutingDataSource.onPrimary(() -> orderRepository.findById(id).map(OrderUtils::toDto));
     }
 
     @CacheEvict(cacheNames = { "orders:list", "orders:listByUser", "orders:byId", "orders:spent", "orders:success:list" }, allEntries = true)
@@ -41,18 +83,57 @@ public class OrderCacheService {
         // No-op. Annotation handles eviction.
     }
 
+    /**
+     * Order mới tạo (pending): chưa nằm trong danh sách nào (chỉ liệt kê "success"),
+     * chỉ cần xóa entry byId (có thể đã cache Optional.empty trước đó)
+     */
+    @CacheEvict(cacheNames = "orders:byId", key = "#orderId")
+    public void evictOrderDetail(Integer orderId) {
+        // No-op. Annotation handles eviction.
+    }
+
+    /**
+     * Order đổi trạng thái / tổng tiền: xóa byId + tổng chi tiêu của user,
+     * bỏ các trang danh sách của user và của admin bằng cách tăng generation
+     */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "orders:byId", key = "#orderId"),
+            @CacheEvict(cacheNames = "orders:spent", key = "'u:' + #userId", condition = "#userId != null")
+    })
+    public void evictOrder(Integer orderId, Integer userId) {
+        countCacheService.invalidate(CountCacheService.ORDERS);
+        generations.bumpList();
+        generations.bumpSummary();
+        generations.bumpUser(userId);
+    }
+
+    /**
+     * Items của order thay đổi (thêm item, review): chỉ ảnh hưởng các view có items,
+     * danh sách không items (orders:success:list) và tổng chi tiêu giữ nguyên
+     */
+    @CacheEvict(cacheNames = "orders:byId", key = "#orderId")
+    public void evictOrderItems(Integer orderId, Integer userId) {
+        generations.bumpList();
+        generations.bumpUser(userId);
+    }
+
     @Cacheable(cacheNames = "orders:spent", key = "'u:' + #userId")
+    @Transactional(readOnly = true)
     public java.math.BigDecimal totalSpentByUser(Integer userId) {
-        return orderRepository.sumTotalSpentByUser(userId);
+        return ReadReplicaRoutingDataSource.onPrimary(() -> orderRepository.sumTotalSpentByUser(userId));
     }
 
     /**
      * Lấy danh sách orders thành công không có items (dành cho admin)
      * Cache riêng để tối ưu performance
      */
-    @Cacheable(cacheNames = "orders:success:list", key = "'p:' + #page + ':s:' + #size")
+    @Cacheable(cacheNames = "orders:success:list", key = "'g' + @orderCacheGenerations.summary() + ':p:' + #page + ':s:' + #size")
+    @Transactional(readOnly = true)
     public Page<OrderDto> listSuccessWithoutItems(int page, int size) {
         Pageable p = PageRequest.of(page, size);
-        return OrderUtils.toDtoPageWithoutItems(orderRepository.findByStatus("success", p));
+        return ReadReplicaRoutingDataSource.onPrimary(() -> countCacheService.page(
+                orderRepository.findSummariesByStatus("success", p), OrderUtils::toDtoWithoutItems,
+                CountCacheService.ORDERS, "status:success", CountMode.CACHED,
+                () -> orderRepository.countByStatus("success"), null));
     }
 }
@@ -1,5 +1,6 @@
 package com.example.phonehub.service.redis_cache;
 
+import com.example.phonehub.config.ReadReplicaRoutingDataSource;
 import com.example.phonehub.dto.OrderItemDto;
 import com.example.phonehub.entity.OrderItem;
 import com.example.phonehub.repository.OrderItemRepository;
@@ -22,24 +23,36 @@ public class OrderItemCacheService {
     private OrderItemRepository orderItemRepository;
     @Autowired
     private OrderRepository orderRepository;
+    @Autowired
+    private OrderCacheGenerations generations;
 
-    @Cacheable(cacheNames = "orderItems:byOrder", key = "'o:' + #orderId + ':p:' + #page + ':s:' + #size")
+    @Cacheable(cacheNames = "orderItems:byOrder", key = "'o:' + #orderId + ':g' + @orderCacheGenerations.order(#orderId) + ':p:' + #page + ':s:' + #size")
     public Page<OrderItemDto> listByOrder(Integer orderId, int page, int size) {
-        if (!orderRepository.existsById(orderId)) {
-            throw new RuntimeException("Order not found: " + orderId);
-        }
-        Pageable pageable = PageRequest.of(page, size);
-        Page<OrderItem> items = orderItemRepository.findByOrder_Id(orderId, pageable);
-        return items.map(OrderUtils::toItemDto);
+        return ReadReplicaRoutingDataSource.onPrimary(() -> {
+            if (!orderRepository.existsById(orderId)) {
+                throw new RuntimeException("Order not found: " + orderId);
+            }
+            Pageable pageable = PageRequest.of(page, size);
+            Page<OrderItem> items = orderItemRepository.findByOrder_Id(orderId, pageable);
+            return items.map(OrderUtils::toItemDto);
+        });
     }
 
     @Cacheable(cacheNames = "orderItems:byId", key = "#id")
     public Optional<OrderItemDto> byId(Integer id) {
-        return orderItemRepository.findById(id).map(OrderUtils::toItemDto);
+        return ReadReplicaRoutingDataSource.onPrimary(() -> orderItemRepository.findById(id).map(OrderUtils::toItemDto));
     }
 
     @CacheEvict(cacheNames = { "orderItems:byOrder", "orderItems:byId" }, allEntries = true)
     public void evictAll() {
         // No-op. Annotation handles eviction.
     }
+
+    /**
+     * Item thay đổi: xóa entry byId của item (nếu có) và bỏ các trang item của order đó
+     */
+    @CacheEvict(cacheNames = "orderItems:byId", key = "#itemId", condition = "#itemId != null")
+    public void evictItem(Integer itemId, Integer orderId) {
+        generations.bumpOrder(orderId);
+    }
 }
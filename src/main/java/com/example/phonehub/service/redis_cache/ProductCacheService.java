@@ -4,80 +4,329 @@ import com.example.phonehub.dto.ProductDto;
 import com.example.phonehub.entity.Product;
 import com.example.phonehub.service.RedisService;
 import com.example.phonehub.utils.ProductUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+/**
+ * Cache sản phẩm 2 tầng:
+ * - L1: Caffeine trong JVM (W-TinyLFU, giới hạn số entry, TTL ngắn) - đọc không tốn network
+ * - L2: Redis dùng chung giữa các instance
+ *
+ * Trong Redis chỉ có 1 bản DTO ở "product:{id}", key "product:slug:{slug}" chỉ lưu con trỏ "product:{id}".
+ * Slug không tồn tại: Bloom filter chặn trước, lọt qua thì negative cache ngắn ở "product:slug:{slug}".
+ *
+ * Khi sản phẩm thay đổi, instance ghi sẽ publish danh sách key lên channel
+ * {@value #INVALIDATION_CHANNEL} sau khi transaction commit, các instance khác xóa L1 tương ứng.
+ */
 @Service
 public class ProductCacheService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProductCacheService.class);
+
+    public static final String INVALIDATION_CHANNEL = "product:invalidate";
+
     @Autowired
     private RedisService redisService;
-    
+
+    @Autowired
+    private CacheAsideLoader cacheAsideLoader;
+
+    @Autowired
+    private LookupBloomFilter lookupBloomFilter;
+
+    @Autowired
+    private RedisMessageListenerContainer redisListenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.product.l1.max-size:1000}")
+    private long l1MaxSize;
+
+    @Value("${app.cache.product.l1.ttl-seconds:60}")
+    private long l1TtlSeconds;
+
+    @Value("${app.cache.negative-ttl-seconds:60}")
+    private long negativeTtlSeconds;
+
     private static final String CACHE_PREFIX_PRODUCT = "product:";
     private static final String CACHE_PREFIX_PRODUCT_SLUG = "product:slug:";
+    private static final String CACHE_PREFIX_PRODUCT_SUMMARY = "product:summary:";
     private static final long CACHE_TTL_HOURS = 1;
-    
+
+    // Marker trả về cho CacheAsideLoader khi slug đang được negative cache (so sánh ==, không bao giờ trả ra ngoài)
+    private static final ProductDto NOT_FOUND = new ProductDto();
+
+    // Id của instance hiện tại - bỏ qua message invalidation do chính mình publish
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Cache<String, ProductDto> localCache;
+    private Counter l1Hits;
+    private Counter l2Hits;
+    private Counter dbLoads;
+
+    @PostConstruct
+    void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(Duration.ofSeconds(l1TtlSeconds))
+                .recordStats()
+                .build();
+        l1Hits = tierCounter("l1");
+        l2Hits = tierCounter("l2");
+        dbLoads = tierCounter("db");
+        meterRegistry.gauge("phonehub.cache.product.l1.size", localCache, Cache::estimatedSize);
+        redisListenerContainer.addMessageListener(this::onInvalidationMessage, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    private Counter tierCounter(String tier) {
+        return Counter.builder("phonehub.cache.product.requests")
+                .description("Số lần đọc sản phẩm theo tầng phục vụ")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
     public String buildCacheKeyById(Integer productId) {
         return CACHE_PREFIX_PRODUCT + productId;
     }
-    
+
     public String buildCacheKeyBySlug(String slug) {
         return CACHE_PREFIX_PRODUCT_SLUG + slug.toLowerCase();
     }
-    
+
+    public String buildCacheKeyForSummary(Integer productId) {
+        return CACHE_PREFIX_PRODUCT_SUMMARY + productId;
+    }
+
     public void saveProductToCache(ProductDto productDto) {
         if (productDto == null || productDto.getId() == null) {
             return;
         }
-        
-        long cacheExpireSeconds = CACHE_TTL_HOURS * 3600;
-        
+
         String cacheKeyById = buildCacheKeyById(productDto.getId());
-        redisService.set(cacheKeyById, productDto, cacheExpireSeconds);
-        
+        List<String> aliases = new ArrayList<>();
         if (productDto.getSlug() != null && !productDto.getSlug().trim().isEmpty()) {
-            String cacheKeyBySlug = buildCacheKeyBySlug(productDto.getSlug());
-            redisService.set(cacheKeyBySlug, productDto, cacheExpireSeconds);
+            aliases.add(buildCacheKeyBySlug(productDto.getSlug()));
         }
+
+        // DTO lưu 1 lần theo id, slug chỉ là con trỏ - ghi trong 1 round-trip
+        redisService.setWithAliases(cacheKeyById, productDto, aliases, Duration.ofHours(CACHE_TTL_HOURS));
+        localCache.put(cacheKeyById, productDto);
+        aliases.forEach(key -> localCache.put(key, productDto));
     }
-    
+
     public ProductDto getProductFromCacheById(Integer productId) {
         if (productId == null) return null;
-        return redisService.get(buildCacheKeyById(productId), ProductDto.class);
+        return getTwoTier(buildCacheKeyById(productId), false);
     }
-    
+
     public ProductDto getProductFromCacheBySlug(String slug) {
         if (slug == null || slug.trim().isEmpty()) return null;
-        return redisService.get(buildCacheKeyBySlug(slug), ProductDto.class);
+        ProductDto cached = getTwoTier(buildCacheKeyBySlug(slug), true);
+        return cached == NOT_FOUND ? null : cached;
     }
-    
+
+    private ProductDto getTwoTier(String key, boolean alias) {
+        ProductDto local = localCache.getIfPresent(key);
+        if (local != null) {
+            l1Hits.increment();
+            return local;
+        }
+        Object cached = alias ? redisService.getByAlias(key) : redisService.get(key);
+        if (RedisService.isNotFound(cached)) {
+            return NOT_FOUND;
+        }
+        ProductDto remote = cached instanceof ProductDto dto ? dto : null;
+        if (remote != null) {
+            l2Hits.increment();
+            localCache.put(key, remote);
+        }
+        return remote;
+    }
+
+    /**
+     * Summary của nhiều sản phẩm (giỏ hàng): L1 -> Redis MGET 1 round-trip -> 1 query IN cho phần còn thiếu
+     * Summary lưu ở key riêng, không lẫn với DTO chi tiết (product:{id}) của trang sản phẩm
+     *
+     * @param dbLoader nạp summary các id còn thiếu, id không có trong DB thì không có trong kết quả
+     * @return productId -> summary
+     */
+    public Map<Integer, ProductDto> getProductSummaries(Collection<Integer> productIds,
+                                                       Function<Collection<Integer>, List<ProductDto>> dbLoader) {
+        Map<Integer, ProductDto> result = new HashMap<>(productIds.size() * 2);
+        List<String> remoteKeys = new ArrayList<>();
+        for (Integer productId : productIds) {
+            String key = buildCacheKeyForSummary(productId);
+            ProductDto local = localCache.getIfPresent(key);
+            if (local != null) {
+                l1Hits.increment();
+                result.put(productId, local);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return result;
+        }
+        for (Map.Entry<String, Object> entry : redisService.multiGet(remoteKeys).entrySet()) {
+            if (entry.getValue() instanceof ProductDto dto) {
+                l2Hits.increment();
+                localCache.put(entry.getKey(), dto);
+                result.put(dto.getId(), dto);
+            }
+        }
+        List<Integer> missing = productIds.stream().filter(id -> !result.containsKey(id)).distinct().toList();
+        if (missing.isEmpty()) {
+            return result;
+        }
+        Map<String, Object> loaded = new HashMap<>(missing.size() * 2);
+        for (ProductDto dto : dbLoader.apply(missing)) {
+            dbLoads.increment();
+            String key = buildCacheKeyForSummary(dto.getId());
+            loaded.put(key, dto);
+            localCache.put(key, dto);
+            result.put(dto.getId(), dto);
+        }
+        if (!loaded.isEmpty()) {
+            redisService.multiSetWithTtl(loaded, Duration.ofHours(CACHE_TTL_HOURS));
+        }
+        return result;
+    }
+
+    /**
+     * Đăng ký slug mới (tạo/đổi slug): thêm vào Bloom filter và xóa negative cache của slug
+     */
+    public void registerSlug(String slug) {
+        if (slug == null || slug.trim().isEmpty()) return;
+        lookupBloomFilter.add(LookupBloomFilter.PRODUCT_SLUG, slug);
+        cacheAsideLoader.clearNotFound(buildCacheKeyBySlug(slug));
+    }
+
+    /**
+     * Như registerSlug(...) cho nhiều slug (import hàng loạt): gom publish Bloom filter và xóa negative cache 1 lần
+     */
+    public void registerSlugs(Collection<String> slugs) {
+        List<String> valid = slugs.stream().filter(s -> s != null && !s.trim().isEmpty()).toList();
+        if (valid.isEmpty()) return;
+        lookupBloomFilter.addAll(LookupBloomFilter.PRODUCT_SLUG, valid);
+        cacheAsideLoader.clearNotFound(valid.stream().map(this::buildCacheKeyBySlug).toList());
+    }
+
     public void removeProductFromCache(Integer productId, String slug) {
+        List<String> keys = new ArrayList<>();
         if (productId != null) {
-            redisService.delete(buildCacheKeyById(productId));
+            keys.add(buildCacheKeyById(productId));
+            keys.add(buildCacheKeyForSummary(productId));
         }
-        
+
         if (slug != null && !slug.trim().isEmpty()) {
-            redisService.delete(buildCacheKeyBySlug(slug));
+            keys.add(buildCacheKeyBySlug(slug));
         }
+        redisService.deleteAll(keys);
+        localCache.invalidateAll(keys);
     }
-    
+
+    /**
+     * Báo cho các instance khác xóa L1 của sản phẩm (theo id và các slug cũ/mới).
+     * Nếu đang trong transaction thì chỉ publish sau khi commit để tránh instance khác
+     * đọc lại dữ liệu cũ từ DB trước khi commit xong.
+     */
+    public void publishInvalidation(Integer productId, String... slugs) {
+        List<String> keys = new ArrayList<>();
+        if (productId != null) {
+            keys.add(buildCacheKeyById(productId));
+            keys.add(buildCacheKeyForSummary(productId));
+        }
+        for (String slug : slugs) {
+            if (slug != null && !slug.trim().isEmpty()) {
+                keys.add(buildCacheKeyBySlug(slug));
+            }
+        }
+        if (keys.isEmpty()) return;
+
+        String payload = nodeId + ";" + String.join(",", keys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    redisService.publish(INVALIDATION_CHANNEL, payload);
+                }
+            });
+        } else {
+            redisService.publish(INVALIDATION_CHANNEL, payload);
+        }
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = payload.indexOf(';');
+        if (separator < 0 || nodeId.equals(payload.substring(0, separator))) {
+            return;
+        }
+        for (String key : payload.substring(separator + 1).split(",")) {
+            localCache.invalidate(key);
+        }
+        logger.debug("Product L1 invalidated: {}", payload);
+    }
+
+    /**
+     * Cache-aside qua CacheAsideLoader: miss đồng thời trên cùng key chỉ chạy 1 query DB
+     * (single-flight + lease Redis), key nóng được refresh sớm trước khi hết TTL
+     */
     public Optional<ProductDto> getProductWithCacheStrategy(
-            ProductDto cacheValue,
+            String cacheKey,
+            Supplier<ProductDto> cacheLookup,
             Supplier<Optional<Product>> dbQuery) {
-        
-        if (cacheValue != null) {
-            return Optional.of(cacheValue);
-        }
-        
-        Optional<Product> productFromDb = dbQuery.get();
-        Optional<ProductDto> productDto = productFromDb.map(ProductUtils::toDto);
-        
-        productDto.ifPresent(this::saveProductToCache);
-        
-        return productDto;
+
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS), cacheLookup,
+                () -> {
+                    dbLoads.increment();
+                    return dbQuery.get().map(ProductUtils::toDto);
+                },
+                this::saveProductToCache);
     }
-}
 
+    /**
+     * Tra cứu theo slug (link công khai, crawler): Bloom filter loại slug chắc chắn không tồn tại,
+     * slug lọt qua mà DB không có thì negative cache {@code app.cache.negative-ttl-seconds}
+     */
+    public Optional<ProductDto> getProductBySlugWithCacheStrategy(String slug, Supplier<Optional<Product>> dbQuery) {
+        if (!lookupBloomFilter.mightExist(LookupBloomFilter.PRODUCT_SLUG, slug)) {
+            return Optional.empty();
+        }
+        String cacheKey = buildCacheKeyBySlug(slug);
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS),
+                NOT_FOUND, Duration.ofSeconds(negativeTtlSeconds),
+                () -> getTwoTier(cacheKey, true),
+                () -> {
+                    dbLoads.increment();
+                    return dbQuery.get().map(ProductUtils::toDto);
+                },
+                this::saveProductToCache);
+    }
+}
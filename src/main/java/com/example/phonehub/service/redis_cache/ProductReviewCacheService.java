@@ -1,9 +1,20 @@
 package com.example.phonehub.service.redis_cache;
 
+import com.example.phonehub.entity.ProductRatingSummary;
 import com.example.phonehub.service.RedisService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache thống kê đánh giá theo sản phẩm dạng Redis hash product:review:stats:{id}
+ * (field count, sum, 1..5), nạp từ product_rating_summaries khi đọc, cộng dồn bằng HINCRBY sau commit
+ */
 @Service
 public class ProductReviewCacheService {
 
@@ -11,17 +22,77 @@ public class ProductReviewCacheService {
     private RedisService redisService;
     
     private static final String CACHE_PREFIX_REVIEW_STATS = "product:review:stats:";
+    private static final Duration STATS_TTL = Duration.ofMinutes(10);
+    private static final String FIELD_COUNT = "count";
+    private static final String FIELD_SUM = "sum";
     
     public String buildCacheKeyForStats(Integer productId) {
         return CACHE_PREFIX_REVIEW_STATS + productId;
     }
+
+    /**
+     * @return thống kê đang cache, null nếu chưa có (hoặc Redis lỗi / dữ liệu hỏng)
+     */
+    public ProductRatingSummary getStats(Integer productId) {
+        Map<String, String> fields = redisService.hashGetAll(buildCacheKeyForStats(productId));
+        if (fields == null || !fields.containsKey(FIELD_COUNT)) return null;
+        try {
+            ProductRatingSummary summary = new ProductRatingSummary(productId);
+            summary.setReviewCount(Long.parseLong(fields.get(FIELD_COUNT)));
+            summary.setRatingSum(Long.parseLong(fields.getOrDefault(FIELD_SUM, "0")));
+            for (int rating = 1; rating <= 5; rating++) {
+                summary.setStars(rating, Long.parseLong(fields.getOrDefault(Integer.toString(rating), "0")));
+            }
+            return summary;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void putStats(ProductRatingSummary summary) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_COUNT, Long.toString(summary.getReviewCount()));
+        fields.put(FIELD_SUM, Long.toString(summary.getRatingSum()));
+        for (int rating = 1; rating <= 5; rating++) {
+            fields.put(Integer.toString(rating), Long.toString(summary.getStars(rating)));
+        }
+        redisService.hashPutAll(buildCacheKeyForStats(summary.getProductId()), fields, STATS_TTL);
+    }
+
+    /**
+     * Cộng dồn thay đổi vào hash sau commit; hash chưa được nạp thì bỏ qua (lần đọc sau nạp từ DB)
+     *
+     * @param stars delta theo mức sao, stars[1..5]
+     */
+    public void applyStatsDelta(Integer productId, long count, long sum, long[] stars) {
+        Map<String, Long> deltas = new HashMap<>();
+        deltas.put(FIELD_COUNT, count);
+        deltas.put(FIELD_SUM, sum);
+        for (int rating = 1; rating <= 5; rating++) {
+            deltas.put(Integer.toString(rating), stars[rating]);
+        }
+        afterCommit(() -> redisService.hashIncrementIfExists(buildCacheKeyForStats(productId), deltas));
+    }
     
     public void invalidateProductReviewCache(Integer productId) {
         if (productId == null) return;
-        redisService.delete(buildCacheKeyForStats(productId));
+        afterCommit(() -> redisService.delete(buildCacheKeyForStats(productId)));
     }
     
     public void invalidateUserReviewCache(Integer userId) {
     }
-}
 
+    // Chạy sau commit để request khác không kịp nạp lại số liệu cũ
+    private static void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+}
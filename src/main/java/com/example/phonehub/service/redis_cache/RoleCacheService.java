@@ -5,8 +5,14 @@ import com.example.phonehub.entity.Role;
 import com.example.phonehub.service.RedisService;
 import com.example.phonehub.utils.RoleUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -26,10 +32,14 @@ public class RoleCacheService {
     @Autowired
     private RedisService redisService;
     
+    @Autowired
+    private CacheAsideLoader cacheAsideLoader;
+    
     // ========== ⚡ CACHE CONFIGURATION ==========
     private static final String CACHE_PREFIX_ROLE = "role:";
     private static final String CACHE_PREFIX_ROLE_NAME = "role:name:";
     private static final String CACHE_PREFIX_ROLE_PAGE = "role:page:"; // Cache cho phân trang: "role:page:0:10"
+    private static final String TAG_ROLE_PAGES = "role:pages"; // Tag set "tag:role:pages" chứa mọi key phân trang
     private static final long CACHE_TTL_HOURS = 3; // Cache hết hạn sau 3 giờ (role ít thay đổi nhất)
     
     // ========== 🎯 BUILD CACHE KEYS ==========
@@ -80,17 +90,33 @@ public class RoleCacheService {
             return;
         }
         
-        long cacheExpireSeconds = CACHE_TTL_HOURS * 3600;
+        Map<String, Object> entries = new LinkedHashMap<>();
         
         // Cache theo ID
-        String cacheKeyById = buildCacheKeyById(roleDto.getId());
-        redisService.set(cacheKeyById, roleDto, cacheExpireSeconds);
+        entries.put(buildCacheKeyById(roleDto.getId()), roleDto);
         
         // Cache theo name (nếu có)
         if (roleDto.getName() != null && !roleDto.getName().trim().isEmpty()) {
-            String cacheKeyByName = buildCacheKeyByName(roleDto.getName());
-            redisService.set(cacheKeyByName, roleDto, cacheExpireSeconds);
+            entries.put(buildCacheKeyByName(roleDto.getName()), roleDto);
         }
+        
+        // ⚡ Ghi cả 2 keys trong 1 round-trip
+        redisService.multiSetWithTtl(entries, Duration.ofHours(CACHE_TTL_HOURS));
+    }
+    
+    /**
+     * 💾 Lưu một trang roles vào cache và đăng ký key vào tag "role:pages"
+     * 
+     * @param page Số trang
+     * @param size Số lượng mỗi trang
+     * @param rolePage Trang RoleDto cần lưu
+     */
+    public void saveRolePageToCache(int page, int size, Page<RoleDto> rolePage) {
+        if (rolePage == null) {
+            return;
+        }
+        redisService.setWithTags(buildCacheKeyForPage(page, size), rolePage,
+                Duration.ofHours(CACHE_TTL_HOURS), TAG_ROLE_PAGES);
     }
     
     // ========== 🔍 GET FROM CACHE ==========
@@ -117,6 +143,22 @@ public class RoleCacheService {
         return redisService.get(buildCacheKeyByName(name), RoleDto.class);
     }
     
+    /**
+     * 🔍 Lấy một trang roles từ cache
+     * 
+     * @param page Số trang
+     * @param size Số lượng mỗi trang
+     * @return Page<RoleDto> nếu có trong cache, null nếu không có
+     */
+    @SuppressWarnings("unchecked")
+    public Page<RoleDto> getRolePageFromCache(int page, int size) {
+        Object cached = redisService.get(buildCacheKeyForPage(page, size));
+        if (cached instanceof Page) {
+            return (Page<RoleDto>) cached;
+        }
+        return null;
+    }
+    
     // ========== 🗑️ REMOVE FROM CACHE ==========
     
     /**
@@ -128,30 +170,30 @@ public class RoleCacheService {
      * @param name Tên của role (optional, null nếu không có)
      */
     public void removeRoleFromCache(Integer roleId, String name) {
+        List<String> keys = new ArrayList<>();
+        
         // Xóa cache theo ID
         if (roleId != null) {
-            redisService.delete(buildCacheKeyById(roleId));
+            keys.add(buildCacheKeyById(roleId));
         }
         
         // Xóa cache theo name (nếu có)
         if (name != null && !name.trim().isEmpty()) {
-            redisService.delete(buildCacheKeyByName(name));
+            keys.add(buildCacheKeyByName(name));
         }
+        redisService.deleteAll(keys);
         
-        // Lưu ý: Không xóa cache phân trang vì có thể có nhiều trang khác nhau
-        // Nên để tự động expire hoặc invalidate khi cần (có thể xóa tất cả keys "role:page:*" nếu cần)
+        // Lưu ý: Cache phân trang xóa riêng qua invalidateRolePageCache() (theo tag)
     }
     
     /**
-     * 🗑️ Xóa tất cả cache phân trang roles (khi có thay đổi lớn)
+     * 🗑️ Xóa tất cả cache phân trang roles (khi create/update/delete role)
      * 
-     * Lưu ý: Có thể xóa tất cả keys "role:page:*" nếu cần, nhưng tốn performance
-     * Nên để tự động expire hoặc invalidate từng cái khi update/delete
+     * Mỗi key "role:page:*" được đăng ký vào tag set khi lưu, nên chỉ cần duyệt tag set
+     * (SSCAN + UNLINK theo batch) thay vì KEYS "role:page:*" - không block Redis
      */
     public void invalidateRolePageCache() {
-        // Có thể implement xóa tất cả keys "role:page:*" nếu cần
-        // Nhưng để tránh tốn performance, chỉ invalidate khi cần thiết
-        // Hoặc để tự động expire
+        redisService.invalidateTag(TAG_ROLE_PAGES);
     }
     
     // ========== 🎁 CACHE-ASIDE PATTERN ==========
@@ -159,35 +201,25 @@ public class RoleCacheService {
     /**
      * 🎁 Pattern chung: Lấy role từ cache, nếu không có thì lấy từ DB và cache lại
      * 
-     * Cache-aside pattern (Lazy Loading):
-     * 1. Check cache → Nếu có → Return ngay (FAST ⚡)
-     * 2. Nếu không có → Query database
+     * Cache-aside pattern (Lazy Loading) qua CacheAsideLoader:
+     * 1. Check cache → Nếu có → Return ngay (FAST ⚡), key nóng sắp hết hạn thì refresh nền
+     * 2. Nếu không có → Query database (mỗi key chỉ 1 request/1 node chạy query, còn lại chờ kết quả)
      * 3. Convert Role → RoleDto
      * 4. Lưu kết quả vào cache → Return (chậm hơn lần đầu, nhưng lần sau sẽ nhanh)
      * 
-     * @param cacheValue RoleDto từ cache (null nếu không có)
+     * @param cacheKey Key tra cứu (dùng để gộp các request cùng miss)
+     * @param cacheLookup Lambda function để đọc cache (null nếu không có)
      * @param dbQuery Lambda function để query từ database
      * @return Optional<RoleDto>
      */
     public Optional<RoleDto> getRoleWithCacheStrategy(
-            RoleDto cacheValue,
+            String cacheKey,
+            Supplier<RoleDto> cacheLookup,
             Supplier<Optional<Role>> dbQuery) {
         
-        // ✅ Bước 1: Nếu có trong cache → Return ngay (CACHE HIT - nhanh nhất)
-        if (cacheValue != null) {
-            return Optional.of(cacheValue);
-        }
-        
-        // ❌ Bước 2: Không có trong cache → Query từ database (CACHE MISS)
-        Optional<Role> roleFromDb = dbQuery.get();
-        
-        // Bước 3: Convert Role → RoleDto
-        Optional<RoleDto> roleDto = roleFromDb.map(RoleUtils::toDto);
-        
-        // Bước 4: Lưu vào cache để lần sau nhanh hơn
-        roleDto.ifPresent(this::saveRoleToCache);
-        
-        return roleDto;
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS), cacheLookup,
+                () -> dbQuery.get().map(RoleUtils::toDto),
+                this::saveRoleToCache);
     }
 }
 
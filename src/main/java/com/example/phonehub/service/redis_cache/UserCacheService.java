@@ -4,8 +4,12 @@ import com.example.phonehub.dto.UserDto;
 import com.example.phonehub.entity.User;
 import com.example.phonehub.service.RedisService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -26,12 +30,24 @@ public class UserCacheService {
     @Autowired
     private RedisService redisService;
     
+    @Autowired
+    private CacheAsideLoader cacheAsideLoader;
+    
+    @Autowired
+    private LookupBloomFilter lookupBloomFilter;
+    
+    @Value("${app.cache.negative-ttl-seconds:60}")
+    private long negativeTtlSeconds;
+    
     // ========== ⚡ CACHE CONFIGURATION ==========
     private static final String CACHE_PREFIX_USER = "user:";
     private static final String CACHE_PREFIX_USERNAME = "user:username:";
     private static final String CACHE_PREFIX_EMAIL = "user:email:";
     private static final long CACHE_TTL_HOURS = 1; // Cache hết hạn sau 1 giờ
     
+    // 🚫 Marker cho CacheAsideLoader khi username/email đang được negative cache (so sánh ==)
+    private static final UserDto NOT_FOUND = new UserDto();
+    
     // ========== 🎯 BUILD CACHE KEYS ==========
     
     /**
@@ -73,11 +89,12 @@ public class UserCacheService {
      * 💾 Lưu user vào Redis cache với nhiều keys (ID, username, email)
      * 
      * Chiến lược: Cache-aside pattern với multi-key indexing
-     * - Cache theo ID: "user:123" → UserDto
-     * - Cache theo username: "user:username:john_doe" → UserDto  
-     * - Cache theo email: "user:email:john@example.com" → UserDto
+     * - Cache theo ID: "user:123" → UserDto (bản duy nhất)
+     * - Cache theo username: "user:username:john_doe" → "user:123" (con trỏ)
+     * - Cache theo email: "user:email:john@example.com" → "user:123" (con trỏ)
      * 
-     * Lợi ích: Tìm được user theo bất kỳ cách nào (ID, username, email) đều hit cache
+     * Lợi ích: Tìm được user theo bất kỳ cách nào (ID, username, email) đều hit cache,
+     * DTO chỉ serialize 1 lần nên tiết kiệm bộ nhớ và không lệch dữ liệu giữa các bản copy
      * 
      * @param userDto UserDto cần lưu vào cache
      */
@@ -87,27 +104,24 @@ public class UserCacheService {
             return; // Không có gì để cache
         }
         
-        // Tính TTL (Time To Live) - thời gian cache sống
-        // Ví dụ: 1 giờ = 3600 giây
-        long cacheExpireSeconds = CACHE_TTL_HOURS * 3600;
-        
-        // 📌 Cache theo ID (primary key)
+        // 📌 Cache theo ID (primary key) - bản DTO duy nhất
         String cacheKeyById = buildCacheKeyById(userDto.getId());
-        redisService.set(cacheKeyById, userDto, cacheExpireSeconds);
+        List<String> aliases = new ArrayList<>();
         
-        // 📌 Cache theo username (nếu có) - để tìm nhanh theo username
+        // 📌 Alias theo username (nếu có) - chỉ lưu con trỏ "user:{id}"
         String username = userDto.getUsername();
         if (username != null && !username.trim().isEmpty()) {
-            String cacheKeyByUsername = buildCacheKeyByUsername(username);
-            redisService.set(cacheKeyByUsername, userDto, cacheExpireSeconds);
+            aliases.add(buildCacheKeyByUsername(username));
         }
         
-        // 📌 Cache theo email (nếu có) - để tìm nhanh theo email
+        // 📌 Alias theo email (nếu có) - chỉ lưu con trỏ "user:{id}"
         String email = userDto.getEmail();
         if (email != null && !email.trim().isEmpty()) {
-            String cacheKeyByEmail = buildCacheKeyByEmail(email);
-            redisService.set(cacheKeyByEmail, userDto, cacheExpireSeconds);
+            aliases.add(buildCacheKeyByEmail(email));
         }
+        
+        // ⚡ Ghi DTO + alias trong 1 round-trip (pipeline), TTL = 1 giờ
+        redisService.setWithAliases(cacheKeyById, userDto, aliases, Duration.ofHours(CACHE_TTL_HOURS));
     }
     
     // ========== 🔍 GET FROM CACHE ==========
@@ -134,8 +148,10 @@ public class UserCacheService {
     public UserDto getUserFromCacheByUsername(String username) {
         if (username == null || username.trim().isEmpty()) return null;
         
+        // ⚡ alias -> "user:{id}" -> UserDto, resolve bằng Lua trong 1 round-trip
         String cacheKey = buildCacheKeyByUsername(username);
-        return redisService.get(cacheKey, UserDto.class);
+        Object cached = redisService.getByAlias(cacheKey);
+        return cached instanceof UserDto dto ? dto : null;
     }
     
     /**
@@ -147,8 +163,41 @@ public class UserCacheService {
     public UserDto getUserFromCacheByEmail(String email) {
         if (email == null || email.trim().isEmpty()) return null;
         
+        // ⚡ alias -> "user:{id}" -> UserDto, resolve bằng Lua trong 1 round-trip
         String cacheKey = buildCacheKeyByEmail(email);
-        return redisService.get(cacheKey, UserDto.class);
+        Object cached = redisService.getByAlias(cacheKey);
+        return cached instanceof UserDto dto ? dto : null;
+    }
+    
+    /**
+     * 🔍 Đọc alias cho CacheAsideLoader: trả NOT_FOUND nếu key đang được negative cache
+     */
+    private UserDto lookupAlias(String cacheKey) {
+        Object cached = redisService.getByAlias(cacheKey);
+        if (RedisService.isNotFound(cached)) return NOT_FOUND;
+        return cached instanceof UserDto dto ? dto : null;
+    }
+    
+    // ========== 🆕 REGISTER NEW KEYS ==========
+    
+    /**
+     * 🆕 Đăng ký username/email mới (tạo user, đổi username/email)
+     * 
+     * - Thêm vào Bloom filter (và publish cho các instance khác)
+     * - Xóa negative cache của username/email sau khi commit
+     * 
+     * @param username Username mới (optional)
+     * @param email Email mới (optional)
+     */
+    public void registerLookupKeys(String username, String email) {
+        if (username != null && !username.trim().isEmpty()) {
+            lookupBloomFilter.add(LookupBloomFilter.USERNAME, username);
+            cacheAsideLoader.clearNotFound(buildCacheKeyByUsername(username));
+        }
+        if (email != null && !email.trim().isEmpty()) {
+            lookupBloomFilter.add(LookupBloomFilter.EMAIL, email);
+            cacheAsideLoader.clearNotFound(buildCacheKeyByEmail(email));
+        }
     }
     
     // ========== 🗑️ REMOVE FROM CACHE ==========
@@ -163,23 +212,25 @@ public class UserCacheService {
      * @param email Email của user (optional, null nếu không có)
      */
     public void removeUserFromCache(Integer userId, String username, String email) {
+        List<String> keys = new ArrayList<>();
+        
         // Xóa cache theo ID
         if (userId != null) {
-            String cacheKeyById = buildCacheKeyById(userId);
-            redisService.delete(cacheKeyById);
+            keys.add(buildCacheKeyById(userId));
         }
         
         // Xóa cache theo username (nếu có)
         if (username != null && !username.trim().isEmpty()) {
-            String cacheKeyByUsername = buildCacheKeyByUsername(username);
-            redisService.delete(cacheKeyByUsername);
+            keys.add(buildCacheKeyByUsername(username));
         }
         
         // Xóa cache theo email (nếu có)
         if (email != null && !email.trim().isEmpty()) {
-            String cacheKeyByEmail = buildCacheKeyByEmail(email);
-            redisService.delete(cacheKeyByEmail);
+            keys.add(buildCacheKeyByEmail(email));
         }
+        
+        // ⚡ Xóa tất cả trong 1 lệnh DEL
+        redisService.deleteAll(keys);
     }
     
     // ========== 🎁 CACHE-ASIDE PATTERN ==========
@@ -187,37 +238,68 @@ public class UserCacheService {
     /**
      * 🎁 Pattern chung: Lấy user từ cache, nếu không có thì lấy từ DB và cache lại
      * 
-     * Cache-aside pattern (Lazy Loading):
-     * 1. Check cache → Nếu có → Return ngay (FAST ⚡)
-     * 2. Nếu không có → Query database
+     * Cache-aside pattern (Lazy Loading) qua CacheAsideLoader:
+     * 1. Check cache → Nếu có → Return ngay (FAST ⚡), key nóng sắp hết hạn thì refresh nền
+     * 2. Nếu không có → Query database (mỗi key chỉ 1 request/1 node chạy query, còn lại chờ kết quả)
      * 3. Convert User → UserDto
      * 4. Lưu kết quả vào cache → Return (chậm hơn lần đầu, nhưng lần sau sẽ nhanh)
      * 
-     * @param cacheValue UserDto từ cache (null nếu không có)
+     * @param cacheKey Key tra cứu (dùng để gộp các request cùng miss)
+     * @param cacheLookup Lambda function để đọc cache (null nếu không có)
      * @param dbQuery Lambda function để query từ database
      * @param toDtoConverter Lambda function để convert User → UserDto
      * @return Optional<UserDto>
      */
     public Optional<UserDto> getUserWithCacheStrategy(
-            UserDto cacheValue,
+            String cacheKey,
+            Supplier<UserDto> cacheLookup,
             Supplier<Optional<User>> dbQuery,
             Function<User, UserDto> toDtoConverter) {
         
-        // ✅ Bước 1: Nếu có trong cache → Return ngay (CACHE HIT - nhanh nhất)
-        if (cacheValue != null) {
-            return Optional.of(cacheValue);
-        }
-        
-        // ❌ Bước 2: Không có trong cache → Query từ database (CACHE MISS)
-        Optional<User> userFromDb = dbQuery.get();
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS), cacheLookup,
+                () -> dbQuery.get().map(toDtoConverter),
+                this::saveUserToCache);
+    }
+    
+    /**
+     * 🚫 Tra cứu theo username: Bloom filter loại username chắc chắn không tồn tại,
+     * lọt qua mà DB không có thì negative cache ngắn (app.cache.negative-ttl-seconds)
+     */
+    public Optional<UserDto> getUserByUsernameWithCacheStrategy(
+            String username,
+            Supplier<Optional<User>> dbQuery,
+            Function<User, UserDto> toDtoConverter) {
         
-        // Bước 3: Convert User → UserDto
-        Optional<UserDto> userDto = userFromDb.map(toDtoConverter);
+        if (!lookupBloomFilter.mightExist(LookupBloomFilter.USERNAME, username)) {
+            return Optional.empty();
+        }
+        return loadWithNegativeCache(buildCacheKeyByUsername(username), dbQuery, toDtoConverter);
+    }
+    
+    /**
+     * 🚫 Tra cứu theo email: giống username
+     */
+    public Optional<UserDto> getUserByEmailWithCacheStrategy(
+            String email,
+            Supplier<Optional<User>> dbQuery,
+            Function<User, UserDto> toDtoConverter) {
         
-        // Bước 4: Lưu vào cache để lần sau nhanh hơn
-        userDto.ifPresent(this::saveUserToCache);
+        if (!lookupBloomFilter.mightExist(LookupBloomFilter.EMAIL, email)) {
+            return Optional.empty();
+        }
+        return loadWithNegativeCache(buildCacheKeyByEmail(email), dbQuery, toDtoConverter);
+    }
+    
+    private Optional<UserDto> loadWithNegativeCache(
+            String cacheKey,
+            Supplier<Optional<User>> dbQuery,
+            Function<User, UserDto> toDtoConverter) {
         
-        return userDto;
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS),
+                NOT_FOUND, Duration.ofSeconds(negativeTtlSeconds),
+                () -> lookupAlias(cacheKey),
+                () -> dbQuery.get().map(toDtoConverter),
+                this::saveUserToCache);
     }
 }
 
@@ -7,7 +7,11 @@ import com.example.phonehub.utils.UserRankUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -27,11 +31,15 @@ public class UserRankCacheService {
     @Autowired
     private RedisService redisService;
     
+    @Autowired
+    private CacheAsideLoader cacheAsideLoader;
+    
     // ========== ⚡ CACHE CONFIGURATION ==========
     private static final String CACHE_PREFIX_RANK = "rank:";
     private static final String CACHE_PREFIX_RANK_NAME = "rank:name:";
     private static final String CACHE_PREFIX_RANK_POINTS = "rank:points:";
     private static final String CACHE_KEY_ALL_RANKS = "rank:all"; // Cache cho danh sách tất cả ranks
+    private static final String TAG_RANK_POINTS = "rank:points"; // Tag set "tag:rank:points" chứa mọi key theo điểm số
     private static final long CACHE_TTL_HOURS = 2; // Cache hết hạn sau 2 giờ (rank ít thay đổi hơn user)
     
     // ========== 🎯 BUILD CACHE KEYS ==========
@@ -81,17 +89,18 @@ public class UserRankCacheService {
             return;
         }
         
-        long cacheExpireSeconds = CACHE_TTL_HOURS * 3600;
+        Map<String, Object> entries = new LinkedHashMap<>();
         
         // Cache theo ID
-        String cacheKeyById = buildCacheKeyById(rankDto.getId());
-        redisService.set(cacheKeyById, rankDto, cacheExpireSeconds);
+        entries.put(buildCacheKeyById(rankDto.getId()), rankDto);
         
         // Cache theo name (nếu có)
         if (rankDto.getName() != null && !rankDto.getName().trim().isEmpty()) {
-            String cacheKeyByName = buildCacheKeyByName(rankDto.getName());
-            redisService.set(cacheKeyByName, rankDto, cacheExpireSeconds);
+            entries.put(buildCacheKeyByName(rankDto.getName()), rankDto);
         }
+        
+        // ⚡ Ghi cả 2 keys trong 1 round-trip
+        redisService.multiSetWithTtl(entries, Duration.ofHours(CACHE_TTL_HOURS));
     }
     
     /**
@@ -110,6 +119,7 @@ public class UserRankCacheService {
     
     /**
      * 💾 Lưu rank vào cache theo điểm số (để tìm nhanh theo points)
+     * Key được đăng ký vào tag "rank:points" để xóa cả nhóm khi ranks thay đổi
      * 
      * @param points Điểm số
      * @param rankDto RankDto tương ứng với điểm số
@@ -119,9 +129,8 @@ public class UserRankCacheService {
             return;
         }
         
-        long cacheExpireSeconds = CACHE_TTL_HOURS * 3600;
         String cacheKey = buildCacheKeyByPoints(points);
-        redisService.set(cacheKey, rankDto, cacheExpireSeconds);
+        redisService.setWithTags(cacheKey, rankDto, Duration.ofHours(CACHE_TTL_HOURS), TAG_RANK_POINTS);
     }
     
     // ========== 🔍 GET FROM CACHE ==========
@@ -184,21 +193,24 @@ public class UserRankCacheService {
      * @param name Tên của rank (optional, null nếu không có)
      */
     public void removeRankFromCache(Integer rankId, String name) {
+        List<String> keys = new ArrayList<>();
+        
         // Xóa cache theo ID
         if (rankId != null) {
-            redisService.delete(buildCacheKeyById(rankId));
+            keys.add(buildCacheKeyById(rankId));
         }
         
         // Xóa cache theo name (nếu có)
         if (name != null && !name.trim().isEmpty()) {
-            redisService.delete(buildCacheKeyByName(name));
+            keys.add(buildCacheKeyByName(name));
         }
         
-        // Xóa cache danh sách tất cả ranks (vì đã thay đổi)
-        redisService.delete(CACHE_KEY_ALL_RANKS);
+        // Xóa cache danh sách tất cả ranks (cùng lệnh DEL)
+        keys.add(CACHE_KEY_ALL_RANKS);
+        redisService.deleteAll(keys);
         
-        // Lưu ý: Không xóa cache theo points vì có thể có nhiều điểm số khác nhau
-        // map đến cùng 1 rank, nên để tự động expire hoặc invalidate khi cần
+        // Xóa cache theo points qua tag (ngưỡng điểm có thể đã đổi)
+        redisService.invalidateTag(TAG_RANK_POINTS);
     }
     
     /**
@@ -208,8 +220,8 @@ public class UserRankCacheService {
         // Xóa cache danh sách tất cả ranks
         redisService.delete(CACHE_KEY_ALL_RANKS);
         
-        // Lưu ý: Có thể xóa tất cả keys "rank:*" nếu cần, nhưng tốn performance
-        // Nên để tự động expire hoặc invalidate từng cái khi update/delete
+        // Xóa mọi key "rank:points:*" qua tag set (SSCAN + UNLINK, không dùng KEYS)
+        redisService.invalidateTag(TAG_RANK_POINTS);
     }
     
     // ========== 🎁 CACHE-ASIDE PATTERN ==========
@@ -217,35 +229,25 @@ public class UserRankCacheService {
     /**
      * 🎁 Pattern chung: Lấy rank từ cache, nếu không có thì lấy từ DB và cache lại
      * 
-     * Cache-aside pattern (Lazy Loading):
-     * 1. Check cache → Nếu có → Return ngay (FAST ⚡)
-     * 2. Nếu không có → Query database
+     * Cache-aside pattern (Lazy Loading) qua CacheAsideLoader:
+     * 1. Check cache → Nếu có → Return ngay (FAST ⚡), key nóng sắp hết hạn thì refresh nền
+     * 2. Nếu không có → Query database (mỗi key chỉ 1 request/1 node chạy query, còn lại chờ kết quả)
      * 3. Convert UserRank → UserRankDto
      * 4. Lưu kết quả vào cache → Return (chậm hơn lần đầu, nhưng lần sau sẽ nhanh)
      * 
-     * @param cacheValue UserRankDto từ cache (null nếu không có)
+     * @param cacheKey Key tra cứu (dùng để gộp các request cùng miss)
+     * @param cacheLookup Lambda function để đọc cache (null nếu không có)
      * @param dbQuery Lambda function để query từ database
      * @return Optional<UserRankDto>
      */
     public Optional<UserRankDto> getRankWithCacheStrategy(
-            UserRankDto cacheValue,
+            String cacheKey,
+            Supplier<UserRankDto> cacheLookup,
             Supplier<Optional<UserRank>> dbQuery) {
         
-        // ✅ Bước 1: Nếu có trong cache → Return ngay (CACHE HIT - nhanh nhất)
-        if (cacheValue != null) {
-            return Optional.of(cacheValue);
-        }
-        
-        // ❌ Bước 2: Không có trong cache → Query từ database (CACHE MISS)
-        Optional<UserRank> rankFromDb = dbQuery.get();
-        
-        // Bước 3: Convert UserRank → UserRankDto
-        Optional<UserRankDto> rankDto = rankFromDb.map(UserRankUtils::toDto);
-        
-        // Bước 4: Lưu vào cache để lần sau nhanh hơn
-        rankDto.ifPresent(this::saveRankToCache);
-        
-        return rankDto;
+        return cacheAsideLoader.load(cacheKey, Duration.ofHours(CACHE_TTL_HOURS), cacheLookup,
+                () -> dbQuery.get().map(UserRankUtils::toDto),
+                this::saveRankToCache);
     }
 }
 
@@ -0,0 +1,14 @@
+package com.example.phonehub.service.search;
+
+import java.util.Collection;
+
+/**
+ * Index sản phẩm trong JVM được CatalogIndexer cập nhật khi catalog thay đổi
+ */
+public interface CatalogIndex {
+
+    /**
+     * Load lại các sản phẩm từ DB và thay trong index (không còn trong DB / không đủ điều kiện = xóa)
+     */
+    void refresh(Collection<Integer> productIds);
+}
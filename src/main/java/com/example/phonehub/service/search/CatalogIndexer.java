@@ -0,0 +1,130 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.service.RedisService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Đồng bộ các CatalogIndex (tìm kiếm, facet) khi catalog thay đổi
+ *
+ * - reindex(...) gọi trong transaction ghi: sau commit, refresh các index ở thread nền
+ *   (đọc dữ liệu đã commit, không làm chậm request ghi)
+ * - Publish id lên {@value #REINDEX_CHANNEL} để các instance khác refresh cùng các sản phẩm đó
+ */
+@Service
+public class CatalogIndexer {
+
+    public static final String REINDEX_CHANNEL = "search:product:reindex";
+
+    @Autowired
+    private List<CatalogIndex> indexes;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private RedisMessageListenerContainer redisListenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private ExecutorService indexer;
+
+    @PostConstruct
+    void init() {
+        indexer = Executors.newVirtualThreadPerTaskExecutor();
+        redisListenerContainer.addMessageListener(this::onReindexMessage, new ChannelTopic(REINDEX_CHANNEL));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    /**
+     * Cập nhật index cho sản phẩm (tạo/sửa/xóa sản phẩm, thông số, màu, tồn kho) sau khi transaction commit
+     */
+    public void reindex(Integer productId) {
+        if (productId != null) {
+            afterCommit(() -> refreshAndPublish(List.of(productId)));
+        }
+    }
+
+    /**
+     * Như reindex(productId) cho nhiều sản phẩm (import hàng loạt), refresh và publish 1 lần
+     */
+    public void reindex(Collection<Integer> productIds) {
+        if (!productIds.isEmpty()) {
+            List<Integer> ids = List.copyOf(productIds);
+            afterCommit(() -> refreshAndPublish(ids));
+        }
+    }
+
+    /**
+     * Cập nhật index cho mọi sản phẩm của danh mục (đổi tên danh mục) sau khi transaction commit
+     */
+    public void reindexCategory(Integer categoryId) {
+        if (categoryId != null) {
+            afterCommit(() -> refreshAndPublish(productRepository.findIdsByCategoryId(categoryId)));
+        }
+    }
+
+    private void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexer.execute(task);
+                }
+            });
+        } else {
+            indexer.execute(task);
+        }
+    }
+
+    private void refreshAndPublish(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        refresh(productIds);
+        redisService.publish(REINDEX_CHANNEL, nodeId + ";" + productIds.stream()
+                .map(String::valueOf).collect(Collectors.joining(",")));
+    }
+
+    private void refresh(Collection<Integer> productIds) {
+        for (CatalogIndex index : indexes) {
+            index.refresh(productIds);
+        }
+    }
+
+    private void onReindexMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(";", 2);
+        if (parts.length != 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        List<Integer> productIds = new ArrayList<>();
+        for (String id : parts[1].split(",")) {
+            productIds.add(Integer.valueOf(id));
+        }
+        indexer.execute(() -> refresh(productIds));
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.dto.FacetCountDto;
+import com.example.phonehub.dto.ProductFacetFilter;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bitmap index cho lọc + đếm facet sản phẩm đã xuất bản - không thread-safe, ProductFacetIndex lo đồng bộ
+ *
+ * - Mỗi giá trị facet (danh mục, thương hiệu, khoảng giá, mức giảm, còn hàng, RAM, bộ nhớ) 1 RoaringBitmap id
+ * - Lọc khoảng giá / mức giảm tùy ý: TreeMap giá trị -> bitmap, OR các bitmap trong khoảng
+ * - Đếm facet kiểu "disjunctive": số của facet F tính với mọi filter trừ filter của chính F,
+ *   nên chọn 1 thương hiệu vẫn thấy số lượng các thương hiệu khác. Mỗi số = andCardinality, không GROUP BY
+ * - Thêm/xóa/sửa 1 sản phẩm chỉ cập nhật các bitmap của nó
+ */
+class FacetBitmaps {
+
+    static final String CATEGORY = "category";
+    static final String BRAND = "brand";
+    static final String PRICE = "price";
+    static final String DISCOUNT = "discount";
+    static final String IN_STOCK = "inStock";
+    static final String RAM = "ram";
+    static final String STORAGE = "storage";
+
+    static final List<String> FACETS = List.of(CATEGORY, BRAND, PRICE, DISCOUNT, IN_STOCK, RAM, STORAGE);
+
+    /** Mốc khoảng giá (VND) cho facet giá */
+    static final long[] PRICE_BUCKETS = {0, 2_000_000, 4_000_000, 7_000_000, 13_000_000, 20_000_000};
+
+    /** Mức giảm tối thiểu (%) cho facet giảm giá - 1 sản phẩm thuộc mọi mức <= % giảm của nó */
+    static final int[] DISCOUNT_THRESHOLDS = {10, 20, 30, 50};
+
+    static final String SORT_PRICE_ASC = "price_asc";
+    static final String SORT_PRICE_DESC = "price_desc";
+
+    private static final Pattern CAPACITY = Pattern.compile("(\\d+(?:[.,]\\d+)?)\\s*(TB|GB|MB)");
+
+    private final Map<Integer, ProductFacetDocument> docs = new HashMap<>();
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<String, Map<String, RoaringBitmap>> facets = new HashMap<>();
+    private final Map<String, Map<String, String>> labels = new HashMap<>();
+    private final TreeMap<Long, RoaringBitmap> byPrice = new TreeMap<>();
+    private final TreeMap<Integer, RoaringBitmap> byDiscount = new TreeMap<>();
+
+    int size() {
+        return docs.size();
+    }
+
+    void put(ProductFacetDocument document) {
+        remove(document.id());
+        int id = document.id();
+        docs.put(id, document);
+        all.add(id);
+        for (Map.Entry<String, List<String[]>> facet : values(document).entrySet()) {
+            for (String[] value : facet.getValue()) {
+                facets.computeIfAbsent(facet.getKey(), f -> new HashMap<>())
+                        .computeIfAbsent(value[0], v -> new RoaringBitmap()).add(id);
+                // Tên danh mục lấy bản mới nhất (đổi tên), thương hiệu viết khác hoa/thường giữ cách viết đầu tiên
+                Map<String, String> facetLabels = labels.computeIfAbsent(facet.getKey(), f -> new HashMap<>());
+                if (CATEGORY.equals(facet.getKey())) {
+                    facetLabels.put(value[0], value[1]);
+                } else {
+                    facetLabels.putIfAbsent(value[0], value[1]);
+                }
+            }
+        }
+        if (document.price() != null) {
+            byPrice.computeIfAbsent(document.price(), p -> new RoaringBitmap()).add(id);
+        }
+        byDiscount.computeIfAbsent(document.discount(), d -> new RoaringBitmap()).add(id);
+    }
+
+    void remove(Integer productId) {
+        ProductFacetDocument document = docs.remove(productId);
+        if (document == null) {
+            return;
+        }
+        int id = productId;
+        all.remove(id);
+        for (Map.Entry<String, List<String[]>> facet : values(document).entrySet()) {
+            Map<String, RoaringBitmap> bitmaps = facets.get(facet.getKey());
+            for (String[] value : facet.getValue()) {
+                RoaringBitmap bitmap = bitmaps.get(value[0]);
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(value[0]);
+                    labels.get(facet.getKey()).remove(value[0]);
+                }
+            }
+        }
+        if (document.price() != null) {
+            removeFrom(byPrice, document.price(), id);
+        }
+        removeFrom(byDiscount, document.discount(), id);
+    }
+
+    ProductFacetResult search(ProductFacetFilter filter) {
+        Map<String, RoaringBitmap> active = filters(filter);
+        RoaringBitmap result = intersect(active, null);
+
+        Map<String, List<FacetCountDto>> counts = new LinkedHashMap<>();
+        for (String facet : FACETS) {
+            RoaringBitmap base = active.containsKey(facet) ? intersect(active, facet) : result;
+            List<FacetCountDto> values = new ArrayList<>();
+            for (Map.Entry<String, RoaringBitmap> value : facets.getOrDefault(facet, Map.of()).entrySet()) {
+                long count = RoaringBitmap.andCardinality(base, value.getValue());
+                if (count > 0) {
+                    values.add(new FacetCountDto(value.getKey(), labels.get(facet).get(value.getKey()), count));
+                }
+            }
+            values.sort(order(facet));
+            counts.put(facet, values);
+        }
+        return new ProductFacetResult(sort(result, filter.getSort()), counts);
+    }
+
+    /**
+     * Thương hiệu có sản phẩm (trong danh mục nếu categoryId != null), theo tên
+     */
+    List<String> brands(Integer categoryId) {
+        RoaringBitmap category = categoryId == null ? all
+                : facets.getOrDefault(CATEGORY, Map.of()).getOrDefault(String.valueOf(categoryId), new RoaringBitmap());
+        List<String> brands = new ArrayList<>();
+        for (Map.Entry<String, RoaringBitmap> brand : facets.getOrDefault(BRAND, Map.of()).entrySet()) {
+            if (RoaringBitmap.intersects(category, brand.getValue())) {
+                brands.add(labels.get(BRAND).get(brand.getKey()));
+            }
+        }
+        brands.sort(String.CASE_INSENSITIVE_ORDER);
+        return brands;
+    }
+
+    /** Facet -> bitmap các id thỏa filter của facet đó */
+    private Map<String, RoaringBitmap> filters(ProductFacetFilter filter) {
+        Map<String, RoaringBitmap> active = new HashMap<>();
+        if (filter.getCategoryId() != null) {
+            active.put(CATEGORY, union(List.of(String.valueOf(filter.getCategoryId())), CATEGORY));
+        }
+        if (filter.getBrands() != null && !filter.getBrands().isEmpty()) {
+            active.put(BRAND, union(filter.getBrands().stream().map(FacetBitmaps::brandKey).toList(), BRAND));
+        }
+        if (filter.getRam() != null && !filter.getRam().isEmpty()) {
+            active.put(RAM, union(filter.getRam().stream().map(FacetBitmaps::capacityKey).toList(), RAM));
+        }
+        if (filter.getStorage() != null && !filter.getStorage().isEmpty()) {
+            active.put(STORAGE, union(filter.getStorage().stream().map(FacetBitmaps::capacityKey).toList(), STORAGE));
+        }
+        if (Boolean.TRUE.equals(filter.getInStock())) {
+            active.put(IN_STOCK, union(List.of("true"), IN_STOCK));
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            long min = filter.getMinPrice() != null ? filter.getMinPrice() : Long.MIN_VALUE;
+            long max = filter.getMaxPrice() != null ? filter.getMaxPrice() : Long.MAX_VALUE;
+            active.put(PRICE, min > max ? new RoaringBitmap() : RoaringBitmap.or(byPrice.subMap(min, true, max, true).values().iterator()));
+        }
+        if (filter.getMinDiscount() != null) {
+            active.put(DISCOUNT, RoaringBitmap.or(byDiscount.tailMap(filter.getMinDiscount(), true).values().iterator()));
+        }
+        return active;
+    }
+
+    private RoaringBitmap union(Collection<String> values, String facet) {
+        Map<String, RoaringBitmap> bitmaps = facets.getOrDefault(facet, Map.of());
+        RoaringBitmap union = new RoaringBitmap();
+        for (String value : values) {
+            RoaringBitmap bitmap = value != null ? bitmaps.get(value) : null;
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    /** AND mọi filter, bỏ qua filter của facet except (null = không bỏ) */
+    private RoaringBitmap intersect(Map<String, RoaringBitmap> active, String except) {
+        RoaringBitmap result = all.clone();
+        for (Map.Entry<String, RoaringBitmap> entry : active.entrySet()) {
+            if (!entry.getKey().equals(except)) {
+                result.and(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private List<Integer> sort(RoaringBitmap result, String sort) {
+        Integer[] ids = new Integer[result.getCardinality()];
+        int i = 0;
+        for (int id : result) {
+            ids[i++] = id;
+        }
+        // Giá null xếp cuối ở cả 2 chiều, mặc định mới nhất (id lớn) trước
+        Comparator<Integer> newest = Comparator.reverseOrder();
+        Comparator<Integer> comparator = switch (sort == null ? "" : sort) {
+            case SORT_PRICE_ASC -> Comparator.comparing((Integer id) -> docs.get(id).price(),
+                    Comparator.nullsLast(Comparator.<Long>naturalOrder())).thenComparing(newest);
+            case SORT_PRICE_DESC -> Comparator.comparing((Integer id) -> docs.get(id).price(),
+                    Comparator.nullsLast(Comparator.<Long>reverseOrder())).thenComparing(newest);
+            default -> newest;
+        };
+        Arrays.sort(ids, comparator);
+        return Arrays.asList(ids);
+    }
+
+    private static Comparator<FacetCountDto> order(String facet) {
+        return switch (facet) {
+            case PRICE, DISCOUNT -> Comparator.comparingLong(value -> Long.parseLong(value.getValue().split("-")[0]));
+            case RAM, STORAGE -> Comparator.comparingDouble(value -> capacityMb(value.getValue()));
+            default -> Comparator.comparingLong(FacetCountDto::getCount).reversed()
+                    .thenComparing(FacetCountDto::getLabel, String.CASE_INSENSITIVE_ORDER);
+        };
+    }
+
+    /** Facet -> [key, label] của document */
+    private static Map<String, List<String[]>> values(ProductFacetDocument document) {
+        Map<String, List<String[]>> values = new HashMap<>();
+        if (document.categoryId() != null) {
+            values.put(CATEGORY, List.<String[]>of(new String[]{String.valueOf(document.categoryId()), document.categoryName()}));
+        }
+        if (document.brand() != null && !document.brand().isBlank()) {
+            values.put(BRAND, List.<String[]>of(new String[]{brandKey(document.brand()), document.brand().trim()}));
+        }
+        if (document.price() != null) {
+            String bucket = priceBucket(document.price());
+            values.put(PRICE, List.<String[]>of(new String[]{bucket, bucket}));
+        }
+        List<String[]> discounts = new ArrayList<>();
+        for (int threshold : DISCOUNT_THRESHOLDS) {
+            if (document.discount() >= threshold) {
+                discounts.add(new String[]{String.valueOf(threshold), "Giảm từ " + threshold + "%"});
+            }
+        }
+        values.put(DISCOUNT, discounts);
+        if (document.inStock()) {
+            values.put(IN_STOCK, List.<String[]>of(new String[]{"true", "Còn hàng"}));
+        }
+        if (document.ram() != null) {
+            values.put(RAM, List.<String[]>of(new String[]{document.ram(), document.ram()}));
+        }
+        if (document.storage() != null) {
+            values.put(STORAGE, List.<String[]>of(new String[]{document.storage(), document.storage()}));
+        }
+        return values;
+    }
+
+    /** "min-max" theo PRICE_BUCKETS, khoảng cuối "min-" */
+    static String priceBucket(long price) {
+        for (int i = PRICE_BUCKETS.length - 1; i >= 0; i--) {
+            if (price >= PRICE_BUCKETS[i]) {
+                return PRICE_BUCKETS[i] + "-" + (i + 1 < PRICE_BUCKETS.length ? String.valueOf(PRICE_BUCKETS[i + 1]) : "");
+            }
+        }
+        return PRICE_BUCKETS[0] + "-" + PRICE_BUCKETS[1];
+    }
+
+    static String brandKey(String brand) {
+        return brand.trim().toLowerCase();
+    }
+
+    /** "12 GB" / "12gb" -> "12GB"; null nếu không đọc được dung lượng */
+    static String capacityKey(String value) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = CAPACITY.matcher(value.toUpperCase());
+        return matcher.find() ? matcher.group(1).replace(',', '.') + matcher.group(2) : null;
+    }
+
+    private static double capacityMb(String key) {
+        Matcher matcher = CAPACITY.matcher(key);
+        if (!matcher.find()) {
+            return Double.MAX_VALUE;
+        }
+        double amount = Double.parseDouble(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "TB" -> amount * 1024 * 1024;
+            case "GB" -> amount * 1024;
+            default -> amount;
+        };
+    }
+
+    private static <K> void removeFrom(NavigableMap<K, RoaringBitmap> index, K key, int id) {
+        RoaringBitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
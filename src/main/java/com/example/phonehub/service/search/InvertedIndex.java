@@ -0,0 +1,251 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.utils.SlugUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm sản phẩm - không thread-safe, ProductSearchIndex lo đồng bộ
+ *
+ * - Token: chữ thường, bỏ dấu (SlugUtils.removeAccents), tách theo ký tự không phải chữ/số
+ * - Mỗi term -> (productId -> trọng số field): tên > thương hiệu > danh mục > thông số/màu
+ * - Token của query khớp term: chính xác, tiền tố (đang gõ dở) hoặc sai 1 ký tự (>= 4 ký tự).
+ *   Sai 1 ký tự tra qua bảng "xóa 1 ký tự" kiểu SymSpell nên không phải duyệt cả từ điển
+ * - Mọi token của query phải khớp (AND), điểm = tổng theo token của max(hệ số khớp * idf * trọng số)
+ *
+ * Chi phí 1 lần tìm tỉ lệ với số posting chạm tới, không phụ thuộc kích thước catalog.
+ */
+class InvertedIndex {
+
+    static final float NAME_WEIGHT = 4f;
+    static final float BRAND_WEIGHT = 3f;
+    static final float CATEGORY_WEIGHT = 2f;
+    static final float ATTRIBUTE_WEIGHT = 1f;
+
+    private static final float EXACT = 1f;
+    private static final float PREFIX = 0.6f;
+    private static final float FUZZY = 0.4f;
+
+    private static final int FUZZY_MIN_LENGTH = 4;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    /** Kết quả: productId + điểm liên quan */
+    record Hit(int productId, float score) {
+    }
+
+    private record Doc(ProductSearchDocument source, Set<String> terms) {
+    }
+
+    private final Map<Integer, Doc> docs = new HashMap<>();
+
+    /** term -> (productId -> trọng số), sắp xếp để quét tiền tố */
+    private final TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+
+    /** term bỏ 1 ký tự (và chính term) -> các term gốc, cho khớp sai 1 ký tự */
+    private final Map<String, Set<String>> deletes = new HashMap<>();
+
+    int size() {
+        return docs.size();
+    }
+
+    /**
+     * Thêm hoặc thay document (cùng id)
+     */
+    void put(ProductSearchDocument document) {
+        remove(document.id());
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, document.name(), NAME_WEIGHT);
+        addField(weights, document.brand(), BRAND_WEIGHT);
+        addField(weights, document.categoryName(), CATEGORY_WEIGHT);
+        if (document.attributes() != null) {
+            for (String attribute : document.attributes()) {
+                addField(weights, attribute, ATTRIBUTE_WEIGHT);
+            }
+        }
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> {
+                indexDeletes(term);
+                return new HashMap<>();
+            }).put(document.id(), entry.getValue());
+        }
+        docs.put(document.id(), new Doc(document, weights.keySet()));
+    }
+
+    void remove(Integer productId) {
+        Doc doc = docs.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.terms()) {
+            Map<Integer, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                    unindexDeletes(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param categoryId null = mọi danh mục
+     * @return Sản phẩm đã xuất bản khớp query, điểm giảm dần (bằng điểm thì id tăng dần)
+     */
+    List<Hit> search(String query, Integer categoryId) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Float> scores = null;
+        for (String token : tokens) {
+            Map<Integer, Float> tokenScores = scoreToken(token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Integer, Float> merged = new HashMap<>();
+                for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+                    Float score = tokenScores.get(entry.getKey());
+                    if (score != null) {
+                        merged.put(entry.getKey(), entry.getValue() + score);
+                    }
+                }
+                scores = merged;
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        List<Hit> hits = new ArrayList<>();
+        for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+            ProductSearchDocument document = docs.get(entry.getKey()).source();
+            if (document.published() && (categoryId == null || categoryId.equals(document.categoryId()))) {
+                hits.add(new Hit(entry.getKey(), entry.getValue()));
+            }
+        }
+        hits.sort(Comparator.comparingDouble((Hit hit) -> -hit.score()).thenComparingInt(Hit::productId));
+        return hits;
+    }
+
+    /** productId -> điểm tốt nhất của token qua các term khớp */
+    private Map<Integer, Float> scoreToken(String token) {
+        Map<String, Float> matches = new HashMap<>();
+        if (postings.containsKey(token)) {
+            matches.put(token, EXACT);
+        }
+        int expansions = 0;
+        for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+            if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            matches.putIfAbsent(term, PREFIX);
+        }
+        if (token.length() >= FUZZY_MIN_LENGTH) {
+            for (String variant : deleteVariants(token)) {
+                for (String term : deletes.getOrDefault(variant, Set.of())) {
+                    if (withinOneEdit(token, term)) {
+                        matches.putIfAbsent(term, FUZZY);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Float> scores = new HashMap<>();
+        for (Map.Entry<String, Float> match : matches.entrySet()) {
+            Map<Integer, Float> posting = postings.get(match.getKey());
+            float idf = (float) Math.log(1 + (double) docs.size() / posting.size());
+            for (Map.Entry<Integer, Float> entry : posting.entrySet()) {
+                scores.merge(entry.getKey(), match.getValue() * idf * entry.getValue(), Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float weight) {
+        for (String term : tokenize(text)) {
+            weights.merge(term, weight, Math::max);
+        }
+    }
+
+    private void indexDeletes(String term) {
+        if (term.length() < FUZZY_MIN_LENGTH) {
+            return;
+        }
+        for (String variant : deleteVariants(term)) {
+            deletes.computeIfAbsent(variant, key -> new HashSet<>()).add(term);
+        }
+    }
+
+    private void unindexDeletes(String term) {
+        if (term.length() < FUZZY_MIN_LENGTH) {
+            return;
+        }
+        for (String variant : deleteVariants(term)) {
+            Set<String> terms = deletes.get(variant);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    deletes.remove(variant);
+                }
+            }
+        }
+    }
+
+    /** Chính nó + mọi chuỗi bỏ đúng 1 ký tự */
+    private static Set<String> deleteVariants(String term) {
+        Set<String> variants = new HashSet<>();
+        variants.add(term);
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    /** Khoảng cách Damerau-Levenshtein <= 1 (thay, thêm, bớt hoặc đảo 2 ký tự kề nhau) */
+    static boolean withinOneEdit(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        if (a.length() < b.length()) {
+            String tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int i = 0;
+        while (i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i == a.length()) {
+            return true;
+        }
+        if (a.length() != b.length()) {
+            return a.substring(i + 1).equals(b.substring(i));
+        }
+        if (a.substring(i + 1).equals(b.substring(i + 1))) {
+            return true;
+        }
+        return i + 1 < a.length() && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.substring(i + 2).equals(b.substring(i + 2));
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : SlugUtils.removeAccents(text).split("[^a-z0-9]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.phonehub.service.search;
+
+/**
+ * Dữ liệu 1 sản phẩm đã xuất bản đưa vào facet index
+ *
+ * @param price    Giá (VND), null nếu chưa có giá
+ * @param discount % giảm giá đã parse từ Product.discount ("12%" -> 12)
+ * @param ram      Dạng chuẩn hóa "12GB", null nếu không có thông số
+ * @param storage  Dạng chuẩn hóa "256GB", null nếu không có thông số
+ */
+public record ProductFacetDocument(Integer id, Integer categoryId, String categoryName, String brand, Long price,
+                                   int discount, boolean inStock, String ram, String storage) {
+}
@@ -0,0 +1,193 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.dto.ProductFacetFilter;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.ProductSpecificationRepository;
+import com.example.phonehub.utils.SlugUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Facet index (RoaringBitmap) cho trang danh sách sản phẩm: lọc theo danh mục, thương hiệu, khoảng giá,
+ * mức giảm, còn hàng, RAM, bộ nhớ và trả số lượng từng giá trị facet mà không chạy GROUP BY mỗi request
+ *
+ * - Build toàn bộ từ MySQL lúc khởi động và định kỳ, CatalogIndexer gọi refresh(...) sau mỗi thay đổi
+ *   sản phẩm / thông số / tồn kho - chỉ cập nhật bitmap của các sản phẩm đó
+ * - RAM / bộ nhớ lấy từ ProductSpecification theo label ({@link #RAM_LABELS}, {@link #STORAGE_LABELS})
+ * - Chưa build xong thì search(...) / brands(...) trả Optional.empty()
+ */
+@Service
+public class ProductFacetIndex implements CatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    public static final List<String> RAM_LABELS = List.of("RAM");
+    public static final List<String> STORAGE_LABELS = List.of("Dung lượng lưu trữ", "Bộ nhớ trong", "ROM");
+
+    private static final List<String> SPEC_LABELS = Stream.concat(RAM_LABELS.stream(), STORAGE_LABELS.stream()).toList();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSpecificationRepository specRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** null tới khi build lần đầu thành công */
+    private FacetBitmaps index;
+
+    /** Id được refresh trong lúc đang rebuild - làm lại trên index mới sau khi thay */
+    private Set<Integer> pendingIds;
+
+    /**
+     * @return Id sản phẩm khớp filter (theo sort) + số lượng từng giá trị facet;
+     *         Optional.empty() nếu index chưa sẵn sàng
+     */
+    public Optional<ProductFacetResult> search(ProductFacetFilter filter) {
+        lock.readLock().lock();
+        try {
+            return index == null ? Optional.empty() : Optional.of(index.search(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Thương hiệu có sản phẩm đã xuất bản trong danh mục, theo tên
+     */
+    public Optional<List<String>> brands(Integer categoryId) {
+        lock.readLock().lock();
+        try {
+            return index == null ? Optional.empty() : Optional.of(index.brands(categoryId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build lại toàn bộ index từ DB (lúc khởi động và định kỳ)
+     */
+    @Scheduled(initialDelayString = "${app.search.initial-delay-ms:0}",
+            fixedDelayString = "${app.search.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingIds = new LinkedHashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Set<Integer> replay = Set.of();
+        try {
+            long start = System.currentTimeMillis();
+            FacetBitmaps rebuilt = new FacetBitmaps();
+            for (ProductFacetDocument document : toDocuments(productRepository.findFacetRows(),
+                    specRepository.findFacetValues(SPEC_LABELS))) {
+                rebuilt.put(document);
+            }
+            lock.writeLock().lock();
+            try {
+                index = rebuilt;
+                replay = pendingIds;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Product facet index rebuilt: {} products in {} ms",
+                    rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.warn("Product facet index rebuild failed, keeping previous index: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingIds = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (!replay.isEmpty()) {
+            refresh(replay);
+        }
+    }
+
+    @Override
+    public void refresh(Collection<Integer> productIds) {
+        try {
+            List<ProductFacetDocument> documents = toDocuments(productRepository.findFacetRowsByIdIn(productIds),
+                    specRepository.findFacetValuesByProductIdIn(SPEC_LABELS, productIds));
+            lock.writeLock().lock();
+            try {
+                if (pendingIds != null) {
+                    pendingIds.addAll(productIds);
+                }
+                if (index == null) {
+                    return;
+                }
+                for (Integer productId : productIds) {
+                    index.remove(productId);
+                }
+                for (ProductFacetDocument document : documents) {
+                    index.put(document);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            logger.warn("Product facet reindex failed for ids: {}, error: {}", productIds, e.getMessage());
+        }
+    }
+
+    private static List<ProductFacetDocument> toDocuments(List<Object[]> products, List<Object[]> specs) {
+        Map<Integer, String> ram = new HashMap<>();
+        Map<Integer, String> storage = new HashMap<>();
+        for (Object[] row : specs) {
+            String capacity = FacetBitmaps.capacityKey((String) row[2]);
+            if (capacity == null) {
+                continue;
+            }
+            String label = SlugUtils.removeAccents(((String) row[1]).trim());
+            if (RAM_LABELS.stream().anyMatch(l -> SlugUtils.removeAccents(l).equals(label))) {
+                ram.putIfAbsent((Integer) row[0], capacity);
+            } else if (STORAGE_LABELS.stream().anyMatch(l -> SlugUtils.removeAccents(l).equals(label))) {
+                storage.putIfAbsent((Integer) row[0], capacity);
+            }
+        }
+        List<ProductFacetDocument> documents = new ArrayList<>(products.size());
+        for (Object[] row : products) {
+            Integer id = (Integer) row[0];
+            BigDecimal price = (BigDecimal) row[4];
+            Integer quantity = (Integer) row[6];
+            documents.add(new ProductFacetDocument(id, (Integer) row[1], (String) row[2], (String) row[3],
+                    price != null ? price.longValue() : null, parseDiscount((String) row[5]),
+                    quantity != null && quantity > 0, ram.get(id), storage.get(id)));
+        }
+        return documents;
+    }
+
+    /** "12%" / "-12%" / "Giảm 12%" -> 12, không đọc được -> 0 */
+    static int parseDiscount(String discount) {
+        if (discount == null) {
+            return 0;
+        }
+        String digits = discount.replaceAll("[^0-9]", "");
+        if (digits.isEmpty() || digits.length() > 3) {
+            return 0;
+        }
+        return Math.min(100, Integer.parseInt(digits));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.dto.FacetCountDto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param ids    Id sản phẩm khớp filter, theo thứ tự sort
+ * @param facets Facet -> giá trị kèm số lượng (bỏ giá trị có 0 sản phẩm)
+ */
+public record ProductFacetResult(List<Integer> ids, Map<String, List<FacetCountDto>> facets) {
+}
@@ -0,0 +1,12 @@
+package com.example.phonehub.service.search;
+
+import java.util.List;
+
+/**
+ * Dữ liệu 1 sản phẩm đưa vào index tìm kiếm
+ *
+ * @param attributes Giá trị thông số + tên màu
+ */
+public record ProductSearchDocument(Integer id, String name, String brand, Integer categoryId, String categoryName,
+                                    boolean published, List<String> attributes) {
+}
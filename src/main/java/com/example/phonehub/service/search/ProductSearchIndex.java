@@ -0,0 +1,166 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.repository.ProductColorRepository;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.ProductSpecificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index tìm kiếm sản phẩm trong JVM (tên, thương hiệu, danh mục, giá trị thông số, màu)
+ * thay cho LOWER(name) LIKE '%...%' (luôn full scan)
+ *
+ * - Build toàn bộ từ MySQL lúc khởi động và định kỳ (lưới an toàn nếu lỡ mất cập nhật)
+ * - CatalogIndexer gọi refresh(...) sau khi commit: load lại đúng các sản phẩm đó từ DB
+ *   (không còn trong DB = xóa khỏi index)
+ * - Chưa build xong thì search(...) trả Optional.empty(), caller tự fallback về query DB
+ */
+@Service
+public class ProductSearchIndex implements CatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSpecificationRepository specRepository;
+
+    @Autowired
+    private ProductColorRepository colorRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** null tới khi build lần đầu thành công */
+    private InvertedIndex index;
+
+    /** Id được reindex trong lúc đang rebuild - làm lại trên index mới sau khi thay */
+    private Set<Integer> pendingIds;
+
+    /**
+     * Tìm sản phẩm đã xuất bản
+     *
+     * @param categoryId null = mọi danh mục
+     * @return Id sản phẩm theo độ liên quan giảm dần; Optional.empty() nếu index chưa sẵn sàng
+     *         hoặc query không có token nào (caller dùng query DB)
+     */
+    public Optional<List<Integer>> search(String query, Integer categoryId) {
+        if (InvertedIndex.tokenize(query).isEmpty()) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return Optional.empty();
+            }
+            return Optional.of(index.search(query, categoryId).stream().map(InvertedIndex.Hit::productId).toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build lại toàn bộ index từ DB (lúc khởi động và định kỳ)
+     */
+    @Scheduled(initialDelayString = "${app.search.initial-delay-ms:0}",
+            fixedDelayString = "${app.search.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingIds = new LinkedHashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Set<Integer> replay = Set.of();
+        try {
+            long start = System.currentTimeMillis();
+            InvertedIndex rebuilt = new InvertedIndex();
+            for (ProductSearchDocument document : toDocuments(productRepository.findSearchRows(),
+                    specRepository.findSearchValues(), colorRepository.findSearchValues())) {
+                rebuilt.put(document);
+            }
+            lock.writeLock().lock();
+            try {
+                index = rebuilt;
+                replay = pendingIds;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Product search index rebuilt: {} products in {} ms",
+                    rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.warn("Product search index rebuild failed, keeping previous index: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingIds = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (!replay.isEmpty()) {
+            refresh(replay);
+        }
+    }
+
+    @Override
+    public void refresh(Collection<Integer> productIds) {
+        try {
+            List<ProductSearchDocument> documents = toDocuments(productRepository.findSearchRowsByIdIn(productIds),
+                    specRepository.findSearchValuesByProductIdIn(productIds),
+                    colorRepository.findSearchValuesByProductIdIn(productIds));
+            lock.writeLock().lock();
+            try {
+                if (pendingIds != null) {
+                    pendingIds.addAll(productIds);
+                }
+                if (index == null) {
+                    return;
+                }
+                for (Integer productId : productIds) {
+                    index.remove(productId);
+                }
+                for (ProductSearchDocument document : documents) {
+                    index.put(document);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            logger.warn("Product search reindex failed for ids: {}, error: {}", productIds, e.getMessage());
+        }
+    }
+
+    private static List<ProductSearchDocument> toDocuments(List<Object[]> products, List<Object[]> specValues,
+                                                           List<Object[]> colorNames) {
+        Map<Integer, List<String>> attributes = new HashMap<>();
+        for (List<Object[]> rows : List.of(specValues, colorNames)) {
+            for (Object[] row : rows) {
+                if (row[1] != null) {
+                    attributes.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+                }
+            }
+        }
+        List<ProductSearchDocument> documents = new ArrayList<>(products.size());
+        for (Object[] row : products) {
+            Integer id = (Integer) row[0];
+            documents.add(new ProductSearchDocument(id, (String) row[1], (String) row[2], (Integer) row[3],
+                    (String) row[4], Boolean.TRUE.equals(row[5]), attributes.getOrDefault(id, List.of())));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.dto.ProductSuggestionDto;
+import com.example.phonehub.repository.OrderItemRepository;
+import com.example.phonehub.repository.ProductFavoriteRepository;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.service.RedisService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gợi ý khi gõ cho /products/suggest: tên sản phẩm đã xuất bản + thương hiệu, xếp theo độ phổ biến
+ *
+ * - Đọc không khóa: trie bất biến sau volatile reference, build bản mới rồi thay (copy-on-write)
+ * - ProductService tạo/sửa/xóa -> requestRebuild() sau commit; các lần gọi gần nhau (import hàng loạt)
+ *   được gộp thành 1 lần build sau {@code app.search.suggest.debounce-ms}, rồi publish lên
+ *   {@value #REBUILD_CHANNEL} cho các instance khác
+ * - Build lại định kỳ để cập nhật độ phổ biến (số đơn, lượt yêu thích thay đổi liên tục)
+ */
+@Service
+public class ProductSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final String REBUILD_CHANNEL = "search:suggest:rebuild";
+
+    private static final String TYPE_PRODUCT = "product";
+    private static final String TYPE_BRAND = "brand";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductFavoriteRepository favoriteRepository;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private RedisMessageListenerContainer redisListenerContainer;
+
+    @Value("${app.search.suggest.debounce-ms:1000}")
+    private long debounceMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile SuggestTrie trie = new SuggestTrie(List.of());
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private ScheduledExecutorService rebuilder;
+
+    @PostConstruct
+    void init() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "suggest-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        redisListenerContainer.addMessageListener(this::onRebuildMessage, new ChannelTopic(REBUILD_CHANNEL));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * @param limit Số gợi ý tối đa (giới hạn bởi SuggestTrie.MAX_RESULTS)
+     */
+    public List<ProductSuggestionDto> suggest(String query, int limit) {
+        List<ProductSuggestionDto> suggestions = new ArrayList<>();
+        for (SuggestTrie.Entry entry : trie.suggest(query, limit)) {
+            suggestions.add(new ProductSuggestionDto(entry.type(), entry.text(), entry.slug(), entry.productId()));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Build lại sau khi transaction commit (gộp các lần gọi gần nhau) và báo các instance khác
+     */
+    public void requestRebuild() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleRebuild(true);
+                }
+            });
+        } else {
+            scheduleRebuild(true);
+        }
+    }
+
+    private void scheduleRebuild(boolean publish) {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return; // Đã có lần build đang chờ, thay đổi này sẽ được build cùng
+        }
+        rebuilder.schedule(() -> {
+            // Thay đổi đến trong lúc đang build sẽ lên lịch lần build sau
+            rebuildScheduled.set(false);
+            rebuild();
+            if (publish) {
+                redisService.publish(REBUILD_CHANNEL, nodeId);
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Build lại toàn bộ từ DB (lúc khởi động, định kỳ và khi catalog thay đổi)
+     */
+    @Scheduled(initialDelayString = "${app.search.initial-delay-ms:0}",
+            fixedDelayString = "${app.search.suggest.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            Map<Integer, Long> popularity = new HashMap<>();
+            for (List<Object[]> counts : List.of(orderItemRepository.countOrdersByProduct(),
+                    favoriteRepository.countFavoritesByProduct())) {
+                for (Object[] row : counts) {
+                    popularity.merge((Integer) row[0], ((Number) row[1]).longValue(), Long::sum);
+                }
+            }
+
+            List<SuggestTrie.Entry> entries = new ArrayList<>();
+            Map<String, SuggestTrie.Entry> brands = new LinkedHashMap<>();
+            for (Object[] row : productRepository.findSuggestRows()) {
+                Integer id = (Integer) row[0];
+                String name = (String) row[1];
+                String brand = (String) row[3];
+                // +1 để sản phẩm mới (chưa có đơn) vẫn được gợi ý
+                long weight = popularity.getOrDefault(id, 0L) + 1;
+                entries.add(new SuggestTrie.Entry(TYPE_PRODUCT, name, (String) row[2], id, weight));
+                if (brand != null && !brand.isBlank()) {
+                    brands.merge(SuggestTrie.normalize(brand), new SuggestTrie.Entry(TYPE_BRAND, brand, null, null, weight),
+                            (a, b) -> new SuggestTrie.Entry(TYPE_BRAND, a.text(), null, null, a.weight() + b.weight()));
+                }
+            }
+            entries.addAll(brands.values());
+
+            SuggestTrie rebuilt = new SuggestTrie(entries);
+            trie = rebuilt;
+            logger.info("Product suggest index rebuilt: {} entries in {} ms",
+                    rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.warn("Product suggest index rebuild failed, keeping previous index: {}", e.getMessage());
+        }
+    }
+
+    private void onRebuildMessage(Message message, byte[] pattern) {
+        if (!nodeId.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            scheduleRebuild(false);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.utils.SlugUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trie bất biến cho gợi ý khi gõ (tên sản phẩm, thương hiệu)
+ *
+ * - Mỗi entry được chèn theo mọi vị trí đầu từ ("samsung galaxy s24", "galaxy s24", "s24")
+ *   nên gõ từ giữa tên vẫn ra, key đã bỏ dấu và gộp khoảng trắng
+ * - Entry chèn theo trọng số giảm dần, mỗi node giữ sẵn top {@value #MAX_RESULTS} entry đi qua nó:
+ *   tra cứu chỉ là đi theo các ký tự của prefix, O(độ dài prefix) bất kể số entry
+ * - Không sửa sau khi build: ProductSuggestIndex build bản mới rồi thay reference (copy-on-write)
+ */
+final class SuggestTrie {
+
+    static final int MAX_RESULTS = 10;
+
+    /**
+     * @param weight Độ phổ biến (số đơn + số lượt yêu thích)
+     */
+    record Entry(String type, String text, String slug, Integer productId, long weight) {
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final List<Entry> top = new ArrayList<>(2);
+    }
+
+    private final Node root = new Node();
+    private final int size;
+
+    SuggestTrie(List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(Entry::weight).reversed().thenComparing(Entry::text));
+        for (Entry entry : sorted) {
+            String key = normalize(entry.text());
+            for (int start = 0; start < key.length(); start++) {
+                if (start == 0 || key.charAt(start - 1) == ' ') {
+                    insert(key.substring(start), entry);
+                }
+            }
+        }
+        size = sorted.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Tối đa limit entry (và không quá {@value #MAX_RESULTS}) theo trọng số giảm dần
+     */
+    List<Entry> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        return node.top.subList(0, Math.min(limit, node.top.size()));
+    }
+
+    private void insert(String key, Entry entry) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            // Entry đến theo trọng số giảm dần nên chỉ cần thêm khi còn chỗ; bỏ trùng khi 2 vị trí đầu từ cùng đi qua node
+            if (node.top.size() < MAX_RESULTS && (node.top.isEmpty() || node.top.get(node.top.size() - 1) != entry)) {
+                node.top.add(entry);
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : SlugUtils.removeAccents(text).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+}
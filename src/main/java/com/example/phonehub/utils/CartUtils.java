@@ -4,6 +4,7 @@ import com.example.phonehub.dto.CartItemDto;
 import com.example.phonehub.dto.ProductDto;
 import com.example.phonehub.entity.CartItem;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +25,17 @@ public class CartUtils {
         return dto;
     }
 
+    // Dòng giỏ đọc từ Redis: chưa có thời điểm tạo/sửa, id null nếu chưa ghi xuống cart_items
+    public static CartItemDto toDto(Integer id, ProductDto product, Integer quantity, BigDecimal priceAtAdd) {
+        CartItemDto dto = new CartItemDto();
+        dto.setId(id);
+        dto.setProductId(product.getId());
+        dto.setProduct(product);
+        dto.setQuantity(quantity);
+        dto.setPriceAtAdd(priceAtAdd);
+        return dto;
+    }
+
     public static List<CartItemDto> toDtoList(List<CartItem> items) {
         return items.stream().map(CartUtils::toDto).collect(Collectors.toList());
     }
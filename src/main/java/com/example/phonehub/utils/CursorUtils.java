@@ -0,0 +1,82 @@
+package com.example.phonehub.utils;
+
+import com.example.phonehub.dto.CursorPageDto;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Phân trang keyset (seek): cursor là khóa sắp xếp của phần tử cuối trang trước + id,
+ * query tiếp theo dùng WHERE (sortKey, id) < (:sortKey, :id) thay cho OFFSET nên chi phí
+ * mỗi trang không phụ thuộc độ sâu.
+ *
+ * Cursor được mã hóa Base64 URL-safe ("createdAt|id" hoặc "id"), client chỉ việc gửi lại nguyên văn.
+ */
+public class CursorUtils {
+
+    public static final int MAX_SIZE = 100;
+
+    /** Vị trí trong danh sách; createdAt null với danh sách chỉ sắp theo id */
+    public record Cursor(LocalDateTime createdAt, Integer id) {
+    }
+
+    public static String encode(LocalDateTime createdAt, Integer id) {
+        return encodeRaw(createdAt + "|" + id);
+    }
+
+    public static String encode(Integer id) {
+        return encodeRaw(String.valueOf(id));
+    }
+
+    /**
+     * @return null nếu cursor rỗng (trang đầu)
+     * @throws RuntimeException "Invalid cursor" nếu cursor không đúng định dạng
+     */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                return new Cursor(null, Integer.valueOf(raw));
+            }
+            return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), Integer.valueOf(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    /** Lấy dư 1 phần tử để biết còn trang sau mà không cần COUNT(*) */
+    public static Limit limit(int size) {
+        return Limit.of(clamp(size) + 1);
+    }
+
+    /**
+     * Cắt kết quả query (size + 1 phần tử) thành 1 trang
+     *
+     * @param cursorOf Cursor của 1 phần tử (thường là phần tử cuối trang)
+     * @param total    Tổng số phần tử, null nếu client không yêu cầu
+     */
+    public static <E, D> CursorPageDto<D> toPage(List<E> rows, int size, Function<E, D> mapper,
+                                                 Function<E, String> cursorOf, Long total) {
+        int pageSize = clamp(size);
+        boolean hasNext = rows.size() > pageSize;
+        List<E> page = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(page.get(page.size() - 1)) : null;
+        return new CursorPageDto<>(page.stream().map(mapper).toList(), nextCursor, hasNext, pageSize, total);
+    }
+
+    private static int clamp(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
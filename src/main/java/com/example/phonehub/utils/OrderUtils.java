@@ -4,6 +4,7 @@ import com.example.phonehub.dto.OrderDto;
 import com.example.phonehub.dto.OrderItemDto;
 import com.example.phonehub.entity.Order;
 import com.example.phonehub.entity.OrderItem;
+import com.example.phonehub.repository.projection.OrderSummaryRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
@@ -83,6 +84,16 @@ public class OrderUtils {
         return dto;
     }
 
+    /**
+     * Convert projection row to OrderDto without items (for admin list view)
+     */
+    public static OrderDto toDtoWithoutItems(OrderSummaryRow row) {
+        if (row == null) return null;
+        return new OrderDto(row.id(), row.userId(), row.username(), row.buyerName(), row.buyerEmail(),
+                row.buyerPhone(), row.buyerAddress(), row.totalPrice(), row.paymentMethod(), row.status(),
+                row.createdAt(), row.updatedAt(), null);
+    }
+
     public static List<OrderDto> toDtoListWithoutItems(List<Order> orders) {
         return orders.stream().map(OrderUtils::toDtoWithoutItems).collect(Collectors.toList());
     }
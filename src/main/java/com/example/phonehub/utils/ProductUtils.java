@@ -2,6 +2,7 @@ package com.example.phonehub.utils;
 
 import com.example.phonehub.dto.*;
 import com.example.phonehub.entity.*;
+import com.example.phonehub.repository.projection.ProductSummaryRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
@@ -31,6 +32,15 @@ public class ProductUtils {
         d.setCreatedAt(p.getCreatedAt()); d.setUpdatedAt(p.getUpdatedAt());
         return d;
     }
+    public static ProductDto toDtoSummary(ProductSummaryRow r){
+        if (r==null) return null; ProductDto d=new ProductDto();
+        d.setId(r.id()); d.setName(r.name()); d.setSlug(r.slug()); d.setBrand(r.brand());
+        if (r.categoryId()!=null) d.setCategory(new CategoryDto(r.categoryId(), r.categoryName(), r.categorySlug(), r.categoryCreatedAt(), r.categoryUpdatedAt()));
+        d.setPrice(r.price()); d.setPriceOld(r.priceOld()); d.setDiscount(r.discount());
+        d.setThumbnailImage(r.thumbnailImage()); d.setQuantity(r.quantity()); d.setIsPublished(r.isPublished()); d.setPublishedAt(r.publishedAt());
+        d.setCreatedAt(r.createdAt()); d.setUpdatedAt(r.updatedAt());
+        return d;
+    }
     public static Page<ProductDto> toDtoPage(Page<Product> page){
         List<ProductDto> list = page.getContent().stream().map(ProductUtils::toDto).collect(Collectors.toList());
         return new PageImpl<>(list, page.getPageable(), page.getTotalElements());
@@ -13,14 +13,35 @@ public class SlugUtils {
             return "";
         }
         
-        // Loại bỏ khoảng trắng đầu và cuối
-        String slug = text.trim();
+        // Loại bỏ khoảng trắng đầu và cuối, chuyển thành chữ thường và bỏ dấu
+        String slug = removeAccents(text.trim());
         
-        // Chuyển thành chữ thường
-        slug = slug.toLowerCase();
+        // Loại bỏ tất cả các ký tự không phải chữ cái, số, dấu gạch ngang
+        slug = slug.replaceAll("[^a-z0-9\\-]", " ");
+        
+        // Loại bỏ khoảng trắng thừa
+        slug = slug.trim().replaceAll("\\s+", "-");
         
-        // Chuyển đổi các ký tự đặc biệt tiếng Việt
-        slug = slug
+        // Loại bỏ nhiều dấu gạch ngang liên tiếp
+        slug = slug.replaceAll("-+", "-");
+        
+        // Loại bỏ dấu gạch ngang ở đầu và cuối
+        slug = slug.replaceAll("^-|-$", "");
+        
+        return slug;
+    }
+
+    /**
+     * Chữ thường + bỏ dấu tiếng Việt, giữ nguyên các ký tự khác
+     * Ví dụ: "Điện Thoại" -> "dien thoai"
+     * @param text Text cần chuyển đổi
+     * @return Text không dấu
+     */
+    public static String removeAccents(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        return text.toLowerCase()
                 .replace("á", "a").replace("à", "a").replace("ả", "a").replace("ã", "a").replace("ạ", "a")
                 .replace("ă", "a").replace("ắ", "a").replace("ằ", "a").replace("ẳ", "a").replace("ẵ", "a").replace("ặ", "a")
                 .replace("â", "a").replace("ấ", "a").replace("ầ", "a").replace("ẩ", "a").replace("ẫ", "a").replace("ậ", "a")
@@ -34,19 +55,5 @@ public class SlugUtils {
                 .replace("ú", "u").replace("ù", "u").replace("ủ", "u").replace("ũ", "u").replace("ụ", "u")
                 .replace("ư", "u").replace("ứ", "u").replace("ừ", "u").replace("ử", "u").replace("ữ", "u").replace("ự", "u")
                 .replace("ý", "y").replace("ỳ", "y").replace("ỷ", "y").replace("ỹ", "y").replace("ỵ", "y");
-        
-        // Loại bỏ tất cả các ký tự không phải chữ cái, số, dấu gạch ngang
-        slug = slug.replaceAll("[^a-z0-9\\-]", " ");
-        
-        // Loại bỏ khoảng trắng thừa
-        slug = slug.trim().replaceAll("\\s+", "-");
-        
-        // Loại bỏ nhiều dấu gạch ngang liên tiếp
-        slug = slug.replaceAll("-+", "-");
-        
-        // Loại bỏ dấu gạch ngang ở đầu và cuối
-        slug = slug.replaceAll("^-|-$", "");
-        
-        return slug;
     }
 }
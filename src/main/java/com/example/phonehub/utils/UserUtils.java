@@ -2,6 +2,7 @@ package com.example.phonehub.utils;
 
 import com.example.phonehub.entity.User;
 import com.example.phonehub.dto.UserDto;
+import com.example.phonehub.repository.projection.UserSummaryRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
@@ -54,6 +55,27 @@ public class UserUtils {
         return dto;
     }
     
+    // Convert projection row to DTO (danh sách - không có entity, role, rank)
+    public static UserDto toDtoBasic(UserSummaryRow row) {
+        if (row == null) return null;
+        
+        UserDto dto = new UserDto();
+        dto.setId(row.id());
+        dto.setUsername(row.username());
+        dto.setEmail(row.email());
+        dto.setPhone(row.phone());
+        dto.setAddress(row.address());
+        dto.setAvatar(row.avatar());
+        dto.setBirthday(row.birthday());
+        dto.setPoints(row.points());
+        dto.setRoleId(row.roleId());
+        dto.setRankId(row.rankId());
+        dto.setCreatedAt(row.createdAt());
+        dto.setUpdatedAt(row.updatedAt());
+        
+        return dto;
+    }
+    
     // Convert Entity to DTO (chỉ lấy ID của role và rank - cho danh sách)
     public static UserDto toDto(User user) {
         return toDtoBasic(user); // UserDto chỉ có roleId và rankId, không có full object
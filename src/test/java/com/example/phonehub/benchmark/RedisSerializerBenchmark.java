@@ -0,0 +1,177 @@
+package com.example.phonehub.benchmark;
+
+import com.example.phonehub.config.VersionedRedisSerializer;
+import com.example.phonehub.dto.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: so sánh serializer JSON cũ với Smile và Smile + LZ4 trên các DTO thường cache
+ *
+ * Chạy (không nằm trong mvn test):
+ *   mvn test-compile
+ *   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *        com.example.phonehub.benchmark.RedisSerializerBenchmark
+ *
+ * Kích thước bytes mỗi payload được in ra trước khi chạy benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"json", "smile", "smile-lz4"})
+    public String serializer;
+
+    @Param({"product", "user", "ranks"})
+    public String payload;
+
+    private RedisSerializer<Object> redisSerializer;
+    private Object value;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        redisSerializer = serializer(serializer);
+        value = payload(payload);
+        bytes = redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(bytes);
+    }
+
+    public static RedisSerializer<Object> serializer(String name) {
+        return switch (name) {
+            case "json" -> legacyJson();
+            case "smile" -> new VersionedRedisSerializer(VersionedRedisSerializer.Format.SMILE, false, 0);
+            case "smile-lz4" -> new VersionedRedisSerializer(VersionedRedisSerializer.Format.SMILE, true, 1024);
+            default -> throw new IllegalArgumentException("Unknown serializer: " + name);
+        };
+    }
+
+    /** Serializer trước đây: GenericJackson2JsonRedisSerializer + default typing */
+    public static RedisSerializer<Object> legacyJson() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        objectMapper.findAndRegisterModules();
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+
+    public static Object payload(String name) {
+        return switch (name) {
+            case "product" -> sampleProduct();
+            case "user" -> sampleUser();
+            case "ranks" -> sampleRanks();
+            default -> throw new IllegalArgumentException("Unknown payload: " + name);
+        };
+    }
+
+    public static ProductDto sampleProduct() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 15, 10, 30);
+        List<ProductSpecificationDto> specs = new ArrayList<>();
+        String[][] rows = {
+                {"Màn hình", "Công nghệ màn hình", "Dynamic AMOLED 2X"},
+                {"Màn hình", "Độ phân giải", "Quad HD+ (1440 x 3120 Pixels)"},
+                {"Màn hình", "Tần số quét", "120 Hz"},
+                {"Camera sau", "Độ phân giải", "Chính 200 MP & Phụ 50 MP, 12 MP, 10 MP"},
+                {"Camera sau", "Quay phim", "8K 4320p@30fps, 4K 2160p@60fps"},
+                {"Camera trước", "Độ phân giải", "12 MP"},
+                {"Hệ điều hành & CPU", "Hệ điều hành", "Android 14"},
+                {"Hệ điều hành & CPU", "Chip xử lý", "Snapdragon 8 Gen 3 for Galaxy"},
+                {"Bộ nhớ", "RAM", "12 GB"},
+                {"Bộ nhớ", "Dung lượng lưu trữ", "256 GB"},
+                {"Pin & Sạc", "Dung lượng pin", "5000 mAh"},
+                {"Pin & Sạc", "Hỗ trợ sạc tối đa", "45 W"},
+                {"Kết nối", "Mạng di động", "Hỗ trợ 5G"},
+                {"Kết nối", "Wifi", "Wi-Fi 7"},
+                {"Tiện ích", "Bảo mật nâng cao", "Mở khoá vân tay dưới màn hình"},
+                {"Thiết kế", "Chất liệu", "Khung Titan & Mặt lưng kính cường lực"}
+        };
+        for (int i = 0; i < rows.length; i++) {
+            specs.add(new ProductSpecificationDto(i + 1, 1, rows[i][0], rows[i][1], rows[i][2], "text", now, now));
+        }
+        List<ProductColorDto> colors = List.of(
+                new ProductColorDto(1, 1, "Titan Đen", "#1C1C1C", now, now),
+                new ProductColorDto(2, 1, "Titan Xám", "#8A8A8A", now, now),
+                new ProductColorDto(3, 1, "Titan Tím", "#5B4A6B", now, now),
+                new ProductColorDto(4, 1, "Titan Vàng", "#E3D3A4", now, now));
+        List<ProductImageDto> images = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            images.add(new ProductImageDto(i, 1, "https://cdn.phonehub.vn/products/galaxy-s24-ultra/" + i + ".jpg", now, now));
+        }
+        CategoryDto category = new CategoryDto(1, "Điện thoại", "dien-thoai", now, now);
+        return new ProductDto(1, "Samsung Galaxy S24 Ultra 12GB 256GB", "samsung-galaxy-s24-ultra-12gb-256gb",
+                "Samsung", category, new BigDecimal("29990000"), new BigDecimal("33990000"), "12%",
+                "https://cdn.phonehub.vn/products/galaxy-s24-ultra/thumb.jpg", 120, true, now,
+                sampleUser(), now, now, specs, colors, images);
+    }
+
+    public static UserDto sampleUser() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 15, 10, 30);
+        UserDto user = new UserDto();
+        user.setId(7);
+        user.setUsername("nguyenvana");
+        user.setEmail("nguyenvana@phonehub.vn");
+        user.setPhone("0901234567");
+        user.setAddress("123 Nguyễn Huệ, Quận 1, TP. Hồ Chí Minh");
+        user.setAvatar("https://cdn.phonehub.vn/avatars/7.jpg");
+        user.setBirthday(LocalDate.of(1995, 6, 20));
+        user.setPoints(1520);
+        user.setRoleId(2);
+        user.setRankId(3);
+        user.setRole(new RoleDto(2, "user", now, now));
+        user.setRank(new UserRankDto(3, "Vàng", 1000, 4999, new BigDecimal("5.00"), now, now));
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+        return user;
+    }
+
+    public static List<UserRankDto> sampleRanks() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 15, 10, 30);
+        return new ArrayList<>(List.of(
+                new UserRankDto(1, "Đồng", 0, 199, new BigDecimal("0.00"), now, now),
+                new UserRankDto(2, "Bạc", 200, 999, new BigDecimal("2.00"), now, now),
+                new UserRankDto(3, "Vàng", 1000, 4999, new BigDecimal("5.00"), now, now),
+                new UserRankDto(4, "Bạch kim", 5000, 19999, new BigDecimal("8.00"), now, now),
+                new UserRankDto(5, "Kim cương", 20000, null, new BigDecimal("12.00"), now, now)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (String payload : new String[]{"product", "user", "ranks"}) {
+            for (String name : new String[]{"json", "smile", "smile-lz4"}) {
+                System.out.printf("%-8s %-10s %6d bytes%n", payload, name, serializer(name).serialize(payload(payload)).length);
+            }
+        }
+        Options options = new OptionsBuilder()
+                .include(RedisSerializerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
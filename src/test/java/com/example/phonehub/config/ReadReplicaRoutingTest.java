@@ -0,0 +1,138 @@
+package com.example.phonehub.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 2 H2 in-memory đóng vai primary/replica, mỗi DB có 1 dòng đánh dấu để biết câu SQL chạy ở đâu
+ *
+ * Dùng JpaTransactionManager + Hibernate với CONNECTION_HANDLING như production: thời điểm Hibernate
+ * lấy connection so với lúc transaction được đánh dấu read-only chính là chỗ routing có thể sai.
+ */
+class ReadReplicaRoutingTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaLagMonitor lagMonitor;
+    private JdbcTemplate jdbcTemplate;
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+    private EntityManagerFactory entityManagerFactory;
+    private JpaTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("primary");
+        replica = h2("replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replica_status (Seconds_Behind_Source INT)");
+        new JdbcTemplate(replica).update("INSERT INTO replica_status VALUES (0)");
+
+        lagMonitor = new ReplicaLagMonitor(replica, "SELECT Seconds_Behind_Source FROM replica_status", 5, true, null);
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(lagMonitor, null);
+        routing.setTargetDataSources(Map.of(
+                ReadReplicaRoutingDataSource.Route.PRIMARY, primary,
+                ReadReplicaRoutingDataSource.Route.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPersistenceUnitName("routing");
+        entityManagerFactoryBean.setPackagesToScan("com.example.phonehub.config");
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION));
+        entityManagerFactoryBean.afterPropertiesSet();
+        entityManagerFactory = entityManagerFactoryBean.getObject();
+        transactionManager = new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactoryBean.destroy();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaAndWritesToPrimary() {
+        lagMonitor.check();
+
+        assertThat(served(true)).isEqualTo("replica");
+        assertThat(served(false)).isEqualTo("primary");
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM marker", String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    void primaryHintWinsInsideReadOnlyTransaction() {
+        lagMonitor.check();
+
+        assertThat(inTransaction(true, () -> ReadReplicaRoutingDataSource.onPrimary(this::marker))).isEqualTo("primary");
+        // Hint chỉ áp dụng trong onPrimary(...)
+        assertThat(served(true)).isEqualTo("replica");
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaLagsOrIsUnchecked() {
+        // Chưa kiểm tra lần nào -> chưa tin replica
+        assertThat(served(true)).isEqualTo("primary");
+
+        new JdbcTemplate(replica).update("UPDATE replica_status SET Seconds_Behind_Source = 30");
+        lagMonitor.check();
+        assertThat(lagMonitor.getLagSeconds()).isEqualTo(30);
+        assertThat(served(true)).isEqualTo("primary");
+
+        // Replication dừng
+        new JdbcTemplate(replica).update("UPDATE replica_status SET Seconds_Behind_Source = NULL");
+        lagMonitor.check();
+        assertThat(served(true)).isEqualTo("primary");
+
+        new JdbcTemplate(replica).update("UPDATE replica_status SET Seconds_Behind_Source = 1");
+        lagMonitor.check();
+        assertThat(served(true)).isEqualTo("replica");
+    }
+
+    private String served(boolean readOnly) {
+        return inTransaction(readOnly, this::marker);
+    }
+
+    private String inTransaction(boolean readOnly, Supplier<String> work) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> work.get());
+    }
+
+    private String marker() {
+        return (String) EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory)
+                .createNativeQuery("SELECT name FROM marker")
+                .getSingleResult();
+    }
+
+    private static DataSource h2(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP TABLE IF EXISTS marker");
+        jdbc.execute("DROP TABLE IF EXISTS replica_status");
+        jdbc.execute("CREATE TABLE marker (name VARCHAR(20))");
+        jdbc.update("INSERT INTO marker VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.phonehub.config;
+
+import com.example.phonehub.benchmark.RedisSerializerBenchmark;
+import com.example.phonehub.dto.CursorPageDto;
+import com.example.phonehub.dto.ProductDto;
+import com.example.phonehub.dto.UserDto;
+import com.example.phonehub.dto.UserRankDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionedRedisSerializerTest {
+
+    private final VersionedRedisSerializer smileLz4 =
+            new VersionedRedisSerializer(VersionedRedisSerializer.Format.SMILE, true, 1024);
+    private final RedisSerializer<Object> legacy = RedisSerializerBenchmark.legacyJson();
+
+    @Test
+    void roundTripsCachedDtos() {
+        ProductDto product = RedisSerializerBenchmark.sampleProduct();
+        UserDto user = RedisSerializerBenchmark.sampleUser();
+        List<UserRankDto> ranks = RedisSerializerBenchmark.sampleRanks();
+
+        assertThat(smileLz4.deserialize(smileLz4.serialize(product))).isEqualTo(product);
+        assertThat(smileLz4.deserialize(smileLz4.serialize(user))).isEqualTo(user);
+        assertThat(smileLz4.deserialize(smileLz4.serialize(ranks))).isEqualTo(ranks);
+        assertThat(smileLz4.deserialize(smileLz4.serialize("product:1"))).isEqualTo("product:1");
+    }
+
+    @Test
+    void writesTypeOnlyForRootValue() {
+        VersionedRedisSerializer json = new VersionedRedisSerializer(VersionedRedisSerializer.Format.JSON, false, 0);
+        ProductDto product = RedisSerializerBenchmark.sampleProduct();
+        CursorPageDto<UserRankDto> cursorPage = new CursorPageDto<>(RedisSerializerBenchmark.sampleRanks(), "c1", true, 2, null);
+        Page<ProductDto> page = new PageImpl<>(List.of(product), PageRequest.of(0, 20), 1);
+        PageAwareRedisSerializer pageAware = new PageAwareRedisSerializer(json);
+
+        assertThat(new String(json.serialize(product), StandardCharsets.UTF_8)).doesNotContain("@class");
+        assertThat(json.deserialize(json.serialize(cursorPage))).isEqualTo(cursorPage);
+        Page<?> cachedPage = (Page<?>) pageAware.deserialize(pageAware.serialize(page));
+        assertThat(cachedPage.getContent()).isEqualTo(List.of(product));
+        assertThat(cachedPage.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void compressesLargeValuesAndStaysSmallerThanLegacyJson() {
+        ProductDto product = RedisSerializerBenchmark.sampleProduct();
+        byte[] compact = smileLz4.serialize(product);
+
+        assertThat(compact[0]).isEqualTo(VersionedRedisSerializer.MAGIC);
+        assertThat(compact[2] & VersionedRedisSerializer.FLAG_LZ4).isNotZero();
+        assertThat(compact.length).isLessThan(legacy.serialize(product).length / 2);
+    }
+
+    @Test
+    void readsLegacyJsonEntries() {
+        UserDto user = RedisSerializerBenchmark.sampleUser();
+
+        assertThat(smileLz4.deserialize(legacy.serialize(user))).isEqualTo(user);
+    }
+
+    @Test
+    void treatsUnknownVersionAndCorruptEntriesAsMiss() {
+        byte[] unknownFormat = smileLz4.serialize(RedisSerializerBenchmark.sampleUser());
+        unknownFormat[1] = 9;
+        byte[] corrupt = {VersionedRedisSerializer.MAGIC, 2, 0, 1, 2, 3};
+
+        assertThat(smileLz4.deserialize(unknownFormat)).isNull();
+        assertThat(smileLz4.deserialize(corrupt)).isNull();
+        assertThat(smileLz4.deserialize(new byte[0])).isNull();
+        // Kiểu gốc ngoài package tin cậy
+        byte[] untrusted = smileLz4.serialize("x");
+        untrusted[5] = 'x';
+        assertThat(smileLz4.deserialize(untrusted)).isNull();
+    }
+
+    @Test
+    void rejectsDecompressedLengthAboveLimit() {
+        byte[] compressed = smileLz4.serialize(RedisSerializerBenchmark.sampleProduct());
+        int lengthOffset = 5 + ByteBuffer.wrap(compressed, 3, 2).getShort();
+        ByteBuffer.wrap(compressed, lengthOffset, 4).putInt(Integer.MAX_VALUE);
+        assertThat(smileLz4.deserialize(compressed)).isNull();
+
+        // Độ dài hợp lệ nhưng lớn hơn dữ liệu thật: safe decompressor không đọc/ghi ra ngoài buffer
+        ByteBuffer.wrap(compressed, lengthOffset, 4).putInt(1_000_000);
+        assertThat(smileLz4.deserialize(compressed)).isNull();
+    }
+}
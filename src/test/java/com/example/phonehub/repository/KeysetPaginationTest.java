@@ -0,0 +1,134 @@
+package com.example.phonehub.repository;
+
+import com.example.phonehub.dto.CursorPageDto;
+import com.example.phonehub.entity.*;
+import com.example.phonehub.repository.projection.ProductSummaryRow;
+import com.example.phonehub.repository.projection.UserSummaryRow;
+import com.example.phonehub.utils.CursorUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Duyệt hết danh sách bằng cursor: không trùng, không sót kể cả khi nhiều dòng cùng createdAt
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:keyset;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class KeysetPaginationTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void walksPublishedProductsNewestFirstWithoutDuplicatesOrGaps() {
+        User user = persistUser("admin");
+        Category category = new Category();
+        category.setName("Điện thoại");
+        category.setSlug("dien-thoai");
+        category.setCreatedBy(user);
+        em.persist(category);
+        for (int i = 0; i < 25; i++) {
+            Product product = new Product();
+            product.setName("Phone " + i);
+            product.setSlug("phone-" + i);
+            product.setBrand("Brand");
+            product.setCategory(category);
+            product.setCreatedBy(user);
+            product.setIsPublished(i % 5 != 0);
+            em.persist(product);
+        }
+        em.flush();
+        // Nửa đầu cùng createdAt -> thứ tự phải dựa vào id
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        em.getEntityManager().createQuery("UPDATE Product p SET p.createdAt = :t WHERE p.slug < 'phone-2'")
+                .setParameter("t", base).executeUpdate();
+        em.getEntityManager().createQuery("UPDATE Product p SET p.createdAt = :t WHERE p.slug >= 'phone-2'")
+                .setParameter("t", base.plusDays(1)).executeUpdate();
+        em.clear();
+
+        List<Product> expected = productRepository.findAll().stream()
+                .filter(Product::getIsPublished)
+                .sorted(Comparator.comparing(Product::getCreatedAt).thenComparing(Product::getId).reversed())
+                .toList();
+
+        List<Integer> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorUtils.Cursor after = CursorUtils.decode(cursor);
+            List<ProductSummaryRow> rows = after == null
+                    ? productRepository.findPublishedFirst(CursorUtils.limit(7))
+                    : productRepository.findPublishedAfter(after.createdAt(), after.id(), CursorUtils.limit(7));
+            CursorPageDto<Integer> page = CursorUtils.toPage(rows, 7, ProductSummaryRow::id,
+                    p -> CursorUtils.encode(p.createdAt(), p.id()), null);
+            walked.addAll(page.getContent());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(walked).containsExactlyElementsOf(expected.stream().map(Product::getId).toList());
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void walksUsersById() {
+        for (int i = 0; i < 5; i++) {
+            persistUser("user" + i);
+        }
+        em.flush();
+
+        CursorPageDto<Integer> first = CursorUtils.toPage(userRepository.findAllBasicFirst(CursorUtils.limit(3)), 3,
+                UserSummaryRow::id, u -> CursorUtils.encode(u.id()), null);
+        CursorUtils.Cursor after = CursorUtils.decode(first.getNextCursor());
+        CursorPageDto<Integer> second = CursorUtils.toPage(userRepository.findAllBasicAfter(after.id(), CursorUtils.limit(3)), 3,
+                UserSummaryRow::id, u -> CursorUtils.encode(u.id()), null);
+
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(second.getContent()).hasSize(2).allMatch(id -> id > first.getContent().get(2));
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThat(CursorUtils.decode(null)).isNull();
+        assertThatThrownBy(() -> CursorUtils.decode("not-a-cursor")).hasMessage("Invalid cursor");
+    }
+
+    private User persistUser(String username) {
+        Role role = new Role();
+        role.setName("user-" + username);
+        em.persist(role);
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("x");
+        user.setPoints(0);
+        user.setRole(role);
+        em.persist(user);
+        return user;
+    }
+}
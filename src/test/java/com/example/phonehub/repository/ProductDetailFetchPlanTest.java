@@ -0,0 +1,174 @@
+package com.example.phonehub.repository;
+
+import com.example.phonehub.entity.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chi tiết sản phẩm 40 specs × 6 colors × 10 images:
+ * fetch join cả 3 collection sẽ đọc 40*6*10 = 2400 dòng; fetch plan hiện tại phải là
+ * 1 query root + 3 query collection = 4 query, 1 + 40 + 6 + 10 = 57 dòng.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fetchplan;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductDetailFetchPlanTest {
+
+    private static final AtomicLong ROWS_READ = new AtomicLong();
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void detailLoadsCollectionsWithSeparateQueriesInsteadOfCartesianJoin() {
+        Integer productId = persistProduct(40, 6, 10);
+        em.flush();
+        em.clear();
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        ROWS_READ.set(0);
+
+        Product product = productRepository.findDetailById(productId).orElseThrow();
+
+        assertThat(Hibernate.isInitialized(product.getCategory())).isTrue();
+        assertThat(Hibernate.isInitialized(product.getCreatedBy())).isTrue();
+        assertThat(product.getSpecifications()).hasSize(40);
+        assertThat(product.getColors()).hasSize(6);
+        assertThat(product.getImages()).hasSize(10);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(ROWS_READ.get()).isEqualTo(1 + 40 + 6 + 10);
+    }
+
+    private Integer persistProduct(int specs, int colors, int images) {
+        Role role = new Role();
+        role.setName("user");
+        em.persist(role);
+
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword("x");
+        user.setPoints(0);
+        user.setRole(role);
+        em.persist(user);
+
+        Category category = new Category();
+        category.setName("Điện thoại");
+        category.setSlug("dien-thoai");
+        category.setCreatedBy(user);
+        em.persist(category);
+
+        Product product = new Product();
+        product.setName("Galaxy S24 Ultra");
+        product.setSlug("galaxy-s24-ultra");
+        product.setBrand("Samsung");
+        product.setCategory(category);
+        product.setCreatedBy(user);
+        em.persist(product);
+
+        for (int i = 0; i < specs; i++) {
+            ProductSpecification spec = new ProductSpecification();
+            spec.setProduct(product);
+            spec.setGroupName("Nhóm " + (i / 5));
+            spec.setLabel("Thông số " + i);
+            spec.setValue("Giá trị " + i);
+            spec.setType("text");
+            spec.setCreatedBy(user);
+            em.persist(spec);
+        }
+        for (int i = 0; i < colors; i++) {
+            ProductColor color = new ProductColor();
+            color.setProduct(product);
+            color.setName("Màu " + i);
+            color.setCreatedBy(user);
+            em.persist(color);
+        }
+        for (int i = 0; i < images; i++) {
+            ProductImage image = new ProductImage();
+            image.setProduct(product);
+            image.setUrl("https://cdn.phonehub.vn/" + i + ".jpg");
+            image.setCreatedBy(user);
+            em.persist(image);
+        }
+        return product.getId();
+    }
+
+    /**
+     * Bọc DataSource để đếm số dòng thực sự đọc qua ResultSet.next()
+     */
+    @TestConfiguration
+    static class RowCountingConfig {
+
+        @Bean
+        static BeanPostProcessor rowCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? wrap(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T wrap(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (type == ResultSet.class && method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    ROWS_READ.incrementAndGet();
+                }
+                if (result instanceof Connection connection && method.getName().equals("getConnection")) {
+                    return wrap(Connection.class, connection);
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return wrap(PreparedStatement.class, statement);
+                }
+                if (result instanceof Statement statement && !(result instanceof PreparedStatement)) {
+                    return wrap(Statement.class, statement);
+                }
+                if (result instanceof ResultSet resultSet) {
+                    return wrap(ResultSet.class, resultSet);
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.phonehub.repository;
+
+import com.example.phonehub.dto.ProductDto;
+import com.example.phonehub.entity.*;
+import com.example.phonehub.utils.ProductUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark danh sách sản phẩm trên 100k dòng: entity + entity graph (cách cũ) vs projection ProductSummaryRow
+ *
+ * Đo thời gian và số byte cấp phát trên heap cho mỗi trang. Không nằm trong mvn test, chạy:
+ *   mvn test -Dtest=ProductListProjectionBenchmarkTest -Dprojection.bench=true
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:projection-bench;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "projection.bench", matches = "true")
+class ProductListProjectionBenchmarkTest {
+
+    private static final int PRODUCTS = 100_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP = 200;
+    private static final int ROUNDS = 1000;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void projectionAllocatesLessPerPageThanEntities() {
+        seed();
+        EntityManager entityManager = em.getEntityManager();
+        int pages = PRODUCTS / PAGE_SIZE;
+
+        IntFunction<List<ProductDto>> entities = page -> {
+            List<ProductDto> dtos = entityManager.createQuery("SELECT p FROM Product p ORDER BY p.id", Product.class)
+                    .setHint("jakarta.persistence.fetchgraph", entityManager.getEntityGraph(Product.GRAPH_SUMMARY))
+                    .setFirstResult(page * PAGE_SIZE)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList().stream().map(ProductUtils::toDtoSummary).toList();
+            entityManager.clear();
+            return dtos;
+        };
+        IntFunction<List<ProductDto>> projection = page -> {
+            List<ProductDto> dtos = productRepository.findAllSummaries(PageRequest.of(page, PAGE_SIZE, Sort.by("id")))
+                    .map(ProductUtils::toDtoSummary).getContent();
+            entityManager.clear();
+            return dtos;
+        };
+
+        assertThat(projection.apply(3)).isEqualTo(entities.apply(3));
+
+        long[] entityResult = measure(entities, pages);
+        long[] projectionResult = measure(projection, pages);
+        System.out.printf("%-10s %8d ns/page %8d bytes/page%n", "entity", entityResult[0], entityResult[1]);
+        System.out.printf("%-10s %8d ns/page %8d bytes/page%n", "projection", projectionResult[0], projectionResult[1]);
+
+        assertThat(projectionResult[1]).isLessThan(entityResult[1]);
+    }
+
+    /** @return {ns/trang, bytes cấp phát/trang} */
+    private static long[] measure(IntFunction<List<ProductDto>> loader, int pages) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            loader.apply(i % pages);
+        }
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            // Rải đều các trang, tránh chỉ đo trang đầu
+            loader.apply((int) ((long) i * 7919 % pages));
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new long[]{elapsed / ROUNDS, allocated / ROUNDS};
+    }
+
+    private void seed() {
+        Role role = new Role();
+        role.setName("admin");
+        em.persist(role);
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword("x");
+        user.setPoints(0);
+        user.setRole(role);
+        em.persist(user);
+        Category category = new Category();
+        category.setName("Điện thoại");
+        category.setSlug("dien-thoai");
+        category.setCreatedBy(user);
+        em.persist(category);
+        em.flush();
+        em.clear();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        List<Object[]> rows = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            rows.add(new Object[]{i + 1, "Phone " + i, "phone-" + i, "Brand " + (i % 20), category.getId(),
+                    new BigDecimal("9990000"), new BigDecimal("10990000"), "9%",
+                    "https://cdn.phonehub.vn/products/" + i + "/thumb.jpg", 100, true, now, user.getId(), now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (id, name, slug, brand, category_id, price, price_old, discount, "
+                + "thumbnail_image, quantity, is_published, published_at, created_by, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+}
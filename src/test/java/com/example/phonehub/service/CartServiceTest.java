@@ -0,0 +1,279 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.dto.CartItemDto;
+import com.example.phonehub.dto.CreateCartItemRequest;
+import com.example.phonehub.dto.ProductDto;
+import com.example.phonehub.dto.UpdateCartItemRequest;
+import com.example.phonehub.entity.Category;
+import com.example.phonehub.entity.Role;
+import com.example.phonehub.entity.User;
+import com.example.phonehub.repository.CategoryRepository;
+import com.example.phonehub.repository.RoleRepository;
+import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Giỏ hàng trong Redis: cộng thêm vào giỏ không query MySQL, dòng mới có id ngay, flush ghi cả batch xuống cart_items,
+ * cold start nạp lại từ MySQL
+ * (Redis giả lập bằng map trong bộ nhớ)
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:cart;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CartService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private RedisService redisService;
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Double> dirty = new HashMap<>();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        stubRedis();
+        if (userRepository.count() > 0) {
+            user = userRepository.findAll().get(0);
+            return;
+        }
+        Role role = new Role();
+        role.setName("customer");
+        roleRepository.save(role);
+        user = new User();
+        user.setUsername("buyer");
+        user.setPassword("x");
+        user.setPoints(0);
+        user.setRole(role);
+        userRepository.save(user);
+        Category category = new Category();
+        category.setName("Điện thoại");
+        category.setSlug("dien-thoai");
+        category.setCreatedBy(user);
+        categoryRepository.save(category);
+    }
+
+    @Test
+    void addToCartHitsRedisOnlyAndFlushesInBatch() {
+        product(1, "1000000");
+        product(2, "2000000");
+        CartItemDto first = cartService.addOrUpdate(new CreateCartItemRequest(user.getId(), 1, 2));
+        cartService.addOrUpdate(new CreateCartItemRequest(user.getId(), 2, 1));
+        // Dòng mới được INSERT ngay để có id
+        assertThat(first.getId()).isNotNull();
+        assertThat(cartRows()).isEqualTo(2);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CartItemDto line = cartService.addOrUpdate(new CreateCartItemRequest(user.getId(), 1, 1));
+        // Giỏ đã nạp, dòng đã có id, sản phẩm đã có trong cache summary
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(line.getId()).isEqualTo(first.getId());
+        assertThat(line.getQuantity()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE product_id = 1", Integer.class))
+                .isEqualTo(2);
+
+        cartService.flush();
+        assertThat(cartRows()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE product_id = 1", Integer.class))
+                .isEqualTo(3);
+        List<CartItemDto> cart = cartService.getUserCart(user.getId());
+        assertThat(cart).extracting(CartItemDto::getProductId).containsExactly(1, 2);
+        assertThat(cart).allMatch(item -> item.getId() != null);
+        assertThat(cart.get(1).getPriceAtAdd()).isEqualByComparingTo("2000000");
+
+        cartService.updateQuantity(cart.get(0).getId(), new UpdateCartItemRequest(5));
+        cartService.removeItem(cart.get(1).getId());
+        cartService.flush();
+        assertThat(jdbcTemplate.queryForList("SELECT product_id, quantity FROM cart_items"))
+                .containsExactly(Map.of("PRODUCT_ID", 1, "QUANTITY", 5));
+
+        cartService.clearUserCart(user.getId());
+        cartService.flush();
+        assertThat(cartRows()).isZero();
+        assertThat(cartService.getUserCart(user.getId())).isEmpty();
+    }
+
+    @Test
+    void newLineCanBeUpdatedAndRemovedBeforeFlush() {
+        product(31, "100000");
+        product(32, "200000");
+        CartItemDto kept = cartService.addOrUpdate(new CreateCartItemRequest(user.getId(), 31, 1));
+        CartItemDto dropped = cartService.addOrUpdate(new CreateCartItemRequest(user.getId(), 32, 1));
+
+        assertThat(cartService.updateQuantity(kept.getId(), new UpdateCartItemRequest(4)).getQuantity()).isEqualTo(4);
+        cartService.removeItem(dropped.getId());
+        assertThat(cartService.getUserCart(user.getId())).extracting(CartItemDto::getId).containsExactly(kept.getId());
+
+        cartService.flush();
+        assertThat(jdbcTemplate.queryForList("SELECT id, product_id, quantity FROM cart_items"))
+                .containsExactly(Map.of("ID", kept.getId(), "PRODUCT_ID", 31, "QUANTITY", 4));
+        cartService.clearUserCart(user.getId());
+        cartService.flush();
+    }
+
+    @Test
+    void coldStartReloadsCartFromMySql() {
+        product(11, "500000");
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, price_at_add, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", user.getId(), 11, 2, new BigDecimal("450000"), now, now);
+
+        List<CartItemDto> cart = cartService.getUserCart(user.getId());
+        assertThat(cart).hasSize(1);
+        assertThat(cart.get(0).getQuantity()).isEqualTo(2);
+        assertThat(cart.get(0).getPriceAtAdd()).isEqualByComparingTo("450000");
+
+        // Giá lúc thêm giữ nguyên, số lượng cộng dồn
+        CartItemDto line = cartService.addOrUpdate(new CreateCartItemRequest(user.getId(), 11, 1));
+        assertThat(line.getQuantity()).isEqualTo(3);
+        assertThat(line.getPriceAtAdd()).isEqualByComparingTo("450000");
+        cartService.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE product_id = 11", Integer.class))
+                .isEqualTo(3);
+        cartService.clearUserCart(user.getId());
+        cartService.flush();
+    }
+
+    @Test
+    void failedWriteKeepsUserQueuedForRetry() {
+        product(21, "300000");
+        cartService.addOrUpdate(new CreateCartItemRequest(user.getId(), 21, 1));
+        // Giỏ của user không còn trong MySQL: INSERT lỗi khóa ngoại, cả batch lỗi rồi ghi lại từng giỏ
+        hashes.put("cart:999", new HashMap<>(Map.of("_", "1", "q:21", "2", "p:21", "300000")));
+        dirty.put("999", 1.0);
+
+        cartService.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE product_id = 21", Integer.class))
+                .isEqualTo(1);
+        assertThat(dirty).containsOnlyKeys("999");
+
+        hashes.remove("cart:999");
+        cartService.clearUserCart(user.getId());
+        cartService.flush();
+        assertThat(dirty).isEmpty();
+        assertThat(cartRows()).isZero();
+    }
+
+    private int cartRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items", Integer.class);
+    }
+
+    private void product(int id, String price) {
+        Integer categoryId = categoryRepository.findAll().get(0).getId();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        jdbcTemplate.update("INSERT INTO products (id, name, slug, brand, category_id, price, quantity, is_published, "
+                + "created_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "Phone " + id, "phone-" + id, "Brand", categoryId, new BigDecimal(price), 10, true,
+                user.getId(), now, now);
+    }
+
+    // Các lệnh hash/set dùng cho giỏ hàng, ngữ nghĩa như script Lua trong RedisService
+    @SuppressWarnings("unchecked")
+    private void stubRedis() {
+        Map<Integer, ProductDto> summaries = new HashMap<>();
+        when(productCacheService.getProductSummaries(anyCollection(), any())).thenAnswer(inv -> {
+            Collection<Integer> ids = inv.getArgument(0);
+            List<Integer> missing = ids.stream().filter(id -> !summaries.containsKey(id)).toList();
+            if (!missing.isEmpty()) {
+                ((Function<Collection<Integer>, List<ProductDto>>) inv.getArgument(1)).apply(missing)
+                        .forEach(dto -> summaries.put(dto.getId(), dto));
+            }
+            Map<Integer, ProductDto> result = new HashMap<>();
+            ids.stream().filter(summaries::containsKey).forEach(id -> result.put(id, summaries.get(id)));
+            return result;
+        });
+        when(redisService.hashGetAll(anyString())).thenAnswer(inv ->
+                new HashMap<>(hashes.getOrDefault(inv.<String>getArgument(0), Map.of())));
+        when(redisService.hashIncrementIfExists(anyString(), anyString(), anyLong(), anyMap(), any())).thenAnswer(inv -> {
+            Map<String, String> hash = hashes.get(inv.<String>getArgument(0));
+            if (hash == null) return null;
+            inv.<Map<String, String>>getArgument(3).forEach(hash::putIfAbsent);
+            long value = Long.parseLong(hash.getOrDefault(inv.<String>getArgument(1), "0")) + inv.<Long>getArgument(2);
+            hash.put(inv.getArgument(1), Long.toString(value));
+            return value;
+        });
+        when(redisService.hashPutAllIfAbsent(anyString(), anyMap(), any())).thenAnswer(inv ->
+                hashes.putIfAbsent(inv.getArgument(0), new HashMap<>(inv.<Map<String, String>>getArgument(1))) == null);
+        when(redisService.hashPutAllIfExists(anyString(), anyMap(), any())).thenAnswer(inv -> {
+            Map<String, String> hash = hashes.get(inv.<String>getArgument(0));
+            if (hash == null) return false;
+            hash.putAll(inv.getArgument(1));
+            return true;
+        });
+        when(redisService.hashReplace(anyString(), anyMap(), any())).thenAnswer(inv -> {
+            hashes.put(inv.getArgument(0), new HashMap<>(inv.<Map<String, String>>getArgument(1)));
+            return true;
+        });
+        when(redisService.hashMultiGet(anyString(), any(String[].class))).thenAnswer(inv -> {
+            Map<String, String> hash = hashes.getOrDefault(inv.<String>getArgument(0), Map.of());
+            List<String> values = new ArrayList<>();
+            for (int i = 1; i < inv.getArguments().length; i++) values.add(hash.get(inv.<String>getArgument(i)));
+            return values;
+        });
+        when(redisService.hashDelete(anyString(), any(String[].class))).thenAnswer(inv -> {
+            Map<String, String> hash = hashes.getOrDefault(inv.<String>getArgument(0), new HashMap<>());
+            long deleted = 0;
+            for (int i = 1; i < inv.getArguments().length; i++) if (hash.remove(inv.<String>getArgument(i)) != null) deleted++;
+            return deleted;
+        });
+        when(redisService.sortedSetIncrement(anyString(), anyString(), anyDouble())).thenAnswer(inv -> {
+            dirty.merge(inv.getArgument(1), inv.<Double>getArgument(2), Double::sum);
+            return true;
+        });
+        when(redisService.sortedSetRandomMembers(anyString(), anyLong())).thenAnswer(inv -> new HashMap<>(dirty));
+        when(redisService.sortedSetRemoveIfScore(anyString(), anyMap())).thenAnswer(inv -> {
+            long removed = 0;
+            for (Map.Entry<String, Double> member : inv.<Map<String, Double>>getArgument(1).entrySet()) {
+                if (dirty.remove(member.getKey(), member.getValue())) removed++;
+            }
+            return removed;
+        });
+    }
+}
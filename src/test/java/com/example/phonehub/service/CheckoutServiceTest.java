@@ -0,0 +1,185 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.dto.CheckoutItemRequest;
+import com.example.phonehub.dto.CheckoutRequest;
+import com.example.phonehub.dto.OrderDto;
+import com.example.phonehub.entity.*;
+import com.example.phonehub.repository.*;
+import com.example.phonehub.service.helper.OrderHelper;
+import com.example.phonehub.service.helper.UserHelper;
+import com.example.phonehub.service.inventory.StockReservationService;
+import com.example.phonehub.service.inventory.StockShardService;
+import com.example.phonehub.service.redis_cache.OrderCacheService;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checkout cả giỏ: số câu lệnh không tăng theo số dòng, tổng tiền tính ở server, thiếu hàng thì không ghi gì
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CheckoutService.class, OrderHelper.class, StockReservationService.class, StockShardService.class})
+// Checkout commit riêng như request thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutServiceTest {
+
+    private static final int LINES = 20;
+
+    @Autowired
+    private CheckoutService checkoutService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserRankRepository userRankRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private UserHelper userHelper;
+    @MockitoBean
+    private OrderCacheService orderCacheService;
+    @MockitoBean
+    private CatalogIndexer catalogIndexer;
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.count() > 0) {
+            user = userRepository.findAll().get(0);
+            return;
+        }
+        Role role = new Role();
+        role.setName("customer");
+        roleRepository.save(role);
+        UserRank rank = new UserRank();
+        rank.setName("Gold");
+        rank.setMinPoints(0);
+        rank.setMaxPoints(1000);
+        rank.setDiscount(new BigDecimal("5.00"));
+        userRankRepository.save(rank);
+        user = new User();
+        user.setUsername("buyer");
+        user.setPassword("x");
+        user.setPoints(0);
+        user.setRole(role);
+        user.setRank(rank);
+        userRepository.save(user);
+        Category category = new Category();
+        category.setName("Điện thoại");
+        category.setSlug("dien-thoai");
+        category.setCreatedBy(user);
+        categoryRepository.save(category);
+    }
+
+    @Test
+    void wholeCartInConstantStatements() {
+        List<CheckoutItemRequest> items = new ArrayList<>();
+        for (int i = 1; i <= LINES; i++) {
+            product(i, 10, "1000000");
+            items.add(new CheckoutItemRequest(i, 2));
+        }
+        // Dòng trùng sản phẩm được gộp
+        items.add(new CheckoutItemRequest(1, 1));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        OrderDto order = checkoutService.checkout(request(items));
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(order.getItems()).hasSize(LINES);
+        // 41 máy x 1.000.000, hạng Gold giảm 5%
+        assertThat(order.getTotalPrice()).isEqualByComparingTo("38950000.00");
+        assertThat(order.getStatus()).isEqualTo("pending");
+        // user, sản phẩm (IN), order, id block cho items/reservation, batch INSERT items/reservation, ...
+        // không phụ thuộc số dòng trong giỏ
+        assertThat(statements).isLessThan(LINES);
+        assertThat(productRepository.findQuantityById(1)).contains(7);
+        assertThat(productRepository.findQuantityById(LINES)).contains(8);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items WHERE order_id = ?", Integer.class, order.getId()))
+                .isEqualTo(LINES);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE order_id = ? AND status = 'RESERVED'",
+                Integer.class, order.getId())).isEqualTo(2 * LINES + 1);
+        verify(orderCacheService, times(1)).evictOrderItems(eq(order.getId()), eq(user.getId()));
+        verify(catalogIndexer, times(1)).reindex(anyCollection());
+    }
+
+    @Test
+    void insufficientStockRollsBackWholeOrder() {
+        product(101, 5, "500000");
+        product(102, 1, "700000");
+        long orders = orderRepository.count();
+
+        assertThatThrownBy(() -> checkoutService.checkout(request(List.of(
+                new CheckoutItemRequest(101, 2), new CheckoutItemRequest(102, 3)))))
+                .hasMessageStartingWith("Insufficient stock for product 102");
+
+        assertThat(orderRepository.count()).isEqualTo(orders);
+        assertThat(productRepository.findQuantityById(101)).contains(5);
+        assertThat(productRepository.findQuantityById(102)).contains(1);
+    }
+
+    private CheckoutRequest request(List<CheckoutItemRequest> items) {
+        CheckoutRequest req = new CheckoutRequest();
+        req.setUserId(user.getId());
+        req.setBuyerName("Nguyễn Văn A");
+        req.setItems(items);
+        return req;
+    }
+
+    private void product(int id, int quantity, String price) {
+        Integer categoryId = categoryRepository.findAll().get(0).getId();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        jdbcTemplate.update("INSERT INTO products (id, name, slug, brand, category_id, price, quantity, is_published, "
+                + "created_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "Phone " + id, "phone-" + id, "Brand", categoryId, new BigDecimal(price), quantity, true,
+                user.getId(), now, now);
+    }
+}
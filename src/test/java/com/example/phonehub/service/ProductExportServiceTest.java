@@ -0,0 +1,134 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.entity.Category;
+import com.example.phonehub.entity.Role;
+import com.example.phonehub.entity.User;
+import com.example.phonehub.repository.CategoryRepository;
+import com.example.phonehub.repository.RoleRepository;
+import com.example.phonehub.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Export catalog: đủ số dòng qua nhiều lần flush, đúng định dạng NDJSON/CSV
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-export;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // H2 không nhận fetch size âm (Integer.MIN_VALUE chỉ dành cho MySQL streaming)
+        "app.export.fetch-size=1000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(ProductExportService.class)
+// Service tự mở transaction như khi gọi từ StreamingResponseBody
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductExportServiceTest {
+
+    private static final int PRODUCTS = 2500;
+
+    @Autowired
+    private ProductExportService productExportService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.count() > 0) return;
+        Role role = new Role();
+        role.setName("admin");
+        roleRepository.save(role);
+        User admin = new User();
+        admin.setUsername("admin");
+        admin.setPassword("x");
+        admin.setPoints(0);
+        admin.setRole(role);
+        userRepository.save(admin);
+        Category category = new Category();
+        category.setName("Điện thoại");
+        category.setSlug("dien-thoai");
+        category.setCreatedBy(admin);
+        categoryRepository.save(category);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        List<Object[]> rows = new ArrayList<>(PRODUCTS);
+        for (int i = 1; i <= PRODUCTS; i++) {
+            // Sản phẩm đầu có tên cần escape trong CSV, sản phẩm chẵn chưa xuất bản
+            String name = i == 1 ? "Phone \"Pro\", 256GB" : "Phone " + i;
+            rows.add(new Object[]{i, name, "phone-" + i, "Brand " + (i % 5), category.getId(),
+                    new BigDecimal("9990000"), null, null, null, 10, i % 2 == 1, now, admin.getId(), now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (id, name, slug, brand, category_id, price, price_old, discount, "
+                + "thumbnail_image, quantity, is_published, published_at, created_by, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @Test
+    void exportsEveryProductAsNdjsonInIdOrder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = productExportService.export(out, ProductExportService.Format.NDJSON, false);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(PRODUCTS);
+        assertThat(lines).hasSize(PRODUCTS);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asInt()).isEqualTo(1);
+        assertThat(first.get("name").asText()).isEqualTo("Phone \"Pro\", 256GB");
+        assertThat(first.get("category").get("slug").asText()).isEqualTo("dien-thoai");
+        assertThat(objectMapper.readTree(lines[PRODUCTS - 1]).get("id").asInt()).isEqualTo(PRODUCTS);
+    }
+
+    @Test
+    void exportsPublishedProductsAsEscapedCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = productExportService.export(out, ProductExportService.Format.CSV, true);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(count).isEqualTo((PRODUCTS + 1) / 2);
+        assertThat(lines).hasSize((PRODUCTS + 1) / 2 + 1);
+        assertThat(lines[0]).isEqualTo(String.join(",", ProductExportService.CSV_HEADER));
+        assertThat(lines[1]).startsWith("1,\"Phone \"\"Pro\"\", 256GB\",phone-1,Brand 1,");
+        assertThat(lines[2]).startsWith("3,Phone 3,phone-3,");
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        assertThat(ProductExportService.Format.from("CSV")).isEqualTo(ProductExportService.Format.CSV);
+        assertThat(ProductExportService.Format.from(null)).isEqualTo(ProductExportService.Format.NDJSON);
+        assertThatThrownBy(() -> ProductExportService.Format.from("xml")).hasMessageContaining("Invalid export format");
+    }
+}
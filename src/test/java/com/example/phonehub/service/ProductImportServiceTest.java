@@ -0,0 +1,186 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.dto.ImportProductRequest;
+import com.example.phonehub.dto.ProductImportResultDto;
+import com.example.phonehub.entity.Category;
+import com.example.phonehub.entity.Role;
+import com.example.phonehub.entity.User;
+import com.example.phonehub.repository.CategoryRepository;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.RoleRepository;
+import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.redis_cache.CountCacheService;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
+import com.example.phonehub.service.search.ProductSuggestIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Import hàng loạt: INSERT được gom batch JDBC, dữ liệu lỗi thì không ghi gì
+ *
+ * Benchmark 50k sản phẩm x 30 thông số (không nằm trong mvn test):
+ *   mvn test -Dtest=ProductImportServiceTest -Dimport.bench=true
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-import;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.catalog.import.chunk-size=100"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import(ProductImportService.class)
+// Mỗi chunk commit riêng như khi chạy thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductImportServiceTest {
+
+    private static final int SPECS = 30;
+
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+    @MockitoBean
+    private CatalogIndexer catalogIndexer;
+    @MockitoBean
+    private ProductSuggestIndex productSuggestIndex;
+    @MockitoBean
+    private CountCacheService countCacheService;
+
+    private Integer categoryId;
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.count() == 0) {
+            Role role = new Role();
+            role.setName("admin");
+            roleRepository.save(role);
+            User admin = new User();
+            admin.setUsername("admin");
+            admin.setPassword("x");
+            admin.setPoints(0);
+            admin.setRole(role);
+            userRepository.save(admin);
+            Category category = new Category();
+            category.setName("Điện thoại");
+            category.setSlug("dien-thoai");
+            category.setCreatedBy(admin);
+            categoryRepository.save(category);
+        }
+        categoryId = categoryRepository.findAll().get(0).getId();
+    }
+
+    @Test
+    void insertsProductsAndChildrenInJdbcBatches() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long productsBefore = productRepository.count();
+
+        ProductImportResultDto result = productImportService.importProducts(products("batch", 250));
+
+        assertThat(result.getProducts()).isEqualTo(250);
+        assertThat(result.getSpecifications()).isEqualTo(250L * SPECS);
+        assertThat(productRepository.count()).isEqualTo(productsBefore + 250);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_specifications s JOIN products p ON p.id = s.product_id WHERE p.slug LIKE 'batch-%'",
+                Long.class)).isEqualTo(250L * SPECS);
+        long rows = statistics.getEntityInsertCount();
+        assertThat(rows).isEqualTo(250L * (1 + SPECS + 2 + 3));
+        // Không batch thì mỗi dòng 1 statement
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(rows / 10);
+    }
+
+    @Test
+    void rejectsInvalidImportWithoutWriting() {
+        long before = productRepository.count();
+        productImportService.importProducts(products("taken", 1));
+
+        List<ImportProductRequest> duplicated = products("dup", 3);
+        duplicated.get(2).setSlug("dup-0");
+        assertThatThrownBy(() -> productImportService.importProducts(duplicated)).hasMessageContaining("Duplicate slug");
+
+        List<ImportProductRequest> existing = products("fresh", 3);
+        existing.get(1).setSlug("taken-0");
+        assertThatThrownBy(() -> productImportService.importProducts(existing)).hasMessageContaining("already exists");
+
+        List<ImportProductRequest> unknownCategory = products("nocat", 2);
+        unknownCategory.get(1).setCategoryId(9999);
+        assertThatThrownBy(() -> productImportService.importProducts(unknownCategory)).hasMessageContaining("Category not found");
+
+        assertThat(productRepository.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "import.bench", matches = "true")
+    void importsFiftyThousandProductsWithThirtySpecsEach() {
+        int total = 50_000;
+        int perRequest = 5_000;
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int from = 0; from < total; from += perRequest) {
+            productImportService.importProducts(products("bench-" + from, perRequest));
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long rows = statistics.getEntityInsertCount();
+        System.out.printf("imported %d products, %d rows in %d ms (%.0f rows/s), %d statements%n",
+                total, rows, elapsedMs, rows * 1000.0 / elapsedMs, statistics.getPrepareStatementCount());
+    }
+
+    private List<ImportProductRequest> products(String prefix, int count) {
+        List<ImportProductRequest> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<ImportProductRequest.Specification> specs = new ArrayList<>(SPECS);
+            for (int s = 0; s < SPECS; s++) {
+                specs.add(new ImportProductRequest.Specification("Nhóm " + (s / 5), "Thông số " + s, "Giá trị " + s, "text"));
+            }
+            products.add(new ImportProductRequest("Phone " + prefix + " " + i, prefix + "-" + i, "Brand " + (i % 10),
+                    categoryId, new BigDecimal("9990000"), null, null, null, 10, true, specs,
+                    List.of(new ImportProductRequest.Color("Đen", "#000000"), new ImportProductRequest.Color("Trắng", "#FFFFFF")),
+                    List.of("https://cdn.phonehub.vn/" + prefix + "/" + i + "/1.jpg",
+                            "https://cdn.phonehub.vn/" + prefix + "/" + i + "/2.jpg",
+                            "https://cdn.phonehub.vn/" + prefix + "/" + i + "/3.jpg")));
+        }
+        return products;
+    }
+}
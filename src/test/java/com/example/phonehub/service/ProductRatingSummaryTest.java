@@ -0,0 +1,172 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.dto.CreateProductReviewRequest;
+import com.example.phonehub.dto.ProductReviewDto;
+import com.example.phonehub.dto.ProductReviewStatsDto;
+import com.example.phonehub.entity.*;
+import com.example.phonehub.repository.*;
+import com.example.phonehub.service.redis_cache.OrderCacheService;
+import com.example.phonehub.service.redis_cache.OrderItemCacheService;
+import com.example.phonehub.service.redis_cache.ProductReviewCacheService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Bảng tổng hợp đánh giá được cộng dồn đúng khi tạo/sửa/xóa review, kể cả sản phẩm có review từ trước khi có bảng
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rating-summary;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductReviewService.class)
+// Mỗi thao tác commit riêng như khi gọi từ controller
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductRatingSummaryTest {
+
+    private static final int PRODUCT_ID = 1;
+
+    @Autowired
+    private ProductReviewService reviewService;
+    @Autowired
+    private ProductReviewRepository reviewRepository;
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ProductReviewCacheService reviewCacheService;
+    @MockitoBean
+    private OrderItemCacheService orderItemCacheService;
+    @MockitoBean
+    private OrderCacheService orderCacheService;
+
+    @Test
+    void summaryFollowsReviewChangesIncrementally() {
+        User user = seed();
+        Product product = productRepository.findById(PRODUCT_ID).orElseThrow();
+
+        // Review có từ trước khi có bảng tổng hợp: chưa có dòng, đọc thì tính từ product_reviews
+        ProductReview legacy = new ProductReview();
+        legacy.setProduct(product);
+        legacy.setUser(user);
+        legacy.setOrder(order(user, product, true));
+        legacy.setRating(4);
+        reviewRepository.save(legacy);
+        assertThat(ratingSummaryRepository.findById(PRODUCT_ID)).isEmpty();
+        assertStats(1, 4.0, Map.of(4, 1L));
+
+        // Thay đổi đầu tiên tạo dòng tổng hợp từ toàn bộ review (gồm review cũ)
+        ProductReviewDto five = reviewService.create(request(user, order(user, product, false), 5));
+        assertThat(ratingSummaryRepository.findById(PRODUCT_ID)).isPresent();
+        assertStats(2, 4.5, Map.of(4, 1L, 5, 1L));
+
+        // Từ đây cộng dồn
+        ProductReviewDto one = reviewService.create(request(user, order(user, product, false), 1));
+        verify(reviewCacheService).applyStatsDelta(eq(PRODUCT_ID), eq(1L), eq(1L), any(long[].class));
+        assertStats(3, 10 / 3.0, Map.of(1, 1L, 4, 1L, 5, 1L));
+
+        CreateProductReviewRequest change = new CreateProductReviewRequest();
+        change.setUserId(user.getId());
+        change.setRating(3);
+        reviewService.update(one.getId(), change);
+        assertStats(3, 4.0, Map.of(3, 1L, 4, 1L, 5, 1L));
+
+        reviewService.delete(five.getId());
+        assertStats(2, 3.5, Map.of(3, 1L, 4, 1L));
+
+        ProductRatingSummary summary = ratingSummaryRepository.findById(PRODUCT_ID).orElseThrow();
+        assertThat(summary.getReviewCount()).isEqualTo(reviewRepository.countByProductId(PRODUCT_ID));
+        assertThat(summary.getRatingSum()).isEqualTo(7L);
+    }
+
+    private void assertStats(long count, double average, Map<Integer, Long> nonZero) {
+        ProductReviewStatsDto stats = reviewService.getStats(PRODUCT_ID);
+        assertThat(stats.getReviewCount()).isEqualTo(count);
+        assertThat(stats.getAverageRating()).isCloseTo(average, org.assertj.core.data.Offset.offset(1e-9));
+        assertThat(stats.getDistribution()).containsOnlyKeys(5, 4, 3, 2, 1);
+        assertThat(reviewService.getRatingDistribution(PRODUCT_ID)).isEqualTo(nonZero);
+    }
+
+    private CreateProductReviewRequest request(User user, Order order, int rating) {
+        CreateProductReviewRequest req = new CreateProductReviewRequest();
+        req.setProductId(PRODUCT_ID);
+        req.setUserId(user.getId());
+        req.setOrderId(order.getId());
+        req.setRating(rating);
+        return req;
+    }
+
+    private Order order(User user, Product product, boolean reviewed) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setBuyerName("Nguyễn Văn A");
+        order.setTotalPrice(product.getPrice());
+        orderRepository.save(order);
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setQuantity(1);
+        item.setUnitPrice(product.getPrice());
+        item.setIsReviewed(reviewed);
+        orderItemRepository.save(item);
+        return order;
+    }
+
+    private User seed() {
+        Role role = new Role();
+        role.setName("admin");
+        roleRepository.save(role);
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword("x");
+        user.setPoints(0);
+        user.setRole(role);
+        userRepository.save(user);
+        Category category = new Category();
+        category.setName("Điện thoại");
+        category.setSlug("dien-thoai");
+        category.setCreatedBy(user);
+        categoryRepository.save(category);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        jdbcTemplate.update("INSERT INTO products (id, name, slug, brand, category_id, price, quantity, is_published, "
+                + "created_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                PRODUCT_ID, "Phone", "phone", "Brand", category.getId(), new BigDecimal("9990000"), 10, true,
+                user.getId(), now, now);
+        return user;
+    }
+}
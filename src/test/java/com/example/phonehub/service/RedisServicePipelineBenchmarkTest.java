@@ -0,0 +1,113 @@
+package com.example.phonehub.service;
+
+import com.example.phonehub.config.RedisConfig;
+import com.example.phonehub.dto.UserDto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark round-trip: SET/GET/DEL từng key so với multiSetWithTtl/multiGet/deleteAll
+ *
+ * Cần Redis thật, chỉ chạy khi bật:
+ *   mvn test -Dtest=RedisServicePipelineBenchmarkTest -Dredis.bench=true [-Dredis.host=localhost -Dredis.port=6379]
+ */
+@EnabledIfSystemProperty(named = "redis.bench", matches = "true")
+class RedisServicePipelineBenchmarkTest {
+
+    private static final int ITERATIONS = 2_000;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisService redisService;
+
+    @BeforeAll
+    static void setUp() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"),
+                Integer.parseInt(System.getProperty("redis.port", "6379")));
+        connectionFactory = new LettuceConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        RedisConfig redisConfig = new RedisConfig();
+        RedisTemplate<String, Object> template = redisConfig.redisTemplate(connectionFactory, redisConfig.redisValueSerializer());
+        StringRedisTemplate stringTemplate = new StringRedisTemplate(connectionFactory);
+
+        redisService = new RedisService();
+        ReflectionTestUtils.setField(redisService, "redisTemplate", template);
+        ReflectionTestUtils.setField(redisService, "stringRedisTemplate", stringTemplate);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void pipelinedMultiKeyOperationsBeatPerKeyRoundTrips() {
+        UserDto dto = new UserDto();
+        dto.setId(1);
+        dto.setUsername("bench");
+        dto.setEmail("bench@phonehub.local");
+        dto.setCreatedAt(LocalDateTime.now());
+        Duration ttl = Duration.ofMinutes(5);
+
+        // warm-up
+        perKey(dto, ttl, 200);
+        batched(dto, ttl, 200);
+
+        long perKeyNanos = perKey(dto, ttl, ITERATIONS);
+        long batchedNanos = batched(dto, ttl, ITERATIONS);
+
+        System.out.printf("per-key: %.1f us/op, batched: %.1f us/op (%.2fx)%n",
+                perKeyNanos / 1000.0 / ITERATIONS, batchedNanos / 1000.0 / ITERATIONS,
+                (double) perKeyNanos / batchedNanos);
+        assertThat(batchedNanos).isLessThan(perKeyNanos);
+    }
+
+    /** 3 SET + 3 GET + 3 DEL = 9 round-trip mỗi vòng */
+    private long perKey(UserDto dto, Duration ttl, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            List<String> keys = keys(i);
+            keys.forEach(key -> redisService.set(key, dto, ttl));
+            keys.forEach(redisService::get);
+            keys.forEach(redisService::delete);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** pipeline SET + MGET + DEL nhiều key = 3 round-trip mỗi vòng */
+    private long batched(UserDto dto, Duration ttl, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            List<String> keys = keys(i);
+            Map<String, Object> entries = new LinkedHashMap<>();
+            keys.forEach(key -> entries.put(key, dto));
+            redisService.multiSetWithTtl(entries, ttl);
+            assertThat(redisService.multiGet(keys)).hasSize(keys.size());
+            redisService.deleteAll(keys);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static List<String> keys(int i) {
+        return List.of("bench:user:" + i, "bench:user:username:" + i, "bench:user:email:" + i);
+    }
+}
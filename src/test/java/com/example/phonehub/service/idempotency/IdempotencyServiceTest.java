@@ -0,0 +1,167 @@
+package com.example.phonehub.service.idempotency;
+
+import com.example.phonehub.dto.ApiResponse;
+import com.example.phonehub.dto.UserDto;
+import com.example.phonehub.service.RedisService;
+import com.example.phonehub.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Idempotency-Key: chạy 1 lần, phát lại response, request trùng đồng thời chờ kết quả, lỗi thì cho retry
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({IdempotencyService.class, JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Redis không có: mọi lần đọc cache đều miss, phát lại từ MySQL
+    @MockitoBean
+    private RedisService redisService;
+    @MockitoBean
+    private UserService userService;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sameKeyRunsOnceAndReplaysFirstResponse() {
+        AtomicInteger runs = new AtomicInteger();
+
+        ResponseEntity<ApiResponse<Integer>> first = create("key-1", "A", runs);
+        ResponseEntity<ApiResponse<Integer>> retry = create("key-1", "A", runs);
+
+        assertThat(runs).hasValue(1);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody().getData()).isEqualTo(first.getBody().getData());
+        assertThat(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        // Cùng key, khác nội dung
+        assertThat(create("key-1", "B", runs).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        // Không có key: chạy như bình thường
+        create(null, "A", runs);
+        create(null, "A", runs);
+        assertThat(runs).hasValue(3);
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForInFlightResult() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Future<ResponseEntity<ApiResponse<Integer>>> first = pool.submit(() ->
+                idempotencyService.execute("test", "key-2", "A", Integer.class, () -> {
+                    started.countDown();
+                    await(finish);
+                    return created(runs.incrementAndGet());
+                }));
+        started.await(10, TimeUnit.SECONDS);
+        List<Future<ResponseEntity<ApiResponse<Integer>>>> duplicates = List.of(
+                pool.submit(() -> create("key-2", "A", runs)),
+                pool.submit(() -> create("key-2", "A", runs)),
+                pool.submit(() -> create("key-2", "A", runs)));
+        Thread.sleep(200);
+        finish.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS).getBody().getData()).isEqualTo(1);
+        for (Future<ResponseEntity<ApiResponse<Integer>>> duplicate : duplicates) {
+            ResponseEntity<ApiResponse<Integer>> response = duplicate.get(10, TimeUnit.SECONDS);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(response.getBody().getData()).isEqualTo(1);
+        }
+        assertThat(runs).hasValue(1);
+        pool.shutdown();
+    }
+
+    @Test
+    void failedAttemptReleasesKeyForRetry() {
+        ResponseEntity<ApiResponse<Integer>> failed = idempotencyService.execute("test", "key-3", "A", Integer.class,
+                () -> ResponseEntity.badRequest().body(ApiResponse.badRequest("Insufficient stock")));
+        assertThat(failed.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys WHERE idempotency_key = 'test:anonymous:key-3'",
+                Integer.class)).isZero();
+
+        AtomicInteger runs = new AtomicInteger();
+        assertThat(create("key-3", "A", runs).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void keysAreScopedToAuthenticatedUser() {
+        AtomicInteger runs = new AtomicInteger();
+        signIn("alice", 1);
+        ResponseEntity<ApiResponse<Integer>> alice = create("key-4", "A", runs);
+        signIn("bob", 2);
+        ResponseEntity<ApiResponse<Integer>> bob = create("key-4", "A", runs);
+        // Key của bob tách khỏi key của alice, trong phạm vi của bob vẫn kiểm tra nội dung
+        assertThat(create("key-4", "B", runs).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        assertThat(runs).hasValue(2);
+        assertThat(bob.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(bob.getBody().getData()).isNotEqualTo(alice.getBody().getData());
+        assertThat(jdbcTemplate.queryForList("SELECT idempotency_key FROM idempotency_keys WHERE idempotency_key LIKE 'test:u%:key-4' "
+                + "ORDER BY idempotency_key", String.class)).containsExactly("test:u1:key-4", "test:u2:key-4");
+    }
+
+    private void signIn(String username, Integer id) {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setUsername(username);
+        when(userService.getUserByUsername(username)).thenReturn(Optional.of(user));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private ResponseEntity<ApiResponse<Integer>> create(String key, String request, AtomicInteger runs) {
+        return idempotencyService.execute("test", key, request, Integer.class, () -> created(runs.incrementAndGet()));
+    }
+
+    private static ResponseEntity<ApiResponse<Integer>> created(int id) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success("Created", id));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
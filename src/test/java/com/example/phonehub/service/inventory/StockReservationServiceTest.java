@@ -0,0 +1,184 @@
+package com.example.phonehub.service.inventory;
+
+import com.example.phonehub.entity.*;
+import com.example.phonehub.repository.*;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Giữ hàng song song không bán quá tồn kho; reservation hết hạn được trả kho đúng 1 lần
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock-reservation;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // THREADS + 1: hết block id thì thread lấy block cần thêm 1 connection riêng (xem IdGenerators)
+        "spring.datasource.hikari.maximum-pool-size=33",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Reservation hết hạn ngay khi tạo, để gọi releaseExpired trong test
+        "app.inventory.reservation-ttl-minutes=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockReservationService.class, StockShardService.class})
+// Mỗi lần giữ hàng 1 transaction riêng như request thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationServiceTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 5000;
+    private static final int STOCK = 1000;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private StockReservationRepository reservationRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private CatalogIndexer catalogIndexer;
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.count() == 0) {
+            Role role = new Role();
+            role.setName("admin");
+            roleRepository.save(role);
+            User admin = new User();
+            admin.setUsername("admin");
+            admin.setPassword("x");
+            admin.setPoints(0);
+            admin.setRole(role);
+            userRepository.save(admin);
+            Category category = new Category();
+            category.setName("Điện thoại");
+            category.setSlug("dien-thoai");
+            category.setCreatedBy(admin);
+            categoryRepository.save(category);
+        }
+        order = new Order();
+        order.setBuyerName("Nguyễn Văn A");
+        order.setTotalPrice(new BigDecimal("9990000"));
+        orderRepository.save(order);
+    }
+
+    @Test
+    void parallelReservationsNeverOversell() throws Exception {
+        int productId = product(1, STOCK);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger reservedUnits = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(ATTEMPTS);
+        for (int i = 0; i < ATTEMPTS; i++) {
+            int quantity = 1 + i % 3;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            stockReservationService.reserve(order, productId, quantity));
+                    reserved.incrementAndGet();
+                    reservedUnits.addAndGet(quantity);
+                } catch (RuntimeException e) {
+                    if (e.getMessage() != null && e.getMessage().startsWith("Insufficient stock")) rejected.incrementAndGet();
+                    else errors.add(e);
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) future.get(2, TimeUnit.MINUTES);
+        long elapsedMs = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+        pool.shutdown();
+        System.out.printf("%d reservation attempts on 1 product, %d threads: %d ms (%.0f/s), %d reserved, %d rejected%n",
+                ATTEMPTS, THREADS, elapsedMs, ATTEMPTS * 1000.0 / elapsedMs, reserved.get(), rejected.get());
+
+        assertThat(errors).isEmpty();
+        assertThat(reserved.get() + rejected.get()).isEqualTo(ATTEMPTS);
+        int remain = productRepository.findQuantityById(productId).orElseThrow();
+        assertThat(remain).isBetween(0, 2);
+        assertThat(reservedUnits.get()).isEqualTo(STOCK - remain);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE product_id = ? AND status = 'RESERVED'",
+                Integer.class, productId)).isEqualTo(STOCK - remain);
+    }
+
+    @Test
+    void expiredReservationIsReleasedOnceAndReacquiredOnPayment() {
+        int productId = product(2, 10);
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.reserve(order, productId, 4));
+        assertThat(productRepository.findQuantityById(productId)).contains(6);
+        // Tồn kho trên trang sản phẩm đổi theo
+        verify(productCacheService, times(1)).removeProductFromCache(productId, "phone-2");
+
+        // 2 lần dọn (hoặc 2 instance) chỉ trả kho 1 lần
+        stockReservationService.releaseExpired();
+        stockReservationService.releaseExpired();
+        assertThat(productRepository.findQuantityById(productId)).contains(10);
+        assertThat(stockReservationService.release(order.getId())).isZero();
+
+        // Thanh toán về sau khi hết hạn: trừ lại
+        assertThat(stockReservationService.commit(order.getId())).isEqualTo(1);
+        assertThat(productRepository.findQuantityById(productId)).contains(6);
+        verify(productCacheService, times(3)).removeProductFromCache(productId, "phone-2");
+        verify(productCacheService, times(3)).publishInvalidation(productId, "phone-2");
+        stockReservationService.releaseExpired();
+        assertThat(productRepository.findQuantityById(productId)).contains(6);
+    }
+
+    private int product(int id, int quantity) {
+        Integer userId = userRepository.findAll().get(0).getId();
+        Integer categoryId = categoryRepository.findAll().get(0).getId();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        jdbcTemplate.update("INSERT INTO products (id, name, slug, brand, category_id, price, quantity, is_published, "
+                + "created_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "Phone " + id, "phone-" + id, "Brand", categoryId, new BigDecimal("9990000"), quantity, true,
+                userId, now, now);
+        return id;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.phonehub.service.inventory;
+
+import com.example.phonehub.dto.StockShardsDto;
+import com.example.phonehub.entity.*;
+import com.example.phonehub.repository.*;
+import com.example.phonehub.service.redis_cache.ProductCacheService;
+import com.example.phonehub.service.search.CatalogIndexer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Giữ hàng trên sản phẩm chia shard tồn kho: không bán quá tổng các shard, trả kho về đúng chỗ,
+ * bật/tắt chia shard giữ nguyên tổng tồn kho
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock-shard;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockReservationService.class, StockShardService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockShardServiceTest {
+
+    // Bench: nhiều luồng tranh shard; test luôn chạy dùng ít luồng để không chờ khóa quá LOCK_TIMEOUT của H2
+    private static final int THREADS = 32;
+    private static final int TEST_THREADS = 4;
+
+    @Autowired
+    private StockShardService stockShardService;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private CatalogIndexer catalogIndexer;
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.count() == 0) {
+            Role role = new Role();
+            role.setName("admin");
+            roleRepository.save(role);
+            User admin = new User();
+            admin.setUsername("admin");
+            admin.setPassword("x");
+            admin.setPoints(0);
+            admin.setRole(role);
+            userRepository.save(admin);
+            Category category = new Category();
+            category.setName("Điện thoại");
+            category.setSlug("dien-thoai");
+            category.setCreatedBy(admin);
+            categoryRepository.save(category);
+        }
+        order = new Order();
+        order.setBuyerName("Nguyễn Văn A");
+        order.setTotalPrice(new BigDecimal("9990000"));
+        orderRepository.save(order);
+    }
+
+    @Test
+    void shardedReservationsNeverOversellAndReleaseBack() throws Exception {
+        int productId = product(1, 301);
+        StockShardsDto shards = stockShardService.configure(productId, 8);
+        assertThat(shards.getShardQuantities()).containsExactly(38, 38, 38, 38, 38, 37, 37, 37);
+
+        // Gần hết hàng các shard lẻ tẻ: số lượng lớn phải gom từ nhiều shard
+        // 300 lần x trung bình 2 đơn vị, vượt tồn kho 301 nên luôn chạy tới lúc hết hàng
+        Result result = run(productId, 300, 3, TEST_THREADS);
+        assertThat(result.errors).isEmpty();
+        long remain = stockShardService.available(productId);
+        assertThat(remain).isBetween(0L, 2L);
+        assertThat(result.reservedUnits.get()).isEqualTo(301 - remain);
+        assertThat(reservedUnits(productId)).isEqualTo(301 - remain);
+
+        stockShardService.reconcile();
+        assertThat(productRepository.findQuantityById(productId)).contains((int) remain);
+
+        // Tắt chia shard rồi trả kho: reservation trên shard cũ cộng về products.quantity
+        assertThat(stockShardService.configure(productId, 0).getShards()).isNull();
+        assertThat(stockReservationService.release(order.getId())).isPositive();
+        assertThat(productRepository.findQuantityById(productId)).contains(301);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_stock_shards WHERE product_id = ?",
+                Integer.class, productId)).isZero();
+    }
+
+    @Test
+    void reshardingKeepsTotalAndReleasesIntoRemainingShards() {
+        int productId = product(2, 100);
+        stockShardService.configure(productId, 4);
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.reserve(order, productId, 60));
+        assertThat(stockShardService.available(productId)).isEqualTo(40);
+
+        // Giảm còn 2 shard: tổng giữ nguyên, reservation trên shard 2/3 trả vào shard 0
+        StockShardsDto two = stockShardService.configure(productId, 2);
+        assertThat(two.getQuantity()).isEqualTo(40);
+        assertThat(two.getShardQuantities()).containsExactly(20, 20);
+        stockReservationService.release(order.getId());
+        assertThat(stockShardService.get(productId).getQuantity()).isEqualTo(100);
+
+        // Đặt lại tổng khi đang chia shard
+        assertThat(stockShardService.configure(productId, 2, 7).getShardQuantities()).containsExactly(4, 3);
+    }
+
+    /**
+     * So sánh giữ hàng trên 1 dòng products.quantity và trên 16 shard, tồn kho dư để không request nào bị từ chối
+     * mvn test -Dtest=StockShardServiceTest -Dstock.bench=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "stock.bench", matches = "true")
+    void shardedThroughputComparedToSingleRow() throws Exception {
+        int attempts = 20_000;
+        int single = product(10, attempts * 2);
+        int sharded = product(11, attempts * 2);
+        stockShardService.configure(sharded, 16);
+        run(single, 2000, 1, THREADS);
+        run(sharded, 2000, 1, THREADS);
+
+        Result singleResult = run(single, attempts, 1, THREADS);
+        Result shardedResult = run(sharded, attempts, 1, THREADS);
+        System.out.printf("single row: %d ms (%.0f/s), 16 shards: %d ms (%.0f/s), %d threads%n",
+                singleResult.elapsedMs, attempts * 1000.0 / singleResult.elapsedMs,
+                shardedResult.elapsedMs, attempts * 1000.0 / shardedResult.elapsedMs, THREADS);
+        assertThat(singleResult.errors).isEmpty();
+        assertThat(shardedResult.errors).isEmpty();
+    }
+
+    private Result run(int productId, int attempts, int maxQuantity, int threads) throws Exception {
+        Result result = new Result();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(attempts);
+        for (int i = 0; i < attempts; i++) {
+            int quantity = 1 + i % maxQuantity;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            stockReservationService.reserve(order, productId, quantity));
+                    result.reservedUnits.addAndGet(quantity);
+                } catch (RuntimeException e) {
+                    if (e.getMessage() == null || !e.getMessage().startsWith("Insufficient stock")) result.errors.add(e);
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) future.get(5, TimeUnit.MINUTES);
+        result.elapsedMs = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+        pool.shutdown();
+        return result;
+    }
+
+    private int reservedUnits(int productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE product_id = ? AND status = 'RESERVED'",
+                Integer.class, productId);
+    }
+
+    private int product(int id, int quantity) {
+        Integer userId = userRepository.findAll().get(0).getId();
+        Integer categoryId = categoryRepository.findAll().get(0).getId();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 15, 10, 30));
+        jdbcTemplate.update("INSERT INTO products (id, name, slug, brand, category_id, price, quantity, is_published, "
+                + "created_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "Phone " + id, "phone-" + id, "Brand", categoryId, new BigDecimal("9990000"), quantity, true,
+                userId, now, now);
+        return id;
+    }
+
+    private static class Result {
+        final AtomicInteger reservedUnits = new AtomicInteger();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        long elapsedMs;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.service.RedisService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nhiều request cùng miss 1 key nóng chỉ được chạy 1 query DB
+ */
+class CacheAsideLoaderTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    private final RedisService redisService = mock(RedisService.class);
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger dbCalls = new AtomicInteger();
+    private CacheAsideLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        loader = new CacheAsideLoader();
+        ReflectionTestUtils.setField(loader, "redisService", redisService);
+        ReflectionTestUtils.setField(loader, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(loader, "leaseMillis", 5000L);
+        ReflectionTestUtils.setField(loader, "waitMillis", 2000L);
+        ReflectionTestUtils.setField(loader, "pollMillis", 10L);
+        ReflectionTestUtils.setField(loader, "beta", 1.0);
+        ReflectionTestUtils.setField(loader, "metaMaxSize", 100L);
+        loader.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+    }
+
+    @Test
+    void concurrentMissesOnSameKeyRunOneDbQuery() throws Exception {
+        when(redisService.tryAcquireLease(anyString(), anyString(), any())).thenReturn(true);
+        int threads = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Optional<String>>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return load("product:1");
+            }));
+        }
+        start.countDown();
+        for (Future<Optional<String>> result : results) {
+            assertThat(result.get()).contains("product-1");
+        }
+        pool.shutdown();
+
+        assertThat(dbCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void waitsForNodeHoldingLeaseInsteadOfQueryingDb() {
+        when(redisService.tryAcquireLease(anyString(), anyString(), any())).thenReturn(false);
+        when(redisService.exists("lease:product:1")).thenReturn(true);
+        // Node khác ghi cache sau 50ms
+        Executors.newSingleThreadScheduledExecutor()
+                .schedule(() -> cache.put("product:1", "product-1"), 50, TimeUnit.MILLISECONDS);
+
+        assertThat(load("product:1")).contains("product-1");
+        assertThat(dbCalls.get()).isZero();
+    }
+
+    @Test
+    void loadsDirectlyWhenRedisIsDown() {
+        when(redisService.tryAcquireLease(anyString(), anyString(), any())).thenReturn(null);
+
+        assertThat(load("product:1")).contains("product-1");
+        assertThat(dbCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cachesNotFoundAndServesItWithoutDb() {
+        String marker = new String("not-found");
+        when(redisService.tryAcquireLease(anyString(), anyString(), any())).thenReturn(true);
+        doAnswer(invocation -> cache.put(invocation.getArgument(0), marker))
+                .when(redisService).setNotFound(anyString(), any());
+
+        for (int i = 0; i < 3; i++) {
+            Optional<String> result = loader.load("product:slug:missing", TTL, marker, Duration.ofSeconds(60),
+                    () -> cache.get("product:slug:missing"),
+                    () -> {
+                        dbCalls.incrementAndGet();
+                        return Optional.empty();
+                    },
+                    value -> cache.put("product:slug:missing", value));
+            assertThat(result).isEmpty();
+        }
+        assertThat(dbCalls.get()).isEqualTo(1);
+    }
+
+    private Optional<String> load(String key) {
+        return loader.load(key, TTL, () -> cache.get(key),
+                () -> {
+                    dbCalls.incrementAndGet();
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Optional.of("product-1");
+                },
+                value -> cache.put(key, value));
+    }
+}
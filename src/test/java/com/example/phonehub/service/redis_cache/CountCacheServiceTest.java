@@ -0,0 +1,104 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.dto.CountedPage;
+import com.example.phonehub.dto.CountedPage.CountMode;
+import com.example.phonehub.service.RedisService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CountCacheServiceTest {
+
+    private final RedisService redisService = mock(RedisService.class);
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+    private final AtomicInteger counts = new AtomicInteger();
+    private CountCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CountCacheService();
+        ReflectionTestUtils.setField(service, "redisService", redisService);
+        ReflectionTestUtils.setField(service, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(service, "estimateTtlSeconds", 300L);
+        when(redisService.get(anyString())).thenAnswer(inv -> redis.get(inv.<String>getArgument(0)));
+        doAnswer(inv -> redis.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(redisService).setWithTags(anyString(), any(), any(Duration.class), any(String[].class));
+        doAnswer(inv -> redis.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(redisService).set(anyString(), any(), any(Duration.class));
+        doAnswer(inv -> {
+            redis.keySet().removeIf(key -> key.startsWith("count:products:") && !key.endsWith(":est"));
+            return 1L;
+        }).when(redisService).invalidateTag("count:products");
+    }
+
+    @Test
+    void lastPageNeedsNoCountQuery() {
+        CountedPage<Integer> page = page(slice(2, 5, false), CountMode.CACHED, null);
+
+        assertThat(page.getTotalElements()).isEqualTo(2 * 5 + 5);
+        assertThat(page.getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(counts.get()).isZero();
+    }
+
+    @Test
+    void cachesCountUntilEntityIsInvalidated() {
+        assertThat(page(slice(0, 5, true), CountMode.CACHED, null).getCountMode()).isEqualTo(CountMode.EXACT);
+        CountedPage<Integer> second = page(slice(1, 5, true), CountMode.CACHED, null);
+        assertThat(second.getCountMode()).isEqualTo(CountMode.CACHED);
+        assertThat(second.getTotalElements()).isEqualTo(100);
+        assertThat(counts.get()).isEqualTo(1);
+
+        service.invalidate(CountCacheService.PRODUCTS);
+        assertThat(page(slice(1, 5, true), CountMode.CACHED, null).getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(counts.get()).isEqualTo(2);
+
+        assertThat(page(slice(1, 5, true), CountMode.EXACT, null).getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(counts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void estimatedModeFallsBackToCountCacheWhenNoStatistics() {
+        CountedPage<Integer> estimated = page(slice(0, 5, true), CountMode.ESTIMATED, () -> 95L);
+        assertThat(estimated.getCountMode()).isEqualTo(CountMode.ESTIMATED);
+        assertThat(estimated.getTotalElements()).isEqualTo(95);
+        assertThat(counts.get()).isZero();
+
+        redis.clear();
+        CountedPage<Integer> fallback = page(slice(0, 5, true), CountMode.ESTIMATED, () -> {
+            throw new IllegalStateException("no information_schema");
+        });
+        assertThat(fallback.getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(fallback.getTotalElements()).isEqualTo(100);
+    }
+
+    private CountedPage<Integer> page(Slice<Integer> slice, CountMode mode, Supplier<Long> estimate) {
+        return service.page(slice, Function.identity(), CountCacheService.PRODUCTS, "published", mode,
+                () -> {
+                    counts.incrementAndGet();
+                    return 100L;
+                }, estimate);
+    }
+
+    private static Slice<Integer> slice(int page, int size, boolean hasNext) {
+        List<Integer> content = java.util.stream.IntStream.range(0, size).boxed().toList();
+        return new SliceImpl<>(content, PageRequest.of(page, size), hasNext);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.repository.CategoryRepository;
+import com.example.phonehub.repository.ProductRepository;
+import com.example.phonehub.repository.UserRepository;
+import com.example.phonehub.service.RedisService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Filter không bao giờ trả "không tồn tại" cho giá trị mới thêm ở instance khác, kể cả khi mất message pub/sub
+ */
+class LookupBloomFilterTest {
+
+    private static final String KEY = LookupBloomFilter.RECENT_PREFIX + LookupBloomFilter.PRODUCT_SLUG;
+
+    private final RedisService redisService = mock(RedisService.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private LookupBloomFilter bloomFilter;
+
+    @BeforeEach
+    void setUp() {
+        bloomFilter = new LookupBloomFilter();
+        ReflectionTestUtils.setField(bloomFilter, "redisService", redisService);
+        ReflectionTestUtils.setField(bloomFilter, "productRepository", productRepository);
+        ReflectionTestUtils.setField(bloomFilter, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(bloomFilter, "userRepository", userRepository);
+        ReflectionTestUtils.setField(bloomFilter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(bloomFilter, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(bloomFilter, "recentRetentionMs", 7_200_000L);
+        when(productRepository.findAllSlugs()).thenReturn(List.of("galaxy-s24"));
+        when(categoryRepository.findAllSlugs()).thenReturn(List.of());
+        when(userRepository.findAllUsernames()).thenReturn(List.of());
+        when(userRepository.findAllEmails()).thenReturn(List.of());
+        when(redisService.sortedSetContains(anyString(), anyString())).thenReturn(false);
+        bloomFilter.rebuild();
+    }
+
+    @Test
+    void rejectsOnlyValuesMissingFromFilterAndRecentAdditions() {
+        assertThat(bloomFilter.mightExist(LookupBloomFilter.PRODUCT_SLUG, "Galaxy-S24")).isTrue();
+        assertThat(bloomFilter.mightExist(LookupBloomFilter.PRODUCT_SLUG, "khong-co")).isFalse();
+
+        // Instance khác vừa tạo sản phẩm, message bloom:add không tới
+        when(redisService.sortedSetContains(KEY, "iphone-16")).thenReturn(true);
+        assertThat(bloomFilter.mightExist(LookupBloomFilter.PRODUCT_SLUG, "iphone-16")).isTrue();
+        // Đã add vào filter của instance này, lần sau không hỏi Redis
+        when(redisService.sortedSetContains(KEY, "iphone-16")).thenReturn(false);
+        assertThat(bloomFilter.mightExist(LookupBloomFilter.PRODUCT_SLUG, "iphone-16")).isTrue();
+
+        // Redis lỗi: không kết luận được
+        when(redisService.sortedSetContains(KEY, "pixel-9")).thenReturn(null);
+        assertThat(bloomFilter.mightExist(LookupBloomFilter.PRODUCT_SLUG, "pixel-9")).isTrue();
+    }
+
+    @Test
+    void staleFilterDoesNotTrustNegatives() {
+        ReflectionTestUtils.setField(bloomFilter, "builtAt", System.currentTimeMillis() - 7_200_000L);
+
+        assertThat(bloomFilter.mightExist(LookupBloomFilter.PRODUCT_SLUG, "khong-co")).isTrue();
+        verify(redisService, never()).sortedSetContains(KEY, "khong-co");
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.phonehub.service.redis_cache;
+
+import com.example.phonehub.dto.OrderDto;
+import com.example.phonehub.entity.Order;
+import com.example.phonehub.entity.User;
+import com.example.phonehub.repository.OrderRepository;
+import com.example.phonehub.repository.projection.OrderSummaryRow;
+import com.example.phonehub.service.RedisService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mô phỏng traffic đọc/ghi lẫn lộn lên cache order:
+ * invalidation theo key + generation phải giữ hit ratio cao hơn hẳn evictAll().
+ */
+@SpringJUnitConfig(OrderCacheHitRatioTest.Config.class)
+class OrderCacheHitRatioTest {
+
+    private static final int USERS = 20;
+    private static final int ORDERS = 200;
+    private static final int OPERATIONS = 10_000;
+
+    @Configuration
+    @EnableCaching
+    @Import({ OrderCacheService.class, OrderCacheGenerations.class, CountCacheService.class })
+    static class Config {
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager();
+        }
+    }
+
+    @MockitoBean
+    private OrderRepository orderRepository;
+
+    @MockitoBean
+    private RedisService redisService;
+
+    @Autowired
+    private OrderCacheService orderCacheService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final Map<String, Long> redis = new ConcurrentHashMap<>();
+    private final AtomicInteger dbCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        redis.clear();
+        dbCalls.set(0);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        when(redisService.get(anyString())).thenAnswer(inv -> redis.get(inv.<String>getArgument(0)));
+        when(redisService.increment(anyString())).thenAnswer(inv -> redis.merge(inv.getArgument(0), 1L, Long::sum));
+
+        when(orderRepository.findByStatus(eq("success"), any(Pageable.class))).thenAnswer(inv -> {
+            dbCalls.incrementAndGet();
+            return new PageImpl<>(List.of(order(1, "success")), inv.getArgument(1), ORDERS);
+        });
+        when(orderRepository.findSummariesByStatus(eq("success"), any(Pageable.class))).thenAnswer(inv -> {
+            dbCalls.incrementAndGet();
+            return new PageImpl<>(List.of(summary(1, "success")), inv.getArgument(1), ORDERS);
+        });
+        when(orderRepository.findByUser_IdAndStatus(anyInt(), eq("success"), any(Pageable.class))).thenAnswer(inv -> {
+            dbCalls.incrementAndGet();
+            return new PageImpl<>(List.of(order(inv.getArgument(0), "success")), inv.getArgument(2), ORDERS / USERS);
+        });
+        when(orderRepository.findById(anyInt())).thenAnswer(inv -> {
+            dbCalls.incrementAndGet();
+            return Optional.of(order(inv.getArgument(0), "success"));
+        });
+        when(orderRepository.sumTotalSpentByUser(anyInt())).thenAnswer(inv -> {
+            dbCalls.incrementAndGet();
+            return BigDecimal.TEN;
+        });
+    }
+
+    @Test
+    void targetedInvalidationKeepsHighHitRatio() {
+        double targeted = simulate(false);
+
+        setUp();
+        double evictAll = simulate(true);
+
+        // seed cố định: targeted ~0.72, evictAll ~0.14
+        assertThat(targeted).isGreaterThan(0.65);
+        assertThat(targeted - evictAll).isGreaterThan(0.4);
+    }
+
+    @Test
+    void evictOrderRefreshesDetailAndUserPages() {
+        orderCacheService.byId(7);
+        orderCacheService.listByUser(userOf(7), 0, 10);
+        orderCacheService.listByUser(userOf(8), 0, 10);
+        orderCacheService.listSuccessWithoutItems(0, 10);
+        int before = dbCalls.get();
+
+        orderCacheService.evictOrder(7, userOf(7));
+
+        Optional<OrderDto> reloaded = orderCacheService.byId(7);
+        orderCacheService.listByUser(userOf(7), 0, 10);
+        orderCacheService.listSuccessWithoutItems(0, 10);
+        assertThat(reloaded).isPresent();
+        assertThat(dbCalls.get() - before).isEqualTo(3);
+
+        // User khác không bị ảnh hưởng
+        orderCacheService.listByUser(userOf(8), 0, 10);
+        assertThat(dbCalls.get() - before).isEqualTo(3);
+    }
+
+    /**
+     * 90% đọc (trang admin, trang của user, chi tiết, tổng chi tiêu)
+     * 10% ghi: tạo order pending (5%), đổi trạng thái (3%), review item (2%)
+     * @return hit ratio = 1 - số lần xuống DB / số lần đọc
+     */
+    private double simulate(boolean useEvictAll) {
+        Random random = new Random(42);
+        int reads = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int orderId = 1 + random.nextInt(ORDERS);
+            int roll = random.nextInt(100);
+            if (roll < 10) {
+                if (useEvictAll) {
+                    orderCacheService.evictAll();
+                } else if (roll < 5) {
+                    orderCacheService.evictOrderDetail(ORDERS + i);
+                } else if (roll < 8) {
+                    orderCacheService.evictOrder(orderId, userOf(orderId));
+                } else {
+                    orderCacheService.evictOrderItems(orderId, userOf(orderId));
+                }
+                continue;
+            }
+            reads++;
+            int page = random.nextInt(3);
+            if (roll < 25) {
+                orderCacheService.list(page, 10);
+            } else if (roll < 40) {
+                orderCacheService.listSuccessWithoutItems(page, 10);
+            } else if (roll < 60) {
+                orderCacheService.listByUser(userOf(orderId), 0, 10);
+            } else if (roll < 90) {
+                orderCacheService.byId(orderId);
+            } else {
+                orderCacheService.totalSpentByUser(userOf(orderId));
+            }
+        }
+        return 1.0 - (double) dbCalls.get() / reads;
+    }
+
+    private static int userOf(int orderId) {
+        return 1 + orderId % USERS;
+    }
+
+    private static OrderSummaryRow summary(int id, String status) {
+        return new OrderSummaryRow(id, userOf(id), null, "buyer" + id, null, null, null, BigDecimal.TEN,
+                "VNPAY", status, null, null);
+    }
+
+    private static Order order(int id, String status) {
+        User user = new User();
+        user.setId(userOf(id));
+        Order order = new Order();
+        order.setId(id);
+        order.setUser(user);
+        order.setStatus(status);
+        order.setBuyerName("buyer" + id);
+        order.setTotalPrice(BigDecimal.TEN);
+        return order;
+    }
+}
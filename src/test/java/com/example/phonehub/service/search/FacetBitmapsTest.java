@@ -0,0 +1,100 @@
+package com.example.phonehub.service.search;
+
+import com.example.phonehub.dto.FacetCountDto;
+import com.example.phonehub.dto.ProductFacetFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacetBitmapsTest {
+
+    private FacetBitmaps index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FacetBitmaps();
+        index.put(new ProductFacetDocument(1, 1, "Điện thoại", "Samsung", 29_990_000L, 12, true, "12GB", "256GB"));
+        index.put(new ProductFacetDocument(2, 1, "Điện thoại", "Samsung", 4_490_000L, 25, true, "8GB", "128GB"));
+        index.put(new ProductFacetDocument(3, 1, "Điện thoại", "Apple", 27_990_000L, 5, false, "8GB", "256GB"));
+        index.put(new ProductFacetDocument(4, 2, "Máy tính bảng", "samsung ", 9_990_000L, 0, true, "8GB", "1TB"));
+        index.put(new ProductFacetDocument(5, 1, "Điện thoại", "Xiaomi", null, 0, true, null, null));
+    }
+
+    private static ProductFacetFilter filter() {
+        return new ProductFacetFilter();
+    }
+
+    private static Map<String, Long> counts(ProductFacetResult result, String facet) {
+        return result.facets().get(facet).stream()
+                .collect(Collectors.toMap(FacetCountDto::getValue, FacetCountDto::getCount));
+    }
+
+    @Test
+    void filtersAcrossFacetsAndSorts() {
+        ProductFacetFilter filter = filter();
+        filter.setCategoryId(1);
+        filter.setBrands(List.of("SAMSUNG", "Apple"));
+        filter.setStorage(List.of("256 GB"));
+        assertThat(index.search(filter).ids()).containsExactly(3, 1);
+
+        filter.setInStock(true);
+        assertThat(index.search(filter).ids()).containsExactly(1);
+
+        ProductFacetFilter byPrice = filter();
+        byPrice.setMinPrice(5_000_000L);
+        byPrice.setSort(FacetBitmaps.SORT_PRICE_ASC);
+        assertThat(index.search(byPrice).ids()).containsExactly(4, 3, 1);
+
+        ProductFacetFilter byDiscount = filter();
+        byDiscount.setMinDiscount(10);
+        byDiscount.setSort(FacetBitmaps.SORT_PRICE_DESC);
+        assertThat(index.search(byDiscount).ids()).containsExactly(1, 2);
+    }
+
+    @Test
+    void countsEachFacetWithTheOtherFilters() {
+        ProductFacetFilter filter = filter();
+        filter.setBrands(List.of("Samsung"));
+        filter.setRam(List.of("8GB"));
+        ProductFacetResult result = index.search(filter);
+
+        assertThat(result.ids()).containsExactly(4, 2);
+        // Thương hiệu: bỏ filter thương hiệu, vẫn giữ RAM 8GB
+        assertThat(counts(result, FacetBitmaps.BRAND)).isEqualTo(Map.of("samsung", 2L, "apple", 1L));
+        // RAM: bỏ filter RAM, vẫn giữ Samsung
+        assertThat(counts(result, FacetBitmaps.RAM)).isEqualTo(Map.of("8GB", 2L, "12GB", 1L));
+        assertThat(counts(result, FacetBitmaps.CATEGORY)).isEqualTo(Map.of("1", 1L, "2", 1L));
+        assertThat(counts(result, FacetBitmaps.PRICE)).isEqualTo(Map.of("4000000-7000000", 1L, "7000000-13000000", 1L));
+        assertThat(counts(result, FacetBitmaps.DISCOUNT)).isEqualTo(Map.of("10", 1L, "20", 1L));
+        assertThat(result.facets().get(FacetBitmaps.STORAGE)).extracting(FacetCountDto::getValue)
+                .containsExactly("128GB", "1TB");
+    }
+
+    @Test
+    void updatesIncrementally() {
+        index.put(new ProductFacetDocument(3, 1, "Điện thoại", "Apple", 25_990_000L, 15, true, "8GB", "512GB"));
+        index.remove(5);
+
+        ProductFacetFilter filter = filter();
+        filter.setStorage(List.of("256GB"));
+        assertThat(index.search(filter).ids()).containsExactly(1);
+        assertThat(counts(index.search(filter()), FacetBitmaps.BRAND)).doesNotContainKey("xiaomi");
+        assertThat(index.brands(1)).containsExactly("Apple", "Samsung");
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void parsesDiscountAndCapacity() {
+        assertThat(ProductFacetIndex.parseDiscount("12%")).isEqualTo(12);
+        assertThat(ProductFacetIndex.parseDiscount("-25%")).isEqualTo(25);
+        assertThat(ProductFacetIndex.parseDiscount(null)).isZero();
+        assertThat(FacetBitmaps.capacityKey("8 GB")).isEqualTo("8GB");
+        assertThat(FacetBitmaps.capacityKey("1 tb")).isEqualTo("1TB");
+        assertThat(FacetBitmaps.capacityKey("Không hỗ trợ")).isNull();
+    }
+}
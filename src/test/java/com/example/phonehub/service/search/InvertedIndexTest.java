@@ -0,0 +1,73 @@
+package com.example.phonehub.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+        index.put(new ProductSearchDocument(1, "Samsung Galaxy S24 Ultra 12GB 256GB", "Samsung", 1, "Điện thoại", true,
+                List.of("Dynamic AMOLED 2X", "Snapdragon 8 Gen 3", "Titan Đen")));
+        index.put(new ProductSearchDocument(2, "iPhone 15 Pro Max", "Apple", 1, "Điện thoại", true,
+                List.of("Super Retina XDR", "Titan Tự Nhiên")));
+        index.put(new ProductSearchDocument(3, "OPPO Pad Air", "OPPO", 2, "Máy tính bảng", true,
+                List.of("Snapdragon 680")));
+        index.put(new ProductSearchDocument(4, "Ốp lưng Galaxy S24", "Samsung", 3, "Phụ kiện", true, List.of()));
+        index.put(new ProductSearchDocument(5, "iPhone 16 Pro", "Apple", 1, "Điện thoại", false, List.of()));
+    }
+
+    private List<Integer> ids(String query, Integer categoryId) {
+        return index.search(query, categoryId).stream().map(InvertedIndex.Hit::productId).toList();
+    }
+
+    @Test
+    void foldsVietnameseDiacritics() {
+        assertThat(ids("dien thoai", null)).containsExactlyInAnyOrder(1, 2);
+        assertThat(ids("Máy Tính Bảng", null)).containsExactly(3);
+        assertThat(ids("op lung", null)).containsExactly(4);
+    }
+
+    @Test
+    void matchesPrefixAndTypos() {
+        assertThat(ids("iph", null)).containsExactly(2);
+        assertThat(ids("samsnug galxy", null)).containsExactlyInAnyOrder(1, 4);
+        assertThat(ids("snapdragn", null)).containsExactlyInAnyOrder(1, 3);
+    }
+
+    @Test
+    void ranksNameAboveAttributesAndFiltersCategoryAndUnpublished() {
+        index.put(new ProductSearchDocument(6, "Xiaomi Pad 6", "Xiaomi", 2, "Máy tính bảng", true,
+                List.of("Tương thích bút OPPO")));
+
+        assertThat(ids("oppo", null)).containsExactly(3, 6);
+        assertThat(ids("galaxy", 3)).containsExactly(4);
+        assertThat(ids("iphone pro", null)).containsExactly(2);
+    }
+
+    @Test
+    void replacesAndRemovesDocuments() {
+        index.put(new ProductSearchDocument(3, "Realme Pad", "Realme", 2, "Máy tính bảng", true, List.of()));
+        index.remove(1);
+
+        assertThat(ids("oppo", null)).isEmpty();
+        assertThat(ids("realme", null)).containsExactly(3);
+        assertThat(ids("ultra", null)).isEmpty();
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void withinOneEdit() {
+        assertThat(InvertedIndex.withinOneEdit("samsung", "samsnug")).isTrue();
+        assertThat(InvertedIndex.withinOneEdit("galaxy", "galxy")).isTrue();
+        assertThat(InvertedIndex.withinOneEdit("xiaomi", "xiaoni")).isTrue();
+        assertThat(InvertedIndex.withinOneEdit("xiaomi", "xioani")).isFalse();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.phonehub.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestTrieTest {
+
+    private static SuggestTrie.Entry product(int id, String name, long weight) {
+        return new SuggestTrie.Entry("product", name, "p-" + id, id, weight);
+    }
+
+    private static List<String> texts(List<SuggestTrie.Entry> entries) {
+        return entries.stream().map(SuggestTrie.Entry::text).toList();
+    }
+
+    @Test
+    void ranksByPopularityAndMatchesWordStartsWithoutDiacritics() {
+        SuggestTrie trie = new SuggestTrie(List.of(
+                product(1, "Samsung Galaxy S24 Ultra", 50),
+                product(2, "Samsung Galaxy A15", 120),
+                product(3, "Ốp lưng Galaxy S24", 5),
+                product(4, "iPhone 15 Pro Max", 300),
+                new SuggestTrie.Entry("brand", "Samsung", null, null, 170)));
+
+        assertThat(texts(trie.suggest("galax", 10)))
+                .containsExactly("Samsung Galaxy A15", "Samsung Galaxy S24 Ultra", "Ốp lưng Galaxy S24");
+        assertThat(texts(trie.suggest("SAM", 10)))
+                .containsExactly("Samsung", "Samsung Galaxy A15", "Samsung Galaxy S24 Ultra");
+        assertThat(texts(trie.suggest("op lu", 10))).containsExactly("Ốp lưng Galaxy S24");
+        assertThat(texts(trie.suggest("galaxy  s24", 1))).containsExactly("Samsung Galaxy S24 Ultra");
+        assertThat(trie.suggest("xiaomi", 10)).isEmpty();
+        assertThat(trie.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void keepsTopResultsPerPrefixAndAnswersQuicklyOnLargeCatalog() {
+        List<SuggestTrie.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            entries.add(product(i, "Điện thoại mẫu " + i + " bản " + (i % 7), i % 1000));
+        }
+        SuggestTrie trie = new SuggestTrie(entries);
+
+        List<SuggestTrie.Entry> top = trie.suggest("dien thoai", 10);
+        assertThat(top).hasSize(SuggestTrie.MAX_RESULTS);
+        assertThat(top).allMatch(entry -> entry.weight() == 999);
+
+        long start = System.nanoTime();
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            trie.suggest("mau " + (i % 5000), 8);
+        }
+        long averageNanos = (System.nanoTime() - start) / lookups;
+        assertThat(averageNanos).isLessThan(1_000_000);
+    }
+}